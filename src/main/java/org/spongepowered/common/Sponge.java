@@ -43,8 +43,10 @@
 import org.spongepowered.api.service.scheduler.AsynchronousScheduler;
 import org.spongepowered.api.service.scheduler.SynchronousScheduler;
 import org.spongepowered.api.service.sql.SqlService;
+import org.spongepowered.common.command.SpongeCommand;
 import org.spongepowered.common.command.SpongeCommandDisambiguator;
 import org.spongepowered.common.configuration.SpongeConfig;
+import org.spongepowered.common.event.SpongeEventManager;
 import org.spongepowered.common.launch.SpongeLaunch;
 import org.spongepowered.common.registry.SpongeGameRegistry;
 import org.spongepowered.common.service.persistence.SpongeSerializationService;
@@ -52,6 +54,7 @@
 import org.spongepowered.common.service.scheduler.AsyncScheduler;
 import org.spongepowered.common.service.scheduler.SyncScheduler;
 import org.spongepowered.common.service.sql.SqlServiceImpl;
+import org.spongepowered.common.util.SpongeHooks;
 
 import java.io.File;
 
@@ -91,12 +94,15 @@ public Sponge(Injector injector, Game game, Logger logger,
 
         this.plugin = checkNotNull(plugin, "plugin");
         this.minecraftPlugin = checkNotNull(minecraftPlugin, "minecraftPlugin");
+
+        SpongeConfig.addReloadListener(SpongeHooks.CONFIG_SNAPSHOT_REFRESHER);
     }
 
     public void registerServices() {
         try {
             SimpleCommandService commandService = new SimpleCommandService(this.game, new SpongeCommandDisambiguator(this.game));
             this.game.getServiceManager().setProvider(this.plugin, CommandService.class, commandService);
+            commandService.register(this.plugin, new SpongeCommand(), "sponge");
         } catch (ProviderExistsException e) {
             this.logger.warn("Non-Sponge CommandService already registered: " + e.getLocalizedMessage());
         }
@@ -145,6 +151,10 @@ public static SpongeGameRegistry getSpongeRegistry() {
         return ((SpongeGameRegistry) getInstance().game.getRegistry());
     }
 
+    public static SpongeEventManager getSpongeEventManager() {
+        return ((SpongeEventManager) getInstance().game.getEventManager());
+    }
+
     public static Logger getLogger() {
         return getInstance().logger;
     }
@@ -0,0 +1,330 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.command;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.BlockPos;
+import net.minecraft.world.WorldServer;
+import org.spongepowered.api.text.Text;
+import org.spongepowered.api.text.Texts;
+import org.spongepowered.api.text.format.TextColors;
+import org.spongepowered.api.util.command.CommandCallable;
+import org.spongepowered.api.util.command.CommandException;
+import org.spongepowered.api.util.command.CommandPermissionException;
+import org.spongepowered.api.util.command.CommandResult;
+import org.spongepowered.api.util.command.CommandSource;
+import org.spongepowered.api.world.World;
+import org.spongepowered.common.Sponge;
+import org.spongepowered.common.entity.EntityDensityTracker;
+import org.spongepowered.common.event.EventTimings;
+import org.spongepowered.common.event.HandlerTiming;
+import org.spongepowered.common.event.SpongeEventManager;
+import org.spongepowered.common.interfaces.IMixinWorld;
+import org.spongepowered.common.interfaces.IMixinWorldServer;
+import org.spongepowered.common.service.scheduler.AsyncScheduler;
+import org.spongepowered.common.service.scheduler.AsyncTaskExecutor;
+import org.spongepowered.common.service.scheduler.SyncScheduler;
+import org.spongepowered.common.service.scheduler.TaskMetrics;
+import org.spongepowered.common.world.gen.ChunkGenerationPipeline;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code /sponge} command providing administrative tools for Sponge.
+ */
+public class SpongeCommand implements CommandCallable {
+
+    private static final String PERMISSION = "sponge.command";
+    private static final int REPORT_LINES = 20;
+
+    private static final List<String> SUBCOMMANDS = ImmutableList.of("entities", "events", "pregen", "scheduler");
+    private static final List<String> EVENTS_ACTIONS = ImmutableList.of("on", "off", "reset");
+
+    @Override
+    public Optional<CommandResult> process(CommandSource source, String arguments) throws CommandException {
+        if (!testPermission(source)) {
+            throw new CommandPermissionException(Texts.of("You do not have permission to use this command"));
+        }
+
+        String[] args = arguments.isEmpty() ? new String[0] : arguments.split(" +");
+        if (args.length > 0 && args[0].equalsIgnoreCase("events")) {
+            processEvents(source, args);
+            return Optional.of(CommandResult.builder().successCount(1).build());
+        } else if (args.length > 0 && args[0].equalsIgnoreCase("scheduler")) {
+            processScheduler(source);
+            return Optional.of(CommandResult.builder().successCount(1).build());
+        } else if (args.length > 0 && args[0].equalsIgnoreCase("entities")) {
+            processEntities(source, args);
+            return Optional.of(CommandResult.builder().successCount(1).build());
+        } else if (args.length > 1 && args[0].equalsIgnoreCase("pregen")) {
+            processPregen(source, args);
+            return Optional.of(CommandResult.builder().successCount(1).build());
+        }
+
+        source.sendMessage(getUsage(source));
+        return Optional.of(CommandResult.empty());
+    }
+
+    private static void processEvents(CommandSource source, String[] args) {
+        SpongeEventManager eventManager = Sponge.getSpongeEventManager();
+        if (args.length > 1) {
+            if (args[1].equalsIgnoreCase("on")) {
+                eventManager.setTimingsEnabled(true);
+                source.sendMessage(Texts.of("Event handler timings enabled"));
+            } else if (args[1].equalsIgnoreCase("off")) {
+                eventManager.setTimingsEnabled(false);
+                source.sendMessage(Texts.of("Event handler timings disabled"));
+            } else if (args[1].equalsIgnoreCase("reset")) {
+                eventManager.resetTimings();
+                source.sendMessage(Texts.of("Event handler timings reset"));
+            } else {
+                source.sendMessage(Texts.builder("Usage: /sponge events [on|off|reset]").color(TextColors.RED).build());
+            }
+            return;
+        }
+
+        EventTimings timings = eventManager.getTimings();
+        List<HandlerTiming> report = timings.getTimings();
+        source.sendMessage(Texts.builder("Event handler timings (" + (eventManager.isTimingsEnabled() ? "enabled" : "disabled") + ")")
+                .color(TextColors.GREEN).build());
+        if (report.isEmpty()) {
+            source.sendMessage(Texts.of("No handler timings recorded"));
+            return;
+        }
+
+        source.sendMessage(Texts.of("plugin | event | handler | calls | total ms | avg us | max us"));
+        for (int i = 0; i < report.size() && i < REPORT_LINES; i++) {
+            HandlerTiming timing = report.get(i);
+            source.sendMessage(Texts.of(String.format("%s | %s | %s | %d | %.2f | %.2f | %.2f",
+                    timing.getPlugin().getId(),
+                    timing.getEventType().getSimpleName(),
+                    timing.getDescription(),
+                    timing.getCount(),
+                    timing.getTotalNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                    timing.getTotalNanos() / (double) timing.getCount() / TimeUnit.MICROSECONDS.toNanos(1),
+                    timing.getMaxNanos() / (double) TimeUnit.MICROSECONDS.toNanos(1))));
+        }
+    }
+
+    private static void processScheduler(CommandSource source) {
+        SyncScheduler syncScheduler = (SyncScheduler) SyncScheduler.getInstance();
+        Map<String, Long> overruns = syncScheduler.getOverruns();
+        Map<String, Long> deferrals = syncScheduler.getDeferrals();
+        source.sendMessage(Texts.builder("Synchronous scheduler").color(TextColors.GREEN).build());
+        source.sendMessage(Texts.of(String.format("tick budget: %.1f ms, deferred tasks: %d",
+                Sponge.getGlobalConfig().getConfig().getScheduler().getSyncTickBudget(), syncScheduler.getDeferredTaskCount())));
+        if (!overruns.isEmpty() || !deferrals.isEmpty()) {
+            source.sendMessage(Texts.of("plugin | overruns | deferrals"));
+            for (String pluginId : Sets.union(overruns.keySet(), deferrals.keySet())) {
+                source.sendMessage(Texts.of(String.format("%s | %d | %d", pluginId,
+                        Optional.fromNullable(overruns.get(pluginId)).or(0L),
+                        Optional.fromNullable(deferrals.get(pluginId)).or(0L))));
+            }
+        }
+
+        AsyncTaskExecutor executor = ((AsyncScheduler) AsyncScheduler.getInstance()).getExecutor();
+        if (executor == null) {
+            source.sendMessage(Texts.of("The asynchronous scheduler has not started yet"));
+            return;
+        }
+
+        source.sendMessage(Texts.builder("Asynchronous scheduler").color(TextColors.GREEN).build());
+        source.sendMessage(Texts.of(String.format("threads: %d active / %d pooled, queued tasks: %d",
+                executor.getActiveThreads(), executor.getPoolSize(), executor.getQueueDepth())));
+        source.sendMessage(Texts.of("plugin | submitted | completed | rejected | running | waiting | p50 ms | p99 ms"));
+        for (TaskMetrics metrics : executor.getPluginMetrics()) {
+            long[] histogram = metrics.getLatencyHistogram();
+            source.sendMessage(Texts.of(String.format("%s | %d | %d | %d | %d | %d | <%d | <%d",
+                    metrics.getPluginId(),
+                    metrics.getSubmitted(),
+                    metrics.getCompleted(),
+                    metrics.getRejected(),
+                    metrics.getRunning(),
+                    metrics.getWaiting(),
+                    percentile(histogram, 0.5),
+                    percentile(histogram, 0.99))));
+        }
+    }
+
+    private static void processEntities(CommandSource source, String[] args) {
+        boolean found = false;
+        for (WorldServer world : MinecraftServer.getServer().worldServers) {
+            String name = ((World) world).getName();
+            if (args.length > 1 && !name.equalsIgnoreCase(args[1])) {
+                continue;
+            }
+            found = true;
+
+            EntityDensityTracker tracker = ((IMixinWorld) world).getEntityDensityTracker();
+            source.sendMessage(Texts.builder(String.format("%s (dimension %d): %d entities", name, world.provider.getDimensionId(),
+                    tracker.getEntityCount())).color(TextColors.GREEN).build());
+            List<EntityDensityTracker.SectionDensity> sections = tracker.getDensestSections(args.length > 1 ? REPORT_LINES : 5);
+            if (!sections.isEmpty()) {
+                source.sendMessage(Texts.of("chunk x | section y | chunk z | entities"));
+            }
+            for (EntityDensityTracker.SectionDensity section : sections) {
+                source.sendMessage(Texts.of(String.format("%d | %d | %d | %d", section.getChunkX(), section.getSectionY(), section.getChunkZ(),
+                        section.getCount())));
+            }
+        }
+
+        if (!found) {
+            source.sendMessage(Texts.builder("Unknown world: " + args[1]).color(TextColors.RED).build());
+        }
+    }
+
+    private static void processPregen(final CommandSource source, String[] args) throws CommandException {
+        WorldServer world = null;
+        for (WorldServer candidate : MinecraftServer.getServer().worldServers) {
+            if (((World) candidate).getName().equalsIgnoreCase(args[1])) {
+                world = candidate;
+            }
+        }
+        if (world == null) {
+            throw new CommandException(Texts.of("Unknown world: " + args[1]));
+        }
+
+        final String name = ((World) world).getName();
+        ChunkGenerationPipeline pipeline = ((IMixinWorldServer) world).getChunkGenerationPipeline();
+        ChunkGenerationPipeline.Pregeneration pregeneration = pipeline.getPregeneration();
+        if (args.length == 2) {
+            if (pregeneration == null) {
+                source.sendMessage(Texts.of(name + " is not being pregenerated"));
+            } else {
+                source.sendMessage(Texts.of(String.format("%s: %d / %d chunks, %d pending", name, pregeneration.getProcessed(),
+                        pregeneration.getTotal(), pipeline.getPendingCount())));
+            }
+            return;
+        }
+
+        if (args[2].equalsIgnoreCase("cancel")) {
+            if (pregeneration == null) {
+                throw new CommandException(Texts.of(name + " is not being pregenerated"));
+            }
+            pregeneration.cancel();
+            source.sendMessage(Texts.of("Cancelled the pregeneration of " + name));
+            return;
+        }
+
+        if (pregeneration != null) {
+            throw new CommandException(Texts.of(name + " is already being pregenerated"));
+        }
+        int radius;
+        try {
+            radius = Integer.parseInt(args[2]);
+        } catch (NumberFormatException e) {
+            throw new CommandException(Texts.of("Invalid radius: " + args[2]));
+        }
+        if (radius < 0) {
+            throw new CommandException(Texts.of("Invalid radius: " + args[2]));
+        }
+
+        BlockPos spawn = world.getSpawnPoint();
+        pregeneration = pipeline.pregenerate(spawn.getX() >> 4, spawn.getZ() >> 4, radius);
+        source.sendMessage(Texts.of(String.format("Pregenerating %d chunks around the spawn of %s", pregeneration.getTotal(), name)));
+        Futures.addCallback(pregeneration.getFuture(), new FutureCallback<Integer>() {
+
+            @Override
+            public void onSuccess(Integer processed) {
+                source.sendMessage(Texts.builder(String.format("Finished pregenerating %s, %d chunks processed", name, processed))
+                        .color(TextColors.GREEN).build());
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                source.sendMessage(Texts.builder("Failed to pregenerate " + name).color(TextColors.RED).build());
+            }
+        });
+    }
+
+    private static long percentile(long[] histogram, double percentile) {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+
+        long target = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= target) {
+                return 1L << i;
+            }
+        }
+        return 1L << histogram.length;
+    }
+
+    @Override
+    public boolean testPermission(CommandSource source) {
+        return source.hasPermission(PERMISSION);
+    }
+
+    @Override
+    public Optional<Text> getShortDescription(CommandSource source) {
+        return Optional.<Text>of(Texts.of("Sponge administration tools"));
+    }
+
+    @Override
+    public Optional<Text> getHelp(CommandSource source) {
+        return Optional.<Text>of(Texts.of("/sponge entities [world] - Shows the chunk sections with the most entities\n"
+                + "/sponge events [on|off|reset] - Shows or controls event handler timings\n"
+                + "/sponge pregen <world> [radius|cancel] - Generates the chunks around the spawn of a world\n"
+                + "/sponge scheduler - Shows the scheduler metrics"));
+    }
+
+    @Override
+    public Text getUsage(CommandSource source) {
+        return Texts.of("<entities|events|pregen|scheduler>");
+    }
+
+    @Override
+    public List<String> getSuggestions(CommandSource source, String arguments) throws CommandException {
+        String[] args = arguments.split(" ", -1);
+        if (args.length == 1) {
+            return filter(SUBCOMMANDS, args[0]);
+        } else if (args.length == 2 && args[0].equalsIgnoreCase("events")) {
+            return filter(EVENTS_ACTIONS, args[1]);
+        }
+        return ImmutableList.of();
+    }
+
+    private static List<String> filter(List<String> options, String prefix) {
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        for (String option : options) {
+            if (option.startsWith(prefix.toLowerCase())) {
+                builder.add(option);
+            }
+        }
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.configuration;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.logging.log4j.LogManager;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * Watches the files of all loaded {@link SpongeConfig}s and reloads them
+ * when they are modified, so settings can be changed without a restart.
+ *
+ * <p>All configs share a single daemon thread which checks the modification
+ * times of their files once a second. The configs are only weakly
+ * referenced, so configs of unloaded worlds can still be collected.</p>
+ */
+final class ConfigWatcher {
+
+    private static final long POLL_INTERVAL = 1;
+
+    private static final Set<SpongeConfig<?>> configs = Collections.newSetFromMap(new WeakHashMap<SpongeConfig<?>, Boolean>());
+    @Nullable private static ScheduledExecutorService executor;
+
+    private ConfigWatcher() {
+    }
+
+    /**
+     * Starts watching the file of the specified config.
+     *
+     * @param config The config to watch
+     */
+    static synchronized void watch(SpongeConfig<?> config) {
+        configs.add(config);
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("Sponge Config Watcher").setDaemon(true).build());
+            executor.scheduleWithFixedDelay(new Runnable() {
+
+                @Override
+                public void run() {
+                    poll();
+                }
+            }, POLL_INTERVAL, POLL_INTERVAL, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void poll() {
+        List<SpongeConfig<?>> watched;
+        synchronized (ConfigWatcher.class) {
+            watched = Lists.newArrayList(configs);
+        }
+        for (SpongeConfig<?> config : watched) {
+            try {
+                config.reloadIfModified();
+            } catch (Throwable t) {
+                LogManager.getLogger().error(ExceptionUtils.getStackTrace(t));
+            }
+        }
+    }
+
+}
@@ -24,6 +24,8 @@
  */
 package org.spongepowered.common.configuration;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 import ninja.leaping.configurate.ConfigurationOptions;
 import ninja.leaping.configurate.commented.CommentedConfigurationNode;
 import ninja.leaping.configurate.commented.SimpleCommentedConfigurationNode;
@@ -38,7 +40,9 @@
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @SuppressWarnings("unused")
 public class SpongeConfig<T extends SpongeConfig.ConfigBase> {
@@ -55,6 +59,20 @@ public enum Type {
         }
     }
 
+    /**
+     * A listener which is notified after a config was reloaded.
+     */
+    public interface ReloadListener {
+
+        /**
+         * Called after the specified config was reloaded.
+         *
+         * @param config The reloaded config
+         */
+        void onReload(SpongeConfig<?> config);
+
+    }
+
     public static final String CONFIG_ENABLED = "config-enabled";
 
     // DEBUG
@@ -92,6 +110,25 @@ public enum Type {
     // MODULES
     public static final String MODULE_ENTITY_ACTIVATION_RANGE = "entity-activation-range";
 
+    // SQL
+    public static final String SQL_ASYNC_BATCH_SIZE = "async-batch-size";
+    public static final String SQL_ASYNC_BATCH_LATENCY = "async-batch-latency";
+    public static final String SQL_ASYNC_QUEUE_SIZE = "async-queue-size";
+    public static final String SQL_POOL_IDLE_TIMEOUT = "pool-idle-timeout";
+    public static final String SQL_MAX_OPEN_POOLS = "max-open-pools";
+    public static final String SQL_POOL_MAXIMUM_SIZE = "maximum-pool-size";
+    public static final String SQL_POOL_MINIMUM_IDLE = "minimum-idle";
+    public static final String SQL_POOL_CONNECTION_TIMEOUT = "connection-timeout";
+    public static final String SQL_POOL_STATEMENT_CACHE_SIZE = "prepared-statement-cache-size";
+
+    // SCHEDULER
+    public static final String SCHEDULER_ASYNC_POOL_TYPE = "async-pool-type";
+    public static final String SCHEDULER_ASYNC_THREADS = "async-threads";
+    public static final String SCHEDULER_ASYNC_QUEUE_SIZE = "async-queue-size";
+    public static final String SCHEDULER_ASYNC_PLUGIN_CONCURRENCY = "async-plugin-concurrency";
+    public static final String SCHEDULER_ASYNC_REJECTION_POLICY = "async-rejection-policy";
+    public static final String SCHEDULER_SYNC_TICK_BUDGET = "sync-tick-budget";
+
     // WORLD
     public static final String WORLD_INFINITE_WATER_SOURCE = "infinite-water-source";
     public static final String WORLD_FLOWING_LAVA_DECAY = "flowing-lava-decay";
@@ -108,16 +145,22 @@ public enum Type {
     private HoconConfigurationLoader loader;
     private CommentedConfigurationNode root = SimpleCommentedConfigurationNode.root(ConfigurationOptions.defaults()
             .setHeader(HEADER));
+    private static final List<ReloadListener> reloadListeners = new CopyOnWriteArrayList<ReloadListener>();
+
     private ObjectMapper<T>.BoundInstance configMapper;
-    private T configBase;
+    private volatile T configBase;
     private String modId;
     private String configName;
-    @SuppressWarnings("unused")
     private File file;
+    private volatile long loadedModified;
+    private long pendingModified;
 
-    @SuppressWarnings("unchecked")
     public SpongeConfig(Type type, File file, String modId) {
+        this(type, file, modId, true);
+    }
 
+    @SuppressWarnings("unchecked")
+    SpongeConfig(Type type, File file, String modId, boolean watch) {
         this.type = type;
         this.file = file;
         this.modId = modId;
@@ -138,23 +181,43 @@ public SpongeConfig(Type type, File file, String modId) {
                 this.configName = file.getParentFile().getName().toUpperCase();
             }
 
-            this.configMapper = (ObjectMapper.BoundInstance) ObjectMapper.forClass(this.type.type).bindToNew();
-
             reload();
             this.loader.save(this.root);
+            this.loadedModified = file.lastModified();
+            if (watch) {
+                ConfigWatcher.watch(this);
+            }
         } catch (Throwable t) {
             LogManager.getLogger().error(ExceptionUtils.getStackTrace(t));
         }
     }
 
+    /**
+     * Registers a listener which is notified whenever any config is reloaded,
+     * either manually or because its file changed on disk.
+     *
+     * <p>Listeners may be called from the config watcher thread, so they
+     * must be thread-safe.</p>
+     *
+     * @param listener The listener
+     */
+    public static void addReloadListener(ReloadListener listener) {
+        reloadListeners.add(checkNotNull(listener, "listener"));
+    }
+
+    public static void removeReloadListener(ReloadListener listener) {
+        reloadListeners.remove(listener);
+    }
+
     public T getConfig() {
         return this.configBase;
     }
 
-    public void save() {
+    public synchronized void save() {
         try {
             this.configMapper.serialize(this.root.getNode(this.modId));
             this.loader.save(this.root);
+            this.loadedModified = this.file.lastModified();
         } catch (IOException e) {
             LogManager.getLogger().error(ExceptionUtils.getStackTrace(e));
         } catch (ObjectMappingException e) {
@@ -162,15 +225,63 @@ public void save() {
         }
     }
 
+    /**
+     * Reloads the config from its file. The settings are loaded into a new
+     * {@link ConfigBase} instance which replaces the current one at once, so
+     * readers never see a partially loaded config.
+     */
+    @SuppressWarnings("unchecked")
     public void reload() {
-        try {
-            this.root = this.loader.load(ConfigurationOptions.defaults()
-                    .setHeader(HEADER));
-            this.configBase = this.configMapper.populate(this.root.getNode(this.modId));
-        } catch (IOException e) {
-            LogManager.getLogger().error(ExceptionUtils.getStackTrace(e));
-        } catch (ObjectMappingException e) {
-            LogManager.getLogger().error(ExceptionUtils.getStackTrace(e));
+        boolean initial;
+        synchronized (this) {
+            try {
+                long modified = this.file.lastModified();
+                CommentedConfigurationNode root = this.loader.load(ConfigurationOptions.defaults()
+                        .setHeader(HEADER));
+                ObjectMapper<T>.BoundInstance configMapper = (ObjectMapper.BoundInstance) ObjectMapper.forClass(this.type.type).bindToNew();
+                T configBase = configMapper.populate(root.getNode(this.modId));
+
+                initial = this.configBase == null;
+                this.root = root;
+                this.configMapper = configMapper;
+                this.configBase = configBase;
+                this.loadedModified = modified;
+            } catch (IOException e) {
+                LogManager.getLogger().error(ExceptionUtils.getStackTrace(e));
+                return;
+            } catch (ObjectMappingException e) {
+                LogManager.getLogger().error(ExceptionUtils.getStackTrace(e));
+                return;
+            }
+        }
+
+        if (!initial) {
+            for (ReloadListener listener : reloadListeners) {
+                try {
+                    listener.onReload(this);
+                } catch (Throwable t) {
+                    LogManager.getLogger().error(ExceptionUtils.getStackTrace(t));
+                }
+            }
+        }
+    }
+
+    /**
+     * Reloads the config if its file was modified since it was last loaded
+     * or saved. A change is only picked up once the file stopped changing
+     * between two checks, so an editor that is still writing the file does
+     * not trigger a reload of a half-written config.
+     */
+    void reloadIfModified() {
+        long modified = this.file.lastModified();
+        if (modified == 0 || modified == this.loadedModified) {
+            this.pendingModified = 0;
+        } else if (modified != this.pendingModified) {
+            this.pendingModified = modified;
+        } else {
+            this.pendingModified = 0;
+            LogManager.getLogger().info("Reloading {} config {} after it was modified", this.configName, this.file);
+            reload();
         }
     }
 
@@ -209,6 +320,9 @@ public static class GlobalConfig extends ConfigBase {
         @Setting(value = "modules")
         private ModuleCategory mixins = new ModuleCategory();
 
+        @Setting
+        private SchedulerCategory scheduler = new SchedulerCategory();
+
         public SqlCategory getSql() {
             return this.sql;
         }
@@ -220,6 +334,10 @@ public CommandsCategory getCommands() {
         public ModuleCategory getModules() {
             return this.mixins;
         }
+
+        public SchedulerCategory getScheduler() {
+            return this.scheduler;
+        }
     }
 
     public static class DimensionConfig extends ConfigBase {
@@ -294,10 +412,187 @@ public WorldCategory getWorld() {
     public static class SqlCategory extends Category {
         @Setting
         private Map<String, String> aliases = new HashMap<String, String>();
+        @Setting(value = SQL_ASYNC_BATCH_SIZE, comment = "Maximum number of asynchronous updates executed as one JDBC batch")
+        private int asyncBatchSize = 100;
+        @Setting(value = SQL_ASYNC_BATCH_LATENCY,
+                comment = "Milliseconds an asynchronous update may wait for more updates to join its batch")
+        private int asyncBatchLatency = 50;
+        @Setting(value = SQL_ASYNC_QUEUE_SIZE, comment = "Number of asynchronous queries and batches that may wait for a connection")
+        private int asyncQueueSize = 1024;
+        @Setting(value = SQL_POOL_IDLE_TIMEOUT,
+                comment = "Seconds a connection pool without borrowed connections stays open. Set to 0 to never close idle pools")
+        private int poolIdleTimeout = 600;
+        @Setting(value = SQL_MAX_OPEN_POOLS, comment = "Maximum number of open connection pools, the least recently used idle pools\n"
+                + "are closed first. Set to 0 for no limit")
+        private int maxOpenPools = 16;
+        @Setting(comment = "Connection pool settings by alias. Connections without an entry use the default settings")
+        private Map<String, SqlPoolCategory> pools = new HashMap<String, SqlPoolCategory>();
 
         public Map<String, String> getAliases() {
             return this.aliases;
         }
+
+        public Map<String, SqlPoolCategory> getPools() {
+            return this.pools;
+        }
+
+        public int getPoolIdleTimeout() {
+            return this.poolIdleTimeout;
+        }
+
+        public void setPoolIdleTimeout(int poolIdleTimeout) {
+            this.poolIdleTimeout = poolIdleTimeout;
+        }
+
+        public int getMaxOpenPools() {
+            return this.maxOpenPools;
+        }
+
+        public void setMaxOpenPools(int maxOpenPools) {
+            this.maxOpenPools = maxOpenPools;
+        }
+
+        public int getAsyncBatchSize() {
+            return this.asyncBatchSize;
+        }
+
+        public void setAsyncBatchSize(int asyncBatchSize) {
+            this.asyncBatchSize = asyncBatchSize;
+        }
+
+        public int getAsyncBatchLatency() {
+            return this.asyncBatchLatency;
+        }
+
+        public void setAsyncBatchLatency(int asyncBatchLatency) {
+            this.asyncBatchLatency = asyncBatchLatency;
+        }
+
+        public int getAsyncQueueSize() {
+            return this.asyncQueueSize;
+        }
+
+        public void setAsyncQueueSize(int asyncQueueSize) {
+            this.asyncQueueSize = asyncQueueSize;
+        }
+    }
+
+    @ConfigSerializable
+    public static class SqlPoolCategory extends Category {
+
+        @Setting(value = SQL_POOL_MAXIMUM_SIZE,
+                comment = "Maximum number of connections of the pool. Set to 0 to use twice the number of available processors plus one")
+        private int maximumPoolSize = 0;
+        @Setting(value = SQL_POOL_MINIMUM_IDLE, comment = "Number of idle connections the pool keeps open")
+        private int minimumIdle = 1;
+        @Setting(value = SQL_POOL_CONNECTION_TIMEOUT, comment = "Milliseconds to wait for a connection before failing")
+        private long connectionTimeout = 30000;
+        @Setting(value = SQL_POOL_STATEMENT_CACHE_SIZE,
+                comment = "Number of prepared statements cached per connection, if the driver supports it. Set to 0 to disable")
+        private int preparedStatementCacheSize = 250;
+
+        public int getMaximumPoolSize() {
+            return this.maximumPoolSize;
+        }
+
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+        }
+
+        public int getMinimumIdle() {
+            return this.minimumIdle;
+        }
+
+        public void setMinimumIdle(int minimumIdle) {
+            this.minimumIdle = minimumIdle;
+        }
+
+        public long getConnectionTimeout() {
+            return this.connectionTimeout;
+        }
+
+        public void setConnectionTimeout(long connectionTimeout) {
+            this.connectionTimeout = connectionTimeout;
+        }
+
+        public int getPreparedStatementCacheSize() {
+            return this.preparedStatementCacheSize;
+        }
+
+        public void setPreparedStatementCacheSize(int preparedStatementCacheSize) {
+            this.preparedStatementCacheSize = preparedStatementCacheSize;
+        }
+    }
+
+    @ConfigSerializable
+    public static class SchedulerCategory extends Category {
+
+        @Setting(value = SCHEDULER_ASYNC_POOL_TYPE, comment = "The thread pool running asynchronous tasks. 'bounded' uses a fixed number of threads\n"
+                + "and a bounded queue, 'cached' creates a new thread whenever no idle thread is available.")
+        private String asyncPoolType = "bounded";
+        @Setting(value = SCHEDULER_ASYNC_THREADS,
+                comment = "Number of threads of the bounded pool. Set to 0 to use twice the number of available processors")
+        private int asyncThreads = 0;
+        @Setting(value = SCHEDULER_ASYNC_QUEUE_SIZE, comment = "Number of asynchronous tasks that may wait for a thread of the bounded pool")
+        private int asyncQueueSize = 1024;
+        @Setting(value = SCHEDULER_ASYNC_PLUGIN_CONCURRENCY,
+                comment = "Number of asynchronous tasks of a single plugin that may run at the same time. Set to 0 to disable")
+        private int asyncPluginConcurrency = 0;
+        @Setting(value = SCHEDULER_ASYNC_REJECTION_POLICY, comment = "What to do with asynchronous tasks when the queue is full. 'abort' drops\n"
+                + "them and logs an error, 'caller-runs' runs them on the scheduler thread. While such a task runs, no\n"
+                + "asynchronous task of any plugin is started, so one slow task delays the tasks of every plugin")
+        private String asyncRejectionPolicy = "abort";
+        @Setting(value = SCHEDULER_SYNC_TICK_BUDGET, comment = "Milliseconds synchronous tasks may run per tick. Tasks beyond the budget are\n"
+                + "deferred to the next tick, alternating between plugins. Set to 0 to disable")
+        private double syncTickBudget = 0;
+
+        public String getAsyncPoolType() {
+            return this.asyncPoolType;
+        }
+
+        public void setAsyncPoolType(String asyncPoolType) {
+            this.asyncPoolType = asyncPoolType;
+        }
+
+        public int getAsyncThreads() {
+            return this.asyncThreads;
+        }
+
+        public void setAsyncThreads(int asyncThreads) {
+            this.asyncThreads = asyncThreads;
+        }
+
+        public int getAsyncQueueSize() {
+            return this.asyncQueueSize;
+        }
+
+        public void setAsyncQueueSize(int asyncQueueSize) {
+            this.asyncQueueSize = asyncQueueSize;
+        }
+
+        public int getAsyncPluginConcurrency() {
+            return this.asyncPluginConcurrency;
+        }
+
+        public void setAsyncPluginConcurrency(int asyncPluginConcurrency) {
+            this.asyncPluginConcurrency = asyncPluginConcurrency;
+        }
+
+        public String getAsyncRejectionPolicy() {
+            return this.asyncRejectionPolicy;
+        }
+
+        public void setAsyncRejectionPolicy(String asyncRejectionPolicy) {
+            this.asyncRejectionPolicy = asyncRejectionPolicy;
+        }
+
+        public double getSyncTickBudget() {
+            return this.syncTickBudget;
+        }
+
+        public void setSyncTickBudget(double syncTickBudget) {
+            this.syncTickBudget = syncTickBudget;
+        }
     }
 
     @ConfigSerializable
@@ -0,0 +1,179 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.configuration;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.spongepowered.common.Sponge;
+
+/**
+ * An immutable, flattened view of the settings that apply to a world,
+ * resolved from the world, dimension or global {@link SpongeConfig}.
+ *
+ * <p>Hot paths like the entity speed and bounding box checks read these
+ * fields instead of resolving the active config and walking through the
+ * mapped categories on every call. Snapshots are recreated whenever a config
+ * is reloaded.</p>
+ */
+public final class WorldConfigSnapshot {
+
+    private final String configName;
+
+    // ENTITY
+    private final int maxBoundingBoxSize;
+    private final int maxSpeed;
+    private final int maxCollisionSize;
+    private final int maxCountWarnSize;
+
+    // ENTITY ACTIVATION RANGE
+    private final boolean entityActivationEnabled;
+    private final int creatureActivationRange;
+    private final int monsterActivationRange;
+    private final int aquaticActivationRange;
+    private final int ambientActivationRange;
+    private final int miscActivationRange;
+
+    // LOGGING
+    private final boolean chunkLoadLogging;
+    private final boolean chunkUnloadLogging;
+    private final boolean entitySpawnLogging;
+    private final boolean entityDespawnLogging;
+    private final boolean entityDeathLogging;
+    private final boolean logWithStackTraces;
+    private final boolean logEntityCollisionChecks;
+    private final boolean logEntitySpeedRemoval;
+
+    /**
+     * Creates a snapshot of the current settings of the specified config.
+     *
+     * @param config The active config of the world
+     */
+    public WorldConfigSnapshot(SpongeConfig<?> config) {
+        checkNotNull(config, "config");
+        SpongeConfig.ConfigBase base = config.getConfig();
+        this.configName = config.getConfigName();
+
+        SpongeConfig.EntityCategory entity = base.getEntity();
+        this.maxBoundingBoxSize = entity.getMaxBoundingBoxSize();
+        this.maxSpeed = entity.getMaxSpeed();
+        this.maxCollisionSize = entity.getMaxCollisionSize();
+        this.maxCountWarnSize = entity.getMaxCountWarnSize();
+
+        SpongeConfig.EntityActivationRangeCategory activationRange = base.getEntityActivationRange();
+        this.entityActivationEnabled = Sponge.getGlobalConfig().getConfig().getModules().usePluginEntityActivation();
+        this.creatureActivationRange = activationRange.getCreatureActivationRange();
+        this.monsterActivationRange = activationRange.getMonsterActivationRange();
+        this.aquaticActivationRange = activationRange.getAquaticActivationRange();
+        this.ambientActivationRange = activationRange.getAmbientActivationRange();
+        this.miscActivationRange = activationRange.getMiscActivationRange();
+
+        SpongeConfig.LoggingCategory logging = base.getLogging();
+        this.chunkLoadLogging = logging.chunkLoadLogging();
+        this.chunkUnloadLogging = logging.chunkUnloadLogging();
+        this.entitySpawnLogging = logging.entitySpawnLogging();
+        this.entityDespawnLogging = logging.entityDespawnLogging();
+        this.entityDeathLogging = logging.entityDeathLogging();
+        this.logWithStackTraces = logging.logWithStackTraces();
+        this.logEntityCollisionChecks = logging.logEntityCollisionChecks();
+        this.logEntitySpeedRemoval = logging.logEntitySpeedRemoval();
+    }
+
+    public String getConfigName() {
+        return this.configName;
+    }
+
+    public int getMaxBoundingBoxSize() {
+        return this.maxBoundingBoxSize;
+    }
+
+    public int getMaxSpeed() {
+        return this.maxSpeed;
+    }
+
+    public int getMaxCollisionSize() {
+        return this.maxCollisionSize;
+    }
+
+    public int getMaxCountWarnSize() {
+        return this.maxCountWarnSize;
+    }
+
+    public boolean isEntityActivationEnabled() {
+        return this.entityActivationEnabled;
+    }
+
+    public int getCreatureActivationRange() {
+        return this.creatureActivationRange;
+    }
+
+    public int getMonsterActivationRange() {
+        return this.monsterActivationRange;
+    }
+
+    public int getAquaticActivationRange() {
+        return this.aquaticActivationRange;
+    }
+
+    public int getAmbientActivationRange() {
+        return this.ambientActivationRange;
+    }
+
+    public int getMiscActivationRange() {
+        return this.miscActivationRange;
+    }
+
+    public boolean chunkLoadLogging() {
+        return this.chunkLoadLogging;
+    }
+
+    public boolean chunkUnloadLogging() {
+        return this.chunkUnloadLogging;
+    }
+
+    public boolean entitySpawnLogging() {
+        return this.entitySpawnLogging;
+    }
+
+    public boolean entityDespawnLogging() {
+        return this.entityDespawnLogging;
+    }
+
+    public boolean entityDeathLogging() {
+        return this.entityDeathLogging;
+    }
+
+    public boolean logWithStackTraces() {
+        return this.logWithStackTraces;
+    }
+
+    public boolean logEntityCollisionChecks() {
+        return this.logEntityCollisionChecks;
+    }
+
+    public boolean logEntitySpeedRemoval() {
+        return this.logEntitySpeedRemoval;
+    }
+
+}
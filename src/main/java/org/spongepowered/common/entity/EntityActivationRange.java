@@ -0,0 +1,317 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.entity;
+
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.procedure.TLongIntProcedure;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityCreature;
+import net.minecraft.entity.EntityLivingBase;
+import net.minecraft.entity.IProjectile;
+import net.minecraft.entity.boss.EntityDragon;
+import net.minecraft.entity.boss.EntityDragonPart;
+import net.minecraft.entity.boss.EntityWither;
+import net.minecraft.entity.effect.EntityWeatherEffect;
+import net.minecraft.entity.item.EntityEnderCrystal;
+import net.minecraft.entity.item.EntityFallingBlock;
+import net.minecraft.entity.item.EntityFireworkRocket;
+import net.minecraft.entity.item.EntityTNTPrimed;
+import net.minecraft.entity.monster.IMob;
+import net.minecraft.entity.passive.EntityAmbientCreature;
+import net.minecraft.entity.passive.EntityAnimal;
+import net.minecraft.entity.passive.EntityVillager;
+import net.minecraft.entity.passive.EntityWaterMob;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.projectile.EntityFireball;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.BlockPos;
+import net.minecraft.util.MathHelper;
+import net.minecraft.world.ChunkCoordIntPair;
+import net.minecraft.world.World;
+import org.spongepowered.common.configuration.SpongeConfig;
+import org.spongepowered.common.configuration.WorldConfigSnapshot;
+import org.spongepowered.common.interfaces.IMixinEntity;
+import org.spongepowered.common.util.SpongeHooks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Skips the ticks of entities which are not within the activation range of
+ * any player, as configured in the {@link SpongeConfig.EntityActivationRangeCategory}
+ * of the world.
+ *
+ * <p>Entities outside the range only get a reduced tick through
+ * {@link IMixinEntity#inactiveTick()} and a full tick once a second. They
+ * are woken up when they are damaged, ridden or when a block in their chunk
+ * changes, and stay awake while they are in water, on fire, in the air,
+ * hurt, targeting another entity or breeding. Players, projectiles and a few
+ * other entities are always active.</p>
+ *
+ * <p>To find the players in range, the players are indexed by the chunk they
+ * are in, so each entity only looks at the chunks within its range instead of
+ * at every player.</p>
+ */
+public final class EntityActivationRange {
+
+    public static final byte ACTIVATION_TYPE_MISC = 0;
+    public static final byte ACTIVATION_TYPE_CREATURE = 1;
+    public static final byte ACTIVATION_TYPE_MONSTER = 2;
+    public static final byte ACTIVATION_TYPE_AQUATIC = 3;
+    public static final byte ACTIVATION_TYPE_AMBIENT = 4;
+
+    /**
+     * The number of ticks an entity stays awake after it has been woken up.
+     */
+    private static final int WAKE_UP_TICKS = 20;
+
+    private final World world;
+    private final TLongObjectHashMap<List<EntityPlayer>> playersByChunk = new TLongObjectHashMap<List<EntityPlayer>>();
+    private final TLongIntHashMap wokenChunks = new TLongIntHashMap();
+    private final int[] ranges = new int[5];
+    private boolean enabled;
+
+    public EntityActivationRange(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Gets the activation type of an entity, which determines the
+     * configured activation range it uses.
+     *
+     * @param entity The entity
+     * @return The activation type
+     */
+    public static byte initializeActivationType(Entity entity) {
+        if (entity instanceof IMob) {
+            return ACTIVATION_TYPE_MONSTER;
+        } else if (entity instanceof EntityWaterMob) {
+            return ACTIVATION_TYPE_AQUATIC;
+        } else if (entity instanceof EntityAmbientCreature) {
+            return ACTIVATION_TYPE_AMBIENT;
+        } else if (entity instanceof EntityCreature) {
+            return ACTIVATION_TYPE_CREATURE;
+        }
+        return ACTIVATION_TYPE_MISC;
+    }
+
+    /**
+     * Gets whether an entity is always active, regardless of its distance
+     * to the players.
+     *
+     * @param entity The entity
+     * @return Whether the entity is always active
+     */
+    public static boolean initializeDefaultActivationState(Entity entity) {
+        return entity instanceof EntityPlayer
+                || entity instanceof IProjectile
+                || entity instanceof EntityFireball
+                || entity instanceof EntityDragon
+                || entity instanceof EntityDragonPart
+                || entity instanceof EntityWither
+                || entity instanceof EntityWeatherEffect
+                || entity instanceof EntityTNTPrimed
+                || entity instanceof EntityFallingBlock
+                || entity instanceof EntityEnderCrystal
+                || entity instanceof EntityFireworkRocket;
+    }
+
+    private static int getCurrentTick() {
+        return MinecraftServer.getServer().getTickCounter();
+    }
+
+    /**
+     * Keeps an entity active for the next second.
+     *
+     * @param entity The entity to wake up
+     */
+    public static void wakeUp(Entity entity) {
+        IMixinEntity mixinEntity = (IMixinEntity) entity;
+        mixinEntity.setActivatedTick(Math.max(mixinEntity.getActivatedTick(), getCurrentTick() + WAKE_UP_TICKS));
+    }
+
+    /**
+     * Wakes up the entities in the chunk of the specified block, because the
+     * block changed.
+     *
+     * @param pos The position of the block
+     */
+    public void wakeUpChunk(BlockPos pos) {
+        wakeUpChunk(pos, getCurrentTick());
+    }
+
+    void wakeUpChunk(BlockPos pos, int currentTick) {
+        if (this.enabled) {
+            this.wokenChunks.put(ChunkCoordIntPair.chunkXZ2Int(pos.getX() >> 4, pos.getZ() >> 4), currentTick + WAKE_UP_TICKS);
+        }
+    }
+
+    /**
+     * Marks all entities which are within the activation range of a player
+     * or in a woken chunk as active for the current tick. Called once per
+     * tick before the entities of the world are updated.
+     */
+    public void activateEntities() {
+        WorldConfigSnapshot config = SpongeHooks.getConfigSnapshot(this.world);
+        configure(config.isEntityActivationEnabled(), config.getMiscActivationRange(), config.getCreatureActivationRange(),
+                config.getMonsterActivationRange(), config.getAquaticActivationRange(), config.getAmbientActivationRange());
+        if (this.enabled) {
+            activateEntities(this.world.playerEntities, this.world.loadedEntityList, getCurrentTick());
+        }
+    }
+
+    void configure(boolean enabled, int misc, int creature, int monster, int aquatic, int ambient) {
+        this.enabled = enabled;
+        this.ranges[ACTIVATION_TYPE_MISC] = misc;
+        this.ranges[ACTIVATION_TYPE_CREATURE] = creature;
+        this.ranges[ACTIVATION_TYPE_MONSTER] = monster;
+        this.ranges[ACTIVATION_TYPE_AQUATIC] = aquatic;
+        this.ranges[ACTIVATION_TYPE_AMBIENT] = ambient;
+        if (!enabled) {
+            this.wokenChunks.clear();
+        }
+    }
+
+    void activateEntities(List<?> playerEntities, List<?> loadedEntities, final int currentTick) {
+        if (currentTick % WAKE_UP_TICKS == 0 && !this.wokenChunks.isEmpty()) {
+            this.wokenChunks.retainEntries(new TLongIntProcedure() {
+
+                @Override
+                public boolean execute(long chunk, int wakeUpTick) {
+                    return wakeUpTick >= currentTick;
+                }
+            });
+        }
+
+        this.playersByChunk.clear();
+        for (Object player : playerEntities) {
+            EntityPlayer entityPlayer = (EntityPlayer) player;
+            long chunk = ChunkCoordIntPair.chunkXZ2Int(MathHelper.floor_double(entityPlayer.posX) >> 4, MathHelper.floor_double(entityPlayer.posZ) >> 4);
+            List<EntityPlayer> players = this.playersByChunk.get(chunk);
+            if (players == null) {
+                players = new ArrayList<EntityPlayer>(1);
+                this.playersByChunk.put(chunk, players);
+            }
+            players.add(entityPlayer);
+        }
+
+        for (Object object : loadedEntities) {
+            Entity entity = (Entity) object;
+            IMixinEntity mixinEntity = (IMixinEntity) entity;
+            if (mixinEntity.getDefaultActivationState() || mixinEntity.getActivatedTick() >= currentTick) {
+                continue;
+            }
+            int range = this.ranges[mixinEntity.getActivationType()];
+            if (range <= 0) {
+                continue;
+            }
+
+            int chunkX = MathHelper.floor_double(entity.posX) >> 4;
+            int chunkZ = MathHelper.floor_double(entity.posZ) >> 4;
+            if (isPlayerInRange(entity, chunkX, chunkZ, range)
+                    || !this.wokenChunks.isEmpty() && this.wokenChunks.get(ChunkCoordIntPair.chunkXZ2Int(chunkX, chunkZ)) >= currentTick) {
+                mixinEntity.setActivatedTick(currentTick);
+            }
+        }
+    }
+
+    private boolean isPlayerInRange(Entity entity, int chunkX, int chunkZ, int range) {
+        if (this.playersByChunk.isEmpty()) {
+            return false;
+        }
+        int chunkRange = (range >> 4) + 1;
+        for (int x = chunkX - chunkRange; x <= chunkX + chunkRange; x++) {
+            for (int z = chunkZ - chunkRange; z <= chunkZ + chunkRange; z++) {
+                List<EntityPlayer> players = this.playersByChunk.get(ChunkCoordIntPair.chunkXZ2Int(x, z));
+                if (players == null) {
+                    continue;
+                }
+                for (int i = 0; i < players.size(); i++) {
+                    EntityPlayer player = players.get(i);
+                    if (Math.abs(player.posX - entity.posX) <= range && Math.abs(player.posZ - entity.posZ) <= range) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether an entity should get a full tick in the current tick.
+     *
+     * @param entity The entity
+     * @return Whether the entity is active
+     */
+    public boolean checkIfActive(Entity entity) {
+        return !this.enabled || checkIfActive(entity, getCurrentTick());
+    }
+
+    boolean checkIfActive(Entity entity, int currentTick) {
+        IMixinEntity mixinEntity = (IMixinEntity) entity;
+        if (!this.enabled || mixinEntity.getDefaultActivationState() || this.ranges[mixinEntity.getActivationType()] <= 0) {
+            return true;
+        }
+        if (mixinEntity.getActivatedTick() >= currentTick || entity.ridingEntity != null || entity.riddenByEntity != null) {
+            return true;
+        }
+        // Inactive entities still get a full tick once a second, and are
+        // kept awake if anything keeps them busy
+        if ((currentTick - mixinEntity.getActivatedTick() - 1) % WAKE_UP_TICKS == 0) {
+            if (checkEntityImmunities(entity)) {
+                mixinEntity.setActivatedTick(currentTick + WAKE_UP_TICKS);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean checkEntityImmunities(Entity entity) {
+        if (entity.isInWater() || entity.fire > 0 || !entity.onGround) {
+            return true;
+        }
+        if (entity instanceof EntityLivingBase) {
+            EntityLivingBase living = (EntityLivingBase) entity;
+            if (living.hurtTime > 0 || !living.getActivePotionEffects().isEmpty()) {
+                return true;
+            }
+            if (entity instanceof EntityCreature && ((EntityCreature) entity).getAttackTarget() != null) {
+                return true;
+            }
+            if (entity instanceof EntityVillager && ((EntityVillager) entity).isMating()) {
+                return true;
+            }
+            if (entity instanceof EntityAnimal) {
+                EntityAnimal animal = (EntityAnimal) entity;
+                if (animal.isChild() || animal.isInLove()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+}
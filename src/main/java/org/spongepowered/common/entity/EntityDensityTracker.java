@@ -0,0 +1,272 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.entity;
+
+import com.google.common.collect.Lists;
+import gnu.trove.iterator.TLongIntIterator;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.set.hash.TLongHashSet;
+import net.minecraft.entity.Entity;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.ClassInheritanceMultiMap;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import org.spongepowered.common.configuration.WorldConfigSnapshot;
+import org.spongepowered.common.util.SpongeHooks;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Counts the entities in every 16x16x16 section of the loaded chunks of a
+ * world, and warns when a section or the whole world exceeds the configured
+ * collision or count warning sizes.
+ *
+ * <p>The counts are updated whenever a loaded chunk adds or removes an
+ * entity from one of its sections, and when chunks are loaded or unloaded,
+ * so the limits are checked in constant time as entities spawn and move.
+ * Warnings are only logged once per section in each warning interval.</p>
+ */
+public final class EntityDensityTracker {
+
+    /**
+     * The number of ticks after which a repeated warning is logged again.
+     */
+    private static final int WARNING_INTERVAL = 600;
+
+    private final World world;
+    private final TLongIntHashMap sectionCounts = new TLongIntHashMap();
+    private int entityCount;
+
+    // Sections warned about in the current and the previous warning interval,
+    // the older set is dropped each interval
+    private TLongHashSet recentWarnings = new TLongHashSet();
+    private TLongHashSet previousWarnings = new TLongHashSet();
+    private int warningBucket;
+    private boolean countWarned;
+
+    public EntityDensityTracker(World world) {
+        this.world = world;
+    }
+
+    private static long getSectionKey(int chunkX, int sectionY, int chunkZ) {
+        return ((long) chunkX & 0x3FFFFFF) << 30 | ((long) chunkZ & 0x3FFFFFF) << 4 | sectionY & 0xF;
+    }
+
+    private static int getChunkX(long key) {
+        return (int) (key << 8 >> 38);
+    }
+
+    private static int getChunkZ(long key) {
+        return (int) (key << 34 >> 38);
+    }
+
+    private static int getSectionY(long key) {
+        return (int) (key & 0xF);
+    }
+
+    /**
+     * Called after an entity was added to a section of a loaded chunk. Warns
+     * about crowded sections and worlds if entity collision checks are
+     * logged.
+     *
+     * @param entity The entity
+     * @param chunkX The x coordinate of the chunk
+     * @param sectionY The index of the section
+     * @param chunkZ The z coordinate of the chunk
+     */
+    public void onEntityAdded(Entity entity, int chunkX, int sectionY, int chunkZ) {
+        long key = getSectionKey(chunkX, sectionY, chunkZ);
+        int count = this.sectionCounts.adjustOrPutValue(key, 1, 1);
+        this.entityCount++;
+
+        WorldConfigSnapshot config = SpongeHooks.getConfigSnapshot(this.world);
+        if (!config.logEntityCollisionChecks()) {
+            return;
+        }
+        int collisionWarnSize = config.getMaxCollisionSize();
+        if (collisionWarnSize > 0 && count >= collisionWarnSize && shouldWarn(key)) {
+            SpongeHooks.logWarning("[{0}] {1} entities in chunk section ({2}, {3}, {4}), last added: {5}", config.getConfigName(), count,
+                    chunkX, sectionY, chunkZ, entity);
+        }
+        int countWarnSize = config.getMaxCountWarnSize();
+        if (countWarnSize > 0 && this.entityCount >= countWarnSize && shouldWarnCount()) {
+            SpongeHooks.logWarning("[{0}] {1} entities loaded in dimension {2}", config.getConfigName(), this.entityCount,
+                    this.world.provider.getDimensionId());
+        }
+    }
+
+    /**
+     * Called after an entity was removed from a section of a loaded chunk.
+     *
+     * @param chunkX The x coordinate of the chunk
+     * @param sectionY The index of the section
+     * @param chunkZ The z coordinate of the chunk
+     */
+    public void onEntityRemoved(int chunkX, int sectionY, int chunkZ) {
+        adjustCount(getSectionKey(chunkX, sectionY, chunkZ), -1);
+    }
+
+    /**
+     * Called after a chunk was loaded, to count the entities it brought in.
+     *
+     * @param chunk The chunk
+     */
+    public void onChunkLoaded(Chunk chunk) {
+        ClassInheritanceMultiMap[] entityLists = chunk.getEntityLists();
+        for (int y = 0; y < entityLists.length; y++) {
+            if (!entityLists[y].isEmpty()) {
+                adjustCount(getSectionKey(chunk.xPosition, y, chunk.zPosition), entityLists[y].size());
+            }
+        }
+    }
+
+    /**
+     * Called after a chunk was unloaded, to discount its entities.
+     *
+     * @param chunk The chunk
+     */
+    public void onChunkUnloaded(Chunk chunk) {
+        for (int y = 0; y < chunk.getEntityLists().length; y++) {
+            long key = getSectionKey(chunk.xPosition, y, chunk.zPosition);
+            this.entityCount -= this.sectionCounts.remove(key);
+        }
+    }
+
+    private void adjustCount(long key, int amount) {
+        int count = this.sectionCounts.adjustOrPutValue(key, amount, amount);
+        if (count <= 0) {
+            this.sectionCounts.remove(key);
+        }
+        this.entityCount += amount;
+    }
+
+    private boolean shouldWarn(long key) {
+        updateWarningBucket();
+        return !this.previousWarnings.contains(key) && this.recentWarnings.add(key);
+    }
+
+    private boolean shouldWarnCount() {
+        updateWarningBucket();
+        if (this.countWarned) {
+            return false;
+        }
+        this.countWarned = true;
+        return true;
+    }
+
+    private void updateWarningBucket() {
+        int bucket = MinecraftServer.getServer().getTickCounter() / WARNING_INTERVAL;
+        if (bucket != this.warningBucket) {
+            TLongHashSet expired = this.previousWarnings;
+            this.previousWarnings = bucket == this.warningBucket + 1 ? this.recentWarnings : new TLongHashSet();
+            this.recentWarnings = expired;
+            this.recentWarnings.clear();
+            this.warningBucket = bucket;
+            this.countWarned = false;
+        }
+    }
+
+    /**
+     * Gets the number of entities in the loaded chunks of the world.
+     *
+     * @return The number of entities
+     */
+    public int getEntityCount() {
+        return this.entityCount;
+    }
+
+    /**
+     * Gets the number of entities in the specified chunk section.
+     *
+     * @param chunkX The x coordinate of the chunk
+     * @param sectionY The index of the section
+     * @param chunkZ The z coordinate of the chunk
+     * @return The number of entities
+     */
+    public int getSectionCount(int chunkX, int sectionY, int chunkZ) {
+        return this.sectionCounts.get(getSectionKey(chunkX, sectionY, chunkZ));
+    }
+
+    /**
+     * Gets the sections with the most entities, the densest first.
+     *
+     * @param limit The maximum number of sections to return
+     * @return The densest sections
+     */
+    public List<SectionDensity> getDensestSections(int limit) {
+        List<SectionDensity> sections = Lists.newArrayListWithCapacity(this.sectionCounts.size());
+        for (TLongIntIterator it = this.sectionCounts.iterator(); it.hasNext();) {
+            it.advance();
+            long key = it.key();
+            sections.add(new SectionDensity(getChunkX(key), getSectionY(key), getChunkZ(key), it.value()));
+        }
+        Collections.sort(sections, new Comparator<SectionDensity>() {
+
+            @Override
+            public int compare(SectionDensity o1, SectionDensity o2) {
+                return o2.getCount() - o1.getCount();
+            }
+        });
+        return sections.size() > limit ? sections.subList(0, limit) : sections;
+    }
+
+    /**
+     * The number of entities in a chunk section.
+     */
+    public static final class SectionDensity {
+
+        private final int chunkX;
+        private final int sectionY;
+        private final int chunkZ;
+        private final int count;
+
+        SectionDensity(int chunkX, int sectionY, int chunkZ, int count) {
+            this.chunkX = chunkX;
+            this.sectionY = sectionY;
+            this.chunkZ = chunkZ;
+            this.count = count;
+        }
+
+        public int getChunkX() {
+            return this.chunkX;
+        }
+
+        public int getSectionY() {
+            return this.sectionY;
+        }
+
+        public int getChunkZ() {
+            return this.chunkZ;
+        }
+
+        public int getCount() {
+            return this.count;
+        }
+
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.entity;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import net.minecraft.entity.Entity;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+/**
+ * Indexes the loaded entities of a world by their unique id and their
+ * class, so lookups do not have to scan every loaded entity.
+ *
+ * <p>Entities are added and removed together with the loaded entity list of
+ * the world. Lookups by region do not need an index of their own, because
+ * every chunk already keeps its entities in per-section lists. Server worlds
+ * already index their entities by unique id, so they only use the index by
+ * class.</p>
+ */
+public final class EntityIndex {
+
+    @Nullable private final Map<UUID, Entity> entitiesByUniqueId;
+    // The unique id each entity was indexed with. Entities may be given a new
+    // unique id after they were added, like when they are loaded from NBT.
+    @Nullable private final Map<Entity, UUID> uniqueIdsByEntity;
+    private final Map<Class<?>, Set<Entity>> entitiesByClass = Maps.newHashMap();
+
+    /**
+     * Creates a new entity index.
+     *
+     * @param indexUniqueIds Whether to index the entities by unique id
+     */
+    public EntityIndex(boolean indexUniqueIds) {
+        this.entitiesByUniqueId = indexUniqueIds ? Maps.<UUID, Entity>newHashMap() : null;
+        this.uniqueIdsByEntity = indexUniqueIds ? Maps.<Entity, UUID>newIdentityHashMap() : null;
+    }
+
+    /**
+     * Called when an entity was added to the loaded entities of the world.
+     *
+     * @param entity The entity
+     */
+    public void add(Entity entity) {
+        if (this.entitiesByUniqueId != null) {
+            UUID uniqueId = entity.getUniqueID();
+            UUID previous = this.uniqueIdsByEntity.put(entity, uniqueId);
+            if (previous != null && this.entitiesByUniqueId.get(previous) == entity) {
+                this.entitiesByUniqueId.remove(previous);
+            }
+            this.entitiesByUniqueId.put(uniqueId, entity);
+        }
+        Set<Entity> entities = this.entitiesByClass.get(entity.getClass());
+        if (entities == null) {
+            entities = Sets.newHashSet();
+            this.entitiesByClass.put(entity.getClass(), entities);
+        }
+        entities.add(entity);
+    }
+
+    /**
+     * Called when an entity was removed from the loaded entities of the
+     * world.
+     *
+     * @param entity The entity
+     */
+    public void remove(Entity entity) {
+        if (this.entitiesByUniqueId != null) {
+            UUID uniqueId = this.uniqueIdsByEntity.remove(entity);
+            // Another entity may have been loaded with the same unique id
+            if (uniqueId != null && this.entitiesByUniqueId.get(uniqueId) == entity) {
+                this.entitiesByUniqueId.remove(uniqueId);
+            }
+        }
+        Set<Entity> entities = this.entitiesByClass.get(entity.getClass());
+        if (entities != null && entities.remove(entity) && entities.isEmpty()) {
+            this.entitiesByClass.remove(entity.getClass());
+        }
+    }
+
+    /**
+     * Gets the loaded entity with the specified unique id.
+     *
+     * @param uniqueId The unique id
+     * @return The entity, or null if no such entity is loaded
+     * @throws IllegalStateException If entities are not indexed by unique id
+     */
+    @Nullable
+    public Entity get(UUID uniqueId) {
+        checkState(this.entitiesByUniqueId != null, "Entities are not indexed by unique id");
+        return this.entitiesByUniqueId.get(uniqueId);
+    }
+
+    /**
+     * Gets all loaded entities of exactly the specified class.
+     *
+     * @param entityClass The entity class
+     * @return A copy of the matching entities
+     */
+    public List<Entity> getExact(Class<?> entityClass) {
+        Set<Entity> entities = this.entitiesByClass.get(entityClass);
+        return entities == null ? Lists.<Entity>newArrayList() : Lists.newArrayList(entities);
+    }
+
+    /**
+     * Gets all loaded entities that are an instance of the specified class
+     * or interface.
+     *
+     * @param type The class or interface
+     * @param <T> The type
+     * @return A copy of the matching entities
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getInstances(Class<T> type) {
+        List<T> result = Lists.newArrayList();
+        for (Map.Entry<Class<?>, Set<Entity>> entry : this.entitiesByClass.entrySet()) {
+            if (type.isAssignableFrom(entry.getKey())) {
+                result.addAll((Set<T>) (Object) entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets all loaded entities that are an instance of the specified class
+     * or interface and match the filter.
+     *
+     * @param type The class or interface
+     * @param filter The filter the entities must match
+     * @param <T> The type
+     * @return The matching entities
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getInstances(Class<T> type, Predicate<? super T> filter) {
+        List<T> result = Lists.newArrayList();
+        for (Map.Entry<Class<?>, Set<Entity>> entry : this.entitiesByClass.entrySet()) {
+            if (type.isAssignableFrom(entry.getKey())) {
+                for (Entity entity : entry.getValue()) {
+                    if (filter.apply((T) entity)) {
+                        result.add((T) entity);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+}
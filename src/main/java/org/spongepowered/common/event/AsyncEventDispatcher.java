@@ -0,0 +1,254 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.event;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.spongepowered.api.event.Event;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.common.Sponge;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+/**
+ * Passes events to handlers on a bounded pool of dispatcher threads.
+ *
+ * <p>Each plugin gets its own lane on top of the shared pool, so the
+ * handlers of one plugin are always called one after another in the order
+ * they were dispatched, while handlers of different plugins may run
+ * concurrently.</p>
+ *
+ * <p>Each lane holds at most {@link #MAX_PENDING_HANDLERS} handler calls
+ * that have not run yet. If the handlers of a plugin can't keep up, the
+ * dispatching thread waits until the lane has room again, so no handler
+ * call is ever dropped.</p>
+ */
+final class AsyncEventDispatcher {
+
+    static final int MAX_PENDING_HANDLERS = 4096;
+
+    /**
+     * How long a dispatching thread waits for a full lane before a warning
+     * is logged. It keeps waiting afterwards.
+     */
+    private static final long FULL_LANE_WARNING_MILLIS = 100;
+
+    private final int threads;
+    private volatile ThreadPoolExecutor executor;
+    private final ConcurrentMap<PluginContainer, PluginLane> lanes = new ConcurrentHashMap<PluginContainer, PluginLane>();
+
+    AsyncEventDispatcher(int threads) {
+        this.threads = threads;
+        this.executor = createExecutor();
+    }
+
+    private ThreadPoolExecutor createExecutor() {
+        // Each lane is submitted at most once at a time, so this queue never
+        // holds more entries than there are plugins with POST handlers
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(this.threads, this.threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactoryBuilder().setNameFormat("Sponge Event Dispatcher #%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Passes the event to all specified handlers on the dispatcher threads.
+     * Blocks while the lane of a handler's plugin is full.
+     *
+     * @param event The event
+     * @param cancelled Whether the event was cancelled before dispatching
+     * @param handlers The handlers to call
+     * @return A future completed with the given cancellation state once all
+     *     handlers have been called
+     */
+    ListenableFuture<Boolean> dispatch(final Event event, final boolean cancelled, List<RegisteredHandler<?>> handlers) {
+        if (handlers.isEmpty()) {
+            return Futures.immediateFuture(cancelled);
+        }
+
+        final SettableFuture<Boolean> future = SettableFuture.create();
+        final AtomicInteger remaining = new AtomicInteger(handlers.size());
+
+        for (final RegisteredHandler<?> handler : handlers) {
+            getLane(handler.getPlugin()).submit(new Runnable() {
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public void run() {
+                    try {
+                        ((RegisteredHandler) handler).handle(event);
+                    } catch (Throwable e) {
+                        Sponge.getLogger().error("Could not pass {} to {}", event.getClass().getSimpleName(), handler.getPlugin(), e);
+                    } finally {
+                        if (remaining.decrementAndGet() == 0) {
+                            future.set(cancelled);
+                        }
+                    }
+                }
+            });
+        }
+
+        return future;
+    }
+
+    /**
+     * Waits for all pending handler calls and stops the dispatcher threads.
+     * Events dispatched afterwards, for example once an integrated server
+     * is started again, are handled by new threads.
+     *
+     * @param timeout The maximum time to wait
+     * @param unit The unit of the timeout
+     */
+    void shutdown(long timeout, TimeUnit unit) {
+        ThreadPoolExecutor executor = this.executor;
+        this.executor = createExecutor();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout, unit)) {
+                Sponge.getLogger().warn("Event handlers were still running {} {} after shutting down the event dispatcher", timeout, unit);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private PluginLane getLane(PluginContainer plugin) {
+        PluginLane lane = this.lanes.get(plugin);
+        if (lane == null) {
+            lane = new PluginLane(plugin);
+            PluginLane existing = this.lanes.putIfAbsent(plugin, lane);
+            if (existing != null) {
+                lane = existing;
+            }
+        }
+        return lane;
+    }
+
+    /**
+     * Runs its tasks sequentially on the shared executor. At most one task
+     * of a lane is submitted to the executor at any time.
+     */
+    private final class PluginLane implements Runnable {
+
+        private final PluginContainer plugin;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+        private final Semaphore capacity = new Semaphore(MAX_PENDING_HANDLERS);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        @Nullable private volatile Thread runner;
+
+        PluginLane(PluginContainer plugin) {
+            this.plugin = plugin;
+        }
+
+        /**
+         * Adds a task to this lane, waiting for room if the lane already
+         * has the maximum number of pending tasks.
+         *
+         * @param task The task
+         */
+        void submit(Runnable task) {
+            if (!this.capacity.tryAcquire()) {
+                if (Thread.currentThread() == this.runner) {
+                    // A handler of this plugin dispatched while its own lane is full, waiting
+                    // here would never finish. Run the call in place instead of dropping it.
+                    task.run();
+                    return;
+                }
+                awaitCapacity();
+            }
+
+            this.tasks.add(task);
+            schedule();
+        }
+
+        private void awaitCapacity() {
+            boolean interrupted = false;
+            try {
+                if (this.capacity.tryAcquire(FULL_LANE_WARNING_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+
+            Sponge.getLogger().warn("The event handlers of {} have {} pending calls, waiting for them to catch up", this.plugin,
+                    MAX_PENDING_HANDLERS);
+            this.capacity.acquireUninterruptibly();
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void schedule() {
+            if (this.scheduled.compareAndSet(false, true)) {
+                while (true) {
+                    try {
+                        AsyncEventDispatcher.this.executor.execute(this);
+                        return;
+                    } catch (RejectedExecutionException e) {
+                        // The executor was replaced by shutdown() in the meantime, retry with the new one
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            this.runner = Thread.currentThread();
+            try {
+                Runnable task;
+                while ((task = this.tasks.poll()) != null) {
+                    this.capacity.release();
+                    task.run();
+                }
+            } finally {
+                this.runner = null;
+                this.scheduled.set(false);
+            }
+
+            // A task may have been added after the queue was drained but before the lane was released
+            if (!this.tasks.isEmpty()) {
+                schedule();
+            }
+        }
+
+    }
+
+}
@@ -26,29 +26,45 @@
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static org.objectweb.asm.Opcodes.AALOAD;
 import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
 import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
 import static org.objectweb.asm.Opcodes.ACC_SUPER;
 import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ASTORE;
+import static org.objectweb.asm.Opcodes.BIPUSH;
 import static org.objectweb.asm.Opcodes.CHECKCAST;
 import static org.objectweb.asm.Opcodes.GETFIELD;
+import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.ICONST_0;
+import static org.objectweb.asm.Opcodes.IFNE;
+import static org.objectweb.asm.Opcodes.INVOKEINTERFACE;
 import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
 import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+import static org.objectweb.asm.Opcodes.PUTFIELD;
 import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.SIPUSH;
 import static org.objectweb.asm.Opcodes.V1_6;
 
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Type;
+import org.spongepowered.api.event.Cancellable;
 import org.spongepowered.api.event.Event;
+import org.spongepowered.api.event.EventHandler;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
-public final class ClassEventHandlerFactory implements AnnotatedEventHandler.Factory {
+public final class ClassEventHandlerFactory implements AnnotatedEventHandler.Factory, EventInvoker.Factory {
 
     private final AtomicInteger id = new AtomicInteger();
     private final LocalClassLoader classLoader = new LocalClassLoader(getClass().getClassLoader());
@@ -63,6 +79,22 @@ public Class<? extends AnnotatedEventHandler> load(Method method) throws Excepti
                 }
             });
 
+    /**
+     * Invoker classes only depend on the listener methods they call and
+     * whether they have to check for cancellation, so they are shared
+     * between all caches with the same layout.
+     */
+    private final LoadingCache<InvokerLayout, Class<? extends EventInvoker>> invokerCache = CacheBuilder.newBuilder()
+            .concurrencyLevel(1)
+            .weakValues()
+            .build(new CacheLoader<InvokerLayout, Class<? extends EventInvoker>>() {
+
+                @Override
+                public Class<? extends EventInvoker> load(InvokerLayout layout) throws Exception {
+                    return createInvokerClass(layout);
+                }
+            });
+
     private final String targetPackage;
 
     public ClassEventHandlerFactory(String targetPackage) {
@@ -129,6 +161,191 @@ private static byte[] generateClass(String name, Class<?> handle, Method method,
         return cw.toByteArray();
     }
 
+    @Override
+    public EventInvoker create(Class<? extends Event> eventClass, List<RegisteredHandler<?>> handlers) throws Exception {
+        boolean cancellable = Cancellable.class.isAssignableFrom(eventClass);
+        Method[] methods = new Method[handlers.size()];
+        boolean[] checkCancelled = new boolean[handlers.size()];
+
+        for (int i = 0; i < methods.length; i++) {
+            RegisteredHandler<?> handler = handlers.get(i);
+            if (handler.getMethod() != null && isAccessible(handler.getMethod())) {
+                methods[i] = handler.getMethod();
+            }
+            checkCancelled[i] = cancellable && handler.isIgnoreCancelled();
+        }
+
+        return this.invokerCache.get(new InvokerLayout(eventClass.getSimpleName(), methods, checkCancelled))
+                .getConstructor(RegisteredHandler[].class)
+                .newInstance(new Object[] {handlers.toArray(new RegisteredHandler<?>[methods.length])});
+    }
+
+    /**
+     * Checks whether the generated invoker is able to call the listener
+     * method directly. Otherwise it falls back to calling the
+     * {@link EventHandler} created for the method.
+     */
+    private boolean isAccessible(Method method) {
+        Class<?> handle = method.getDeclaringClass();
+        if (!Modifier.isPublic(handle.getModifiers()) || !Modifier.isPublic(method.getParameterTypes()[0].getModifiers())) {
+            return false;
+        }
+
+        try {
+            return Class.forName(handle.getName(), false, this.classLoader) == handle;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private Class<? extends EventInvoker> createInvokerClass(InvokerLayout layout) {
+        String name = this.targetPackage + layout.eventName + "Invoker_" + this.id.incrementAndGet();
+        return this.classLoader.defineClass(name, generateInvokerClass(name, layout));
+    }
+
+    private static final String BASE_INVOKER = Type.getInternalName(EventInvoker.class);
+    private static final String REGISTERED_HANDLER = Type.getInternalName(RegisteredHandler.class);
+    private static final String EVENT_HANDLER = Type.getInternalName(EventHandler.class);
+    private static final String EVENT_HANDLER_DESCRIPTOR = Type.getDescriptor(EventHandler.class);
+    private static final String CANCELLABLE = Type.getInternalName(Cancellable.class);
+    private static final String INVOKER_CONSTRUCTOR_DESCRIPTOR = "([" + Type.getDescriptor(RegisteredHandler.class) + ")V";
+    private static final String HANDLE_EXCEPTION_DESCRIPTOR = "(I" + Type.getDescriptor(Event.class) + "Ljava/lang/Throwable;)V";
+
+    private static byte[] generateInvokerClass(String name, InvokerLayout layout) {
+        name = name.replace('.', '/');
+        final Method[] methods = layout.methods;
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        MethodVisitor mv;
+
+        cw.visit(V1_6, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, name, null, BASE_INVOKER, null);
+
+        for (int i = 0; i < methods.length; i++) {
+            cw.visitField(ACC_PRIVATE + ACC_FINAL, "handler" + i, getHandlerDescriptor(methods[i]), null, null).visitEnd();
+        }
+
+        {
+            mv = cw.visitMethod(ACC_PUBLIC, "<init>", INVOKER_CONSTRUCTOR_DESCRIPTOR, null, null);
+            mv.visitCode();
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitMethodInsn(INVOKESPECIAL, BASE_INVOKER, "<init>", INVOKER_CONSTRUCTOR_DESCRIPTOR, false);
+            for (int i = 0; i < methods.length; i++) {
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitVarInsn(ALOAD, 1);
+                pushInt(mv, i);
+                mv.visitInsn(AALOAD);
+                if (methods[i] != null) {
+                    mv.visitMethodInsn(INVOKEVIRTUAL, REGISTERED_HANDLER, "getHandle", "()Ljava/lang/Object;", false);
+                    mv.visitTypeInsn(CHECKCAST, Type.getInternalName(methods[i].getDeclaringClass()));
+                } else {
+                    mv.visitMethodInsn(INVOKEVIRTUAL, REGISTERED_HANDLER, "getHandler", "()" + EVENT_HANDLER_DESCRIPTOR, false);
+                }
+                mv.visitFieldInsn(PUTFIELD, name, "handler" + i, getHandlerDescriptor(methods[i]));
+            }
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+        {
+            mv = cw.visitMethod(ACC_PUBLIC, "invoke", HANDLE_METHOD_DESCRIPTOR, null, null);
+            mv.visitCode();
+            for (int i = 0; i < methods.length; i++) {
+                Label start = new Label();
+                Label end = new Label();
+                Label handler = new Label();
+                Label next = new Label();
+                mv.visitTryCatchBlock(start, end, handler, "java/lang/Throwable");
+
+                if (layout.checkCancelled[i]) {
+                    mv.visitVarInsn(ALOAD, 1);
+                    mv.visitTypeInsn(CHECKCAST, CANCELLABLE);
+                    mv.visitMethodInsn(INVOKEINTERFACE, CANCELLABLE, "isCancelled", "()Z", true);
+                    mv.visitJumpInsn(IFNE, next);
+                }
+
+                mv.visitLabel(start);
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitFieldInsn(GETFIELD, name, "handler" + i, getHandlerDescriptor(methods[i]));
+                mv.visitVarInsn(ALOAD, 1);
+                if (methods[i] != null) {
+                    String eventName = Type.getInternalName(methods[i].getParameterTypes()[0]);
+                    mv.visitTypeInsn(CHECKCAST, eventName);
+                    mv.visitMethodInsn(INVOKEVIRTUAL, Type.getInternalName(methods[i].getDeclaringClass()), methods[i].getName(),
+                            "(L" + eventName + ";)V", false);
+                } else {
+                    mv.visitMethodInsn(INVOKEINTERFACE, EVENT_HANDLER, "handle", HANDLE_METHOD_DESCRIPTOR, true);
+                }
+                mv.visitLabel(end);
+                mv.visitJumpInsn(GOTO, next);
+
+                mv.visitLabel(handler);
+                mv.visitVarInsn(ASTORE, 2);
+                mv.visitVarInsn(ALOAD, 0);
+                pushInt(mv, i);
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitMethodInsn(INVOKEVIRTUAL, BASE_INVOKER, "handleException", HANDLE_EXCEPTION_DESCRIPTOR, false);
+
+                mv.visitLabel(next);
+            }
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+        cw.visitEnd();
+
+        return cw.toByteArray();
+    }
+
+    private static String getHandlerDescriptor(Method method) {
+        return method != null ? Type.getDescriptor(method.getDeclaringClass()) : EVENT_HANDLER_DESCRIPTOR;
+    }
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else if (value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    private static final class InvokerLayout {
+
+        final String eventName;
+        final Method[] methods;
+        final boolean[] checkCancelled;
+
+        InvokerLayout(String eventName, Method[] methods, boolean[] checkCancelled) {
+            this.eventName = eventName;
+            this.methods = methods;
+            this.checkCancelled = checkCancelled;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof InvokerLayout)) {
+                return false;
+            }
+
+            InvokerLayout that = (InvokerLayout) o;
+            return Arrays.equals(this.methods, that.methods) && Arrays.equals(this.checkCancelled, that.checkCancelled);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(this.methods) + Arrays.hashCode(this.checkCancelled);
+        }
+
+    }
+
     private static class LocalClassLoader extends ClassLoader {
 
         private LocalClassLoader(ClassLoader parent) {
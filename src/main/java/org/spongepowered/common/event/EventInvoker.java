@@ -0,0 +1,59 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.event;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.spongepowered.api.event.Event;
+import org.spongepowered.common.Sponge;
+
+import java.util.List;
+
+/**
+ * Passes an event to all handlers of a baked {@link RegisteredHandler.Cache}
+ * in order. Exceptions thrown by a handler are logged and don't prevent the
+ * remaining handlers from being called.
+ */
+public abstract class EventInvoker {
+
+    protected final RegisteredHandler<?>[] handlers;
+
+    protected EventInvoker(RegisteredHandler<?>[] handlers) {
+        this.handlers = checkNotNull(handlers, "handlers");
+    }
+
+    public abstract void invoke(Event event);
+
+    protected final void handleException(int index, Event event, Throwable e) {
+        Sponge.getLogger().error("Could not pass {} to {}", event.getClass().getSimpleName(), this.handlers[index].getPlugin(), e);
+    }
+
+    interface Factory {
+
+        EventInvoker create(Class<? extends Event> eventClass, List<RegisteredHandler<?>> handlers) throws Exception;
+
+    }
+
+}
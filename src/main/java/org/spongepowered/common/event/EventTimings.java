@@ -0,0 +1,153 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.event;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Longs;
+import org.spongepowered.api.event.Event;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Records how long each handler takes to handle the events passed to it.
+ *
+ * <p>The timings are only recorded while they are enabled in the
+ * {@link SpongeEventManager}, which bakes its handlers with the timed
+ * invokers created here instead of the generated ones. Disabled timings
+ * therefore don't add any overhead to posting events.</p>
+ */
+public final class EventTimings implements EventInvoker.Factory {
+
+    private static final Comparator<HandlerTiming> BY_TOTAL_TIME = new Comparator<HandlerTiming>() {
+
+        @Override
+        public int compare(HandlerTiming o1, HandlerTiming o2) {
+            return Longs.compare(o2.getTotalNanos(), o1.getTotalNanos());
+        }
+    };
+
+    private final ConcurrentMap<Map.Entry<RegisteredHandler<?>, Class<?>>, HandlerTiming> timings =
+            new ConcurrentHashMap<Map.Entry<RegisteredHandler<?>, Class<?>>, HandlerTiming>();
+
+    EventTimings() {
+    }
+
+    @Override
+    public EventInvoker create(Class<? extends Event> eventClass, List<RegisteredHandler<?>> handlers) {
+        HandlerTiming[] timings = new HandlerTiming[handlers.size()];
+        for (int i = 0; i < timings.length; i++) {
+            timings[i] = getTiming(handlers.get(i), eventClass);
+        }
+        return new TimedEventInvoker(handlers.toArray(new RegisteredHandler<?>[timings.length]), timings);
+    }
+
+    private HandlerTiming getTiming(RegisteredHandler<?> handler, Class<? extends Event> eventClass) {
+        Map.Entry<RegisteredHandler<?>, Class<?>> key = Maps.<RegisteredHandler<?>, Class<?>>immutableEntry(handler, eventClass);
+        HandlerTiming timing = this.timings.get(key);
+        if (timing == null) {
+            timing = new HandlerTiming(handler, eventClass);
+            HandlerTiming existing = this.timings.putIfAbsent(key, timing);
+            if (existing != null) {
+                timing = existing;
+            }
+        }
+        return timing;
+    }
+
+    /**
+     * Gets the timings of all handlers that have been called since the
+     * timings were last reset, sorted by the total time spent in them.
+     *
+     * @return The handler timings, most expensive first
+     */
+    public List<HandlerTiming> getTimings() {
+        List<HandlerTiming> result = Lists.newArrayList();
+        for (HandlerTiming timing : this.timings.values()) {
+            if (timing.getCount() > 0) {
+                result.add(timing);
+            }
+        }
+
+        Collections.sort(result, BY_TOTAL_TIME);
+        return result;
+    }
+
+    /**
+     * Discards all recorded timings. Invokers created before the reset keep
+     * recording into the discarded timings, so the handlers have to be baked
+     * again afterwards.
+     */
+    void reset() {
+        this.timings.clear();
+    }
+
+    /**
+     * Discards the timings of all handlers matching the specified predicate,
+     * so unregistered handlers are not kept reachable.
+     *
+     * @param predicate The predicate matching the handlers to remove
+     */
+    void remove(Predicate<RegisteredHandler<?>> predicate) {
+        for (Iterator<Map.Entry<RegisteredHandler<?>, Class<?>>> it = this.timings.keySet().iterator(); it.hasNext();) {
+            if (predicate.apply(it.next().getKey())) {
+                it.remove();
+            }
+        }
+    }
+
+    private static final class TimedEventInvoker extends EventInvoker {
+
+        private final HandlerTiming[] timings;
+
+        TimedEventInvoker(RegisteredHandler<?>[] handlers, HandlerTiming[] timings) {
+            super(handlers);
+            this.timings = timings;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void invoke(Event event) {
+            for (int i = 0; i < this.handlers.length; i++) {
+                long start = System.nanoTime();
+                try {
+                    ((RegisteredHandler) this.handlers[i]).handle(event);
+                } catch (Throwable e) {
+                    handleException(i, event, e);
+                }
+                this.timings[i].record(System.nanoTime() - start);
+            }
+        }
+
+    }
+
+}
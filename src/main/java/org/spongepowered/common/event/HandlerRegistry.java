@@ -0,0 +1,246 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.event;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.reflect.TypeToken;
+import org.spongepowered.api.event.Event;
+import org.spongepowered.common.Sponge;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An immutable snapshot of all registered handlers together with the baked
+ * handler lists for every event type that has been posted so far.
+ *
+ * <p>Modifications never change an existing registry, they create a new one
+ * which only re-bakes the event types that are a subtype of one of the
+ * changed handlers' event classes. Every other baked cache is carried over
+ * as-is.</p>
+ */
+final class HandlerRegistry {
+
+    /**
+     * A cache of the {@link Event} supertypes of an event class, including
+     * the class itself.
+     */
+    private static final LoadingCache<Class<?>, Set<Class<?>>> eventTypes = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<Class<?>, Set<Class<?>>>() {
+
+                @Override
+                public Set<Class<?>> load(Class<?> eventClass) throws Exception {
+                    ImmutableSet.Builder<Class<?>> builder = ImmutableSet.builder();
+                    for (Class<?> type : TypeToken.of(eventClass).getTypes().rawTypes()) {
+                        if (Event.class.isAssignableFrom(type)) {
+                            builder.add(type);
+                        }
+                    }
+                    return builder.build();
+                }
+            });
+
+    private static final EventInvoker.Factory fallbackInvokerFactory = new InvokeEventHandlerFactory();
+
+    private final EventInvoker.Factory invokerFactory;
+    private final ImmutableSetMultimap<Class<?>, RegisteredHandler<?>> handlersByEvent;
+    private final ConcurrentMap<Class<? extends Event>, RegisteredHandler.Cache> handlersCache =
+            new ConcurrentHashMap<Class<? extends Event>, RegisteredHandler.Cache>();
+    private final ConcurrentMap<Class<?>, Boolean> hasHandlersCache = new ConcurrentHashMap<Class<?>, Boolean>();
+
+    HandlerRegistry(EventInvoker.Factory invokerFactory) {
+        this(invokerFactory, ImmutableSetMultimap.<Class<?>, RegisteredHandler<?>>of());
+    }
+
+    private HandlerRegistry(EventInvoker.Factory invokerFactory, ImmutableSetMultimap<Class<?>, RegisteredHandler<?>> handlersByEvent) {
+        this.invokerFactory = checkNotNull(invokerFactory, "invokerFactory");
+        this.handlersByEvent = handlersByEvent;
+    }
+
+    /**
+     * Gets the baked handlers for the specified event class, baking them if
+     * this is the first time the event type is requested from this registry.
+     *
+     * @param eventClass The event class
+     * @return The baked handlers
+     */
+    RegisteredHandler.Cache getCache(Class<? extends Event> eventClass) {
+        RegisteredHandler.Cache cache = this.handlersCache.get(eventClass);
+        if (cache == null) {
+            cache = bake(eventClass);
+            RegisteredHandler.Cache existing = this.handlersCache.putIfAbsent(eventClass, cache);
+            if (existing != null) {
+                cache = existing;
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Checks whether any handler is registered for a supertype or a subtype
+     * of the specified event class. Unlike {@link #getCache(Class)} this
+     * never bakes the event type.
+     *
+     * @param eventClass The event class
+     * @return Whether handlers may be interested in the event class
+     */
+    boolean hasHandlers(Class<?> eventClass) {
+        Boolean result = this.hasHandlersCache.get(eventClass);
+        if (result == null) {
+            result = false;
+            for (Class<?> type : this.handlersByEvent.keySet()) {
+                if (type.isAssignableFrom(eventClass) || eventClass.isAssignableFrom(type)) {
+                    result = true;
+                    break;
+                }
+            }
+            this.hasHandlersCache.put(eventClass, result);
+        }
+        return result;
+    }
+
+    Collection<RegisteredHandler<?>> getHandlers() {
+        return this.handlersByEvent.values();
+    }
+
+    private RegisteredHandler.Cache bake(Class<? extends Event> rootEvent) {
+        List<RegisteredHandler<?>> handlers = Lists.newArrayList();
+        for (Class<?> type : eventTypes.getUnchecked(rootEvent)) {
+            handlers.addAll(this.handlersByEvent.get(type));
+        }
+
+        Collections.sort(handlers);
+        return new RegisteredHandler.Cache(handlers, createInvoker(rootEvent, handlers));
+    }
+
+    private EventInvoker createInvoker(Class<? extends Event> eventClass, List<RegisteredHandler<?>> handlers) {
+        try {
+            return this.invokerFactory.create(eventClass, handlers);
+        } catch (Exception e) {
+            Sponge.getLogger().error("Failed to create invoker for {}, falling back to sequential invocation", eventClass, e);
+            try {
+                return fallbackInvokerFactory.create(eventClass, handlers);
+            } catch (Exception e1) {
+                throw Throwables.propagate(e1);
+            }
+        }
+    }
+
+    /**
+     * Creates a new registry containing all handlers of this registry and
+     * the specified handlers.
+     *
+     * @param handlers The handlers to add
+     * @return The new registry, or this registry if nothing changed
+     */
+    HandlerRegistry with(Collection<RegisteredHandler<?>> handlers) {
+        if (handlers.isEmpty()) {
+            return this;
+        }
+
+        ImmutableSetMultimap.Builder<Class<?>, RegisteredHandler<?>> builder = ImmutableSetMultimap.builder();
+        builder.putAll(this.handlersByEvent);
+        Set<Class<?>> changed = Sets.newHashSet();
+        for (RegisteredHandler<?> handler : handlers) {
+            builder.put(handler.getEventClass(), handler);
+            changed.add(handler.getEventClass());
+        }
+
+        return rebake(builder.build(), changed);
+    }
+
+    /**
+     * Creates a new registry containing all handlers of this registry
+     * that do not match the specified predicate.
+     *
+     * @param predicate The predicate matching the handlers to remove
+     * @return The new registry, or this registry if nothing changed
+     */
+    HandlerRegistry without(Predicate<RegisteredHandler<?>> predicate) {
+        ImmutableSetMultimap.Builder<Class<?>, RegisteredHandler<?>> builder = ImmutableSetMultimap.builder();
+        Set<Class<?>> changed = Sets.newHashSet();
+        for (Map.Entry<Class<?>, RegisteredHandler<?>> entry : this.handlersByEvent.entries()) {
+            if (predicate.apply(entry.getValue())) {
+                changed.add(entry.getKey());
+            } else {
+                builder.put(entry);
+            }
+        }
+
+        if (changed.isEmpty()) {
+            return this;
+        }
+
+        return rebake(builder.build(), changed);
+    }
+
+    /**
+     * Creates a new registry with the same handlers which creates its
+     * invokers using the specified factory. All event types baked by this
+     * registry are baked again.
+     *
+     * @param invokerFactory The new invoker factory
+     * @return The new registry
+     */
+    HandlerRegistry withInvokerFactory(EventInvoker.Factory invokerFactory) {
+        HandlerRegistry registry = new HandlerRegistry(invokerFactory, this.handlersByEvent);
+        for (Class<? extends Event> eventClass : this.handlersCache.keySet()) {
+            registry.handlersCache.put(eventClass, registry.bake(eventClass));
+        }
+        return registry;
+    }
+
+    private HandlerRegistry rebake(ImmutableSetMultimap<Class<?>, RegisteredHandler<?>> handlersByEvent, Set<Class<?>> changed) {
+        HandlerRegistry registry = new HandlerRegistry(this.invokerFactory, handlersByEvent);
+
+        for (Map.Entry<Class<? extends Event>, RegisteredHandler.Cache> entry : this.handlersCache.entrySet()) {
+            Class<? extends Event> eventClass = entry.getKey();
+            if (Collections.disjoint(eventTypes.getUnchecked(eventClass), changed)) {
+                registry.handlersCache.put(eventClass, entry.getValue());
+            } else {
+                registry.handlersCache.put(eventClass, registry.bake(eventClass));
+            }
+        }
+
+        return registry;
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.event;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.reflect.TypeToken;
+import org.spongepowered.api.event.Event;
+import org.spongepowered.api.plugin.PluginContainer;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The accumulated timings of a single handler for a single event type.
+ */
+public final class HandlerTiming {
+
+    private static final String API_PACKAGE = "org.spongepowered.api.";
+
+    private final RegisteredHandler<?> handler;
+    private final Class<? extends Event> eventClass;
+    private final Class<?> eventType;
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    HandlerTiming(RegisteredHandler<?> handler, Class<? extends Event> eventClass) {
+        this.handler = checkNotNull(handler, "handler");
+        this.eventClass = checkNotNull(eventClass, "eventClass");
+        this.eventType = getApiEventType(eventClass, handler.getEventClass());
+    }
+
+    /**
+     * Finds the most specific API event interface implemented by the event
+     * class that the handler subscribed to, or the subscribed class itself.
+     */
+    private static Class<?> getApiEventType(Class<? extends Event> eventClass, Class<?> subscribedClass) {
+        if (eventClass.isInterface()) {
+            return eventClass;
+        }
+
+        Class<?> result = subscribedClass;
+        for (Class<?> type : TypeToken.of(eventClass).getTypes().interfaces().rawTypes()) {
+            if (type.getName().startsWith(API_PACKAGE) && result.isAssignableFrom(type)) {
+                result = type;
+            }
+        }
+        return result;
+    }
+
+    void record(long nanos) {
+        this.count.incrementAndGet();
+        this.totalNanos.addAndGet(nanos);
+
+        long max;
+        do {
+            max = this.maxNanos.get();
+        } while (nanos > max && !this.maxNanos.compareAndSet(max, nanos));
+    }
+
+    public PluginContainer getPlugin() {
+        return this.handler.getPlugin();
+    }
+
+    /**
+     * Gets the runtime class of the events the handler was called for.
+     *
+     * @return The event class
+     */
+    public Class<? extends Event> getEventClass() {
+        return this.eventClass;
+    }
+
+    /**
+     * Gets the API event interface implemented by the {@link #getEventClass()
+     * event class}, for reporting the timings.
+     *
+     * @return The API event type
+     */
+    public Class<?> getEventType() {
+        return this.eventType;
+    }
+
+    public RegisteredHandler<?> getHandler() {
+        return this.handler;
+    }
+
+    /**
+     * Gets a description of the handler, which is the listener method for
+     * annotated handlers or the handler class otherwise.
+     *
+     * @return The handler description
+     */
+    public String getDescription() {
+        Method method = this.handler.getMethod();
+        if (method != null) {
+            return method.getDeclaringClass().getName() + '#' + method.getName();
+        }
+        return this.handler.getHandle().getClass().getName();
+    }
+
+    public long getCount() {
+        return this.count.get();
+    }
+
+    public long getTotalNanos() {
+        return this.totalNanos.get();
+    }
+
+    public long getMaxNanos() {
+        return this.maxNanos.get();
+    }
+
+}
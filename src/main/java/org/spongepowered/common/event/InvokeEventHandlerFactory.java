@@ -29,14 +29,20 @@
 import org.spongepowered.api.event.Event;
 
 import java.lang.reflect.Method;
+import java.util.List;
 
-public final class InvokeEventHandlerFactory implements AnnotatedEventHandler.Factory {
+public final class InvokeEventHandlerFactory implements AnnotatedEventHandler.Factory, EventInvoker.Factory {
 
     @Override
     public AnnotatedEventHandler create(Object handle, Method method) throws Exception {
         return new InvokeEventHandler(handle, method);
     }
 
+    @Override
+    public EventInvoker create(Class<? extends Event> eventClass, List<RegisteredHandler<?>> handlers) {
+        return new SequentialEventInvoker(handlers.toArray(new RegisteredHandler<?>[handlers.size()]));
+    }
+
     private static class InvokeEventHandler extends AnnotatedEventHandler {
 
         private final Method method;
@@ -53,4 +59,24 @@ public void handle(Event event) throws Exception {
 
     }
 
+    static final class SequentialEventInvoker extends EventInvoker {
+
+        SequentialEventInvoker(RegisteredHandler<?>[] handlers) {
+            super(handlers);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void invoke(Event event) {
+            for (int i = 0; i < this.handlers.length; i++) {
+                try {
+                    ((RegisteredHandler) this.handlers[i]).handle(event);
+                } catch (Throwable e) {
+                    handleException(i, event, e);
+                }
+            }
+        }
+
+    }
+
 }
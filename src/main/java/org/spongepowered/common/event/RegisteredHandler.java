@@ -34,9 +34,12 @@
 import org.spongepowered.api.event.Order;
 import org.spongepowered.api.plugin.PluginContainer;
 
+import java.lang.reflect.Method;
 import java.util.EnumMap;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 public final class RegisteredHandler<T extends Event> implements SpongeEventHandler<T>, Comparable<RegisteredHandler<?>> {
 
     private final PluginContainer plugin;
@@ -48,12 +51,20 @@
 
     private final boolean ignoreCancelled;
 
+    @Nullable private final Method method;
+
     RegisteredHandler(PluginContainer plugin, Class<T> eventClass, Order order, EventHandler<? super T> handler, boolean ignoreCancelled) {
+        this(plugin, eventClass, order, handler, ignoreCancelled, null);
+    }
+
+    RegisteredHandler(PluginContainer plugin, Class<T> eventClass, Order order, EventHandler<? super T> handler, boolean ignoreCancelled,
+            @Nullable Method method) {
         this.plugin = checkNotNull(plugin, "plugin");
         this.eventClass = checkNotNull(eventClass, "eventClass");
         this.order = checkNotNull(order, "order");
         this.handler = checkNotNull(handler, "handler");
         this.ignoreCancelled = ignoreCancelled;
+        this.method = method;
     }
 
     public PluginContainer getPlugin() {
@@ -68,6 +79,26 @@ public Order getOrder() {
         return this.order;
     }
 
+    public EventHandler<? super T> getHandler() {
+        return this.handler;
+    }
+
+    public boolean isIgnoreCancelled() {
+        return this.ignoreCancelled;
+    }
+
+    /**
+     * Gets the listener method this handler was created for, if it was
+     * registered through a {@link org.spongepowered.api.event.Subscribe}
+     * annotation.
+     *
+     * @return The listener method, or {@code null}
+     */
+    @Nullable
+    public Method getMethod() {
+        return this.method;
+    }
+
     @Override
     public Object getHandle() {
         if (this.handler instanceof SpongeEventHandler) {
@@ -94,12 +125,15 @@ public int compareTo(RegisteredHandler<?> handler) {
     public static final class Cache {
 
         private final List<RegisteredHandler<?>> handlers;
+        private final List<RegisteredHandler<?>> handlersBeforePost;
         private final EnumMap<Order, List<RegisteredHandler<?>>> handlersByOrder;
+        private final EventInvoker invoker;
 
         private static final Order[] ORDERS = Order.values();
 
-        Cache(List<RegisteredHandler<?>> handlers) {
+        Cache(List<RegisteredHandler<?>> handlers, EventInvoker invoker) {
             this.handlers = handlers;
+            this.invoker = checkNotNull(invoker, "invoker");
 
             this.handlersByOrder = Maps.newEnumMap(Order.class);
             for (Order order : ORDERS) {
@@ -108,16 +142,32 @@ public static final class Cache {
             for (RegisteredHandler<?> handler : handlers) {
                 this.handlersByOrder.get(handler.getOrder()).add(handler);
             }
+
+            // Handlers are sorted by order, so all POST handlers are at the end
+            this.handlersBeforePost = handlers.subList(0, handlers.size() - this.handlersByOrder.get(Order.POST).size());
         }
 
         public List<RegisteredHandler<?>> getHandlers() {
             return this.handlers;
         }
 
+        /**
+         * Gets all handlers except the {@link Order#POST} handlers.
+         *
+         * @return The handlers before {@link Order#POST}
+         */
+        public List<RegisteredHandler<?>> getHandlersBeforePost() {
+            return this.handlersBeforePost;
+        }
+
         public List<RegisteredHandler<?>> getHandlersByOrder(Order order) {
             return this.handlersByOrder.get(checkNotNull(order, "order"));
         }
 
+        public EventInvoker getInvoker() {
+            return this.invoker;
+        }
+
     }
 
 }
@@ -29,13 +29,8 @@
 
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Multimap;
-import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.ListenableFuture;
 import org.spongepowered.api.event.Cancellable;
 import org.spongepowered.api.event.Event;
 import org.spongepowered.api.event.EventHandler;
@@ -49,9 +44,8 @@
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -62,43 +56,26 @@ public class SpongeEventManager implements EventManager {
     private final Object lock = new Object();
 
     private final PluginManager pluginManager;
-    private final AnnotatedEventHandler.Factory handlerFactory = new ClassEventHandlerFactory("org.spongepowered.common.event.handler");
-    private final Multimap<Class<?>, RegisteredHandler<?>> handlersByEvent = HashMultimap.create();
+    private final ClassEventHandlerFactory handlerFactory = new ClassEventHandlerFactory("org.spongepowered.common.event.handler");
 
     /**
-     * A cache of all the handlers for an event type for quick event posting.
-     * <p>The cache is currently entirely invalidated if handlers are added or removed.</p>
+     * The current snapshot of all registered handlers for quick event posting.
+     * <p>Posting only reads this field. Registrations are serialized on the
+     * {@link #lock} and swap in a new registry which re-bakes only the event
+     * types affected by the change.</p>
      */
-    private final LoadingCache<Class<? extends Event>, RegisteredHandler.Cache> handlersCache =
-            CacheBuilder.newBuilder().build(new CacheLoader<Class<? extends Event>, RegisteredHandler.Cache>() {
-                @Override
-                public RegisteredHandler.Cache load(Class<? extends Event> eventClass) throws Exception {
-                    return bakeHandlers(eventClass);
-                }
-            });
+    private volatile HandlerRegistry registry = new HandlerRegistry(this.handlerFactory);
+
+    private final EventTimings timings = new EventTimings();
+    private volatile boolean timingsEnabled;
+
+    private final AsyncEventDispatcher asyncDispatcher = new AsyncEventDispatcher(Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
 
     @Inject
     public SpongeEventManager(PluginManager pluginManager) {
         this.pluginManager = checkNotNull(pluginManager, "pluginManager");
     }
 
-    private RegisteredHandler.Cache bakeHandlers(Class<?> rootEvent) {
-        List<RegisteredHandler<?>> handlers = Lists.newArrayList();
-        @SuppressWarnings({"unchecked", "rawtypes"})
-        Set<Class<?>> types = (Set) TypeToken.of(rootEvent).getTypes().rawTypes();
-
-        synchronized (this.lock) {
-            for (Class<?> type : types) {
-                if (Event.class.isAssignableFrom(type)) {
-                    handlers.addAll(this.handlersByEvent.get(type));
-                }
-            }
-        }
-
-        Collections.sort(handlers);
-        return new RegisteredHandler.Cache(handlers);
-    }
-
     private static boolean isValidHandler(Method method) {
         int modifiers = method.getModifiers();
         if (Modifier.isStatic(modifiers) || !Modifier.isPublic(modifiers) || Modifier.isAbstract(modifiers)
@@ -117,17 +94,7 @@ private void register(RegisteredHandler<?> handler) {
 
     private void register(List<RegisteredHandler<?>> handlers) {
         synchronized (this.lock) {
-            boolean changed = false;
-
-            for (RegisteredHandler handler : handlers) {
-                if (this.handlersByEvent.put(handler.getEventClass(), handler)) {
-                    changed = true;
-                }
-            }
-
-            if (changed) {
-                this.handlersCache.invalidateAll();
-            }
+            this.registry = this.registry.with(handlers);
         }
     }
 
@@ -152,7 +119,7 @@ public void register(PluginContainer plugin, Object listener) {
                         continue;
                     }
 
-                    handlers.add(createRegistration(plugin, eventClass, subscribe, handler));
+                    handlers.add(createRegistration(plugin, eventClass, subscribe, handler, method));
                 } else {
                     Sponge.getLogger().warn("The method {} on {} has @{} but has the wrong signature", method, handle.getName(),
                             Subscribe.class.getName());
@@ -164,8 +131,8 @@ public void register(PluginContainer plugin, Object listener) {
     }
 
     private static <T extends Event> RegisteredHandler<T> createRegistration(PluginContainer plugin, Class<T> eventClass, Subscribe subscribe,
-            EventHandler<? super T> handler) {
-        return createRegistration(plugin, eventClass, subscribe.order(), subscribe.ignoreCancelled(), handler);
+            EventHandler<? super T> handler, Method method) {
+        return new RegisteredHandler<T>(plugin, eventClass, subscribe.order(), handler, subscribe.ignoreCancelled(), method);
     }
 
     private static <T extends Event> RegisteredHandler<T> createRegistration(PluginContainer plugin, Class<T> eventClass, Order order,
@@ -196,20 +163,8 @@ public <T extends Event> void register(Object plugin, Class<T> eventClass, Order
 
     private void unregister(Predicate<RegisteredHandler<?>> unregister) {
         synchronized (this.lock) {
-            boolean changed = false;
-
-            Iterator<RegisteredHandler<?>> itr = this.handlersByEvent.values().iterator();
-            while (itr.hasNext()) {
-                RegisteredHandler<?> handler = itr.next();
-                if (unregister.apply(handler)) {
-                    itr.remove();
-                    changed = true;
-                }
-            }
-
-            if (changed) {
-                this.handlersCache.invalidateAll();
-            }
+            this.registry = this.registry.without(unregister);
+            this.timings.remove(unregister);
         }
     }
 
@@ -237,8 +192,62 @@ public boolean apply(RegisteredHandler<?> handler) {
         });
     }
 
+    /**
+     * Gets the handler timings, which are only recorded while they are
+     * {@link #setTimingsEnabled(boolean) enabled}.
+     *
+     * @return The handler timings
+     */
+    public EventTimings getTimings() {
+        return this.timings;
+    }
+
+    /**
+     * Discards all recorded handler timings.
+     */
+    public void resetTimings() {
+        synchronized (this.lock) {
+            this.timings.reset();
+            if (this.timingsEnabled) {
+                this.registry = this.registry.withInvokerFactory(this.timings);
+            }
+        }
+    }
+
+    public boolean isTimingsEnabled() {
+        return this.timingsEnabled;
+    }
+
+    /**
+     * Enables or disables recording handler timings. All handlers are baked
+     * again, so this should not be toggled frequently.
+     *
+     * @param enabled Whether handler timings should be recorded
+     */
+    public void setTimingsEnabled(boolean enabled) {
+        synchronized (this.lock) {
+            if (this.timingsEnabled != enabled) {
+                this.timingsEnabled = enabled;
+                this.registry = this.registry.withInvokerFactory(enabled ? this.timings : this.handlerFactory);
+            }
+        }
+    }
+
+    /**
+     * Checks whether any handlers are registered for the specified event
+     * type, one of its supertypes or one of its subtypes. This allows hot
+     * code paths to skip constructing events nobody listens to, even if
+     * they only know a supertype of the event they would post.
+     *
+     * @param eventClass The event class
+     * @return Whether any handlers may receive an event of the event class
+     */
+    public boolean hasHandlers(Class<? extends Event> eventClass) {
+        return this.registry.hasHandlers(checkNotNull(eventClass, "eventClass"));
+    }
+
     protected RegisteredHandler.Cache getHandlerCache(Event event) {
-        return this.handlersCache.getUnchecked(checkNotNull(event, "event").getClass());
+        return this.registry.getCache(checkNotNull(event, "event").getClass());
     }
 
     @SuppressWarnings("unchecked")
@@ -256,11 +265,42 @@ protected static boolean post(Event event, List<RegisteredHandler<?>> handlers)
 
     @Override
     public boolean post(Event event) {
-        return post(event, getHandlerCache(event).getHandlers());
+        getHandlerCache(event).getInvoker().invoke(event);
+        return event instanceof Cancellable && ((Cancellable) event).isCancelled();
     }
 
     public boolean post(Event event, Order order) {
         return post(event, getHandlerCache(event).getHandlersByOrder(order));
     }
 
+    /**
+     * Posts an event, calling all handlers up to {@link Order#BEFORE_POST}
+     * on the current thread. The {@link Order#POST} handlers are called
+     * afterwards on the event dispatcher threads, with the handlers of each
+     * plugin being called in order.
+     *
+     * <p>Only handlers that don't modify the event or the game should use
+     * {@link Order#POST} when events are posted this way. If the
+     * {@link Order#POST} handlers of a plugin fall too far behind, this
+     * blocks until they catch up.</p>
+     *
+     * @param event The event to post
+     * @return A future completed with whether the event was cancelled once
+     *     all {@link Order#POST} handlers have been called
+     */
+    public ListenableFuture<Boolean> postAsync(Event event) {
+        RegisteredHandler.Cache cache = getHandlerCache(event);
+        boolean cancelled = post(event, cache.getHandlersBeforePost());
+        return this.asyncDispatcher.dispatch(event, cancelled, cache.getHandlersByOrder(Order.POST));
+    }
+
+    /**
+     * Waits for the {@link Order#POST} handlers of events posted with
+     * {@link #postAsync(Event)} to finish and stops the dispatcher threads.
+     * Called once the server has stopped.
+     */
+    public void shutdownAsyncDispatcher() {
+        this.asyncDispatcher.shutdown(5, TimeUnit.SECONDS);
+    }
+
 }
@@ -0,0 +1,51 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.interfaces;
+
+public interface IMixinExtendedBlockStorage {
+
+    /**
+     * Gets the block data array to be shared with a snapshot. The array is
+     * copied before the next modification of this section.
+     *
+     * <p>Must be called on the thread which modifies the section, which is
+     * the main thread for the sections of chunks loaded in a world.
+     * Snapshots taken on other threads may miss the copy and see later
+     * modifications. The snapshot itself may then be read from any
+     * thread.</p>
+     *
+     * @return The block data array, which must not be modified
+     */
+    char[] getSnapshotData();
+
+    /**
+     * Gets the block data array to modify directly, copying it first if it
+     * is shared with a snapshot.
+     *
+     * @return The block data array
+     */
+    char[] getWritableData();
+
+}
@@ -24,16 +24,81 @@
  */
 package org.spongepowered.common.interfaces;
 
+import com.flowpowered.math.vector.Vector3d;
+import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import net.minecraft.world.storage.WorldInfo;
+import org.spongepowered.api.entity.Entity;
+import org.spongepowered.api.entity.EntityType;
 import org.spongepowered.api.world.gen.GeneratorPopulator;
 import org.spongepowered.api.world.gen.Populator;
 import org.spongepowered.common.configuration.SpongeConfig;
+import org.spongepowered.common.configuration.WorldConfigSnapshot;
+import org.spongepowered.common.entity.EntityDensityTracker;
+
+import java.util.Collection;
 
 public interface IMixinWorld {
 
     SpongeConfig<SpongeConfig.WorldConfig> getWorldConfig();
 
+    /**
+     * Gets the flattened settings of the config that is active for this
+     * world, creating them if this is the first time they are requested.
+     *
+     * @return The settings snapshot
+     */
+    WorldConfigSnapshot getConfigSnapshot();
+
+    /**
+     * Recreates the settings snapshot of this world from the active config.
+     */
+    void refreshConfigSnapshot();
+
+    EntityDensityTracker getEntityDensityTracker();
+
+    /**
+     * Gets all loaded entities of the specified type.
+     *
+     * @param type The entity type
+     * @return The entities
+     */
+    Collection<Entity> getEntities(EntityType type);
+
+    /**
+     * Gets all loaded entities that are an instance of the specified class or
+     * interface, like {@code Living.class}.
+     *
+     * @param type The class or interface
+     * @param <T> The type
+     * @return The entities
+     */
+    <T extends Entity> Collection<T> getEntities(Class<T> type);
+
+    /**
+     * Gets all loaded entities that are an instance of the specified class or
+     * interface and match the specified filter. Only the entities of the
+     * matching classes are passed to the filter.
+     *
+     * @param type The class or interface
+     * @param filter The filter the entities must match
+     * @param <T> The type
+     * @return The entities
+     */
+    <T extends Entity> Collection<T> getMatchingEntities(Class<T> type, Predicate<? super T> filter);
+
+    /**
+     * Gets all loaded entities whose bounding box intersects with the box
+     * between the specified corners and that match the specified filter.
+     * Only the chunks the box covers are searched.
+     *
+     * @param min The minimum corner of the box
+     * @param max The maximum corner of the box
+     * @param filter The filter the entities must match
+     * @return The entities
+     */
+    Collection<Entity> getEntities(Vector3d min, Vector3d max, Predicate<Entity> filter);
+
     ImmutableList<Populator> getPopulators();
 
     ImmutableList<GeneratorPopulator> getGeneratorPopulators();
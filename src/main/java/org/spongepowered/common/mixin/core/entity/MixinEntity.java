@@ -36,6 +36,7 @@
 import org.spongepowered.api.data.MemoryDataContainer;
 import org.spongepowered.api.entity.Entity;
 import org.spongepowered.api.entity.EntityType;
+import org.spongepowered.api.service.permission.PermissionService;
 import org.spongepowered.api.service.persistence.InvalidDataException;
 import org.spongepowered.api.util.RelativePositions;
 import org.spongepowered.api.util.annotation.NonnullByDefault;
@@ -50,8 +51,10 @@
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.common.Sponge;
+import org.spongepowered.common.entity.EntityActivationRange;
 import org.spongepowered.common.interfaces.IMixinEntity;
 import org.spongepowered.common.registry.SpongeGameRegistry;
+import org.spongepowered.common.service.permission.SpongePermissionService;
 import org.spongepowered.common.util.SpongeHooks;
 
 import java.util.ArrayDeque;
@@ -71,6 +74,9 @@ public abstract class MixinEntity implements Entity, IMixinEntity {
     private net.minecraft.entity.Entity teleportVehicle;
     private float origWidth;
     private float origHeight;
+    private byte activationType;
+    private long activatedTick = Integer.MIN_VALUE;
+    private boolean defaultActivationState;
 
     @Shadow private UUID entityUniqueID;
     @Shadow public net.minecraft.world.World worldObj;
@@ -118,6 +124,12 @@ public abstract class MixinEntity implements Entity, IMixinEntity {
 
     // @formatter:on
 
+    @Inject(method = "<init>(Lnet/minecraft/world/World;)V", at = @At("RETURN"))
+    public void onConstructed(net.minecraft.world.World world, CallbackInfo ci) {
+        this.activationType = EntityActivationRange.initializeActivationType((net.minecraft.entity.Entity) (Object) this);
+        this.defaultActivationState = EntityActivationRange.initializeDefaultActivationState((net.minecraft.entity.Entity) (Object) this);
+    }
+
     @Inject(method = "setSize", at = @At("RETURN"))
     public void onSetSize(float width, float height, CallbackInfo ci) {
         if (this.origWidth == 0 || this.origHeight == 0) {
@@ -126,6 +138,20 @@ public void onSetSize(float width, float height, CallbackInfo ci) {
         }
     }
 
+    /**
+     * The world of a player is part of the active contexts of their permission
+     * subject, which are only recalculated after such a change.
+     */
+    @Inject(method = "setWorld", at = @At("RETURN"))
+    public void onSetWorld(net.minecraft.world.World world, CallbackInfo ci) {
+        if ((Object) this instanceof EntityPlayerMP) {
+            Optional<PermissionService> service = Sponge.getGame().getServiceManager().provide(PermissionService.class);
+            if (service.isPresent() && service.get() instanceof SpongePermissionService) {
+                ((SpongePermissionService) service.get()).invalidateActiveContexts();
+            }
+        }
+    }
+
     @Inject(method = "moveEntity(DDD)V", at = @At("HEAD"), cancellable = true)
     public void onMoveEntity(double x, double y, double z, CallbackInfo ci) {
         if (!this.worldObj.isRemote && !SpongeHooks.checkEntitySpeed(((net.minecraft.entity.Entity) (Object) this), x, y, z)) {
@@ -396,6 +422,30 @@ public void setTeleportVehicle(net.minecraft.entity.Entity vehicle) {
         this.teleportVehicle = vehicle;
     }
 
+    @Override
+    public byte getActivationType() {
+        return this.activationType;
+    }
+
+    @Override
+    public long getActivatedTick() {
+        return this.activatedTick;
+    }
+
+    @Override
+    public boolean getDefaultActivationState() {
+        return this.defaultActivationState;
+    }
+
+    @Override
+    public void setActivatedTick(long tick) {
+        this.activatedTick = tick;
+    }
+
+    @Override
+    public void inactiveTick() {
+    }
+
     @Override
     public EntityType getType() {
         return this.entityType;
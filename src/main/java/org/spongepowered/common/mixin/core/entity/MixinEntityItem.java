@@ -43,6 +43,7 @@ public abstract class MixinEntityItem extends MixinEntity implements Item {
     private static final short MAGIC_INFINITE_PICKUP_DELAY = 32767;
     private static final short MAGIC_INFINITE_DESPAWN_TIME = -32768;
     private static final int MAGIC_INFINITE = -1;
+    private static final int DEFAULT_LIFESPAN = 6000;
 
     @Shadow private int delayBeforeCanPickup;
     @Shadow private int age;
@@ -78,6 +79,20 @@ private void onOnUpdateAge(CallbackInfo ci) {
         }
     }
 
+    @Override
+    public void inactiveTick() {
+        super.inactiveTick();
+        if (this.delayBeforeCanPickup > 0 && this.delayBeforeCanPickup != MAGIC_INFINITE_PICKUP_DELAY) {
+            this.delayBeforeCanPickup--;
+        }
+        if (this.age != MAGIC_INFINITE_DESPAWN_TIME) {
+            this.age++;
+        }
+        if (!this.worldObj.isRemote && this.age >= (this.lifespan > 0 ? this.lifespan : DEFAULT_LIFESPAN)) {
+            this.setDead();
+        }
+    }
+
     public int getPickupDelay() {
         if (this.delayBeforeCanPickup == MAGIC_INFINITE_PICKUP_DELAY) {
             // There are two cases when -1 should be returned:
@@ -48,6 +48,10 @@
 import org.spongepowered.api.util.annotation.NonnullByDefault;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+import org.spongepowered.common.entity.EntityActivationRange;
 import org.spongepowered.common.interfaces.entity.IMixinEntityLivingBase;
 import org.spongepowered.common.mixin.core.entity.MixinEntity;
 
@@ -70,6 +74,7 @@ public abstract class MixinEntityLivingBase extends MixinEntity implements Livin
     @Shadow public EntityLivingBase entityLivingToAttack;
     @Shadow protected float lastDamage;
     @Shadow protected EntityPlayer attackingPlayer;
+    @Shadow protected int entityAge;
     @Shadow public abstract void setHealth(float health);
     @Shadow public abstract void addPotionEffect(net.minecraft.potion.PotionEffect potionEffect);
     @Shadow public abstract void removePotionEffect(int id);
@@ -87,6 +92,19 @@ public abstract class MixinEntityLivingBase extends MixinEntity implements Livin
 
     private int maxAir = 300;
 
+    @Inject(method = "attackEntityFrom", at = @At("HEAD"))
+    public void onAttackEntityFrom(DamageSource source, float amount, CallbackInfoReturnable<Boolean> cir) {
+        if (!this.worldObj.isRemote) {
+            EntityActivationRange.wakeUp((Entity) (Object) this);
+        }
+    }
+
+    @Override
+    public void inactiveTick() {
+        super.inactiveTick();
+        this.entityAge++;
+    }
+
     public void setLastAttacker(@Nullable Living lastAttacker) {
         setLastAttacker((EntityLivingBase) lastAttacker);
     }
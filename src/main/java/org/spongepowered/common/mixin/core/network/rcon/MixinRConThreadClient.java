@@ -116,7 +116,9 @@ public void rconLogoutCallback(CallbackInfo ci){
             initSource();
         }
         if (this.loggedIn) {
-            Sponge.getGame().getEventManager().post(SpongeEventFactory.createRconQuit(Sponge.getGame(), (RconSource) this.source));
+            // Nothing depends on the outcome, so the POST handlers don't need to hold up the RCON thread.
+            // The handlers before POST still run on the RCON thread, as they did with post(), not on the main thread.
+            Sponge.getSpongeEventManager().postAsync(SpongeEventFactory.createRconQuit(Sponge.getGame(), (RconSource) this.source));
         }
     }
 }
@@ -45,6 +45,9 @@
 import org.spongepowered.api.world.storage.WorldProperties;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.common.Sponge;
 import org.spongepowered.common.interfaces.IMixinServer;
 import org.spongepowered.common.interfaces.Subjectable;
@@ -82,6 +85,10 @@ public abstract class MixinMinecraftServer implements Server, ConsoleSource, Sub
     @SideOnly(Side.SERVER)
     public abstract int getPort();
 
+    @Inject(method = "stopServer", at = @At("RETURN"))
+    public void onServerStopped(CallbackInfo ci) {
+        Sponge.getSpongeEventManager().shutdownAsyncDispatcher();
+    }
 
     @Override
     public Optional<World> loadWorld(UUID uuid) {
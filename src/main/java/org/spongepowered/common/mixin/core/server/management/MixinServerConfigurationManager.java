@@ -0,0 +1,69 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.mixin.core.server.management;
+
+import com.google.common.base.Optional;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.management.ServerConfigurationManager;
+import org.spongepowered.api.service.permission.PermissionService;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+import org.spongepowered.common.Sponge;
+import org.spongepowered.common.service.permission.SpongePermissionService;
+
+@Mixin(ServerConfigurationManager.class)
+public abstract class MixinServerConfigurationManager {
+
+    /**
+     * Whether a player is online and the world they are in determine the
+     * active contexts of their permission subject, so logins and logouts
+     * invalidate the cached contexts. World changes are handled by
+     * MixinEntity#onSetWorld.
+     */
+    @Inject(method = {"playerLoggedIn", "playerLoggedOut"}, at = @At("RETURN"))
+    public void onPlayerListChanged(EntityPlayerMP player, CallbackInfo ci) {
+        invalidateActiveContexts();
+    }
+
+    /**
+     * Respawning replaces the player entity, which does not go through
+     * {@link net.minecraft.entity.Entity#setWorld}.
+     */
+    @Inject(method = "recreatePlayerEntity", at = @At("RETURN"))
+    public void onRecreatePlayerEntity(EntityPlayerMP player, int dimension, boolean conqueredEnd, CallbackInfoReturnable<EntityPlayerMP> ci) {
+        invalidateActiveContexts();
+    }
+
+    private void invalidateActiveContexts() {
+        Optional<PermissionService> service = Sponge.getGame().getServiceManager().provide(PermissionService.class);
+        if (service.isPresent() && service.get() instanceof SpongePermissionService) {
+            ((SpongePermissionService) service.get()).invalidateActiveContexts();
+        }
+    }
+
+}
@@ -31,7 +31,9 @@
 import com.google.common.base.Optional;
 import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.Entity;
 import net.minecraft.util.BlockPos;
+import net.minecraft.util.ClassInheritanceMultiMap;
 import net.minecraft.world.ChunkCoordIntPair;
 import net.minecraft.world.World;
 import net.minecraft.world.WorldServer;
@@ -55,10 +57,12 @@
 import org.spongepowered.asm.mixin.Shadow;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.Redirect;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.common.data.SpongeBlockProcessor;
 import org.spongepowered.common.data.SpongeManipulatorRegistry;
 import org.spongepowered.common.interfaces.IMixinWorld;
+import org.spongepowered.common.interfaces.IMixinWorldServer;
 import org.spongepowered.common.interfaces.block.IMixinBlock;
 import org.spongepowered.common.util.SpongeHooks;
 import org.spongepowered.common.util.VecHelper;
@@ -86,6 +90,7 @@ public abstract class MixinChunk implements Chunk {
     @Shadow public int zPosition;
     @Shadow private boolean isChunkLoaded;
     @Shadow private boolean isTerrainPopulated;
+    @Shadow private ClassInheritanceMultiMap[] entityLists;
 
     @Shadow
     public abstract IBlockState getBlockState(BlockPos pos);
@@ -122,7 +127,8 @@ public void onNewlyGenerated(World world, ChunkPrimer primer, int chunkX, int ch
         // of IChunkProvider provided by mods will very likely still work well
 
         List<GeneratorPopulator> populators = ((IMixinWorld) world).getGeneratorPopulators();
-        if (!populators.isEmpty()) {
+        if (!populators.isEmpty() && !(world instanceof IMixinWorldServer
+                && ((IMixinWorldServer) world).captureGeneratorPopulators(primer))) {
             FastChunkBuffer buffer = new FastChunkBuffer((net.minecraft.world.chunk.Chunk) (Object) this);
             BiomeGenBase[] biomeArray = world.getWorldChunkManager().getBiomeGenAt(null, chunkX * 16, chunkZ * 16, 16, 16, true);
             BiomeBuffer biomes = new ObjectArrayMutableBiomeBuffer(biomeArray, new Vector2i(chunkX * 16, chunkZ * 16), new Vector2i(16, 16));
@@ -145,6 +151,53 @@ public void onChunkUnloadInject(CallbackInfo ci) {
         SpongeHooks.logChunkUnload(this.worldObj, this.chunkPos);
     }
 
+    @Inject(method = "onChunkLoad()V", at = @At("RETURN"))
+    public void onChunkLoadTrackEntities(CallbackInfo ci) {
+        if (!this.worldObj.isRemote) {
+            ((IMixinWorld) this.worldObj).getEntityDensityTracker().onChunkLoaded((net.minecraft.world.chunk.Chunk) (Object) this);
+        }
+    }
+
+    @Inject(method = "onChunkUnload()V", at = @At("RETURN"))
+    public void onChunkUnloadTrackEntities(CallbackInfo ci) {
+        if (!this.worldObj.isRemote) {
+            ((IMixinWorld) this.worldObj).getEntityDensityTracker().onChunkUnloaded((net.minecraft.world.chunk.Chunk) (Object) this);
+        }
+    }
+
+    // Entities added while a chunk is being read from disk are counted once
+    // the whole chunk is loaded, so only track loaded chunks here
+
+    @Redirect(method = "addEntity(Lnet/minecraft/entity/Entity;)V",
+            at = @At(value = "INVOKE", target = "Lnet/minecraft/util/ClassInheritanceMultiMap;add(Ljava/lang/Object;)Z"))
+    public boolean onAddEntity(ClassInheritanceMultiMap entityList, Object entity) {
+        boolean added = entityList.add(entity);
+        if (added && this.isChunkLoaded && !this.worldObj.isRemote) {
+            ((IMixinWorld) this.worldObj).getEntityDensityTracker().onEntityAdded((Entity) entity, this.xPosition, getSectionIndex(entityList),
+                    this.zPosition);
+        }
+        return added;
+    }
+
+    @Redirect(method = "removeEntityAtIndex(Lnet/minecraft/entity/Entity;I)V",
+            at = @At(value = "INVOKE", target = "Lnet/minecraft/util/ClassInheritanceMultiMap;remove(Ljava/lang/Object;)Z"))
+    public boolean onRemoveEntity(ClassInheritanceMultiMap entityList, Object entity) {
+        boolean removed = entityList.remove(entity);
+        if (removed && this.isChunkLoaded && !this.worldObj.isRemote) {
+            ((IMixinWorld) this.worldObj).getEntityDensityTracker().onEntityRemoved(this.xPosition, getSectionIndex(entityList), this.zPosition);
+        }
+        return removed;
+    }
+
+    private int getSectionIndex(ClassInheritanceMultiMap entityList) {
+        for (int i = 0; i < this.entityLists.length; i++) {
+            if (this.entityLists[i] == entityList) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
     @Override
     public Vector3i getPosition() {
         return this.chunkPos;
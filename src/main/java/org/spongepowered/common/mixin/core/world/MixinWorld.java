@@ -34,10 +34,12 @@
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.network.Packet;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.management.ServerConfigurationManager;
+import net.minecraft.util.AxisAlignedBB;
 import net.minecraft.util.BlockPos;
 import net.minecraft.world.WorldProvider;
 import net.minecraft.world.WorldServer;
@@ -83,15 +85,21 @@
 import org.spongepowered.asm.mixin.injection.At.Shift;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.Redirect;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 import org.spongepowered.asm.mixin.injection.callback.LocalCapture;
 import org.spongepowered.common.Sponge;
 import org.spongepowered.common.configuration.SpongeConfig;
+import org.spongepowered.common.configuration.WorldConfigSnapshot;
 import org.spongepowered.common.data.SpongeBlockProcessor;
 import org.spongepowered.common.data.SpongeManipulatorRegistry;
 import org.spongepowered.common.effect.particle.SpongeParticleEffect;
 import org.spongepowered.common.effect.particle.SpongeParticleHelper;
+import org.spongepowered.common.entity.EntityActivationRange;
+import org.spongepowered.common.entity.EntityDensityTracker;
+import org.spongepowered.common.entity.EntityIndex;
 import org.spongepowered.common.entity.living.HumanEntity;
+import org.spongepowered.common.interfaces.IMixinEntity;
 import org.spongepowered.common.interfaces.IMixinWorld;
 import org.spongepowered.common.interfaces.IMixinWorldSettings;
 import org.spongepowered.common.interfaces.IMixinWorldType;
@@ -124,6 +132,10 @@ public abstract class MixinWorld implements World, IMixinWorld {
     private volatile Context worldContext;
     private ImmutableList<Populator> populators;
     private ImmutableList<GeneratorPopulator> generatorPopulators;
+    private EntityActivationRange activationRange;
+    private volatile WorldConfigSnapshot configSnapshot;
+    private EntityDensityTracker densityTracker;
+    private EntityIndex entityIndex;
 
     @Shadow public WorldProvider provider;
     @Shadow protected WorldInfo worldInfo;
@@ -136,10 +148,6 @@ public abstract class MixinWorld implements World, IMixinWorld {
     @Shadow
     public abstract boolean spawnEntityInWorld(net.minecraft.entity.Entity entityIn);
 
-    @Shadow
-    public abstract List<net.minecraft.entity.Entity> getEntities(Class<net.minecraft.entity.Entity> entityType,
-            Predicate<net.minecraft.entity.Entity> filter);
-
     @Shadow
     public abstract void playSoundEffect(double x, double y, double z, String soundName, float volume, float pitch);
 
@@ -176,6 +184,62 @@ public void onGetCollidingBoundingBoxes(net.minecraft.entity.Entity entity, net.
         }
     }
 
+    @Inject(method = "updateEntities()V", at = @At("HEAD"))
+    public void onUpdateEntities(CallbackInfo ci) {
+        if (!((net.minecraft.world.World) (Object) this).isRemote) {
+            getActivationRange().activateEntities();
+        }
+    }
+
+    @Inject(method = "updateEntityWithOptionalForce(Lnet/minecraft/entity/Entity;Z)V", at = @At("HEAD"), cancellable = true)
+    public void onUpdateEntityWithOptionalForce(net.minecraft.entity.Entity entity, boolean forceUpdate, CallbackInfo ci) {
+        if (forceUpdate && !((net.minecraft.world.World) (Object) this).isRemote && !getActivationRange().checkIfActive(entity)) {
+            entity.ticksExisted++;
+            ((IMixinEntity) entity).inactiveTick();
+            ci.cancel();
+        }
+    }
+
+    @Inject(method = "onEntityAdded(Lnet/minecraft/entity/Entity;)V", at = @At("HEAD"))
+    public void onEntityAddedIndex(net.minecraft.entity.Entity entity, CallbackInfo ci) {
+        getEntityIndex().add(entity);
+    }
+
+    @Inject(method = "onEntityRemoved(Lnet/minecraft/entity/Entity;)V", at = @At("HEAD"))
+    public void onEntityRemovedIndex(net.minecraft.entity.Entity entity, CallbackInfo ci) {
+        getEntityIndex().remove(entity);
+    }
+
+    @Inject(method = "markBlockForUpdate(Lnet/minecraft/util/BlockPos;)V", at = @At("HEAD"))
+    public void onMarkBlockForUpdate(BlockPos pos, CallbackInfo ci) {
+        if (!((net.minecraft.world.World) (Object) this).isRemote) {
+            getActivationRange().wakeUpChunk(pos);
+        }
+    }
+
+    @Override
+    public EntityDensityTracker getEntityDensityTracker() {
+        if (this.densityTracker == null) {
+            this.densityTracker = new EntityDensityTracker((net.minecraft.world.World) (Object) this);
+        }
+        return this.densityTracker;
+    }
+
+    private EntityIndex getEntityIndex() {
+        if (this.entityIndex == null) {
+            // Server worlds already map unique ids to their entities
+            this.entityIndex = new EntityIndex(!((Object) this instanceof WorldServer));
+        }
+        return this.entityIndex;
+    }
+
+    private EntityActivationRange getActivationRange() {
+        if (this.activationRange == null) {
+            this.activationRange = new EntityActivationRange((net.minecraft.world.World) (Object) this);
+        }
+        return this.activationRange;
+    }
+
     @Override
     public UUID getUniqueId() {
         return ((WorldProperties) this.worldInfo).getUniqueId();
@@ -264,11 +328,41 @@ public Collection<Entity> getEntities() {
         return (Collection<Entity>) (Object) this.loadedEntityList;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public Collection<Entity> getEntities(Predicate<Entity> filter) {
-        return (Collection<Entity>) (Object) this.getEntities(net.minecraft.entity.Entity.class,
-                (Predicate<net.minecraft.entity.Entity>) (Object) filter);
+        // An arbitrary filter has to see every entity, but unlike the vanilla
+        // method no class check is needed
+        List<Entity> entities = Lists.newArrayList();
+        for (net.minecraft.entity.Entity entity : this.loadedEntityList) {
+            if (filter.apply((Entity) entity)) {
+                entities.add((Entity) entity);
+            }
+        }
+        return entities;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Collection<Entity> getEntities(EntityType type) {
+        return (Collection<Entity>) (Object) getEntityIndex().getExact(type.getEntityClass());
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> getEntities(Class<T> type) {
+        return getEntityIndex().getInstances(type);
+    }
+
+    @Override
+    public <T extends Entity> Collection<T> getMatchingEntities(Class<T> type, Predicate<? super T> filter) {
+        return getEntityIndex().getInstances(type, filter);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Collection<Entity> getEntities(Vector3d min, Vector3d max, Predicate<Entity> filter) {
+        AxisAlignedBB box = new AxisAlignedBB(min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ());
+        return (Collection<Entity>) (Object) ((net.minecraft.world.World) (Object) this).getEntitiesWithinAABB(net.minecraft.entity.Entity.class,
+                box, (Predicate<net.minecraft.entity.Entity>) (Object) filter);
     }
 
     @Override
@@ -458,6 +552,23 @@ public SpongeConfig<SpongeConfig.WorldConfig> getWorldConfig() {
         return this.worldConfig;
     }
 
+    @Override
+    public WorldConfigSnapshot getConfigSnapshot() {
+        WorldConfigSnapshot snapshot = this.configSnapshot;
+        if (snapshot == null) {
+            snapshot = new WorldConfigSnapshot(SpongeHooks.getActiveConfig((net.minecraft.world.World) (Object) this));
+            this.configSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    @Override
+    public void refreshConfigSnapshot() {
+        if (this.worldConfig != null) {
+            this.configSnapshot = new WorldConfigSnapshot(SpongeHooks.getActiveConfig((net.minecraft.world.World) (Object) this));
+        }
+    }
+
     @Override
     public void playSound(SoundType sound, Vector3d position, double volume) {
         this.playSound(sound, position, volume, 1);
@@ -479,12 +590,7 @@ public Optional<Entity> getEntity(UUID uuid) {
         if (spongeWorld instanceof WorldServer) {
             return Optional.fromNullable((Entity) ((WorldServer) (Object) this).getEntityFromUuid(uuid));
         }
-        for (net.minecraft.entity.Entity entity : this.loadedEntityList) {
-            if (entity.getUniqueID().equals(uuid)) {
-                return Optional.of((Entity) entity);
-            }
-        }
-        return Optional.absent();
+        return Optional.fromNullable((Entity) getEntityIndex().get(uuid));
     }
 
     @SuppressWarnings("unchecked")
@@ -28,6 +28,7 @@
 import net.minecraft.world.World;
 import net.minecraft.world.WorldServer;
 import net.minecraft.world.WorldSettings;
+import net.minecraft.world.chunk.ChunkPrimer;
 import org.spongepowered.api.util.annotation.NonnullByDefault;
 import org.spongepowered.api.world.GeneratorType;
 import org.spongepowered.api.world.GeneratorTypes;
@@ -37,10 +38,17 @@
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 import org.spongepowered.common.interfaces.IMixinWorld;
+import org.spongepowered.common.interfaces.IMixinWorldServer;
+import org.spongepowered.common.world.gen.ChunkGenerationPipeline;
+
+import javax.annotation.Nullable;
 
 @NonnullByDefault
 @Mixin(WorldServer.class)
-public abstract class MixinWorldServer extends MixinWorld {
+public abstract class MixinWorldServer extends MixinWorld implements IMixinWorldServer {
+
+    // Created on first use, most worlds never pregenerate chunks
+    @Nullable private ChunkGenerationPipeline chunkGenerationPipeline;
 
     @Inject(method = "createSpawnPosition(Lnet/minecraft/world/WorldSettings;)V", at = @At("HEAD"), cancellable = true)
     public void onCreateSpawnPosition(WorldSettings settings, CallbackInfo ci) {
@@ -58,4 +66,17 @@ public void onPostInit(CallbackInfoReturnable<World> ci) {
         IMixinWorld world = (IMixinWorld) ci.getReturnValue();
         world.updateWorldGenerator();
     }
+
+    @Override
+    public ChunkGenerationPipeline getChunkGenerationPipeline() {
+        if (this.chunkGenerationPipeline == null) {
+            this.chunkGenerationPipeline = new ChunkGenerationPipeline((WorldServer) (Object) this);
+        }
+        return this.chunkGenerationPipeline;
+    }
+
+    @Override
+    public boolean captureGeneratorPopulators(ChunkPrimer primer) {
+        return this.chunkGenerationPipeline != null && this.chunkGenerationPipeline.capture(primer);
+    }
 }
@@ -77,7 +77,7 @@ public DataContainer getGeneratorSettings() {
             try {
                 String jsonString = ChunkProviderSettings.Factory.func_177865_a("").toString();
                 NBTTagCompound nbt = JsonToNBT.getTagFromJson(jsonString);
-                return NbtTranslator.getInstance().translateFrom(nbt);
+                return NbtTranslator.getInstance().translateFromLazily(nbt);
             } catch (NBTException e) {
                 AssertionError error = new AssertionError("Failed to parse default settings of CUSTOMIZED world type");
                 error.initCause(e);
@@ -0,0 +1,74 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.mixin.core.world.chunk.storage;
+
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.common.interfaces.IMixinExtendedBlockStorage;
+
+@Mixin(ExtendedBlockStorage.class)
+public abstract class MixinExtendedBlockStorage implements IMixinExtendedBlockStorage {
+
+    @Shadow private char[] data;
+
+    /**
+     * Whether the block data array is referenced by a snapshot, in which
+     * case it has to be copied before it is modified. Not volatile, as it
+     * is checked on every block change and snapshots are only taken on the
+     * thread modifying the section.
+     */
+    private boolean dataShared;
+
+    @Override
+    public char[] getSnapshotData() {
+        this.dataShared = true;
+        return this.data;
+    }
+
+    @Override
+    public char[] getWritableData() {
+        if (this.dataShared) {
+            this.data = this.data.clone();
+            this.dataShared = false;
+        }
+        return this.data;
+    }
+
+    @Inject(method = "set(IIILnet/minecraft/block/state/IBlockState;)V", at = @At("HEAD"))
+    public void onSet(CallbackInfo ci) {
+        getWritableData();
+    }
+
+    @Inject(method = "setData([C)V", at = @At("HEAD"))
+    public void onSetData(char[] dataArray, CallbackInfo ci) {
+        // The new array is not shared with any snapshot
+        this.dataShared = false;
+    }
+
+}
@@ -348,7 +348,9 @@ public UUID getUniqueId() {
 
     @Override
     public DataContainer toContainer() {
-        return NbtTranslator.getInstance().translateFrom(getNBTTagCompound());
+        // The compound is written fresh for every call, so the container can
+        // own it and only translate it if someone actually reads from it.
+        return NbtTranslator.getInstance().translateFromLazily(getNBTTagCompound());
     }
 
     @Override
@@ -408,7 +410,7 @@ public DataContainer getGeneratorSettings() {
         // Parse the world generator settings as JSON
         try {
             NBTTagCompound nbt = JsonToNBT.getTagFromJson(this.generatorOptions);
-            return NbtTranslator.getInstance().translateFrom(nbt);
+            return NbtTranslator.getInstance().translateFromLazily(nbt);
         } catch (NBTException e) {
         }
         return new MemoryDataContainer().set(DataQuery.of("customSettings"), this.generatorOptions);
@@ -51,7 +51,7 @@ public void accumulateContexts(Subject subject, Set<Context> accumulator) {
     @Override
     public boolean matches(Context context, Subject subject) {
         Optional<CommandSource> subjSource = subject.getCommandSource();
-        if (subjSource.isPresent() && subjSource.get() instanceof LocatedSource && context.getType().equals(Context.WORLD_KEY)) {
+        if (subjSource.isPresent() && subjSource.get() instanceof LocatedSource) {
             LocatedSource source = ((LocatedSource) subjSource.get());
             if (context.getType().equals(Context.WORLD_KEY)) {
                 return source.getWorld().getContext().equals(context);
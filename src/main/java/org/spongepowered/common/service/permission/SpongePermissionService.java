@@ -24,23 +24,35 @@
  */
 package org.spongepowered.common.service.permission;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.management.UserListOps;
 import org.spongepowered.api.service.permission.MemorySubjectData;
 import org.spongepowered.api.service.permission.PermissionService;
 import org.spongepowered.api.service.permission.Subject;
 import org.spongepowered.api.service.permission.SubjectCollection;
+import org.spongepowered.api.service.permission.SubjectData;
+import org.spongepowered.api.service.permission.context.Context;
 import org.spongepowered.api.service.permission.context.ContextCalculator;
 import org.spongepowered.api.util.command.CommandSource;
 import org.spongepowered.common.Sponge;
 import org.spongepowered.common.service.permission.base.FixedParentMemorySubjectData;
 import org.spongepowered.common.service.permission.base.GlobalMemorySubjectData;
 
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Permission service representing the vanilla operator permission structure.
@@ -57,8 +69,14 @@ public CommandSource apply(String s) {
 
     private final ConcurrentMap<String, SubjectCollection> subjects = new ConcurrentHashMap<String, SubjectCollection>();
     private final MemorySubjectData defaultData;
+    private final AtomicInteger dataVersion = new AtomicInteger();
+    private final AtomicInteger contextVersion = new AtomicInteger();
+    private final List<ContextCalculator> contextCalculators = new CopyOnWriteArrayList<ContextCalculator>();
+    private final Interner<Set<Context>> contextSets = Interners.newWeakInterner();
 
     public SpongePermissionService() {
+        this.contextCalculators.add(new SpongeContextCalculator());
+
         this.subjects.put(SUBJECTS_USER, new UserCollection(this));
         this.subjects.put(SUBJECTS_GROUP, new OpLevelCollection(this));
 
@@ -89,6 +107,42 @@ public CommandSource apply(String s) {
         this.defaultData = new FixedParentMemorySubjectData(this, getGroupForOpLevel(0));
     }
 
+    /**
+     * Gets the version of all permission data of this service, which changes
+     * whenever the permissions or parents of any subject change.
+     *
+     * @return The current version
+     */
+    public int getDataVersion() {
+        return this.dataVersion.get();
+    }
+
+    /**
+     * Invalidates the resolved permissions cached by all subjects after
+     * permission data has changed.
+     */
+    public void invalidateCaches() {
+        this.dataVersion.incrementAndGet();
+    }
+
+    /**
+     * Gets the version of the active contexts of all subjects, which changes
+     * whenever a player logs in or out or changes worlds.
+     *
+     * @return The current version
+     */
+    public int getContextVersion() {
+        return this.contextVersion.get();
+    }
+
+    /**
+     * Invalidates the active contexts cached by all subjects after a player
+     * logged in or out or changed worlds.
+     */
+    public void invalidateActiveContexts() {
+        this.contextVersion.incrementAndGet();
+    }
+
     static UserListOps getOps() {
         return MinecraftServer.getServer().getConfigurationManager().getOppedPlayers();
     }
@@ -118,6 +172,26 @@ public MemorySubjectData getDefaultData() {
 
     @Override
     public void registerContextCalculator(ContextCalculator calculator) {
+        this.contextCalculators.add(checkNotNull(calculator, "calculator"));
+        invalidateActiveContexts();
+    }
+
+    /**
+     * Calculates the active contexts of a subject using all registered
+     * context calculators.
+     *
+     * <p>Equal context sets are returned as the same instance, which keeps
+     * the permission caches keyed by them small and their lookups fast.</p>
+     *
+     * @param subject The subject to calculate the contexts for
+     * @return The active contexts
+     */
+    public Set<Context> calculateContexts(Subject subject) {
+        Set<Context> contexts = new HashSet<Context>();
+        for (ContextCalculator calculator : this.contextCalculators) {
+            calculator.accumulateContexts(subject, contexts);
+        }
+        return contexts.isEmpty() ? SubjectData.GLOBAL_CONTEXT : this.contextSets.intern(ImmutableSet.copyOf(contexts));
     }
 
     @Override
@@ -26,14 +26,21 @@
 
 import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.mojang.authlib.GameProfile;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.management.PlayerProfileCache;
 import net.minecraft.server.management.UserListOpsEntry;
 import org.spongepowered.api.service.permission.PermissionService;
 import org.spongepowered.api.service.permission.Subject;
+import org.spongepowered.common.Sponge;
 import org.spongepowered.common.service.permission.base.SpongeSubjectCollection;
+import org.spongepowered.common.service.profile.ProfileResolver;
+import org.spongepowered.common.service.scheduler.SyncScheduler;
 
+import java.io.File;
+import java.util.List;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -44,10 +51,36 @@
  */
 public class UserCollection extends SpongeSubjectCollection {
     private final SpongePermissionService service;
+    private final ProfileResolver profileResolver;
 
     public UserCollection(SpongePermissionService service) {
+        this(service, new ProfileResolver(MinecraftServer.getServer().getMinecraftSessionService(),
+                new File(new File(Sponge.getGameDirectory(), "sponge"), "profiles.txt")));
+    }
+
+    public UserCollection(SpongePermissionService service, ProfileResolver profileResolver) {
         super(PermissionService.SUBJECTS_USER);
         this.service = service;
+        this.profileResolver = profileResolver;
+        this.profileResolver.addListener(new ProfileResolver.Listener() {
+
+            @Override
+            public void onResolved(final List<GameProfile> profiles) {
+                // The vanilla cache is not thread safe, and saving it once per
+                // batch keeps it from rewriting its file for every profile.
+                SyncScheduler.getInstance().runTask(Sponge.getPlugin(), new Runnable() {
+
+                    @Override
+                    public void run() {
+                        PlayerProfileCache cache = MinecraftServer.getServer().getPlayerProfileCache();
+                        for (GameProfile profile : profiles) {
+                            cache.addEntry(profile);
+                        }
+                        cache.save();
+                    }
+                });
+            }
+        });
     }
 
     @Override
@@ -56,20 +89,38 @@ public Subject get(String identifier) {
         if (uid == null) {
             throw new IllegalArgumentException("Provided identifier must be a uuid, was " + identifier);
         }
-        return get(uuidToGameProfile(uid));
+        GameProfile profile = getKnownProfile(uid);
+        if (profile != null) {
+            return get(profile);
+        }
+
+        // Subjects only need the unique id, so we don't wait for the lookup of
+        // the full profile. The subject gets the profile once it is resolved.
+        final UserSubject subject = new UserSubject(uid, this);
+        Futures.addCallback(this.profileResolver.get(uid), new FutureCallback<GameProfile>() {
+
+            @Override
+            public void onSuccess(GameProfile result) {
+                subject.setProfile(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                // The subject keeps working with its unique id only
+            }
+        });
+        return subject;
     }
 
     protected Subject get(GameProfile profile) {
         return new UserSubject(profile, this);
     }
 
-    private GameProfile uuidToGameProfile(UUID uid) {
-        PlayerProfileCache cache = MinecraftServer.getServer().getPlayerProfileCache();
-        GameProfile profile = cache.getProfileByUUID(uid); // Get already cached profile by uuid
+    @Nullable
+    private GameProfile getKnownProfile(UUID uid) {
+        GameProfile profile = MinecraftServer.getServer().getPlayerProfileCache().getProfileByUUID(uid);
         if (profile == null) {
-            profile = MinecraftServer.getServer().getMinecraftSessionService().fillProfileProperties(new GameProfile(uid, null), false);
-            cache.addEntry(profile); // Cache newly looked up profile
-            cache.save(); // Save
+            profile = this.profileResolver.getIfPresent(uid).orNull();
         }
         return profile;
     }
@@ -80,8 +131,8 @@ public boolean hasRegistered(String identifier) {
         if (uid == null) {
             return false;
         }
-        GameProfile profile = uuidToGameProfile(uid);
-        return SpongePermissionService.getOps().getEntry(profile) != null;
+        // The ops list is keyed by the unique id only
+        return SpongePermissionService.getOps().getEntry(new GameProfile(uid, null)) != null;
     }
 
     private UUID identToUuid(String identifier) {
@@ -108,4 +159,8 @@ public Subject apply(Object input) {
     public SpongePermissionService getService() {
         return this.service;
     }
+
+    public ProfileResolver getProfileResolver() {
+        return this.profileResolver;
+    }
 }
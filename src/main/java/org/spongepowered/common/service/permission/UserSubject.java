@@ -35,18 +35,34 @@
 import org.spongepowered.api.util.Tristate;
 import org.spongepowered.api.util.command.CommandSource;
 import org.spongepowered.common.service.permission.base.SingleParentMemorySubjectData;
+import org.spongepowered.common.Sponge;
 import org.spongepowered.common.service.permission.base.SpongeSubject;
+import org.spongepowered.common.service.scheduler.SyncScheduler;
 
 import java.util.Set;
+import java.util.UUID;
 
 /**
  * An implementation of vanilla minecraft's 4 op groups.
  */
 public class UserSubject extends SpongeSubject {
-    private final GameProfile player;
+    private volatile GameProfile player;
+    private volatile int pendingOpLevel = -1;
     private final MemorySubjectData data;
     private final UserCollection collection;
 
+    /**
+     * Creates a subject for a user whose profile was not resolved yet. The
+     * profile is set with {@link #setProfile(GameProfile)} once it is.
+     *
+     * @param uniqueId The unique id of the user
+     * @param users The collection of the subject
+     */
+    UserSubject(UUID uniqueId, UserCollection users) {
+        // The profile without a name only serves as the key of the ops list
+        this(new GameProfile(uniqueId, null), users);
+    }
+
     public UserSubject(final GameProfile player, final UserCollection users) {
         super(users.getService());
         this.player = player;
@@ -68,11 +84,8 @@ public boolean setParent(Subject parent) {
                     }
                     opLevel = ((OpLevelCollection.OpLevelSubject) parent).getOpLevel();
                 }
-                if (opLevel > 0) {
-                    SpongePermissionService.getOps().addEntry(new UserListOpsEntry(player, opLevel));
-                } else {
-                    SpongePermissionService.getOps().removeEntry(player);
-                }
+                setOpLevel(opLevel);
+                onChanged();
                 return true;
             }
         };
@@ -89,7 +102,49 @@ public Optional<CommandSource> getCommandSource() {
         return Optional.fromNullable((CommandSource) MinecraftServer.getServer().getConfigurationManager().getPlayerByUUID(this.player.getId()));
     }
 
+    /**
+     * Sets the resolved profile of a subject which was created for a unique
+     * id only.
+     *
+     * @param profile The resolved profile
+     */
+    void setProfile(GameProfile profile) {
+        this.player = profile;
+        if (this.pendingOpLevel >= 0) {
+            SyncScheduler.getInstance().runTask(Sponge.getPlugin(), new Runnable() {
+
+                @Override
+                public void run() {
+                    int opLevel = UserSubject.this.pendingOpLevel;
+                    if (opLevel >= 0) {
+                        setOpLevel(opLevel);
+                    }
+                }
+            });
+        }
+    }
+
+    private void setOpLevel(int opLevel) {
+        GameProfile profile = this.player;
+        if (opLevel > 0 && profile.getName() == null) {
+            // Entries of the ops list without a name are dropped when the list
+            // is loaded again, so they are only added once the profile is resolved.
+            this.pendingOpLevel = opLevel;
+            return;
+        }
+        this.pendingOpLevel = -1;
+        if (opLevel > 0) {
+            SpongePermissionService.getOps().addEntry(new UserListOpsEntry(profile, opLevel));
+        } else {
+            SpongePermissionService.getOps().removeEntry(profile);
+        }
+    }
+
     int getOpLevel() {
+        int pending = this.pendingOpLevel;
+        if (pending >= 0) {
+            return pending;
+        }
         // Query op level from server ops list based on player's game profile
         UserListOpsEntry entry = ((UserListOpsEntry) SpongePermissionService.getOps().getEntry(this.player));
         if (entry == null) {
@@ -112,10 +167,10 @@ public MemorySubjectData getSubjectData() {
     }
 
     @Override
-    public Tristate getPermissionValue(Set<Context> contexts, String permission) {
-        Tristate ret = super.getPermissionValue(contexts, permission);
+    protected Tristate computePermissionValue(Set<Context> contexts, String permission) {
+        Tristate ret = super.computePermissionValue(contexts, permission);
         if (ret == Tristate.UNDEFINED) {
-            ret = getDataPermissionValue(this.collection.getService().getDefaultData(), permission);
+            ret = getDataPermissionValue(this.collection.getService().getDefaultData(), contexts, permission);
         }
         if (ret == Tristate.UNDEFINED && getOpLevel() >= this.collection.getService().getServerOpLevel()) {
             ret = Tristate.TRUE;
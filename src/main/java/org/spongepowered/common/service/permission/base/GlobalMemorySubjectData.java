@@ -24,18 +24,45 @@
  */
 package org.spongepowered.common.service.permission.base;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import org.spongepowered.api.service.permission.MemorySubjectData;
+import org.spongepowered.api.service.permission.NodeTree;
 import org.spongepowered.api.service.permission.PermissionService;
 import org.spongepowered.api.service.permission.Subject;
 import org.spongepowered.api.service.permission.context.Context;
 import org.spongepowered.api.util.Tristate;
+import org.spongepowered.common.service.permission.SpongePermissionService;
 
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Subject data which only supports parents in the global context.
+ * Permissions may be set in any context.
+ */
 public class GlobalMemorySubjectData extends MemorySubjectData {
+    private static final int MAX_CACHED_CONTEXT_SETS = 16;
+    private static final Comparator<Set<Context>> MOST_SPECIFIC_FIRST = new Comparator<Set<Context>>() {
+        @Override
+        public int compare(Set<Context> o1, Set<Context> o2) {
+            return o2.size() - o1.size();
+        }
+    };
+
+    private final PermissionService service;
+    private final ConcurrentMap<Set<Context>, PermissionTrie> permissionTries = new ConcurrentHashMap<Set<Context>, PermissionTrie>();
+    // Replaced whenever the context sets of the tries change, so lookups that
+    // raced with the change only ever fill the discarded map.
+    private volatile ConcurrentMap<Set<Context>, List<Set<Context>>> applicableContexts =
+            new ConcurrentHashMap<Set<Context>, List<Set<Context>>>();
 
     /**
      * Creates a new subject data instance, using the provided service to request instances of permission subjects.
@@ -44,28 +71,130 @@ public class GlobalMemorySubjectData extends MemorySubjectData {
      */
     public GlobalMemorySubjectData(PermissionService service) {
         super(service);
+        this.service = service;
     }
 
+    /**
+     * Notifies the permission service that the data of this subject has
+     * changed, invalidating the cached permissions of all subjects.
+     */
+    protected void onChanged() {
+        if (this.service instanceof SpongePermissionService) {
+            ((SpongePermissionService) this.service).invalidateCaches();
+        }
+    }
+
+    private boolean onChanged(boolean changed) {
+        if (changed) {
+            onChanged();
+        }
+        return changed;
+    }
 
     @Override
     public Map<Set<Context>, List<Subject>> getAllParents() {
         return ImmutableMap.of(GLOBAL_CONTEXT, getParents(GLOBAL_CONTEXT));
     }
 
+    /**
+     * Gets the value of a permission set in exactly the specified contexts,
+     * resolving parent nodes and wildcards like {@link PermissionTrie#get}.
+     * The tries themselves are never handed out, so every change goes
+     * through {@link #setPermission} and invalidates the cached permissions.
+     *
+     * @param contexts The contexts
+     * @param permission The permission
+     * @return The value, {@link Tristate#UNDEFINED} if not set
+     */
+    public Tristate getPermissionValue(Set<Context> contexts, String permission) {
+        PermissionTrie trie = this.permissionTries.get(contexts);
+        return trie == null ? Tristate.UNDEFINED : trie.get(permission);
+    }
+
+    /**
+     * Gets the context sets permissions are set in that apply to the
+     * specified contexts, which are all non-empty subsets of them, the most
+     * specific ones first. The result is kept until the context sets of this
+     * subject change.
+     *
+     * @param contexts The contexts to check with
+     * @return The applicable context sets
+     */
+    public List<Set<Context>> getApplicableContexts(Set<Context> contexts) {
+        ConcurrentMap<Set<Context>, List<Set<Context>>> cache = this.applicableContexts;
+        List<Set<Context>> applicable = cache.get(contexts);
+        if (applicable == null) {
+            applicable = findApplicableContexts(contexts, this.permissionTries.keySet());
+            if (cache.size() < MAX_CACHED_CONTEXT_SETS) {
+                cache.putIfAbsent(ImmutableSet.copyOf(contexts), applicable);
+            }
+        }
+        return applicable;
+    }
+
+    static List<Set<Context>> findApplicableContexts(Set<Context> contexts, Set<Set<Context>> permissionContexts) {
+        List<Set<Context>> applicable = Lists.newArrayList();
+        for (Set<Context> candidate : permissionContexts) {
+            if (!candidate.isEmpty() && contexts.containsAll(candidate)) {
+                applicable.add(candidate);
+            }
+        }
+        Collections.sort(applicable, MOST_SPECIFIC_FIRST);
+        return ImmutableList.copyOf(applicable);
+    }
+
+    private void onContextsChanged() {
+        this.applicableContexts = new ConcurrentHashMap<Set<Context>, List<Set<Context>>>();
+    }
+
+    @Override
+    public Map<Set<Context>, Map<String, Boolean>> getAllPermissions() {
+        ImmutableMap.Builder<Set<Context>, Map<String, Boolean>> builder = ImmutableMap.builder();
+        for (Map.Entry<Set<Context>, PermissionTrie> entry : this.permissionTries.entrySet()) {
+            builder.put(entry.getKey(), entry.getValue().getAll(""));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Map<String, Boolean> getPermissions(Set<Context> contexts) {
+        PermissionTrie trie = this.permissionTries.get(contexts);
+        return trie == null ? ImmutableMap.<String, Boolean>of() : trie.getAll("");
+    }
+
+    /**
+     * Builds a node tree from the permission trie. The trie is the only
+     * storage of permissions, so this is a copy which does not reflect later
+     * changes.
+     */
+    @Override
+    public NodeTree getNodeTree(Set<Context> contexts) {
+        return NodeTree.of(getPermissions(contexts));
+    }
+
     @Override
     public boolean setPermission(Set<Context> contexts, String permission, Tristate value) {
-        if (!GLOBAL_CONTEXT.equals(contexts)) {
-            return false;
+        PermissionTrie trie = this.permissionTries.get(contexts);
+        if (trie == null) {
+            trie = new PermissionTrie();
+            PermissionTrie existing = this.permissionTries.putIfAbsent(ImmutableSet.copyOf(contexts), trie);
+            if (existing != null) {
+                trie = existing;
+            } else {
+                onContextsChanged();
+            }
         }
-        return super.setPermission(contexts, permission, value);
+        trie.set(permission, value);
+        return onChanged(true);
     }
 
     @Override
     public boolean clearPermissions(Set<Context> contexts) {
-        if (!GLOBAL_CONTEXT.equals(contexts)) {
+        if (this.permissionTries.remove(contexts) == null) {
             return false;
         }
-        return super.clearPermissions(contexts);
+        onContextsChanged();
+        return onChanged(true);
     }
 
     @Override
@@ -73,7 +202,7 @@ public boolean addParent(Set<Context> contexts, Subject parent) {
         if (!GLOBAL_CONTEXT.equals(contexts)) {
             return false;
         }
-        return super.addParent(contexts, parent);
+        return onChanged(super.addParent(contexts, parent));
     }
 
     @Override
@@ -81,7 +210,7 @@ public boolean removeParent(Set<Context> contexts, Subject parent) {
         if (!GLOBAL_CONTEXT.equals(contexts)) {
             return false;
         }
-        return super.removeParent(contexts, parent);
+        return onChanged(super.removeParent(contexts, parent));
     }
 
     @Override
@@ -89,6 +218,21 @@ public boolean clearParents(Set<Context> contexts) {
         if (!GLOBAL_CONTEXT.equals(contexts)) {
             return false;
         }
-        return super.clearParents(contexts);
+        return onChanged(super.clearParents(contexts));
+    }
+
+    @Override
+    public boolean clearPermissions() {
+        if (this.permissionTries.isEmpty()) {
+            return false;
+        }
+        this.permissionTries.clear();
+        onContextsChanged();
+        return onChanged(true);
+    }
+
+    @Override
+    public boolean clearParents() {
+        return onChanged(super.clearParents());
     }
 }
@@ -0,0 +1,311 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.service.permission.base;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.spongepowered.api.util.Tristate;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A trie of permission nodes split into their dot-separated segments.
+ *
+ * <p>A value set for a node applies to all nodes below it, unless one of
+ * them has a value of its own, so {@code a.b} grants {@code a.b.c}. The
+ * wildcard segment {@code *} applies to every node at its level and below,
+ * but not to its parent itself, so {@code a.*} grants {@code a.b} but not
+ * {@code a}. Lookups take time proportional to the number of segments and
+ * do not allocate. Like permissions themselves, segments are case
+ * insensitive.</p>
+ *
+ * <p>Nodes are immutable, keep their children in sorted arrays and share
+ * their segment strings with all other tries, so many subjects with similar
+ * permissions fit into little memory. Modifications copy the path to the
+ * modified node and are safe to run concurrently with lookups.</p>
+ */
+public final class PermissionTrie {
+
+    public static final String WILDCARD = "*";
+
+    private static final byte UNDEFINED = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+
+    private static final String[] NO_KEYS = new String[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Node EMPTY = new Node(NO_KEYS, NO_CHILDREN, UNDEFINED);
+
+    private static final Interner<String> segments = Interners.newWeakInterner();
+
+    private volatile Node root = EMPTY;
+
+    /**
+     * Gets the value of the permission, including the values inherited from
+     * its parent nodes and wildcards.
+     *
+     * @param permission The permission
+     * @return The value of the permission
+     */
+    public Tristate get(String permission) {
+        Node node = this.root;
+        byte result = node.value;
+        int start = 0;
+        int length = permission.length();
+        while (start <= length) {
+            int end = permission.indexOf('.', start);
+            if (end == -1) {
+                end = length;
+            }
+
+            Node wildcard = node.getChild(WILDCARD, 0, 1);
+            if (wildcard != null && wildcard.value != UNDEFINED) {
+                result = wildcard.value;
+            }
+            node = node.getChild(permission, start, end);
+            if (node == null) {
+                break;
+            }
+            if (node.value != UNDEFINED) {
+                result = node.value;
+            }
+            start = end + 1;
+        }
+        return toTristate(result);
+    }
+
+    /**
+     * Gets the value set for exactly the specified node, ignoring values set
+     * for its parents and wildcards.
+     *
+     * @param permission The permission
+     * @return The value of the node
+     */
+    public Tristate getExact(String permission) {
+        Node node = find(permission);
+        return node == null ? Tristate.UNDEFINED : toTristate(node.value);
+    }
+
+    /**
+     * Gets the values set for the specified node and all nodes below it.
+     *
+     * @param prefix The node to get the values below, or an empty string for
+     *     all values
+     * @return The values by permission
+     */
+    public Map<String, Boolean> getAll(String prefix) {
+        ImmutableMap.Builder<String, Boolean> builder = ImmutableMap.builder();
+        if (prefix.isEmpty()) {
+            collect(this.root, new StringBuilder(), builder);
+        } else {
+            Node node = find(prefix);
+            if (node != null) {
+                collect(node, new StringBuilder(prefix.toLowerCase(Locale.ENGLISH)), builder);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Sets the value of the specified node.
+     *
+     * @param permission The permission
+     * @param value The value, or {@link Tristate#UNDEFINED} to remove the
+     *     value
+     */
+    public synchronized void set(String permission, Tristate value) {
+        String[] path = permission.toLowerCase(Locale.ENGLISH).split("\\.", -1);
+        this.root = set(this.root, path, 0, toByte(value));
+    }
+
+    /**
+     * Removes all values.
+     */
+    public synchronized void clear() {
+        this.root = EMPTY;
+    }
+
+    public boolean isEmpty() {
+        return this.root == EMPTY;
+    }
+
+    private Node find(String permission) {
+        Node node = this.root;
+        int start = 0;
+        int length = permission.length();
+        while (node != null && start <= length) {
+            int end = permission.indexOf('.', start);
+            if (end == -1) {
+                end = length;
+            }
+            node = node.getChild(permission, start, end);
+            start = end + 1;
+        }
+        return node;
+    }
+
+    private static Node set(Node node, String[] path, int depth, byte value) {
+        if (depth == path.length) {
+            return node.withValue(value);
+        }
+
+        Node child = node.getChild(path[depth], 0, path[depth].length());
+        Node newChild = set(child == null ? EMPTY : child, path, depth + 1, value);
+        return node.withChild(path[depth], newChild);
+    }
+
+    private static void collect(Node node, StringBuilder path, ImmutableMap.Builder<String, Boolean> builder) {
+        if (node.value != UNDEFINED) {
+            builder.put(path.toString(), node.value == TRUE);
+        }
+        int length = path.length();
+        for (int i = 0; i < node.keys.length; i++) {
+            if (length > 0) {
+                path.append('.');
+            }
+            path.append(node.keys[i]);
+            collect(node.children[i], path, builder);
+            path.setLength(length);
+        }
+    }
+
+    private static byte toByte(Tristate value) {
+        switch (value) {
+            case TRUE:
+                return TRUE;
+            case FALSE:
+                return FALSE;
+            default:
+                return UNDEFINED;
+        }
+    }
+
+    private static Tristate toTristate(byte value) {
+        switch (value) {
+            case TRUE:
+                return Tristate.TRUE;
+            case FALSE:
+                return Tristate.FALSE;
+            default:
+                return Tristate.UNDEFINED;
+        }
+    }
+
+    /**
+     * Compares a region of a permission with a (lower case) segment, the
+     * same way as {@link String#compareTo} compares lower case strings.
+     */
+    static int compare(String key, String permission, int start, int end) {
+        int length = Math.min(key.length(), end - start);
+        for (int i = 0; i < length; i++) {
+            char c1 = key.charAt(i);
+            char c2 = Character.toLowerCase(permission.charAt(start + i));
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return key.length() - (end - start);
+    }
+
+    private static final class Node {
+
+        final String[] keys;
+        final Node[] children;
+        final byte value;
+
+        Node(String[] keys, Node[] children, byte value) {
+            this.keys = keys;
+            this.children = children;
+            this.value = value;
+        }
+
+        Node getChild(String permission, int start, int end) {
+            int low = 0;
+            int high = this.keys.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(this.keys[mid], permission, start, end);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return this.children[mid];
+                }
+            }
+            return null;
+        }
+
+        Node withValue(byte value) {
+            if (value == this.value) {
+                return this;
+            }
+            if (value == UNDEFINED && this.keys.length == 0) {
+                return EMPTY;
+            }
+            return new Node(this.keys, this.children, value);
+        }
+
+        Node withChild(String key, Node child) {
+            int index = Arrays.binarySearch(this.keys, key);
+            if (index >= 0) {
+                if (child == EMPTY) {
+                    // Remove the child, and this node as well if it is empty now
+                    if (this.keys.length == 1 && this.value == UNDEFINED) {
+                        return EMPTY;
+                    }
+                    String[] keys = new String[this.keys.length - 1];
+                    Node[] children = new Node[this.children.length - 1];
+                    System.arraycopy(this.keys, 0, keys, 0, index);
+                    System.arraycopy(this.keys, index + 1, keys, index, keys.length - index);
+                    System.arraycopy(this.children, 0, children, 0, index);
+                    System.arraycopy(this.children, index + 1, children, index, children.length - index);
+                    return new Node(keys, children, this.value);
+                }
+                Node[] children = this.children.clone();
+                children[index] = child;
+                return new Node(this.keys, children, this.value);
+            } else if (child == EMPTY) {
+                return this;
+            }
+
+            int insert = -(index + 1);
+            String[] keys = new String[this.keys.length + 1];
+            Node[] children = new Node[this.children.length + 1];
+            System.arraycopy(this.keys, 0, keys, 0, insert);
+            System.arraycopy(this.keys, insert, keys, insert + 1, this.keys.length - insert);
+            System.arraycopy(this.children, 0, children, 0, insert);
+            System.arraycopy(this.children, insert, children, insert + 1, this.children.length - insert);
+            keys[insert] = segments.intern(key);
+            children[insert] = child;
+            return new Node(keys, children, this.value);
+        }
+
+    }
+
+}
@@ -24,6 +24,9 @@
  */
 package org.spongepowered.common.service.permission.base;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
 import org.spongepowered.api.service.permission.MemorySubjectData;
 import org.spongepowered.api.service.permission.Subject;
 import org.spongepowered.api.service.permission.SubjectData;
@@ -36,6 +39,8 @@
 
 public abstract class SpongeSubject implements Subject {
     private final SpongePermissionService service;
+    private volatile PermissionCache permissionCache;
+    private volatile ActiveContexts activeContexts;
 
     protected SpongeSubject(SpongePermissionService service) {
         this.service = service;
@@ -65,15 +70,42 @@ public boolean hasPermission(String permission) {
 
     @Override
     public Tristate getPermissionValue(Set<Context> contexts, String permission) {
-        return getDataPermissionValue(getSubjectData(), permission);
+        // Any change of permission data bumps the version of the service, which
+        // discards the resolved permissions cached for the previous version.
+        int version = this.service.getDataVersion();
+        PermissionCache cache = this.permissionCache;
+        if (cache == null || cache.version != version) {
+            this.permissionCache = cache = new PermissionCache(version);
+        }
+
+        Cache<String, Tristate> values = cache.getValues(contexts);
+        Tristate res = values.getIfPresent(permission);
+        if (res == null) {
+            res = computePermissionValue(contexts, permission);
+            values.put(permission, res);
+        }
+        return res;
     }
 
-    protected Tristate getDataPermissionValue(MemorySubjectData subject, String permission) {
-        Tristate res = getSubjectData().getNodeTree(SubjectData.GLOBAL_CONTEXT).get(permission);
+    /**
+     * Resolves the value of a permission for this subject, including the
+     * values inherited from its parents. The result is cached until any
+     * permission data changes.
+     *
+     * @param contexts The contexts to check with
+     * @param permission The permission to check
+     * @return The resolved value
+     */
+    protected Tristate computePermissionValue(Set<Context> contexts, String permission) {
+        return getDataPermissionValue(getSubjectData(), contexts, permission);
+    }
+
+    protected Tristate getDataPermissionValue(MemorySubjectData subject, Set<Context> contexts, String permission) {
+        Tristate res = getNodeTreeValue(subject, contexts, permission);
 
         if (res == Tristate.UNDEFINED) {
             for (Subject parent : subject.getParents(SubjectData.GLOBAL_CONTEXT)) {
-                Tristate tempRes = parent.getPermissionValue(SubjectData.GLOBAL_CONTEXT, permission);
+                Tristate tempRes = parent.getPermissionValue(contexts, permission);
                 if (tempRes != Tristate.UNDEFINED) {
                     res = tempRes;
                     break;
@@ -83,6 +115,30 @@ protected Tristate getDataPermissionValue(MemorySubjectData subject, String perm
         return res;
     }
 
+    private static Tristate getNodeTreeValue(MemorySubjectData subject, Set<Context> contexts, String permission) {
+        if (!contexts.isEmpty()) {
+            // Permissions set for a subset of the contexts apply as well, the
+            // ones set for the most specific context set take precedence.
+            List<Set<Context>> applicable = subject instanceof GlobalMemorySubjectData
+                    ? ((GlobalMemorySubjectData) subject).getApplicableContexts(contexts)
+                    : GlobalMemorySubjectData.findApplicableContexts(contexts, subject.getAllPermissions().keySet());
+            for (Set<Context> candidate : applicable) {
+                Tristate res = getContextValue(subject, candidate, permission);
+                if (res != Tristate.UNDEFINED) {
+                    return res;
+                }
+            }
+        }
+        return getContextValue(subject, SubjectData.GLOBAL_CONTEXT, permission);
+    }
+
+    private static Tristate getContextValue(MemorySubjectData subject, Set<Context> contexts, String permission) {
+        if (subject instanceof GlobalMemorySubjectData) {
+            return ((GlobalMemorySubjectData) subject).getPermissionValue(contexts, permission);
+        }
+        return subject.getNodeTree(contexts).get(permission);
+    }
+
     @Override
     public boolean isChildOf(Subject parent) {
         return isChildOf(getActiveContexts(), parent);
@@ -105,6 +161,51 @@ public List<Subject> getParents(Set<Context> contexts) {
 
     @Override
     public Set<Context> getActiveContexts() {
-        return SubjectData.GLOBAL_CONTEXT;
+        // The active contexts only change when players log in or out or change
+        // worlds (or the context calculators change), which bumps the context
+        // version of the service. Until then the same set is returned so it can
+        // be used as a cheap key for the permission cache.
+        int version = this.service.getContextVersion();
+        ActiveContexts active = this.activeContexts;
+        if (active == null || active.version != version) {
+            this.activeContexts = active = new ActiveContexts(version, this.service.calculateContexts(this));
+        }
+        return active.contexts;
+    }
+
+    private static final class ActiveContexts {
+        final int version;
+        final Set<Context> contexts;
+
+        ActiveContexts(int version, Set<Context> contexts) {
+            this.version = version;
+            this.contexts = contexts;
+        }
+    }
+
+    private static final class PermissionCache {
+        // Plugins may check arbitrary (even generated) permissions and contexts,
+        // so both levels only keep the most recently used entries.
+        private static final int MAX_CONTEXT_SETS = 16;
+        private static final int MAX_PERMISSIONS = 1024;
+
+        final int version;
+        private final Cache<Set<Context>, Cache<String, Tristate>> values = CacheBuilder.newBuilder().maximumSize(MAX_CONTEXT_SETS).build();
+
+        PermissionCache(int version) {
+            this.version = version;
+        }
+
+        Cache<String, Tristate> getValues(Set<Context> contexts) {
+            Cache<String, Tristate> ret = this.values.getIfPresent(contexts);
+            if (ret == null) {
+                ret = CacheBuilder.newBuilder().maximumSize(MAX_PERMISSIONS).build();
+                Cache<String, Tristate> existing = this.values.asMap().putIfAbsent(ImmutableSet.copyOf(contexts), ret);
+                if (existing != null) {
+                    ret = existing;
+                }
+            }
+            return ret;
+        }
     }
 }
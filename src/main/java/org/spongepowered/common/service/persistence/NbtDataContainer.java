@@ -0,0 +1,125 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.service.persistence;
+
+import com.google.common.base.Optional;
+import net.minecraft.nbt.NBTTagCompound;
+import org.spongepowered.api.data.DataContainer;
+import org.spongepowered.api.data.DataQuery;
+import org.spongepowered.api.data.DataView;
+import org.spongepowered.api.data.MemoryDataContainer;
+
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link DataContainer} that keeps the {@link NBTTagCompound} it was created
+ * from and only translates it in to the container on first access.
+ *
+ * @see NbtTranslator#translateFromLazily(NBTTagCompound)
+ */
+final class NbtDataContainer extends MemoryDataContainer {
+
+    @Nullable private NBTTagCompound source;
+
+    NbtDataContainer(NBTTagCompound source) {
+        this.source = source;
+    }
+
+    private void materialize() {
+        if (this.source != null) {
+            NBTTagCompound compound = this.source;
+            // Cleared first, the translation sets the values through this container.
+            this.source = null;
+            NbtTranslator.readCompound(compound, this);
+        }
+    }
+
+    @Override
+    public Set<DataQuery> getKeys(boolean deep) {
+        materialize();
+        return super.getKeys(deep);
+    }
+
+    @Override
+    public Map<DataQuery, Object> getValues(boolean deep) {
+        materialize();
+        return super.getValues(deep);
+    }
+
+    @Override
+    public boolean contains(DataQuery path) {
+        materialize();
+        return super.contains(path);
+    }
+
+    @Override
+    public Optional<Object> get(DataQuery path) {
+        materialize();
+        return super.get(path);
+    }
+
+    @Override
+    public DataContainer set(DataQuery path, Object value) {
+        materialize();
+        return super.set(path, value);
+    }
+
+    @Override
+    public DataContainer remove(DataQuery path) {
+        materialize();
+        return super.remove(path);
+    }
+
+    @Override
+    public DataView createView(DataQuery path) {
+        materialize();
+        return super.createView(path);
+    }
+
+    @Override
+    public int hashCode() {
+        materialize();
+        return super.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        materialize();
+        if (obj instanceof NbtDataContainer) {
+            ((NbtDataContainer) obj).materialize();
+        }
+        return super.equals(obj);
+    }
+
+    @Override
+    public String toString() {
+        materialize();
+        return super.toString();
+    }
+
+}
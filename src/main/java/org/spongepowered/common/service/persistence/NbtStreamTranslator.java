@@ -0,0 +1,338 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.service.persistence;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.spongepowered.api.data.DataQuery.of;
+
+import com.google.common.collect.Lists;
+import org.spongepowered.api.data.DataContainer;
+import org.spongepowered.api.data.DataQuery;
+import org.spongepowered.api.data.DataSerializable;
+import org.spongepowered.api.data.DataView;
+import org.spongepowered.api.data.MemoryDataContainer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Translates between {@link DataView}s and the binary NBT format without
+ * building an intermediate {@link net.minecraft.nbt.NBTTagCompound} tree.
+ *
+ * <p>The bytes are compatible with
+ * {@link net.minecraft.nbt.CompressedStreamTools#write} and
+ * {@link net.minecraft.nbt.CompressedStreamTools#read}, and the values are
+ * translated the same way as {@link NbtTranslator} does.</p>
+ */
+public final class NbtStreamTranslator {
+
+    private static final byte TAG_END = 0;
+    private static final byte TAG_BYTE = 1;
+    private static final byte TAG_SHORT = 2;
+    private static final byte TAG_INT = 3;
+    private static final byte TAG_LONG = 4;
+    private static final byte TAG_FLOAT = 5;
+    private static final byte TAG_DOUBLE = 6;
+    private static final byte TAG_BYTE_ARRAY = 7;
+    private static final byte TAG_STRING = 8;
+    private static final byte TAG_LIST = 9;
+    private static final byte TAG_COMPOUND = 10;
+    private static final byte TAG_INT_ARRAY = 11;
+
+    private static final int MAX_DEPTH = 512;
+
+    private NbtStreamTranslator() {
+    }
+
+    /**
+     * Reads a root NBT compound into a new {@link DataContainer}.
+     *
+     * @param input The input to read from
+     * @return The read container
+     * @throws IOException If the input could not be read or does not contain
+     *     a compound
+     */
+    public static DataContainer read(DataInput input) throws IOException {
+        DataContainer container = new MemoryDataContainer();
+        read(input, container);
+        return container;
+    }
+
+    /**
+     * Reads a root NBT compound into the specified view.
+     *
+     * @param input The input to read from
+     * @param view The view to set the values of the compound on
+     * @throws IOException If the input could not be read or does not contain
+     *     a compound
+     */
+    public static void read(DataInput input, DataView view) throws IOException {
+        checkNotNull(input);
+        checkNotNull(view);
+        byte type = input.readByte();
+        if (type != TAG_COMPOUND) {
+            throw new IOException("Root tag must be a compound, found type " + type);
+        }
+        input.readUTF();
+        readCompound(input, view, 0);
+    }
+
+    /**
+     * Writes the specified view as a root NBT compound.
+     *
+     * @param view The view to write
+     * @param output The output to write to
+     * @throws IOException If the output could not be written to
+     * @throws IllegalArgumentException If the view contains a value which can
+     *     not be represented in NBT
+     */
+    public static void write(DataView view, DataOutput output) throws IOException {
+        checkNotNull(view);
+        checkNotNull(output);
+        output.writeByte(TAG_COMPOUND);
+        output.writeUTF("");
+        writeView(view, output);
+    }
+
+    private static void readCompound(DataInput input, DataView view, int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw new IOException("Tried to read NBT tag with too high complexity, depth > " + MAX_DEPTH);
+        }
+
+        byte type;
+        while ((type = input.readByte()) != TAG_END) {
+            String key = input.readUTF();
+            if (type == TAG_COMPOUND) {
+                // Like NbtTranslator, nested compounds are read straight into a child view
+                readCompound(input, view.createView(of('.', key)), depth + 1);
+            } else {
+                view.set(of('.', key), readPayload(input, type, depth));
+            }
+        }
+    }
+
+    private static Object readPayload(DataInput input, byte type, int depth) throws IOException {
+        switch (type) {
+            case TAG_BYTE:
+                return input.readByte();
+            case TAG_SHORT:
+                return input.readShort();
+            case TAG_INT:
+                return input.readInt();
+            case TAG_LONG:
+                return input.readLong();
+            case TAG_FLOAT:
+                return input.readFloat();
+            case TAG_DOUBLE:
+                return input.readDouble();
+            case TAG_BYTE_ARRAY: {
+                byte[] array = new byte[input.readInt()];
+                input.readFully(array);
+                return array;
+            }
+            case TAG_STRING:
+                return input.readUTF();
+            case TAG_LIST: {
+                byte listType = input.readByte();
+                int count = input.readInt();
+                List<Object> list = Lists.newArrayListWithCapacity(count);
+                for (int i = 0; i < count; i++) {
+                    list.add(readPayload(input, listType, depth + 1));
+                }
+                return list;
+            }
+            case TAG_COMPOUND: {
+                DataContainer container = new MemoryDataContainer();
+                readCompound(input, container, depth + 1);
+                return container;
+            }
+            case TAG_INT_ARRAY: {
+                int[] array = new int[input.readInt()];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = input.readInt();
+                }
+                return array;
+            }
+            default:
+                throw new IOException("Unknown NBT tag type " + type);
+        }
+    }
+
+    private static void writeView(DataView view, DataOutput output) throws IOException {
+        for (Map.Entry<DataQuery, Object> entry : view.getValues(false).entrySet()) {
+            writeNamed(entry.getKey().asString('.'), entry.getValue(), output);
+        }
+        output.writeByte(TAG_END);
+    }
+
+    private static void writeNamed(String key, Object value, DataOutput output) throws IOException {
+        byte type = getType(value);
+        output.writeByte(type);
+        output.writeUTF(key);
+        writePayload(value, type, output);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writePayload(Object value, byte type, DataOutput output) throws IOException {
+        switch (type) {
+            case TAG_BYTE:
+                output.writeByte((Byte) value);
+                break;
+            case TAG_SHORT:
+                output.writeShort((Short) value);
+                break;
+            case TAG_INT:
+                output.writeInt((Integer) value);
+                break;
+            case TAG_LONG:
+                output.writeLong((Long) value);
+                break;
+            case TAG_FLOAT:
+                output.writeFloat((Float) value);
+                break;
+            case TAG_DOUBLE:
+                output.writeDouble((Double) value);
+                break;
+            case TAG_BYTE_ARRAY:
+                writeByteArray(value, output);
+                break;
+            case TAG_STRING:
+                output.writeUTF((String) value);
+                break;
+            case TAG_LIST:
+                if (value instanceof long[]) {
+                    writeLongArray((long[]) value, output);
+                } else {
+                    writeList((List<Object>) value, output);
+                }
+                break;
+            case TAG_COMPOUND:
+                writeCompound(value, output);
+                break;
+            case TAG_INT_ARRAY:
+                writeIntArray(value, output);
+                break;
+            default:
+                throw new IllegalArgumentException("Unable to translate object to NBT!");
+        }
+    }
+
+    private static void writeByteArray(Object value, DataOutput output) throws IOException {
+        if (value instanceof byte[]) {
+            byte[] array = (byte[]) value;
+            output.writeInt(array.length);
+            output.write(array);
+        } else {
+            Byte[] array = (Byte[]) value;
+            output.writeInt(array.length);
+            for (Byte data : array) {
+                output.writeByte(data);
+            }
+        }
+    }
+
+    private static void writeIntArray(Object value, DataOutput output) throws IOException {
+        if (value instanceof int[]) {
+            int[] array = (int[]) value;
+            output.writeInt(array.length);
+            for (int data : array) {
+                output.writeInt(data);
+            }
+        } else {
+            Integer[] array = (Integer[]) value;
+            output.writeInt(array.length);
+            for (Integer data : array) {
+                output.writeInt(data);
+            }
+        }
+    }
+
+    // NBT has no long array tag, so like NbtTranslator this writes a list of longs
+    private static void writeLongArray(long[] array, DataOutput output) throws IOException {
+        output.writeByte(TAG_LONG);
+        output.writeInt(array.length);
+        for (long data : array) {
+            output.writeLong(data);
+        }
+    }
+
+    private static void writeList(List<Object> list, DataOutput output) throws IOException {
+        byte listType = list.isEmpty() ? TAG_END : getType(list.get(0));
+        output.writeByte(listType);
+        output.writeInt(list.size());
+        for (Object object : list) {
+            if (getType(object) != listType) {
+                throw new IllegalArgumentException("NBT lists may only contain elements of a single type!");
+            }
+            writePayload(object, listType, output);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeCompound(Object value, DataOutput output) throws IOException {
+        if (value instanceof DataView) {
+            writeView((DataView) value, output);
+        } else if (value instanceof DataSerializable) {
+            writeView(((DataSerializable) value).toContainer(), output);
+        } else {
+            for (Map.Entry<DataQuery, Object> entry : ((Map<DataQuery, Object>) value).entrySet()) {
+                writeNamed(entry.getKey().asString('.'), entry.getValue(), output);
+            }
+            output.writeByte(TAG_END);
+        }
+    }
+
+    private static byte getType(Object value) {
+        checkNotNull(value);
+        if (value instanceof Byte) {
+            return TAG_BYTE;
+        } else if (value instanceof Short) {
+            return TAG_SHORT;
+        } else if (value instanceof Integer) {
+            return TAG_INT;
+        } else if (value instanceof Long) {
+            return TAG_LONG;
+        } else if (value instanceof Float) {
+            return TAG_FLOAT;
+        } else if (value instanceof Double) {
+            return TAG_DOUBLE;
+        } else if (value instanceof String) {
+            return TAG_STRING;
+        } else if (value instanceof byte[] || value instanceof Byte[]) {
+            return TAG_BYTE_ARRAY;
+        } else if (value instanceof int[] || value instanceof Integer[]) {
+            return TAG_INT_ARRAY;
+        } else if (value instanceof List || value instanceof long[]) {
+            return TAG_LIST;
+        } else if (value instanceof Map || value instanceof DataSerializable || value instanceof DataView) {
+            return TAG_COMPOUND;
+        }
+        throw new IllegalArgumentException("Unable to translate object to NBT!");
+    }
+
+}
@@ -80,7 +80,7 @@ private static void containerToCompound(final DataView container, final NBTTagCo
             String key = entry.getKey().asString('.');
             if (value instanceof DataView) {
                 NBTTagCompound inner = new NBTTagCompound();
-                containerToCompound(container.getView(entry.getKey()).get(), inner);
+                containerToCompound((DataView) value, inner);
                 compound.setTag(key, inner);
             } else {
                 compound.setTag(key, getBaseFromObject(value));
@@ -105,18 +105,31 @@ private static NBTBase getBaseFromObject(Object value) {
             return new NBTTagDouble((Double) value);
         } else if (value instanceof String) {
             return new NBTTagString((String) value);
+        } else if (value instanceof byte[]) {
+            // Arrays are mutable, so the tag gets its own copy just like
+            // NBTTagByteArray#copy makes one.
+            return new NBTTagByteArray(((byte[]) value).clone());
+        } else if (value instanceof int[]) {
+            return new NBTTagIntArray(((int[]) value).clone());
+        } else if (value instanceof long[]) {
+            // There is no long array tag, so long arrays become lists of longs.
+            NBTTagList list = new NBTTagList();
+            for (long data : (long[]) value) {
+                list.appendTag(new NBTTagLong(data));
+            }
+            return list;
         } else if (value instanceof Byte[]) {
-            byte[] array = new byte[((Byte[]) value).length];
-            int counter = 0;
-            for (Byte data : (Byte[]) value) {
-                array[counter++] = data;
+            Byte[] values = (Byte[]) value;
+            byte[] array = new byte[values.length];
+            for (int i = 0; i < values.length; i++) {
+                array[i] = values[i];
             }
             return new NBTTagByteArray(array);
         } else if (value instanceof Integer[]) {
-            int[] array = new int[((Integer[]) value).length];
-            int counter = 0;
-            for (Integer data : (Integer[]) value) {
-                array[counter++] = data;
+            Integer[] values = (Integer[]) value;
+            int[] array = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                array[i] = values[i];
             }
             return new NBTTagIntArray(array);
         } else if (value instanceof List) {
@@ -141,19 +154,23 @@ private static NBTBase getBaseFromObject(Object value) {
         throw new IllegalArgumentException("Unable to translate object to NBTBase!");
     }
 
-    @SuppressWarnings("unchecked")
     private static DataContainer getViewFromCompound(NBTTagCompound compound) {
         checkNotNull(compound);
         DataContainer container = new MemoryDataContainer();
+        readCompound(compound, container);
+        return container;
+    }
+
+    @SuppressWarnings("unchecked")
+    static void readCompound(NBTTagCompound compound, DataView view) {
         for (String key : (Set<String>) compound.getKeySet()) {
             NBTBase base = compound.getTag(key);
             byte type = base.getId();
-            setInternal(base, type, container, key); // gotta love recursion
+            setInternal(base, type, view, key); // gotta love recursion
         }
-        return container;
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
+    @SuppressWarnings("unchecked")
     private static void setInternal(NBTBase base, byte type, DataView view, String key) {
         checkNotNull(base);
         checkNotNull(view);
@@ -173,36 +190,22 @@ private static void setInternal(NBTBase base, byte type, DataView view, String k
         } else if (type == 6) {
             view.set(of('.', key), ((NBTBase.NBTPrimitive) base).getDouble());
         } else if (type == 7) {
-            view.set(of('.', key), ((NBTTagByteArray) base).getByteArray());
+            view.set(of('.', key), ((NBTTagByteArray) base).getByteArray().clone());
         } else if (type == 8) {
             view.set(of('.', key), ((NBTTagString) base).getString());
         } else if (type == 9) {
-            NBTTagList list = (NBTTagList) base;
-            byte listType = (byte) list.getTagType();
-            int count = list.tagCount();
-            List objectList = Lists.newArrayListWithCapacity(count);
-            for (int i = 0; i < count; i++) {
-                objectList.add(fromTagBase(list.get(i), listType));
-            }
-            view.set(of('.', key), objectList);
+            view.set(of('.', key), getListFromTag((NBTTagList) base));
         } else if (type == 10) {
-            DataView internalView = view.createView(of('.', key));
-            NBTTagCompound compound = (NBTTagCompound) base;
-            for (String internalKey : (Set<String>) compound.getKeySet()) {
-                NBTBase internalBase = compound.getTag(internalKey);
-                byte internalType = internalBase.getId();
-                // Basically.... more recursion.
-                // Reasoning: This avoids creating a new DataContainer which would
-                // then be copied in to the owning DataView anyways. We can internally
-                // set the actual data directly to the child view instead.
-                setInternal(internalBase, internalType, internalView, internalKey);
-            }
+            // Basically.... more recursion.
+            // Reasoning: This avoids creating a new DataContainer which would
+            // then be copied in to the owning DataView anyways. We can internally
+            // set the actual data directly to the child view instead.
+            readCompound((NBTTagCompound) base, view.createView(of('.', key)));
         } else if (type == 11) {
-            view.set(of('.', key), ((NBTTagIntArray) base).getIntArray());
+            view.set(of('.', key), ((NBTTagIntArray) base).getIntArray().clone());
         }
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
     private static Object fromTagBase(NBTBase base, byte type) {
         if (type == 0) {
             return null;
@@ -219,27 +222,66 @@ private static Object fromTagBase(NBTBase base, byte type) {
         } else if (type == 6) {
             return ((NBTBase.NBTPrimitive) base).getDouble();
         } else if (type == 7) {
-            return ((NBTTagByteArray) base).getByteArray();
+            return ((NBTTagByteArray) base).getByteArray().clone();
         } else if (type == 8) {
             return ((NBTTagString) base).getString();
         } else if (type == 9) {
-            NBTTagList list = (NBTTagList) base;
-            byte listType = (byte) list.getTagType();
-            int count = list.tagCount();
-            List objectList = Lists.newArrayListWithCapacity(count);
-            for (int i = 0; i < list.tagCount(); i++) {
-                objectList.add(fromTagBase(list.get(i), listType));
-            }
-            return objectList;
+            return getListFromTag((NBTTagList) base);
         } else if (type == 10) {
             return getViewFromCompound((NBTTagCompound) base);
         } else if (type == 11) {
-            return ((NBTTagIntArray) base).getIntArray();
+            return ((NBTTagIntArray) base).getIntArray().clone();
         } else {
             return null;
         }
     }
 
+    private static List<Object> getListFromTag(NBTTagList list) {
+        byte listType = (byte) list.getTagType();
+        int count = list.tagCount();
+        List<Object> objectList = Lists.newArrayListWithCapacity(count);
+        // Lists are homogeneous, so numeric lists are read without looking up
+        // the element type again for every single element. The values are still
+        // boxed, since views hold lists of objects.
+        switch (listType) {
+            case 1:
+                for (int i = 0; i < count; i++) {
+                    objectList.add(((NBTBase.NBTPrimitive) list.get(i)).getByte());
+                }
+                break;
+            case 2:
+                for (int i = 0; i < count; i++) {
+                    objectList.add(((NBTBase.NBTPrimitive) list.get(i)).getShort());
+                }
+                break;
+            case 3:
+                for (int i = 0; i < count; i++) {
+                    objectList.add(((NBTBase.NBTPrimitive) list.get(i)).getInt());
+                }
+                break;
+            case 4:
+                for (int i = 0; i < count; i++) {
+                    objectList.add(((NBTBase.NBTPrimitive) list.get(i)).getLong());
+                }
+                break;
+            case 5:
+                for (int i = 0; i < count; i++) {
+                    objectList.add(((NBTBase.NBTPrimitive) list.get(i)).getFloat());
+                }
+                break;
+            case 6:
+                for (int i = 0; i < count; i++) {
+                    objectList.add(((NBTBase.NBTPrimitive) list.get(i)).getDouble());
+                }
+                break;
+            default:
+                for (int i = 0; i < count; i++) {
+                    objectList.add(fromTagBase(list.get(i), listType));
+                }
+        }
+        return objectList;
+    }
+
     @Override
     public NBTTagCompound translateData(DataView container) {
         return NbtTranslator.containerToCompound(container);
@@ -254,4 +296,21 @@ public void translateContainerToData(NBTTagCompound node, DataView container) {
     public DataContainer translateFrom(NBTTagCompound node) {
         return NbtTranslator.getViewFromCompound(node);
     }
+
+    /**
+     * Creates a {@link DataContainer} backed by the given compound which is
+     * only translated once it is first read from or written to. Containers
+     * that are never looked at, or only passed on, never allocate the
+     * translated tree.
+     *
+     * <p>The returned container takes ownership of the compound, so callers
+     * must hand in a compound nothing else is going to modify, such as a
+     * freshly written or parsed one.</p>
+     *
+     * @param node The compound to translate on demand
+     * @return The lazily translated container
+     */
+    public DataContainer translateFromLazily(NBTTagCompound node) {
+        return new NbtDataContainer(checkNotNull(node));
+    }
 }
@@ -0,0 +1,453 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.service.profile;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mojang.authlib.GameProfile;
+import com.mojang.authlib.minecraft.MinecraftSessionService;
+import com.mojang.authlib.yggdrasil.ProfileNotFoundException;
+import org.spongepowered.common.Sponge;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nullable;
+
+/**
+ * Resolves {@link GameProfile}s by their unique id without blocking the
+ * calling thread.
+ *
+ * <p>Profiles which are not known yet are looked up by a single background
+ * thread, which hands all requests that accumulated since its last run to
+ * the {@link BatchLookup} at once. Resolved profiles are kept in memory and
+ * appended to a local store file, so they survive restarts without
+ * rewriting the whole file for every new profile. Unique ids which could
+ * not be resolved are remembered for {@link #NEGATIVE_CACHE_MINUTES}
+ * minutes, so repeated requests for them don't query the lookup again.</p>
+ */
+public class ProfileResolver {
+
+    /**
+     * The time unique ids which could not be resolved are not looked up
+     * again for.
+     */
+    public static final int NEGATIVE_CACHE_MINUTES = 10;
+
+    private static final int MAX_NEGATIVE_ENTRIES = 10000;
+    private static final char SEPARATOR = ' ';
+
+    private final BatchLookup lookup;
+    @Nullable private final File storeFile;
+    private final Executor executor;
+
+    private final ConcurrentMap<UUID, GameProfile> profiles = new ConcurrentHashMap<UUID, GameProfile>();
+    private final Cache<UUID, Exception> missing;
+    private final ConcurrentMap<UUID, SettableFuture<GameProfile>> pending = new ConcurrentHashMap<UUID, SettableFuture<GameProfile>>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+    /**
+     * Creates a new profile resolver looking up profiles on a background
+     * thread.
+     *
+     * @param sessionService The session service used to look up profiles
+     * @param storeFile The file to store resolved profiles in, or
+     *     {@code null} to only keep them in memory
+     */
+    public ProfileResolver(MinecraftSessionService sessionService, @Nullable File storeFile) {
+        this(sessionService, storeFile, Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("Sponge Profile Resolver").setDaemon(true).build()));
+    }
+
+    /**
+     * Creates a new profile resolver looking up profiles using the specified
+     * executor.
+     *
+     * @param sessionService The session service used to look up profiles
+     * @param storeFile The file to store resolved profiles in, or
+     *     {@code null} to only keep them in memory
+     * @param executor The executor running the lookups, which must run them
+     *     one at a time
+     */
+    public ProfileResolver(MinecraftSessionService sessionService, @Nullable File storeFile, Executor executor) {
+        this(new SessionServiceLookup(sessionService), storeFile, executor, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a new profile resolver looking up profiles with the specified
+     * batch lookup.
+     *
+     * <p>The store file is loaded by the executor, so profiles resolved in
+     * earlier runs become available shortly after the resolver is created.
+     * Requests made before that are answered from the store as well.</p>
+     *
+     * @param lookup The lookup used to resolve profiles
+     * @param storeFile The file to store resolved profiles in, or
+     *     {@code null} to only keep them in memory
+     * @param executor The executor running the lookups, which must run them
+     *     one at a time
+     * @param ticker The ticker measuring how long failed lookups are cached
+     */
+    public ProfileResolver(BatchLookup lookup, @Nullable final File storeFile, Executor executor, Ticker ticker) {
+        this.lookup = checkNotNull(lookup, "lookup");
+        this.storeFile = storeFile;
+        this.executor = checkNotNull(executor, "executor");
+        this.missing = CacheBuilder.newBuilder()
+                .expireAfterWrite(NEGATIVE_CACHE_MINUTES, TimeUnit.MINUTES)
+                .maximumSize(MAX_NEGATIVE_ENTRIES)
+                .ticker(checkNotNull(ticker, "ticker"))
+                .build();
+        if (storeFile != null) {
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    load(storeFile);
+                }
+            });
+        }
+    }
+
+    /**
+     * Adds a listener notified about every batch of newly resolved profiles.
+     *
+     * @param listener The listener
+     */
+    public void addListener(Listener listener) {
+        this.listeners.add(checkNotNull(listener, "listener"));
+    }
+
+    /**
+     * Gets the profile with the specified unique id if it was resolved
+     * already.
+     *
+     * @param uniqueId The unique id of the profile
+     * @return The profile, if available
+     */
+    public Optional<GameProfile> getIfPresent(UUID uniqueId) {
+        return Optional.fromNullable(this.profiles.get(uniqueId));
+    }
+
+    /**
+     * Gets the profile with the specified unique id, looking it up in the
+     * background if it was not resolved yet.
+     *
+     * <p>The future fails with a {@link ProfileNotFoundException} if no
+     * profile with the unique id exists, or with the exception the lookup
+     * failed with.</p>
+     *
+     * @param uniqueId The unique id of the profile
+     * @return A future completing with the profile
+     */
+    public ListenableFuture<GameProfile> get(UUID uniqueId) {
+        checkNotNull(uniqueId, "uniqueId");
+        GameProfile profile = this.profiles.get(uniqueId);
+        if (profile != null) {
+            return Futures.immediateFuture(profile);
+        }
+        Exception failure = this.missing.getIfPresent(uniqueId);
+        if (failure != null) {
+            return Futures.immediateFailedFuture(failure);
+        }
+
+        SettableFuture<GameProfile> future = SettableFuture.create();
+        SettableFuture<GameProfile> existing = this.pending.putIfAbsent(uniqueId, future);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (this.scheduled.compareAndSet(false, true)) {
+            this.executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    resolvePending();
+                }
+            });
+        }
+        return future;
+    }
+
+    /**
+     * Gets the profiles with the specified unique ids, looking up all
+     * profiles which were not resolved yet in a single batch.
+     *
+     * <p>Unique ids which could not be resolved are missing from the result,
+     * the future itself never fails.</p>
+     *
+     * @param uniqueIds The unique ids of the profiles
+     * @return A future completing with the resolved profiles by their unique
+     *     ids
+     */
+    public ListenableFuture<Map<UUID, GameProfile>> getAll(Collection<UUID> uniqueIds) {
+        final List<ListenableFuture<GameProfile>> futures = Lists.newArrayListWithCapacity(uniqueIds.size());
+        for (UUID uniqueId : uniqueIds) {
+            futures.add(get(uniqueId));
+        }
+
+        final SettableFuture<Map<UUID, GameProfile>> result = SettableFuture.create();
+        // Failed lookups complete with null instead of failing the others
+        final ListenableFuture<List<GameProfile>> all = Futures.successfulAsList(futures);
+        all.addListener(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    Map<UUID, GameProfile> profiles = Maps.newHashMap();
+                    for (GameProfile profile : all.get()) {
+                        if (profile != null) {
+                            profiles.put(profile.getId(), profile);
+                        }
+                    }
+                    result.set(profiles);
+                } catch (Exception e) {
+                    result.setException(e.getCause() != null ? e.getCause() : e);
+                }
+            }
+        }, MoreExecutors.sameThreadExecutor());
+        return result;
+    }
+
+    private void resolvePending() {
+        // Reset the flag first, requests arriving from now on either are part
+        // of this batch or schedule the next one.
+        this.scheduled.set(false);
+
+        Map<UUID, SettableFuture<GameProfile>> batch = Maps.newHashMap();
+        for (UUID uniqueId : ImmutableList.copyOf(this.pending.keySet())) {
+            SettableFuture<GameProfile> future = this.pending.remove(uniqueId);
+            GameProfile profile = this.profiles.get(uniqueId);
+            if (profile != null) {
+                // Loaded from the store after the request was made
+                future.set(profile);
+            } else {
+                batch.put(uniqueId, future);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, GameProfile> found;
+        try {
+            found = this.lookup.lookup(ImmutableList.copyOf(batch.keySet()));
+        } catch (Exception e) {
+            for (Map.Entry<UUID, SettableFuture<GameProfile>> entry : batch.entrySet()) {
+                this.missing.put(entry.getKey(), e);
+                entry.getValue().setException(e);
+            }
+            return;
+        }
+
+        List<GameProfile> resolved = Lists.newArrayList();
+        for (Map.Entry<UUID, SettableFuture<GameProfile>> entry : batch.entrySet()) {
+            GameProfile profile = found.get(entry.getKey());
+            if (profile != null && profile.getName() != null) {
+                this.profiles.put(entry.getKey(), profile);
+                resolved.add(profile);
+                entry.getValue().set(profile);
+            } else {
+                Exception e = new ProfileNotFoundException("No profile found with the unique id " + entry.getKey());
+                this.missing.put(entry.getKey(), e);
+                entry.getValue().setException(e);
+            }
+        }
+
+        if (!resolved.isEmpty()) {
+            if (this.storeFile != null) {
+                append(this.storeFile, resolved);
+            }
+            for (Listener listener : this.listeners) {
+                try {
+                    listener.onResolved(resolved);
+                } catch (Exception e) {
+                    Sponge.getLogger().error("Failed to notify a profile resolver listener", e);
+                }
+            }
+        }
+    }
+
+    private void load(File file) {
+        if (!file.isFile()) {
+            return;
+        }
+
+        int lines = 0;
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), Charsets.UTF_8));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lines++;
+                    int index = line.indexOf(SEPARATOR);
+                    if (index <= 0) {
+                        continue;
+                    }
+                    try {
+                        UUID uniqueId = UUID.fromString(line.substring(0, index));
+                        this.profiles.put(uniqueId, new GameProfile(uniqueId, line.substring(index + 1)));
+                    } catch (IllegalArgumentException e) {
+                        // Skip lines of a partially written entry
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            Sponge.getLogger().warn("Failed to load the profile store " + file, e);
+            return;
+        }
+
+        // Later entries override earlier ones, only rewrite the store once
+        // it has collected plenty of them.
+        if (lines > this.profiles.size() * 2) {
+            File temp = new File(file.getPath() + ".tmp");
+            if (temp.delete() || !temp.exists()) {
+                append(temp, this.profiles.values());
+                if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+                    Sponge.getLogger().warn("Failed to compact the profile store " + file);
+                }
+            }
+        }
+    }
+
+    private static void append(File file, Collection<GameProfile> profiles) {
+        StringBuilder builder = new StringBuilder();
+        for (GameProfile profile : profiles) {
+            builder.append(profile.getId()).append(SEPARATOR).append(profile.getName()).append('\n');
+        }
+
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Failed to create directory " + parent);
+            }
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), Charsets.UTF_8);
+            try {
+                writer.write(builder.toString());
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            Sponge.getLogger().warn("Failed to write to the profile store " + file, e);
+        }
+    }
+
+    /**
+     * Looks up profiles by their unique ids.
+     */
+    public interface BatchLookup {
+
+        /**
+         * Looks up the profiles with the specified unique ids.
+         *
+         * @param uniqueIds The unique ids to look up
+         * @return The found profiles by their unique ids, profiles which
+         *     don't exist are missing
+         * @throws Exception If the whole batch could not be looked up
+         */
+        Map<UUID, GameProfile> lookup(List<UUID> uniqueIds) throws Exception;
+
+    }
+
+    /**
+     * Notified about profiles the resolver resolved.
+     */
+    public interface Listener {
+
+        /**
+         * Called on the resolver's thread after a batch of profiles was
+         * resolved.
+         *
+         * @param profiles The newly resolved profiles
+         */
+        void onResolved(List<GameProfile> profiles);
+
+    }
+
+    /**
+     * Looks up profiles through the session server. It only serves single
+     * profiles by unique id, so a batch becomes one request per profile,
+     * which are still made back to back by the resolver's thread.
+     */
+    static final class SessionServiceLookup implements BatchLookup {
+
+        private final MinecraftSessionService sessionService;
+
+        SessionServiceLookup(MinecraftSessionService sessionService) {
+            this.sessionService = checkNotNull(sessionService, "sessionService");
+        }
+
+        @Override
+        public Map<UUID, GameProfile> lookup(List<UUID> uniqueIds) {
+            ImmutableMap.Builder<UUID, GameProfile> profiles = ImmutableMap.builder();
+            for (UUID uniqueId : uniqueIds) {
+                try {
+                    GameProfile profile = this.sessionService.fillProfileProperties(new GameProfile(uniqueId, null), false);
+                    if (profile.getName() != null) {
+                        profiles.put(uniqueId, profile);
+                    }
+                } catch (Exception e) {
+                    Sponge.getLogger().debug("Failed to look up the profile " + uniqueId, e);
+                }
+            }
+            return profiles.build();
+        }
+
+    }
+
+}
@@ -25,21 +25,23 @@
 package org.spongepowered.common.service.scheduler;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
 import org.spongepowered.api.service.scheduler.AsynchronousScheduler;
 import org.spongepowered.api.service.scheduler.Task;
 import org.spongepowered.common.Sponge;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import javax.annotation.Nullable;
+
 /**
  * <p>
  * Asynchronous Scheduler
@@ -100,12 +102,31 @@ public class AsyncScheduler implements AsynchronousScheduler {
     private final Map<UUID, ScheduledTask> taskMap = new ConcurrentHashMap<UUID, ScheduledTask>();
     // Adjustable timeout for pending Tasks
     private long minimumTimeout = Long.MAX_VALUE;
-    private long lastProcessingTimestamp;
+    // The number of buckets of the timing wheel, one bucket per millisecond
+    private static final int WHEEL_SIZE = 1024;
+    // The pending tasks by the time they are due at. Only accessed while holding the lock.
+    private final TaskWheel wheel = new TaskWheel(WHEEL_SIZE, System.currentTimeMillis());
+    private final List<ScheduledTask> dueTasks = Lists.newArrayList();
+    // The tasks to start once the lock is released. Only accessed by the scheduler thread.
+    private final List<ScheduledTask> startingTasks = Lists.newArrayList();
     // Locking mechanism
     private final Lock lock = new ReentrantLock();
     private final Condition condition = this.lock.newCondition();
-    // The dynamic thread pooling executor of asynchronous tasks.
-    private ExecutorService executor;
+    private final ScheduledTask.Canceler canceler = new ScheduledTask.Canceler() {
+
+        @Override
+        public void cancel(ScheduledTask task) {
+            AsyncScheduler.this.lock.lock();
+            try {
+                AsyncScheduler.this.wheel.remove(task);
+                AsyncScheduler.this.schedulerHelper.utilityForRemovingTask(AsyncScheduler.this.taskMap, task);
+            } finally {
+                AsyncScheduler.this.lock.unlock();
+            }
+        }
+    };
+    // The configurable thread pooling executor of asynchronous tasks.
+    private volatile AsyncTaskExecutor executor;
     // Query actor for task information
     private SchedulerHelper schedulerHelper;
 
@@ -122,10 +143,8 @@ public void run() {
     }
 
     private void stateMachineBody() {
-        this.executor = Executors.newCachedThreadPool();
-        this.lastProcessingTimestamp = System.currentTimeMillis();
+        this.executor = new AsyncTaskExecutor(Sponge.getGlobalConfig().getConfig().getScheduler());
         while (true) {
-            recalibrateMinimumTimeout();
             processTasks();
         }
     }
@@ -156,49 +175,52 @@ public static AsynchronousScheduler getInstance() {
         return AsynchronousSchedulerSingletonHolder.INSTANCE;
     }
 
-    private void recalibrateMinimumTimeout() {
-        this.lock.lock();
-        try {
-            for (ScheduledTask task : this.taskMap.values()) {
-                // Tasks may have dropped off the list.
-                // Whatever Tasks remain, recalibrate:
-                //
-                // Recalibrate the wait delay for processing tasks before new tasks
-                // cause the scheduler to process pending tasks.
-                this.minimumTimeout = Long.MAX_VALUE;
-                if (task.offset == 0 && task.period == 0) {
-                    this.minimumTimeout = 0;
-                } else if (task.offset > 0 && task.period == 0) {
-                    // task with non-zero offset, zero period
-                    this.minimumTimeout = Math.min(task.offset, this.minimumTimeout);
-                } else if (task.offset == 0 && task.period > 0) {
-                    // task with zero offset, non-zero period
-                    this.minimumTimeout = Math.min(task.period, this.minimumTimeout);
-                } else if (task.offset > 0 && task.period > 0) {
-                    // task with non-zero offset, non-zero period
-                    this.minimumTimeout = Math.min(task.offset, this.minimumTimeout);
-                    this.minimumTimeout = Math.min(task.period, this.minimumTimeout);
-                }
-            }
+    /**
+     * Gets the executor running the asynchronous tasks, which provides
+     * metrics about the running and waiting tasks.
+     *
+     * @return The executor, or {@code null} if the scheduler thread has not
+     *     started yet
+     */
+    @Nullable
+    public AsyncTaskExecutor getExecutor() {
+        return this.executor;
+    }
 
+    private void recalibrateMinimumTimeout() {
+        // Recalibrate the wait delay for processing tasks before new tasks
+        // cause the scheduler to process pending tasks. The wheel knows the
+        // next time it has tasks for, so no task has to be inspected here.
+        long nextTime = this.wheel.getNextTime();
+        if (nextTime == Long.MAX_VALUE) {
             // If no tasks remain, recalibrate to max timeout
-            if (this.taskMap.isEmpty()) {
-                this.minimumTimeout = Long.MAX_VALUE;
-            } else {
-                long latency = System.currentTimeMillis() - this.lastProcessingTimestamp;
-                this.minimumTimeout -= (latency <= 0) ? 0 : latency;
-                this.minimumTimeout = (this.minimumTimeout < 0) ? 0 : this.minimumTimeout;
-            }
-        } finally {
-            this.lock.unlock();
+            this.minimumTimeout = Long.MAX_VALUE;
+        } else {
+            this.minimumTimeout = Math.max(0, nextTime - System.currentTimeMillis());
         }
     }
 
     private void processTasks() {
+        // The tasks are started after the lock is released, so neither a
+        // task run by a rejection policy nor a busy executor can block
+        // plugins adding tasks.
+        collectDueTasks();
+        for (int i = 0; i < this.startingTasks.size(); i++) {
+            startTask(this.startingTasks.get(i));
+        }
+        this.startingTasks.clear();
+    }
+
+    private void collectDueTasks() {
         this.lock.lock();
         try {
+            // The timeout is calculated while holding the lock, so a task added
+            // in the meantime always signals the condition we are waiting on.
+            recalibrateMinimumTimeout();
             try {
-                this.condition.await(this.minimumTimeout, TimeUnit.MILLISECONDS);
+                if (this.minimumTimeout > 0) {
+                    this.condition.await(this.minimumTimeout, TimeUnit.MILLISECONDS);
+                }
             } catch (InterruptedException e) {
                 // The taskMap has been modified; there is work to do.
                 // Continue on without handling the Exception.
@@ -207,64 +229,34 @@ private void processTasks() {
                 Sponge.getLogger().error(e.toString());
             }
 
-            // We've locked down the taskMap but the lock is short lived if the size of the
-            // size of the list is zero.
-            //
-            // For each task, inspect the state.
-            //
-            // For the state of CANCELED, remove it and look at the next task, if any.
-            //
-            // For the state of WAITING, the task has not begun, so check the
-            // offset time before starting that task for the first time.
-            //
-            // Else if the task is already RUNNING, use the period (the time delay until
-            // the next moment to run the task).
-            //
-            for (ScheduledTask task : this.taskMap.values()) {
+            // This moment is 'now'
+            long now = System.currentTimeMillis();
+
+            // Only the tasks that are due now (or were canceled) are taken out of the wheel.
+            this.wheel.advance(now, this.dueTasks);
+
+            for (int i = 0; i < this.dueTasks.size(); i++) {
+                ScheduledTask task = this.dueTasks.get(i);
                 // If the task is now slated to be canceled, we just remove it as if it no longer exists.
                 if (task.state == ScheduledTask.ScheduledTaskState.CANCELED) {
-                    this.taskMap.remove(task.getUniqueId());
+                    this.schedulerHelper.utilityForRemovingTask(this.taskMap, task);
                     continue;
                 }
 
-                long threshold = Long.MAX_VALUE;
-
-                // Figure out if we start a delayed Task after threshold milliseconds or,
-                // start it after the interval (period) of the repeating task parameter.
-                if (task.state == ScheduledTask.ScheduledTaskState.WAITING) {
-                    threshold = task.offset;
-                } else if (task.state == ScheduledTask.ScheduledTaskState.RUNNING) {
-                    threshold = task.period;
+                // Repeating tasks get a reset-timestamp each time they are started.
+                task.timestamp = now;
+                task.setState(ScheduledTask.ScheduledTaskState.RUNNING);
+                this.startingTasks.add(task);
+                // If task is one time shot, remove it from the list.
+                if (task.period == 0L) {
+                    this.schedulerHelper.utilityForRemovingTask(this.taskMap, task);
+                    continue;
                 }
 
-                // This moment is 'now'
-                long now = System.currentTimeMillis();
-
-                // So, if the current time minus the timestamp of the task is greater than
-                // the delay to wait before starting the task, then start the task.
-
-                // Repeating tasks get a reset-timestamp each time they are set RUNNING
-                // If the task has a period of 0 (zero) this task will not repeat, and is removed
-                // after we start it.
-
-                if (threshold <= (now - task.timestamp)) {
-                    // startTask is just a utility function within the Scheduler that
-                    // starts the task.
-                    // If the task is not a one time shot then keep it and
-                    // change the timestamp to now.  It is a little more
-                    // efficient to do this now than after starting the task.
-                    task.timestamp = System.currentTimeMillis();
-                    boolean bTaskStarted = startTask(task);
-                    if (bTaskStarted) {
-                        task.setState(ScheduledTask.ScheduledTaskState.RUNNING);
-                        // If task is one time shot, remove it from the list.
-                        if (task.period == 0L) {
-                            this.taskMap.remove(task.getUniqueId());
-                        }
-                    }
-                }
+                // Start the repeating task again after its interval (period).
+                this.wheel.add(task, now + task.period);
             }
-            this.lastProcessingTimestamp = System.currentTimeMillis();
+            this.dueTasks.clear();
         } finally {
             this.lock.unlock();
         }
@@ -273,12 +265,13 @@ private void processTasks() {
     private Optional<Task> utilityForAddingAsyncTask(ScheduledTask task) {
         Optional<Task> resultTask = Optional.absent();
 
-        task.setTimestamp(System.currentTimeMillis());
         this.lock.lock();
         try {
-            this.taskMap.put(task.getUniqueId(), task);
+            task.setTimestamp(System.currentTimeMillis());
+            task.canceler = this.canceler;
+            resultTask = this.schedulerHelper.utilityForAddingTask(this.taskMap, task);
+            this.wheel.add(task, task.timestamp + task.offset);
             this.condition.signalAll();
-            resultTask = Optional.of((Task) task);
         } finally {
             this.lock.unlock();
         }
@@ -696,18 +689,12 @@ public Collection<Task> getScheduledTasks(Object plugin) {
         return this.schedulerHelper.getScheduledTasks(this.taskMap, plugin);
     }
 
-    private boolean startTask(ScheduledTask task) {
-        // We'll succeed unless there's an exception found when we try to start the
-        // actual Runnable target.
-        boolean bRes = true;
+    private void startTask(ScheduledTask task) {
         try {
-            this.executor.submit(task.runnableBody);
+            this.executor.execute(task);
         } catch (Exception ex) {
             Sponge.getLogger().error(SchedulerLogMessages.USER_TASK_FAILED_TO_RUN_ERROR);
             Sponge.getLogger().error(ex.toString());
-            bRes = false;
-
         }
-        return bRes;
     }
 }
@@ -0,0 +1,269 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.service.scheduler;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.spongepowered.common.Sponge;
+import org.spongepowered.common.configuration.SpongeConfig;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the tasks of the {@link AsyncScheduler} on a configurable thread pool.
+ *
+ * <p>The pool is either bounded, with a fixed number of threads and a
+ * bounded queue, or cached, creating a new thread whenever no idle thread is
+ * available. Optionally, the number of concurrently running tasks of each
+ * plugin is capped, with the excess tasks of a plugin waiting for one of
+ * its running tasks to complete.</p>
+ */
+public class AsyncTaskExecutor {
+
+    private static final ThreadLocal<Boolean> poolThread = new ThreadLocal<Boolean>() {
+
+        @Override
+        protected Boolean initialValue() {
+            return false;
+        }
+    };
+
+    private final ThreadPoolExecutor executor;
+    private final int pluginConcurrency;
+    private final ConcurrentMap<String, PluginTasks> plugins = new ConcurrentHashMap<String, PluginTasks>();
+
+    AsyncTaskExecutor(SpongeConfig.SchedulerCategory config) {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("Sponge Async Scheduler Thread #%d").setDaemon(true)
+                .setThreadFactory(new ThreadFactory() {
+
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        return new Thread(new Runnable() {
+
+                            @Override
+                            public void run() {
+                                poolThread.set(true);
+                                runnable.run();
+                            }
+                        });
+                    }
+                }).build();
+        RejectedExecutionHandler rejectionHandler = "caller-runs".equalsIgnoreCase(config.getAsyncRejectionPolicy())
+                ? new SchedulerRunsPolicy() : new ThreadPoolExecutor.AbortPolicy();
+
+        if ("cached".equalsIgnoreCase(config.getAsyncPoolType())) {
+            this.executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                    threadFactory, rejectionHandler);
+        } else {
+            int threads = config.getAsyncThreads() > 0 ? config.getAsyncThreads() : Runtime.getRuntime().availableProcessors() * 2;
+            this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(Math.max(1, config.getAsyncQueueSize())), threadFactory, rejectionHandler);
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+
+        this.pluginConcurrency = config.getAsyncPluginConcurrency();
+    }
+
+    /**
+     * Runs the task on the thread pool.
+     *
+     * @param task The task to run
+     * @throws RejectedExecutionException If the task was rejected
+     */
+    void execute(ScheduledTask task) {
+        getPluginTasks(task.getOwner().getId()).submit(new TimedTask(task.runnableBody));
+    }
+
+    public int getActiveThreads() {
+        return this.executor.getActiveCount();
+    }
+
+    public int getPoolSize() {
+        return this.executor.getPoolSize();
+    }
+
+    /**
+     * Gets the number of tasks waiting to be run, either for a thread of the
+     * pool or for the concurrency cap of their plugin.
+     *
+     * @return The number of waiting tasks
+     */
+    public int getQueueDepth() {
+        int depth = this.executor.getQueue().size();
+        for (PluginTasks tasks : this.plugins.values()) {
+            depth += tasks.metrics.getWaiting();
+        }
+        return depth;
+    }
+
+    public Collection<TaskMetrics> getPluginMetrics() {
+        ImmutableList.Builder<TaskMetrics> builder = ImmutableList.builder();
+        for (PluginTasks tasks : this.plugins.values()) {
+            builder.add(tasks.metrics);
+        }
+        return builder.build();
+    }
+
+    private PluginTasks getPluginTasks(String pluginId) {
+        PluginTasks tasks = this.plugins.get(pluginId);
+        if (tasks == null) {
+            tasks = new PluginTasks(pluginId);
+            PluginTasks existing = this.plugins.putIfAbsent(pluginId, tasks);
+            if (existing != null) {
+                tasks = existing;
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Runs rejected tasks on the thread that submitted them, unless that is
+     * one of the pool threads. A pool thread starting the next waiting task of
+     * a plugin would otherwise run it nested in the task that just completed,
+     * recursing for as long as the queue stays full.
+     *
+     * <p>The submitting thread is usually the {@link AsyncScheduler} thread,
+     * so no other asynchronous task of any plugin is started while a rejected
+     * task runs. This is why the policy has to be enabled explicitly.</p>
+     */
+    private static final class SchedulerRunsPolicy implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (executor.isShutdown() || poolThread.get()) {
+                throw new RejectedExecutionException("The asynchronous task queue is full");
+            }
+            task.run();
+        }
+
+    }
+
+    private static final class TimedTask {
+
+        final Runnable body;
+        final long timestamp = System.nanoTime();
+
+        TimedTask(Runnable body) {
+            this.body = body;
+        }
+
+    }
+
+    private final class PluginTasks {
+
+        final TaskMetrics metrics;
+        private final Queue<TimedTask> waiting = new ConcurrentLinkedQueue<TimedTask>();
+
+        PluginTasks(String pluginId) {
+            this.metrics = new TaskMetrics(pluginId);
+        }
+
+        void submit(TimedTask task) {
+            this.metrics.submitted().incrementAndGet();
+            if (AsyncTaskExecutor.this.pluginConcurrency <= 0) {
+                this.metrics.running().incrementAndGet();
+                run(task);
+                return;
+            }
+
+            this.waiting.add(task);
+            this.metrics.waiting().incrementAndGet();
+            drain();
+        }
+
+        private void drain() {
+            while (!this.waiting.isEmpty()) {
+                int running = this.metrics.running().get();
+                if (running >= AsyncTaskExecutor.this.pluginConcurrency) {
+                    return;
+                }
+                if (!this.metrics.running().compareAndSet(running, running + 1)) {
+                    continue;
+                }
+
+                TimedTask task = this.waiting.poll();
+                if (task == null) {
+                    // Another thread took the last waiting task
+                    this.metrics.running().decrementAndGet();
+                    continue;
+                }
+
+                this.metrics.waiting().decrementAndGet();
+                try {
+                    run(task);
+                } catch (RejectedExecutionException e) {
+                    Sponge.getLogger().error(SchedulerLogMessages.USER_TASK_FAILED_TO_RUN_ERROR);
+                    Sponge.getLogger().error(e.toString());
+                }
+            }
+        }
+
+        private void run(final TimedTask task) {
+            try {
+                AsyncTaskExecutor.this.executor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        PluginTasks.this.metrics.recordLatency(System.nanoTime() - task.timestamp);
+                        try {
+                            task.body.run();
+                        } catch (Throwable e) {
+                            // Keep the exception from killing the pool thread
+                            Sponge.getLogger().error("{} Plugin: {}", SchedulerLogMessages.USER_TASK_FAILED_TO_RUN_ERROR,
+                                    PluginTasks.this.metrics.getPluginId(), e);
+                        } finally {
+                            PluginTasks.this.metrics.completed().incrementAndGet();
+                            complete();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                this.metrics.rejected().incrementAndGet();
+                this.metrics.running().decrementAndGet();
+                throw e;
+            }
+        }
+
+        private void complete() {
+            this.metrics.running().decrementAndGet();
+            if (AsyncTaskExecutor.this.pluginConcurrency > 0) {
+                drain();
+            }
+        }
+
+    }
+
+}
@@ -30,6 +30,8 @@
 
 import java.util.UUID;
 
+import javax.annotation.Nullable;
+
 /**
  * <p>
  * ScheduledTask is an internal representation of a Task created by the Plugin
@@ -48,6 +50,18 @@ public class ScheduledTask implements Task {
     protected String name;
     protected TaskSynchroncity syncType;
 
+    // Position of this task in the TaskWheel of its scheduler
+    @Nullable TaskWheel wheel;
+    long deadline;
+    ScheduledTask previousInBucket;
+    ScheduledTask nextInBucket;
+
+    // Whether the task waits in the deferred tasks of the SyncScheduler
+    boolean deferred;
+
+    // The scheduler the task was added to, told when the task is canceled
+    @Nullable Canceler canceler;
+
     // Internal Task state. Not for user-service use.
     public enum ScheduledTaskState {
         WAITING,
@@ -157,6 +171,9 @@ public boolean cancel() {
         }
 
         this.state = ScheduledTask.ScheduledTaskState.CANCELED;
+        if (this.canceler != null) {
+            this.canceler.cancel(this);
+        }
 
         return bResult;
     }
@@ -201,4 +218,15 @@ public enum TaskSynchroncity {
         SYNCHRONOUS,
         ASYNCHRONOUS
     }
+
+    /**
+     * Removes canceled tasks from a scheduler right away, instead of when
+     * their deadline comes round.
+     */
+    interface Canceler {
+
+        void cancel(ScheduledTask task);
+
+    }
+
 }
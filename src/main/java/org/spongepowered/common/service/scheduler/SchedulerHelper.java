@@ -31,9 +31,13 @@
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -41,6 +45,8 @@ public class SchedulerHelper {
 
     private long sequenceNumber = 0L;
     private ScheduledTask.TaskSynchroncity syncType;
+    // The tasks of each plugin, by plugin ID
+    private final ConcurrentMap<String, Set<ScheduledTask>> tasksByOwner = new ConcurrentHashMap<String, Set<ScheduledTask>>();
 
     @SuppressWarnings("unused")
     private SchedulerHelper() {
@@ -53,10 +59,31 @@ protected SchedulerHelper(ScheduledTask.TaskSynchroncity syncType) {
     protected Optional<Task> utilityForAddingTask(Map<UUID, ScheduledTask> taskMap, ScheduledTask task) {
         Optional<Task> resultTask = Optional.absent();
         taskMap.put(task.getUniqueId(), task);
+        getOwnerTasks(task.getOwner().getId()).add(task);
         resultTask = Optional.of((Task) task);
         return resultTask;
     }
 
+    protected void utilityForRemovingTask(Map<UUID, ScheduledTask> taskMap, ScheduledTask task) {
+        taskMap.remove(task.getUniqueId());
+        Set<ScheduledTask> ownerTasks = this.tasksByOwner.get(task.getOwner().getId());
+        if (ownerTasks != null) {
+            ownerTasks.remove(task);
+        }
+    }
+
+    private Set<ScheduledTask> getOwnerTasks(String pluginId) {
+        Set<ScheduledTask> ownerTasks = this.tasksByOwner.get(pluginId);
+        if (ownerTasks == null) {
+            ownerTasks = Collections.newSetFromMap(new ConcurrentHashMap<ScheduledTask, Boolean>());
+            Set<ScheduledTask> existing = this.tasksByOwner.putIfAbsent(pluginId, ownerTasks);
+            if (existing != null) {
+                ownerTasks = existing;
+            }
+        }
+        return ownerTasks;
+    }
+
     /**
      * <p>
      * Start a repeating Task with a period (interval) of Ticks. The first
@@ -112,8 +139,8 @@ protected Collection<Task> getScheduledTasks(Map<UUID, ScheduledTask> taskMap) {
 
     /**
      * <p>
-     * The query for Tasks owned by a target Plugin owner is found by testing
-     * the map of Tasks by testing the ID of each PluginContainer.
+     * The query for Tasks owned by a target Plugin owner is answered from the
+     * index of Tasks by the ID of their owning PluginContainer.
      * </p>
      *
      * <p>
@@ -143,24 +170,12 @@ protected Collection<Task> getScheduledTasks(Map<UUID, ScheduledTask> taskMap, O
         // else return a Collection of Tasks.
 
         PluginContainer testedOwner = (PluginContainer) plugin;
-        String testOwnerId = testedOwner.getId();
-        Collection<Task> subsetCollection;
-
-        synchronized (taskMap) {
-            subsetCollection = new ArrayList<Task>(taskMap.values());
-        }
-
-        Iterator<Task> it = subsetCollection.iterator();
-
-        while (it.hasNext()) {
-            String pluginId = it.next().getOwner().getId();
-
-            if (!testOwnerId.equals(pluginId)) {
-                it.remove();
-            }
+        Set<ScheduledTask> ownerTasks = this.tasksByOwner.get(testedOwner.getId());
+        if (ownerTasks == null) {
+            return new ArrayList<Task>();
         }
 
-        return subsetCollection;
+        return new ArrayList<Task>(ownerTasks);
     }
 
     /**
@@ -25,14 +25,26 @@
 package org.spongepowered.common.service.scheduler;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import org.spongepowered.api.service.scheduler.SynchronousScheduler;
 import org.spongepowered.api.service.scheduler.Task;
 import org.spongepowered.common.Sponge;
+import org.spongepowered.common.configuration.SpongeConfig;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * <p>
@@ -53,6 +65,32 @@ public class SyncScheduler implements SynchronousScheduler {
     // Query actor for task information
     private SchedulerHelper schedulerHelper;
 
+    // The number of buckets of the timing wheel, one bucket per tick
+    private static final int WHEEL_SIZE = 512;
+    // The pending tasks by the tick they are due at. Only accessed on the main thread.
+    private final TaskWheel wheel = new TaskWheel(WHEEL_SIZE, 0L);
+    // Tasks may be added from any thread, they are moved into the wheel on the next tick.
+    private final Queue<ScheduledTask> addedTasks = new ConcurrentLinkedQueue<ScheduledTask>();
+    // Tasks may be canceled from any thread, they are taken out of the wheel on the next tick.
+    private final Queue<ScheduledTask> canceledTasks = new ConcurrentLinkedQueue<ScheduledTask>();
+    private final ScheduledTask.Canceler canceler = new ScheduledTask.Canceler() {
+
+        @Override
+        public void cancel(ScheduledTask task) {
+            SyncScheduler.this.schedulerHelper.utilityForRemovingTask(SyncScheduler.this.taskMap, task);
+            SyncScheduler.this.canceledTasks.add(task);
+        }
+    };
+    private final List<ScheduledTask> dueTasks = Lists.newArrayList();
+    // Due tasks which did not fit into the tick budget, by plugin id in the order
+    // the plugins get to run their next task. Only accessed on the main thread.
+    private final Map<String, Queue<ScheduledTask>> deferredTasks = new LinkedHashMap<String, Queue<ScheduledTask>>();
+    private final ConcurrentMap<String, AtomicLong> overruns = new ConcurrentHashMap<String, AtomicLong>();
+    private final ConcurrentMap<String, AtomicLong> deferrals = new ConcurrentHashMap<String, AtomicLong>();
+    // The tick budget in nanoseconds, read from the global config on the first tick and
+    // updated whenever the global config is reloaded. -1 until it was read.
+    private volatile long tickBudget = -1;
+
     /**
      * <p>
      * We establish the SyncScheduler when the SyncScheduler is created. This
@@ -63,14 +101,39 @@ public class SyncScheduler implements SynchronousScheduler {
      * </p>
      *
      * <p>
-     * The constructor of the Scheduler is private. So to get the scheduler,
+     * The constructor of the Scheduler is only visible for tests. So to get the scheduler,
      * user code calls game.getScheduler() or directly by
      * SyncScheduler.getInstance(). In time access to the scheduler should be
      * migrated into the Services Manager.
      * </p>
      */
-    private SyncScheduler() {
+    SyncScheduler() {
         this.schedulerHelper = new SchedulerHelper(ScheduledTask.TaskSynchroncity.SYNCHRONOUS);
+        SpongeConfig.addReloadListener(new SpongeConfig.ReloadListener() {
+
+            @Override
+            public void onReload(SpongeConfig<?> config) {
+                if (config.getType() == SpongeConfig.Type.GLOBAL) {
+                    setTickBudget(((SpongeConfig.GlobalConfig) config.getConfig()).getScheduler().getSyncTickBudget());
+                }
+            }
+        });
+    }
+
+    /**
+     * Sets the time synchronous tasks may run per tick.
+     *
+     * @param millis The tick budget in milliseconds, 0 to disable it
+     */
+    void setTickBudget(double millis) {
+        this.tickBudget = Math.max(0, (long) (millis * TimeUnit.MILLISECONDS.toNanos(1)));
+    }
+
+    private long getTickBudget() {
+        if (this.tickBudget < 0) {
+            setTickBudget(Sponge.getGlobalConfig().getConfig().getScheduler().getSyncTickBudget());
+        }
+        return this.tickBudget;
     }
 
     @Override
@@ -150,59 +213,166 @@ public void tick() {
     }
 
     private void processTasks() {
-        //
-        // For each task, inspect the state.
-        //
-        // For the state of CANCELED, remove it and look at the next task, if any.
-        //
-        // For the state of WAITING, the task has not begun, so check the
-        // offset time before starting that task for the first time.
-        //
-        // Else if the task is already RUNNING, use the period (the time delay until
-        // the next moment to run the task).
-        //
-        for (ScheduledTask task : this.taskMap.values()) {
-            // If the task is now slated to be canceled, we just remove it as if it no longer exists.
-            if (task.state == ScheduledTask.ScheduledTaskState.CANCELED) {
-                this.taskMap.remove(task.getUniqueId());
-                continue;
+        // Move all tasks added since the last tick into the wheel. The timestamp
+        // of a new task is the tick it was added at.
+        ScheduledTask added;
+        while ((added = this.addedTasks.poll()) != null) {
+            if (added.state != ScheduledTask.ScheduledTaskState.CANCELED) {
+                this.wheel.add(added, added.timestamp + added.offset);
             }
+        }
+        ScheduledTask canceled;
+        while ((canceled = this.canceledTasks.poll()) != null) {
+            this.wheel.remove(canceled);
+        }
 
-            long threshold = Long.MAX_VALUE;
+        // Only the tasks that are due now (or were canceled) are taken out of the wheel.
+        this.wheel.advance(this.counter, this.dueTasks);
 
-            // Figure out if we start a delayed Task after threshold ticks or,
-            // start it after the interval (period) of the repeating task parameter.
-            if (task.state == ScheduledTask.ScheduledTaskState.WAITING) {
-                threshold = task.offset;
-            } else if (task.state == ScheduledTask.ScheduledTaskState.RUNNING) {
-                threshold = task.period;
+        long budget = getTickBudget();
+        if (budget <= 0 && this.deferredTasks.isEmpty()) {
+            for (int i = 0; i < this.dueTasks.size(); i++) {
+                runDueTask(this.dueTasks.get(i));
             }
+            this.dueTasks.clear();
+            return;
+        }
 
-            // This moment is 'now'
-            long now = this.counter;
-
-            // So, if the current time minus the timestamp of the task is greater than
-            // the delay to wait before starting the task, then start the task.
-            // Repeating tasks get a reset-timestamp each time they are set RUNNING
-            // If the task has a period of 0 (zero) this task will not repeat, and is removed
-            // after we start it.
-            if (threshold <= (now - task.timestamp)) {
-                // startTask is just a utility function within the Scheduler that
-                // starts the task.
-                // If the task is not a one time shot then keep it and
-                // change the timestamp to now.  It is a little more
-                // efficient to do this now than after starting the task.
-                task.timestamp = this.counter;
-                boolean bTaskStarted = startTask(task);
-                if (bTaskStarted) {
-                    task.setState(ScheduledTask.ScheduledTaskState.RUNNING);
-                    // If task is one time shot, remove it from the map.
-                    if (task.period == 0L) {
-                        this.taskMap.remove(task.getUniqueId());
-                    }
-                }
+        for (int i = 0; i < this.dueTasks.size(); i++) {
+            ScheduledTask task = this.dueTasks.get(i);
+            String pluginId = task.getOwner().getId();
+            Queue<ScheduledTask> tasks = this.deferredTasks.get(pluginId);
+            if (tasks == null) {
+                tasks = new ArrayDeque<ScheduledTask>();
+                this.deferredTasks.put(pluginId, tasks);
+            }
+            task.deferred = true;
+            tasks.add(task);
+        }
+
+        // Take one task of each plugin in turn. A plugin which still has tasks
+        // left moves to the back of the line, so the plugins whose tasks were
+        // deferred last tick are the first to run in the next tick.
+        long start = System.nanoTime();
+        while (!this.deferredTasks.isEmpty()) {
+            Iterator<Map.Entry<String, Queue<ScheduledTask>>> iterator = this.deferredTasks.entrySet().iterator();
+            Map.Entry<String, Queue<ScheduledTask>> entry = iterator.next();
+            iterator.remove();
+            ScheduledTask task = entry.getValue().poll();
+            task.deferred = false;
+            if (!entry.getValue().isEmpty()) {
+                this.deferredTasks.put(entry.getKey(), entry.getValue());
+            }
+
+            runDueTask(task);
+
+            if (budget > 0 && System.nanoTime() - start >= budget) {
+                increment(this.overruns, entry.getKey());
+                break;
             }
         }
+
+        // Only the tasks which became due this tick are counted, a task deferred
+        // for several ticks is a single deferral
+        for (int i = 0; i < this.dueTasks.size(); i++) {
+            ScheduledTask task = this.dueTasks.get(i);
+            if (task.deferred) {
+                increment(this.deferrals, task.getOwner().getId());
+            }
+        }
+        this.dueTasks.clear();
+    }
+
+    private void runDueTask(ScheduledTask task) {
+        // If the task is now slated to be canceled, we just remove it as if it no longer exists.
+        if (task.state == ScheduledTask.ScheduledTaskState.CANCELED) {
+            this.schedulerHelper.utilityForRemovingTask(this.taskMap, task);
+            return;
+        }
+
+        // Repeating tasks get a reset-timestamp each time they are started.
+        task.timestamp = this.counter;
+        boolean bTaskStarted = startTask(task);
+        if (bTaskStarted) {
+            task.setState(ScheduledTask.ScheduledTaskState.RUNNING);
+            // If task is one time shot, remove it from the map.
+            if (task.period == 0L) {
+                this.schedulerHelper.utilityForRemovingTask(this.taskMap, task);
+                return;
+            }
+        }
+
+        // Figure out if we start a delayed Task after offset ticks again or,
+        // start it after the interval (period) of the repeating task parameter.
+        long threshold = task.state == ScheduledTask.ScheduledTaskState.WAITING ? task.offset : task.period;
+        this.wheel.add(task, this.counter + threshold);
+    }
+
+    private static void increment(ConcurrentMap<String, AtomicLong> counts, String pluginId) {
+        increment(counts, pluginId, 1);
+    }
+
+    private static void increment(ConcurrentMap<String, AtomicLong> counts, String pluginId, long delta) {
+        AtomicLong count = counts.get(pluginId);
+        if (count == null) {
+            count = new AtomicLong();
+            AtomicLong existing = counts.putIfAbsent(pluginId, count);
+            if (existing != null) {
+                count = existing;
+            }
+        }
+        count.addAndGet(delta);
+    }
+
+    private static Map<String, Long> snapshot(ConcurrentMap<String, AtomicLong> counts) {
+        ImmutableMap.Builder<String, Long> builder = ImmutableMap.builder();
+        for (Map.Entry<String, AtomicLong> entry : counts.entrySet()) {
+            builder.put(entry.getKey(), entry.getValue().get());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Gets the number of ticks in which a task of each plugin exceeded the
+     * tick budget, by plugin id. The overrun is counted for the plugin whose
+     * task was running when the budget ran out.
+     *
+     * @return The number of overruns by plugin id
+     */
+    public Map<String, Long> getOverruns() {
+        return snapshot(this.overruns);
+    }
+
+    /**
+     * Gets the number of tasks of each plugin that were deferred to a later
+     * tick because the tick budget was exceeded, by plugin id. A task is
+     * counted once, no matter how many ticks it had to wait.
+     *
+     * @return The number of deferred tasks by plugin id
+     */
+    public Map<String, Long> getDeferrals() {
+        return snapshot(this.deferrals);
+    }
+
+    /**
+     * Gets the number of due tasks which were deferred to the next tick.
+     *
+     * @return The number of deferred tasks
+     */
+    public int getDeferredTaskCount() {
+        int count = 0;
+        for (Queue<ScheduledTask> tasks : this.deferredTasks.values()) {
+            count += tasks.size();
+        }
+        return count;
+    }
+
+    Optional<Task> addTask(ScheduledTask task) {
+        task.setTimestamp(this.counter);
+        task.canceler = this.canceler;
+        Optional<Task> resultTask = this.schedulerHelper.utilityForAddingTask(this.taskMap, task);
+        this.addedTasks.add(task);
+        return resultTask;
     }
 
     /**
@@ -252,7 +422,7 @@ public Optional<Task> runTask(Object plugin, Runnable runnableTarget) {
         if (nonRepeatingTask == null) {
             Sponge.getLogger().warn(SchedulerLogMessages.CANNOT_MAKE_TASK_WARNING);
         } else {
-            resultTask = this.schedulerHelper.utilityForAddingTask(this.taskMap, nonRepeatingTask);
+            resultTask = addTask(nonRepeatingTask);
         }
 
         return resultTask;
@@ -306,7 +476,7 @@ public Optional<Task> runTaskAfter(Object plugin, Runnable runnableTarget, long
         if (nonRepeatingTask == null) {
             Sponge.getLogger().warn(SchedulerLogMessages.CANNOT_MAKE_TASK_WARNING);
         } else {
-            resultTask = this.schedulerHelper.utilityForAddingTask(this.taskMap, nonRepeatingTask);
+            resultTask = addTask(nonRepeatingTask);
         }
 
         return resultTask;
@@ -376,7 +546,7 @@ public Optional<Task> runRepeatingTask(Object plugin, Runnable runnableTarget, l
         if (repeatingTask == null) {
             Sponge.getLogger().warn(SchedulerLogMessages.CANNOT_MAKE_TASK_WARNING);
         } else {
-            resultTask = this.schedulerHelper.utilityForAddingTask(this.taskMap, repeatingTask);
+            resultTask = addTask(repeatingTask);
         }
 
         return resultTask;
@@ -446,7 +616,7 @@ public Optional<Task> runRepeatingTaskAfter(Object plugin, Runnable runnableTarg
         if (repeatingTask == null) {
             Sponge.getLogger().warn(SchedulerLogMessages.CANNOT_MAKE_TASK_WARNING);
         } else {
-            resultTask = this.schedulerHelper.utilityForAddingTask(this.taskMap, repeatingTask);
+            resultTask = addTask(repeatingTask);
         }
 
         return resultTask;
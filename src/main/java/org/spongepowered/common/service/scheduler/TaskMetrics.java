@@ -0,0 +1,127 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.service.scheduler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and a latency histogram of the asynchronous tasks of a single
+ * plugin.
+ *
+ * <p>The latency is the time between a task being due and it starting to
+ * run on a thread. The histogram buckets are powers of two milliseconds,
+ * bucket {@code i} counts latencies below {@code 2^i} milliseconds and the
+ * last bucket counts everything above.</p>
+ */
+public final class TaskMetrics {
+
+    public static final int LATENCY_BUCKETS = 16;
+
+    private final String pluginId;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLongArray latency = new AtomicLongArray(LATENCY_BUCKETS);
+
+    TaskMetrics(String pluginId) {
+        this.pluginId = pluginId;
+    }
+
+    void recordLatency(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 64 - Long.numberOfLeadingZeros(millis);
+        this.latency.incrementAndGet(Math.min(bucket, LATENCY_BUCKETS - 1));
+    }
+
+    AtomicLong submitted() {
+        return this.submitted;
+    }
+
+    AtomicLong completed() {
+        return this.completed;
+    }
+
+    AtomicLong rejected() {
+        return this.rejected;
+    }
+
+    AtomicInteger waiting() {
+        return this.waiting;
+    }
+
+    AtomicInteger running() {
+        return this.running;
+    }
+
+    public String getPluginId() {
+        return this.pluginId;
+    }
+
+    public long getSubmitted() {
+        return this.submitted.get();
+    }
+
+    public long getCompleted() {
+        return this.completed.get();
+    }
+
+    public long getRejected() {
+        return this.rejected.get();
+    }
+
+    /**
+     * Gets the number of tasks waiting because the plugin already runs the
+     * maximum number of concurrent tasks.
+     *
+     * @return The number of waiting tasks
+     */
+    public int getWaiting() {
+        return this.waiting.get();
+    }
+
+    public int getRunning() {
+        return this.running.get();
+    }
+
+    /**
+     * Gets the latency histogram.
+     *
+     * @return A copy of the histogram buckets
+     */
+    public long[] getLatencyHistogram() {
+        long[] result = new long[LATENCY_BUCKETS];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = this.latency.get(i);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,249 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.service.scheduler;
+
+import java.util.Collection;
+
+/**
+ * A hashed timing wheel of {@link ScheduledTask}s.
+ *
+ * <p>Tasks are linked into the bucket of their deadline, so adding a task
+ * and removing a task costs O(1). Advancing the wheel only visits the
+ * non-empty buckets between the last processed time and now, which are
+ * found through a bitmap instead of looking at every bucket. Tasks further
+ * in the future than one revolution of the wheel stay in their bucket until
+ * their deadline is reached.</p>
+ *
+ * <p>The time unit is up to the scheduler, ticks for the
+ * {@link SyncScheduler} and milliseconds for the {@link AsyncScheduler}.
+ * This class is not thread-safe.</p>
+ */
+class TaskWheel {
+
+    private final ScheduledTask[] buckets;
+    private final int mask;
+    // One bit per bucket, set while the bucket has tasks
+    private final long[] occupied;
+
+    // The last time processed by advance
+    private long time;
+    private int size;
+
+    // The earliest deadline of all tasks, only valid while nextTimeValid is set
+    private long nextTime = Long.MAX_VALUE;
+    private boolean nextTimeValid = true;
+
+    /**
+     * Creates a new timing wheel.
+     *
+     * @param buckets The number of buckets, must be a power of two
+     * @param time The time the wheel starts at
+     */
+    TaskWheel(int buckets, long time) {
+        if (buckets <= 0 || (buckets & (buckets - 1)) != 0) {
+            throw new IllegalArgumentException("Number of buckets must be a power of two: " + buckets);
+        }
+
+        this.buckets = new ScheduledTask[buckets];
+        this.mask = buckets - 1;
+        this.occupied = new long[(buckets + 63) >>> 6];
+        this.time = time;
+    }
+
+    long getTime() {
+        return this.time;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Checks whether the task is currently linked into this wheel.
+     *
+     * @param task The task
+     * @return Whether the task is in the wheel
+     */
+    boolean contains(ScheduledTask task) {
+        return task.wheel == this;
+    }
+
+    /**
+     * Adds a task to the wheel. Deadlines that have already passed are moved
+     * to the next time the wheel is advanced to.
+     *
+     * @param task The task to add
+     * @param deadline The time the task should be run at
+     */
+    void add(ScheduledTask task, long deadline) {
+        if (deadline <= this.time) {
+            deadline = this.time + 1;
+        }
+
+        task.deadline = deadline;
+        task.wheel = this;
+        int index = (int) (deadline & this.mask);
+        ScheduledTask head = this.buckets[index];
+        task.previousInBucket = null;
+        task.nextInBucket = head;
+        if (head != null) {
+            head.previousInBucket = task;
+        }
+        this.buckets[index] = task;
+        this.occupied[index >>> 6] |= 1L << index;
+        this.size++;
+
+        if (this.nextTimeValid && deadline < this.nextTime) {
+            this.nextTime = deadline;
+        }
+    }
+
+    /**
+     * Removes a task from the wheel before its deadline, for example because
+     * it was canceled. Does nothing if the task is not in this wheel.
+     *
+     * @param task The task to remove
+     */
+    void remove(ScheduledTask task) {
+        if (task.wheel != this) {
+            return;
+        }
+
+        int index = (int) (task.deadline & this.mask);
+        if (task.previousInBucket != null) {
+            task.previousInBucket.nextInBucket = task.nextInBucket;
+        } else {
+            this.buckets[index] = task.nextInBucket;
+            if (task.nextInBucket == null) {
+                this.occupied[index >>> 6] &= ~(1L << index);
+            }
+        }
+        if (task.nextInBucket != null) {
+            task.nextInBucket.previousInBucket = task.previousInBucket;
+        }
+
+        task.previousInBucket = null;
+        task.nextInBucket = null;
+        task.wheel = null;
+        this.size--;
+
+        if (task.deadline == this.nextTime) {
+            this.nextTimeValid = false;
+        }
+    }
+
+    /**
+     * Advances the wheel to the specified time, removing all tasks that are
+     * due or canceled from the wheel.
+     *
+     * @param now The current time
+     * @param due The collection to add the removed tasks to
+     */
+    void advance(long now, Collection<ScheduledTask> due) {
+        if (now <= this.time) {
+            return;
+        }
+
+        // Each bucket only has to be visited once, even if more than a revolution has passed
+        int steps = (int) Math.min(now - this.time, this.buckets.length);
+        for (int offset = nextOccupied(1, steps); offset > 0 && this.size > 0; offset = nextOccupied(offset + 1, steps)) {
+            ScheduledTask task = this.buckets[(int) ((this.time + offset) & this.mask)];
+            while (task != null) {
+                ScheduledTask next = task.nextInBucket;
+                if (task.deadline <= now || task.state == ScheduledTask.ScheduledTaskState.CANCELED) {
+                    remove(task);
+                    due.add(task);
+                }
+                task = next;
+            }
+        }
+
+        this.time = now;
+    }
+
+    /**
+     * Gets the offset from the current time of the first non-empty bucket
+     * in the specified range of offsets.
+     *
+     * @param from The first offset to look at
+     * @param to The last offset to look at
+     * @return The offset of the non-empty bucket, or -1 if there is none
+     */
+    private int nextOccupied(int from, int to) {
+        int offset = from;
+        while (offset <= to) {
+            int index = (int) ((this.time + offset) & this.mask);
+            long word = this.occupied[index >>> 6] >>> index;
+            if (word != 0) {
+                // The bits of a word belong to consecutive buckets, so this never wraps around
+                offset += Long.numberOfTrailingZeros(word);
+                return offset <= to ? offset : -1;
+            }
+
+            // Skip the rest of the word, but never past the end of the buckets
+            offset += Math.min(64 - (index & 63), this.buckets.length - index);
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the next time at which the wheel contains tasks that may be due.
+     *
+     * @return The next time with tasks, or {@link Long#MAX_VALUE} if the
+     *     wheel is empty
+     */
+    long getNextTime() {
+        if (!this.nextTimeValid) {
+            this.nextTime = findNextTime();
+            this.nextTimeValid = true;
+        }
+        return this.nextTime;
+    }
+
+    private long findNextTime() {
+        if (this.size == 0) {
+            return Long.MAX_VALUE;
+        }
+
+        // A task in the bucket at offset i is due at time + i, unless it is
+        // at least one revolution away. In that case the earliest of those
+        // deadlines is the next time, if no bucket has a task due earlier.
+        long earliest = Long.MAX_VALUE;
+        for (int offset = nextOccupied(1, this.buckets.length); offset > 0; offset = nextOccupied(offset + 1, this.buckets.length)) {
+            for (ScheduledTask task = this.buckets[(int) ((this.time + offset) & this.mask)]; task != null; task = task.nextInBucket) {
+                if (task.deadline == this.time + offset) {
+                    return task.deadline;
+                }
+                earliest = Math.min(earliest, task.deadline);
+            }
+        }
+        return earliest;
+    }
+
+}
@@ -0,0 +1,415 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.service.sql;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.spongepowered.common.Sponge;
+import org.spongepowered.common.configuration.SpongeConfig;
+import org.spongepowered.common.service.scheduler.SyncScheduler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+/**
+ * Runs queries against a {@link DataSource} on a dedicated thread pool, so
+ * plugins don't have to block the main thread or manage threads themselves.
+ *
+ * <p>The pool has as many threads as the data source has connections.
+ * Updates with the same SQL statement are collected into JDBC batches,
+ * which are flushed once they reach the configured size or the configured
+ * time has passed since the first update was added. Callbacks passed to
+ * this executor are run on the main thread.</p>
+ */
+public class AsyncSqlExecutor {
+
+    /**
+     * A task running on a connection of the data source.
+     *
+     * @param <T> The type of the result
+     */
+    public interface SqlTask<T> {
+
+        /**
+         * Runs the task. The connection is closed once the task returns.
+         *
+         * @param connection The connection to use
+         * @return The result of the task
+         * @throws SQLException If the task failed
+         */
+        T run(Connection connection) throws SQLException;
+
+    }
+
+    private static final Executor mainThreadExecutor = new Executor() {
+
+        @Override
+        public void execute(Runnable command) {
+            SyncScheduler.getInstance().runTask(Sponge.getPlugin(), command);
+        }
+    };
+
+    private static final ScheduledExecutorService batchTimer = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("Sponge SQL Batch Timer").setDaemon(true).build());
+
+    private final String name;
+    private final DataSource dataSource;
+    private final ThreadPoolExecutor executor;
+    private final int batchSize;
+    private final long batchLatency;
+    private final ConcurrentMap<String, Batch> batches = new ConcurrentHashMap<String, Batch>();
+
+    private final AtomicInteger pendingUpdates = new AtomicInteger();
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+    private final AtomicLong flushedBatches = new AtomicLong();
+    private final AtomicLong batchedUpdates = new AtomicLong();
+
+    AsyncSqlExecutor(String name, DataSource dataSource, int threads, SpongeConfig.SqlCategory config) {
+        this.name = checkNotNull(name, "name");
+        this.dataSource = checkNotNull(dataSource, "dataSource");
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(Math.max(1, config.getAsyncQueueSize())),
+                new ThreadFactoryBuilder().setNameFormat("Sponge SQL Executor - " + name.replace("%", "%%") + " #%d").setDaemon(true).build());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.batchSize = Math.max(1, config.getAsyncBatchSize());
+        this.batchLatency = Math.max(0, config.getAsyncBatchLatency());
+    }
+
+    /**
+     * Runs a task on a connection of the data source.
+     *
+     * @param task The task to run
+     * @param <T> The type of the result
+     * @return A future completing with the result of the task
+     */
+    public <T> ListenableFuture<T> submit(final SqlTask<T> task) {
+        checkNotNull(task, "task");
+        final SettableFuture<T> future = SettableFuture.create();
+        final long queued = System.nanoTime();
+        execute(future, new Runnable() {
+
+            @Override
+            public void run() {
+                Connection connection = null;
+                try {
+                    connection = AsyncSqlExecutor.this.dataSource.getConnection();
+                    future.set(task.run(connection));
+                } catch (Throwable t) {
+                    future.setException(t);
+                } finally {
+                    close(connection);
+                    recordLatency(System.nanoTime() - queued);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Runs a task on a connection of the data source and passes its result
+     * to the callback on the main thread.
+     *
+     * @param task The task to run
+     * @param callback The callback to run on the main thread
+     * @param <T> The type of the result
+     */
+    public <T> void submit(SqlTask<T> task, FutureCallback<? super T> callback) {
+        Futures.addCallback(submit(task), callback, mainThreadExecutor);
+    }
+
+    /**
+     * Adds an update to the batch of its SQL statement.
+     *
+     * <p>All updates of a batch are executed in one transaction, so if any
+     * of them fails the whole batch is rolled back and the futures of all
+     * its updates fail with the same exception, including the updates which
+     * would have succeeded on their own.</p>
+     *
+     * @param sql The SQL statement to execute
+     * @param parameters The parameters of the statement
+     * @return A future completing with the update count of the statement
+     */
+    public ListenableFuture<Integer> update(String sql, Object... parameters) {
+        checkNotNull(sql, "sql");
+        Batch batch = this.batches.get(sql);
+        if (batch == null) {
+            batch = new Batch(sql);
+            Batch existing = this.batches.putIfAbsent(sql, batch);
+            if (existing != null) {
+                batch = existing;
+            }
+        }
+
+        Update update = new Update(parameters.clone());
+        batch.add(update);
+        return update.future;
+    }
+
+    /**
+     * Adds an update to the batch of its SQL statement and passes its update
+     * count to the callback on the main thread.
+     *
+     * @param sql The SQL statement to execute
+     * @param callback The callback to run on the main thread
+     * @param parameters The parameters of the statement
+     */
+    public void update(String sql, FutureCallback<? super Integer> callback, Object... parameters) {
+        Futures.addCallback(update(sql, parameters), callback, mainThreadExecutor);
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Gets the number of tasks and batched updates waiting to be run.
+     *
+     * @return The queue depth
+     */
+    public int getQueueDepth() {
+        return this.executor.getQueue().size() + this.pendingUpdates.get();
+    }
+
+    public int getActiveThreads() {
+        return this.executor.getActiveCount();
+    }
+
+    public long getQueryCount() {
+        return this.queries.get();
+    }
+
+    /**
+     * Gets the average time between submitting a task or batch and its
+     * completion.
+     *
+     * @return The average latency in nanoseconds
+     */
+    public long getAverageLatency() {
+        long queries = this.queries.get();
+        return queries == 0 ? 0 : this.totalLatency.get() / queries;
+    }
+
+    public long getMaxLatency() {
+        return this.maxLatency.get();
+    }
+
+    public long getFlushedBatches() {
+        return this.flushedBatches.get();
+    }
+
+    public double getAverageBatchSize() {
+        long batches = this.flushedBatches.get();
+        return batches == 0 ? 0 : this.batchedUpdates.get() / (double) batches;
+    }
+
+    /**
+     * Stops accepting new tasks. Already submitted tasks are still run.
+     */
+    void shutdown() {
+        for (Batch batch : this.batches.values()) {
+            batch.flush();
+        }
+        this.executor.shutdown();
+    }
+
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.executor.awaitTermination(timeout, unit);
+    }
+
+    private void execute(SettableFuture<?> future, Runnable task) {
+        try {
+            this.executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            future.setException(e);
+        }
+    }
+
+    private void recordLatency(long latency) {
+        this.queries.incrementAndGet();
+        this.totalLatency.addAndGet(latency);
+        long max;
+        while (latency > (max = this.maxLatency.get()) && !this.maxLatency.compareAndSet(max, latency)) {
+            // Retry until the new max is stored or a larger one was stored
+        }
+    }
+
+    private static void close(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                Sponge.getLogger().warn("Failed to close SQL connection", e);
+            }
+        }
+    }
+
+    private static final class Update {
+
+        final Object[] parameters;
+        final SettableFuture<Integer> future = SettableFuture.create();
+        final long queued = System.nanoTime();
+
+        Update(Object[] parameters) {
+            this.parameters = parameters;
+        }
+
+    }
+
+    private final class Batch implements Runnable {
+
+        private final String sql;
+        private final Queue<Update> updates = new ConcurrentLinkedQueue<Update>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        Batch(String sql) {
+            this.sql = sql;
+        }
+
+        void add(Update update) {
+            this.updates.add(update);
+            AsyncSqlExecutor.this.pendingUpdates.incrementAndGet();
+            int size = this.size.incrementAndGet();
+            if (size == AsyncSqlExecutor.this.batchSize) {
+                flush();
+            } else if (size == 1) {
+                batchTimer.schedule(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                }, AsyncSqlExecutor.this.batchLatency, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        void flush() {
+            try {
+                AsyncSqlExecutor.this.executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // Fail the updates instead of leaving them pending forever
+                List<Update> updates;
+                while (!(updates = poll()).isEmpty()) {
+                    for (Update update : updates) {
+                        update.future.setException(e);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            List<Update> updates;
+            while (!(updates = poll()).isEmpty()) {
+                run(updates);
+            }
+        }
+
+        private List<Update> poll() {
+            List<Update> updates = Lists.newArrayList();
+            Update update;
+            while (updates.size() < AsyncSqlExecutor.this.batchSize && (update = this.updates.poll()) != null) {
+                updates.add(update);
+            }
+            this.size.addAndGet(-updates.size());
+            AsyncSqlExecutor.this.pendingUpdates.addAndGet(-updates.size());
+            return updates;
+        }
+
+        private void run(List<Update> updates) {
+            Connection connection = null;
+            try {
+                connection = AsyncSqlExecutor.this.dataSource.getConnection();
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try {
+                    PreparedStatement statement = connection.prepareStatement(this.sql);
+                    try {
+                        for (Update update : updates) {
+                            for (int i = 0; i < update.parameters.length; i++) {
+                                statement.setObject(i + 1, update.parameters[i]);
+                            }
+                            statement.addBatch();
+                        }
+                        int[] counts = statement.executeBatch();
+                        connection.commit();
+                        for (int i = 0; i < updates.size(); i++) {
+                            updates.get(i).future.set(i < counts.length ? counts[i] : PreparedStatement.SUCCESS_NO_INFO);
+                        }
+                    } finally {
+                        statement.close();
+                    }
+                } catch (SQLException e) {
+                    // A failing rollback must not hide why the batch failed
+                    try {
+                        connection.rollback();
+                    } catch (SQLException rollbackFailure) {
+                        Sponge.getLogger().warn("Failed to roll back a batch of " + this.sql, rollbackFailure);
+                    }
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+            } catch (Throwable t) {
+                for (Update update : updates) {
+                    update.future.setException(t);
+                }
+            } finally {
+                close(connection);
+                AsyncSqlExecutor.this.flushedBatches.incrementAndGet();
+                AsyncSqlExecutor.this.batchedUpdates.addAndGet(updates.size());
+                for (Update update : updates) {
+                    recordLatency(System.nanoTime() - update.queued);
+                }
+            }
+        }
+
+    }
+
+}
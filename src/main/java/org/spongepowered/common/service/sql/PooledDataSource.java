@@ -0,0 +1,365 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.service.sql;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.annotation.Nullable;
+import javax.sql.DataSource;
+
+/**
+ * A {@link DataSource} handed out by the {@link SqlServiceImpl}, which opens
+ * its connection pool on demand.
+ *
+ * <p>The pool may be closed by the service once no connection has been
+ * borrowed for a while, and is opened again by the next call to
+ * {@link #getConnection()}, so plugins can keep a reference to this data
+ * source for as long as they like. Borrowed connections are tracked to
+ * provide pool statistics without requiring JMX.</p>
+ */
+public class PooledDataSource implements DataSource {
+
+    private final SqlServiceImpl service;
+    private final SqlServiceImpl.ConnectionInfo info;
+    @Nullable private volatile HikariDataSource source;
+    private volatile boolean closed;
+    private volatile int maximumPoolSize;
+
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicLong borrowedConnections = new AtomicLong();
+    private final AtomicLong totalWaitTime = new AtomicLong();
+    private final AtomicLong maxWaitTime = new AtomicLong();
+    private final AtomicInteger openCount = new AtomicInteger();
+    private volatile long lastUsed = System.nanoTime();
+
+    PooledDataSource(SqlServiceImpl service, SqlServiceImpl.ConnectionInfo info) {
+        this.service = checkNotNull(service, "service");
+        this.info = checkNotNull(info, "info");
+        this.maximumPoolSize = service.createConfig(info).getMaximumPoolSize();
+    }
+
+    /**
+     * Gets the JDBC url of this data source, without any credentials.
+     *
+     * @return The url
+     */
+    public String getName() {
+        return this.info.getAuthlessUrl();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null);
+    }
+
+    @Override
+    public Connection getConnection(@Nullable String username, @Nullable String password) throws SQLException {
+        long start = System.nanoTime();
+        HikariDataSource source = acquire();
+        Connection connection = null;
+        try {
+            connection = username == null ? source.getConnection() : source.getConnection(username, password);
+        } finally {
+            // acquire() already counted the connection, release it if it could not be borrowed
+            if (connection == null) {
+                release();
+            }
+        }
+        if (connection == null) {
+            throw new SQLException("The connection pool of " + getName() + " did not return a connection");
+        }
+
+        long waitTime = System.nanoTime() - start;
+        this.borrowedConnections.incrementAndGet();
+        this.totalWaitTime.addAndGet(waitTime);
+        long max;
+        do {
+            max = this.maxWaitTime.get();
+        } while (waitTime > max && !this.maxWaitTime.compareAndSet(max, waitTime));
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                new TrackedConnection(connection));
+    }
+
+    /**
+     * Marks a connection as borrowed and gets the pool to borrow it from,
+     * opening the pool if it has been closed by the eviction.
+     *
+     * <p>The connection is counted before the pool is read, which keeps
+     * {@link #closeIfIdle} from closing the pool in between, so the lock
+     * is only needed to open the pool.</p>
+     */
+    private HikariDataSource acquire() throws SQLException {
+        checkNotClosed();
+        this.activeConnections.incrementAndGet();
+        this.lastUsed = System.nanoTime();
+        HikariDataSource source = this.source;
+        if (source == null) {
+            try {
+                source = open();
+            } catch (SQLException e) {
+                this.activeConnections.decrementAndGet();
+                throw e;
+            } catch (RuntimeException e) {
+                this.activeConnections.decrementAndGet();
+                throw e;
+            }
+        }
+        return source;
+    }
+
+    private synchronized HikariDataSource open() throws SQLException {
+        checkNotClosed();
+        HikariDataSource source = this.source;
+        if (source == null) {
+            HikariConfig config = this.service.createConfig(this.info);
+            source = new HikariDataSource(config);
+            this.maximumPoolSize = config.getMaximumPoolSize();
+            this.source = source;
+            this.openCount.incrementAndGet();
+            this.service.onPoolOpened();
+        }
+        return source;
+    }
+
+    private void checkNotClosed() throws SQLException {
+        if (this.closed) {
+            throw new SQLException("The data source " + getName() + " has been closed");
+        }
+    }
+
+    private void release() {
+        this.lastUsed = System.nanoTime();
+        this.activeConnections.decrementAndGet();
+    }
+
+    /**
+     * Closes the connection pool if no connection is borrowed and the pool
+     * has not been used for the specified time.
+     *
+     * @param idleTime The time the pool must have been idle
+     * @param unit The unit of the time
+     * @return Whether the pool was closed
+     */
+    synchronized boolean closeIfIdle(long idleTime, TimeUnit unit) {
+        HikariDataSource source = this.source;
+        if (source == null || this.activeConnections.get() > 0 || System.nanoTime() - this.lastUsed < unit.toNanos(idleTime)) {
+            return false;
+        }
+        this.source = null;
+        // acquire() counts connections without the lock, one may have been
+        // counted after the check above but before the pool was unset.
+        if (this.activeConnections.get() > 0) {
+            this.source = source;
+            return false;
+        }
+        source.close();
+        return true;
+    }
+
+    /**
+     * Closes the connection pool for good, even if connections are still
+     * borrowed. Borrowing connections from this data source fails from now
+     * on.
+     */
+    synchronized void close() {
+        this.closed = true;
+        HikariDataSource source = this.source;
+        if (source != null) {
+            this.source = null;
+            source.close();
+        }
+    }
+
+    /**
+     * Gets whether the connection pool is currently open.
+     *
+     * @return Whether the pool is open
+     */
+    public boolean isOpen() {
+        return this.source != null;
+    }
+
+    /**
+     * Gets how many times the connection pool has been opened.
+     *
+     * @return The number of times the pool was opened
+     */
+    public int getOpenCount() {
+        return this.openCount.get();
+    }
+
+    /**
+     * Gets the maximum number of connections of the pool.
+     *
+     * @return The maximum pool size
+     */
+    public int getMaximumPoolSize() {
+        return this.maximumPoolSize;
+    }
+
+    /**
+     * Gets the number of connections which are currently borrowed.
+     *
+     * @return The number of active connections
+     */
+    public int getActiveConnections() {
+        return this.activeConnections.get();
+    }
+
+    /**
+     * Gets the number of connections borrowed since the data source was
+     * created.
+     *
+     * @return The number of borrowed connections
+     */
+    public long getBorrowedConnections() {
+        return this.borrowedConnections.get();
+    }
+
+    /**
+     * Gets the average time spent waiting for a connection, including the
+     * time to open the pool.
+     *
+     * @return The average wait time in microseconds
+     */
+    public long getAverageWaitTime() {
+        long borrowed = this.borrowedConnections.get();
+        return borrowed == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(this.totalWaitTime.get() / borrowed);
+    }
+
+    /**
+     * Gets the longest time spent waiting for a connection.
+     *
+     * @return The maximum wait time in microseconds
+     */
+    public long getMaxWaitTime() {
+        return TimeUnit.NANOSECONDS.toMicros(this.maxWaitTime.get());
+    }
+
+    /**
+     * Gets the time since a connection was last borrowed or returned.
+     *
+     * @return The idle time in milliseconds
+     */
+    public long getIdleTime() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.lastUsed);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return acquire0().getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        acquire0().setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        acquire0().setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return acquire0().getLoginTimeout();
+    }
+
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return acquire0().unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || acquire0().isWrapperFor(iface);
+    }
+
+    /**
+     * Gets the pool without borrowing a connection from it.
+     */
+    private HikariDataSource acquire0() throws SQLException {
+        HikariDataSource source = acquire();
+        release();
+        return source;
+    }
+
+    /**
+     * Returns the connection to the pool statistics when it is closed.
+     */
+    private class TrackedConnection implements InvocationHandler {
+
+        private final Connection connection;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        TrackedConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("equals") && args != null && args.length == 1) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode") && args == null) {
+                return System.identityHashCode(proxy);
+            }
+            try {
+                return method.invoke(this.connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if (name.equals("close") && args == null && this.closed.compareAndSet(false, true)) {
+                    release();
+                }
+            }
+        }
+    }
+
+}
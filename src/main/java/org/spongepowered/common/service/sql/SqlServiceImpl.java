@@ -26,29 +26,36 @@
 
 import com.google.common.base.Objects;
 import com.google.common.base.Optional;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.cache.RemovalListener;
-import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.zaxxer.hikari.HikariConfig;
-import com.zaxxer.hikari.HikariDataSource;
 import org.spongepowered.api.service.sql.SqlService;
 import org.spongepowered.api.util.annotation.NonnullByDefault;
 import org.spongepowered.common.Sponge;
+import org.spongepowered.common.configuration.SpongeConfig;
 
 import java.io.Closeable;
 import java.io.IOException;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.sql.DataSource;
 
@@ -61,9 +68,10 @@
  *     - It allows applying additional driver-specific connection
  *     properties -- this allows us to do some light performance tuning in
  *     cases where we don't want to be as conservative as the driver developers
- *     - Caches DataSources. This cache is currently never cleared of stale entries
- *     -- if some plugin makes database connections to a ton of different databases
- *     we may want to implement this, but it is kinda unimportant.
+ *     - Caches DataSources. Their connection pools are closed once they have been
+ *     idle for the configured time or too many pools are open, and are opened again
+ *     on demand
+ *     - It allows configuring the connection pool of each alias
  */
 @NonnullByDefault
 public class SqlServiceImpl implements SqlService, Closeable {
@@ -82,47 +90,228 @@ public class SqlServiceImpl implements SqlService, Closeable {
         PROTOCOL_SPECIFIC_PROPS = build.build();
     }
 
-    private final LoadingCache<ConnectionInfo, HikariDataSource> connectionCache =
-            CacheBuilder.newBuilder().removalListener(new RemovalListener<ConnectionInfo, HikariDataSource>() {
-                @Override
-                public void onRemoval(RemovalNotification<ConnectionInfo, HikariDataSource> notification) {
-                    HikariDataSource source = notification.getValue();
-                    if (source != null) {
-                        source.close();
-                    }
+    private static final SpongeConfig.SqlPoolCategory DEFAULT_POOL_SETTINGS = new SpongeConfig.SqlPoolCategory();
+
+    private static final long EVICTION_INTERVAL = 10;
+
+    private final ConcurrentMap<ConnectionInfo, PooledDataSource> dataSources = new ConcurrentHashMap<ConnectionInfo, PooledDataSource>();
+    private final ConcurrentMap<ConnectionInfo, AsyncSqlExecutor> asyncExecutors = new ConcurrentHashMap<ConnectionInfo, AsyncSqlExecutor>();
+    @Nullable private volatile ScheduledExecutorService evictor;
+
+    @Override
+    public DataSource getDataSource(String jdbcConnection) throws SQLException {
+        return getPooledDataSource(jdbcConnection);
+    }
+
+    private PooledDataSource getPooledDataSource(String jdbcConnection) throws SQLException {
+        jdbcConnection = getConnectionUrlFromAlias(jdbcConnection).or(jdbcConnection);
+        ConnectionInfo info = ConnectionInfo.fromUrl(jdbcConnection);
+        PooledDataSource dataSource = this.dataSources.get(info);
+        if (dataSource == null) {
+            dataSource = new PooledDataSource(this, info);
+            PooledDataSource existing = this.dataSources.putIfAbsent(info, dataSource);
+            if (existing != null) {
+                dataSource = existing;
+            }
+        }
+        return dataSource;
+    }
+
+    /**
+     * Gets all data sources created so far, which provide the statistics of
+     * their connection pools.
+     *
+     * @return The data sources
+     */
+    public Collection<PooledDataSource> getDataSources() {
+        return Collections.unmodifiableCollection(this.dataSources.values());
+    }
+
+    /**
+     * Creates the configuration of the connection pool of a data source,
+     * applying the pool settings of its alias.
+     *
+     * @param info The connection info of the data source
+     * @return The pool configuration
+     */
+    HikariConfig createConfig(ConnectionInfo info) {
+        SpongeConfig.SqlPoolCategory settings = getPoolSettings(info);
+        HikariConfig config = new HikariConfig();
+        config.setUsername(info.getUser());
+        config.setPassword(info.getPassword());
+        config.setDriverClassName(info.getDriverClassName());
+        if (settings.getMaximumPoolSize() > 0) {
+            config.setMaximumPoolSize(settings.getMaximumPoolSize());
+        } else {
+            // https://github.com/brettwooldridge/HikariCP/wiki/About-Pool-Sizing for info on pool sizing
+            config.setMaximumPoolSize((Runtime.getRuntime().availableProcessors() * 2) + 1);
+        }
+        config.setMinimumIdle(Math.min(Math.max(settings.getMinimumIdle(), 0), config.getMaximumPoolSize()));
+        config.setConnectionTimeout(settings.getConnectionTimeout());
+        Properties driverSpecificProperties = PROTOCOL_SPECIFIC_PROPS.get(info.getDriverClassName());
+        if (driverSpecificProperties != null) {
+            Properties properties = new Properties();
+            properties.putAll(driverSpecificProperties);
+            if (settings.getPreparedStatementCacheSize() > 0) {
+                properties.setProperty("cachePrepStmts", "true");
+                properties.setProperty("prepStmtCacheSize", String.valueOf(settings.getPreparedStatementCacheSize()));
+                properties.setProperty("prepStmtCacheSqlLimit", "2048");
+            } else {
+                properties.setProperty("cachePrepStmts", "false");
+            }
+            config.setDataSourceProperties(properties);
+        }
+        config.setJdbcUrl(info.getAuthlessUrl());
+        return config;
+    }
+
+    /**
+     * Gets the pool settings of the first alias that points to the
+     * specified connection, or the defaults if there is none.
+     */
+    private SpongeConfig.SqlPoolCategory getPoolSettings(ConnectionInfo info) {
+        SpongeConfig.SqlCategory config = Sponge.getGlobalConfig().getConfig().getSql();
+        for (Map.Entry<String, String> alias : config.getAliases().entrySet()) {
+            if (info.getFullUrl().equals(alias.getValue())) {
+                SpongeConfig.SqlPoolCategory settings = config.getPools().get(alias.getKey());
+                if (settings != null) {
+                    return settings;
                 }
-            }).build(new CacheLoader<ConnectionInfo, HikariDataSource>() {
-                @Override
-                public HikariDataSource load(@Nonnull ConnectionInfo key) throws Exception {
-                    HikariConfig config = new HikariConfig();
-                    config.setUsername(key.getUser());
-                    config.setPassword(key.getPassword());
-                    config.setDriverClassName(key.getDriverClassName());
-                    // https://github.com/brettwooldridge/HikariCP/wiki/About-Pool-Sizing for info on pool sizing
-                    config.setMaximumPoolSize((Runtime.getRuntime().availableProcessors() * 2) + 1);
-                    Properties driverSpecificProperties = PROTOCOL_SPECIFIC_PROPS.get(key.getDriverClassName());
-                    if (driverSpecificProperties != null) {
-                        config.setDataSourceProperties(driverSpecificProperties);
+            }
+        }
+        return DEFAULT_POOL_SETTINGS;
+    }
+
+    /**
+     * Called by a data source once it opened its connection pool, starts
+     * the eviction of idle pools and closes idle pools if there are too
+     * many.
+     */
+    void onPoolOpened() {
+        ScheduledExecutorService evictor = this.evictor;
+        if (evictor == null) {
+            synchronized (this) {
+                evictor = this.evictor;
+                if (evictor == null) {
+                    evictor = Executors.newSingleThreadScheduledExecutor(
+                            new ThreadFactoryBuilder().setNameFormat("Sponge SQL Pool Evictor").setDaemon(true).build());
+                    evictor.scheduleWithFixedDelay(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            evictIdlePools();
+                        }
+                    }, EVICTION_INTERVAL, EVICTION_INTERVAL, TimeUnit.SECONDS);
+                    this.evictor = evictor;
+                }
+            }
+        }
+        if (Sponge.getGlobalConfig().getConfig().getSql().getMaxOpenPools() > 0) {
+            try {
+                evictor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        evictIdlePools();
                     }
-                    config.setJdbcUrl(key.getAuthlessUrl());
-                    return new HikariDataSource(config);
+                });
+            } catch (RejectedExecutionException ignored) {
+                // The service is closing
+            }
+        }
+    }
+
+    /**
+     * Closes the pools which have been idle for longer than the configured
+     * timeout, then the least recently used idle pools while more than the
+     * configured maximum number of pools are open.
+     */
+    void evictIdlePools() {
+        evictIdlePools(this.dataSources.values(), Sponge.getGlobalConfig().getConfig().getSql());
+    }
+
+    static void evictIdlePools(Collection<PooledDataSource> dataSources, SpongeConfig.SqlCategory config) {
+        List<PooledDataSource> open = Lists.newArrayList();
+        for (PooledDataSource dataSource : dataSources) {
+            if (dataSource.isOpen() && (config.getPoolIdleTimeout() <= 0 || !dataSource.closeIfIdle(config.getPoolIdleTimeout(), TimeUnit.SECONDS))) {
+                open.add(dataSource);
+            }
+        }
+
+        int excess = open.size() - config.getMaxOpenPools();
+        if (config.getMaxOpenPools() > 0 && excess > 0) {
+            Collections.sort(open, new Comparator<PooledDataSource>() {
+
+                @Override
+                public int compare(PooledDataSource o1, PooledDataSource o2) {
+                    return Longs.compare(o2.getIdleTime(), o1.getIdleTime());
                 }
             });
+            for (Iterator<PooledDataSource> it = open.iterator(); it.hasNext() && excess > 0;) {
+                if (it.next().closeIfIdle(0, TimeUnit.SECONDS)) {
+                    excess--;
+                }
+            }
+        }
+    }
 
-    @Override
-    public DataSource getDataSource(String jdbcConnection) throws SQLException {
+    /**
+     * Gets the executor running queries asynchronously on the data source
+     * of the specified JDBC url or alias.
+     *
+     * @param jdbcConnection The jdbc url or alias of the connection
+     * @return The executor
+     * @throws SQLException If the connection is invalid
+     */
+    public AsyncSqlExecutor getAsyncExecutor(String jdbcConnection) throws SQLException {
+        String alias = jdbcConnection;
         jdbcConnection = getConnectionUrlFromAlias(jdbcConnection).or(jdbcConnection);
         ConnectionInfo info = ConnectionInfo.fromUrl(jdbcConnection);
-        try {
-            return this.connectionCache.get(info);
-        } catch (ExecutionException e) {
-            throw new SQLException(e);
+        AsyncSqlExecutor executor = this.asyncExecutors.get(info);
+        if (executor == null) {
+            PooledDataSource dataSource = getPooledDataSource(jdbcConnection);
+            // Only the url without credentials may show up in thread names
+            String name = alias.equals(jdbcConnection) ? info.getAuthlessUrl() : alias;
+            executor = new AsyncSqlExecutor(name, dataSource, dataSource.getMaximumPoolSize(), Sponge.getGlobalConfig().getConfig().getSql());
+            AsyncSqlExecutor existing = this.asyncExecutors.putIfAbsent(info, executor);
+            if (existing != null) {
+                executor.shutdown();
+                executor = existing;
+            }
         }
+        return executor;
+    }
+
+    /**
+     * Gets all executors created so far.
+     *
+     * @return The executors
+     */
+    public Collection<AsyncSqlExecutor> getAsyncExecutors() {
+        return Collections.unmodifiableCollection(this.asyncExecutors.values());
     }
 
     @Override
     public void close() throws IOException {
-        this.connectionCache.invalidateAll();
+        for (AsyncSqlExecutor executor : this.asyncExecutors.values()) {
+            executor.shutdown();
+        }
+        try {
+            // Let the queued queries finish before their data sources are closed
+            for (AsyncSqlExecutor executor : this.asyncExecutors.values()) {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.asyncExecutors.clear();
+        ScheduledExecutorService evictor = this.evictor;
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        for (PooledDataSource dataSource : this.dataSources.values()) {
+            dataSource.close();
+        }
     }
 
     public static class ConnectionInfo {
@@ -25,7 +25,6 @@
 package org.spongepowered.common.util;
 
 import com.flowpowered.math.vector.Vector3i;
-import gnu.trove.map.hash.TObjectLongHashMap;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.EntityLivingBase;
@@ -42,14 +41,15 @@
 import org.spongepowered.api.block.BlockState;
 import org.spongepowered.common.Sponge;
 import org.spongepowered.common.configuration.SpongeConfig;
+import org.spongepowered.common.configuration.WorldConfigSnapshot;
 import org.spongepowered.common.interfaces.IMixinWorld;
 import org.spongepowered.common.interfaces.IMixinWorldProvider;
+import org.spongepowered.common.service.scheduler.SyncScheduler;
 
 import java.io.File;
 import java.lang.management.ManagementFactory;
 import java.lang.reflect.Method;
 import java.text.MessageFormat;
-import java.util.List;
 
 import javax.management.MBeanServer;
 
@@ -58,8 +58,6 @@ public class SpongeHooks {
     public static int tickingDimension = 0;
     public static ChunkCoordIntPair tickingChunk = null;
 
-    private static TObjectLongHashMap<CollisionWarning> recentWarnings = new TObjectLongHashMap<CollisionWarning>();
-
     public static void logInfo(String msg, Object... args) {
         MinecraftServer.getServer().logInfo(MessageFormat.format(msg, args));
     }
@@ -74,15 +72,25 @@ public static void logSevere(String msg, Object... args) {
 
     public static void logStack(SpongeConfig<?> config) {
         if (config.getConfig().getLogging().logWithStackTraces()) {
-            Throwable ex = new Throwable();
-            ex.fillInStackTrace();
-            ex.printStackTrace();
+            printStack();
+        }
+    }
+
+    public static void logStack(WorldConfigSnapshot config) {
+        if (config.logWithStackTraces()) {
+            printStack();
         }
     }
 
+    private static void printStack() {
+        Throwable ex = new Throwable();
+        ex.fillInStackTrace();
+        ex.printStackTrace();
+    }
+
     public static void logEntityDeath(Entity entity) {
-        SpongeConfig<?> config = getActiveConfig(entity.worldObj);
-        if (config.getConfig().getLogging().entityDeathLogging()) {
+        WorldConfigSnapshot config = getConfigSnapshot(entity.worldObj);
+        if (config.entityDeathLogging()) {
             logInfo("[" + config.getConfigName() + "] [" + config.getConfigName() + "] Dim: {0} setDead(): {1}",
                     entity.worldObj.provider.getDimensionId(), entity);
             logStack(config);
@@ -90,24 +98,24 @@ public static void logEntityDeath(Entity entity) {
     }
 
     public static void logEntityDespawn(Entity entity, String reason) {
-        SpongeConfig<?> config = getActiveConfig(entity.worldObj);
-        if (config.getConfig().getLogging().entityDespawnLogging()) {
+        WorldConfigSnapshot config = getConfigSnapshot(entity.worldObj);
+        if (config.entityDespawnLogging()) {
             logInfo("[" + config.getConfigName() + "] Dim: {0} Despawning ({1}): {2}", entity.worldObj.provider.getDimensionId(), reason, entity);
             logStack(config);
         }
     }
 
     public static void logEntitySpawn(Entity entity) {
-        SpongeConfig<?> config = getActiveConfig(entity.worldObj);
-        if (config.getConfig().getLogging().entitySpawnLogging()) {
+        WorldConfigSnapshot config = getConfigSnapshot(entity.worldObj);
+        if (config.entitySpawnLogging()) {
             logInfo("[" + config.getConfigName() + "] Dim: {0} Spawning: {1}", entity.worldObj.provider.getDimensionId(), entity);
             logStack(config);
         }
     }
 
     public static void logChunkLoad(World world, Vector3i chunkPos) {
-        SpongeConfig<?> config = getActiveConfig(world);
-        if (config.getConfig().getLogging().chunkLoadLogging()) {
+        WorldConfigSnapshot config = getConfigSnapshot(world);
+        if (config.chunkLoadLogging()) {
             logInfo("[" + config.getConfigName() + "] Load Chunk At [{0}] ({1}, {2})", world.provider.getDimensionId(), chunkPos.getX(),
                     chunkPos.getZ());
             logStack(config);
@@ -115,8 +123,8 @@ public static void logChunkLoad(World world, Vector3i chunkPos) {
     }
 
     public static void logChunkUnload(World world, Vector3i chunkPos) {
-        SpongeConfig<?> config = getActiveConfig(world);
-        if (config.getConfig().getLogging().chunkUnloadLogging()) {
+        WorldConfigSnapshot config = getConfigSnapshot(world);
+        if (config.chunkUnloadLogging()) {
             logInfo("[" + config.getConfigName() + "] Unload Chunk At [{0}] ({1}, {2})", world.provider.getDimensionId(), chunkPos.getX(),
                     chunkPos.getZ());
             logStack(config);
@@ -125,18 +133,18 @@ public static void logChunkUnload(World world, Vector3i chunkPos) {
 
     @SuppressWarnings("unused")
     private static void logChunkLoadOverride(ChunkProviderServer provider, int x, int z) {
-        SpongeConfig<?> config = getActiveConfig(provider.worldObj);
+        WorldConfigSnapshot config = getConfigSnapshot(provider.worldObj);
         logInfo("[" + config.getConfigName() + "]  Chunk Load Override: {0}, Dimension ID: {1}", provider.chunkLoadOverride,
                 provider.worldObj.provider.getDimensionId());
     }
 
     public static boolean checkBoundingBoxSize(Entity entity, AxisAlignedBB aabb) {
-        SpongeConfig<?> config = getActiveConfig(entity.worldObj);
+        WorldConfigSnapshot config = getConfigSnapshot(entity.worldObj);
         if (!(entity instanceof EntityLivingBase) || entity instanceof EntityPlayer) {
             return false; // only check living entities that are not players
         }
 
-        int maxBoundingBoxSize = config.getConfig().getEntity().getMaxBoundingBoxSize();
+        int maxBoundingBoxSize = config.getMaxBoundingBoxSize();
         if (maxBoundingBoxSize <= 0) {
             return false;
         }
@@ -166,12 +174,12 @@ public static boolean checkBoundingBoxSize(Entity entity, AxisAlignedBB aabb) {
     }
 
     public static boolean checkEntitySpeed(Entity entity, double x, double y, double z) {
-        SpongeConfig<?> config = getActiveConfig(entity.worldObj);
-        int maxSpeed = config.getConfig().getEntity().getMaxSpeed();
+        WorldConfigSnapshot config = getConfigSnapshot(entity.worldObj);
+        int maxSpeed = config.getMaxSpeed();
         if (maxSpeed > 0) {
             double distance = x * x + z * z;
             if (distance > maxSpeed) {
-                if (config.getConfig().getLogging().logEntitySpeedRemoval()) {
+                if (config.logEntitySpeedRemoval()) {
                     logInfo("[" + config.getConfigName() + "] Speed violation: {0} was over {1} - Removing Entity: {2}", distance, maxSpeed, entity);
                     if (entity instanceof EntityLivingBase) {
                         EntityLivingBase livingBase = (EntityLivingBase) entity;
@@ -181,7 +189,7 @@ public static boolean checkEntitySpeed(Entity entity, double x, double y, double
                                 livingBase.moveStrafing, livingBase.moveForward);
                     }
 
-                    if (config.getConfig().getLogging().logWithStackTraces()) {
+                    if (config.logWithStackTraces()) {
                         logInfo("[" + config.getConfigName() + "] Move offset: ({0}, {1}, {2})", x, y, z);
                         logInfo("[" + config.getConfigName() + "] Motion: ({0}, {1}, {2})", entity.motionX, entity.motionY, entity.motionZ);
                         logInfo("[" + config.getConfigName() + "] Entity: {0}", entity);
@@ -205,59 +213,6 @@ public static boolean checkEntitySpeed(Entity entity, double x, double y, double
         return true;
     }
 
-    // TODO - needs to be hooked
-    @SuppressWarnings("rawtypes")
-    public static void logEntitySize(Entity entity, List list) {
-        SpongeConfig<?> config = getActiveConfig(entity.worldObj);
-        if (!config.getConfig().getLogging().logEntityCollisionChecks()) {
-            return;
-        }
-        int collisionWarnSize = config.getConfig().getEntity().getMaxCollisionSize();
-
-        if (list == null) {
-            return;
-        }
-
-        if (collisionWarnSize > 0 && (MinecraftServer.getServer().getTickCounter() % 10) == 0 && list.size() >= collisionWarnSize) {
-            SpongeHooks.CollisionWarning warning = new SpongeHooks.CollisionWarning(entity.worldObj, entity);
-            if (SpongeHooks.recentWarnings.contains(warning)) {
-                long lastWarned = SpongeHooks.recentWarnings.get(warning);
-                if ((MinecraftServer.getCurrentTimeMillis() - lastWarned) < 30000) {
-                    return;
-                }
-            }
-            SpongeHooks.recentWarnings.put(warning, System.currentTimeMillis());
-            logWarning("Entity collision > {0, number} at: {1}", collisionWarnSize, entity);
-        }
-    }
-
-    private static class CollisionWarning {
-
-        public BlockPos blockPos;
-        public int dimensionId;
-
-        public CollisionWarning(World world, Entity entity) {
-            this.dimensionId = world.provider.getDimensionId();
-            this.blockPos = new BlockPos(entity.chunkCoordX, entity.chunkCoordY, entity.chunkCoordZ);
-        }
-
-        @Override
-        public boolean equals(Object otherObj) {
-            if (!(otherObj instanceof CollisionWarning) || (otherObj == null)) {
-                return false;
-            }
-            CollisionWarning other = (CollisionWarning) otherObj;
-            return (other.dimensionId == this.dimensionId) && other.blockPos.equals(this.blockPos);
-        }
-
-        @Override
-        public int hashCode() {
-            return this.blockPos.hashCode() + this.dimensionId;
-        }
-    }
-
-
-
     @SuppressWarnings({"rawtypes", "unchecked"})
     public static void dumpHeap(File file, boolean live) {
         try {
@@ -295,6 +250,53 @@ public static SpongeConfig<?> getActiveConfig(World world) {
         }
     }
 
+    /**
+     * Gets the resolved settings of the active config of a world.
+     *
+     * @param world The world
+     * @return The settings snapshot
+     */
+    public static WorldConfigSnapshot getConfigSnapshot(World world) {
+        return ((IMixinWorld) world).getConfigSnapshot();
+    }
+
+    /**
+     * Refreshes the config snapshots of all worlds whenever a config is
+     * reloaded. Registered when Sponge is initialized.
+     *
+     * <p>Configs are reloaded on the config watcher thread, so the refresh
+     * is handed to the main thread, which owns the world list.</p>
+     */
+    public static final SpongeConfig.ReloadListener CONFIG_SNAPSHOT_REFRESHER = new SpongeConfig.ReloadListener() {
+
+        @Override
+        public void onReload(SpongeConfig<?> config) {
+            SyncScheduler.getInstance().runTask(Sponge.getPlugin(), new Runnable() {
+
+                @Override
+                public void run() {
+                    refreshConfigSnapshots();
+                }
+            });
+        }
+    };
+
+    /**
+     * Recreates the settings snapshots of all loaded worlds, after a config
+     * has been reloaded.
+     */
+    public static void refreshConfigSnapshots() {
+        MinecraftServer server = MinecraftServer.getServer();
+        if (server == null || server.worldServers == null) {
+            return;
+        }
+        for (World world : server.worldServers) {
+            if (world != null) {
+                ((IMixinWorld) world).refreshConfigSnapshot();
+            }
+        }
+    }
+
     public static void setBlockState(World world, int x, int y, int z, BlockState state) {
         setBlockState(world, new BlockPos(x, y, z), state);
     }
@@ -56,6 +56,25 @@ protected final void checkRange(int x, int z) {
         }
     }
 
+    /**
+     * Checks that an area lies within this biome area and that an array of
+     * the specified length can hold it.
+     *
+     * @param length The length of the array holding the area
+     * @param x The x coordinate of the start of the area
+     * @param z The z coordinate of the start of the area
+     * @param xSize The size of the area along the x axis
+     * @param zSize The size of the area along the z axis
+     */
+    protected final void checkRegion(int length, int x, int z, int xSize, int zSize) {
+        Preconditions.checkArgument(xSize >= 0 && zSize >= 0, "negative size");
+        Preconditions.checkArgument(length >= xSize * zSize, "array too small");
+        if (xSize > 0 && zSize > 0) {
+            checkRange(x, z);
+            checkRange(x + xSize - 1, z + zSize - 1);
+        }
+    }
+
     @Override
     public Vector2i getBiomeMin() {
         return this.start;
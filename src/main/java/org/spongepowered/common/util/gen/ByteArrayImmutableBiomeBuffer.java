@@ -56,7 +56,7 @@ public ByteArrayImmutableBiomeBuffer(BiomeGenBase[] biomeGenBases, Vector2i star
         int minLength = size.getX() * size.getY();
         Preconditions.checkArgument(biomeGenBases.length >= minLength, "biome array to small");
         this.biomes = new byte[minLength];
-        for (int i = 0; i > this.biomes.length; i++) {
+        for (int i = 0; i < this.biomes.length; i++) {
             BiomeGenBase biome = biomeGenBases[i];
             if (biome == null) {
                 continue;
@@ -68,7 +68,7 @@ public ByteArrayImmutableBiomeBuffer(BiomeGenBase[] biomeGenBases, Vector2i star
     @Override
     public BiomeType getBiome(int x, int z) {
         checkRange(x, z);
-        BiomeType biomeType = (BiomeType) this.biomeById[this.biomes[(x - this.start.getX()) | (z - this.start.getY()) << 4] & 0xff];
+        BiomeType biomeType = (BiomeType) this.biomeById[this.biomes[(x - this.start.getX()) + (z - this.start.getY()) * this.size.getX()] & 0xff];
         return biomeType == null ? BiomeTypes.OCEAN : biomeType;
     }
 
@@ -34,6 +34,8 @@
 
 import java.util.Arrays;
 
+import javax.annotation.Nullable;
+
 /**
  * Mutable biome area backed by a byte array. Reusable.
  * <p/>
@@ -46,7 +48,6 @@ public final class ByteArrayMutableBiomeBuffer extends AbstractBiomeArea impleme
 
     private boolean detached;
     private final byte[] biomes;
-    private final BiomeGenBase[] biomeById = BiomeGenBase.getBiomeGenArray();
 
     private void checkOpen() {
         Preconditions.checkState(!this.detached, "trying to use buffer after it's closed");
@@ -67,7 +68,74 @@ public void setBiome(int x, int z, BiomeType biome) {
         checkOpen();
         checkRange(x, z);
 
-        this.biomes[(x - this.start.getX()) | (z - this.start.getY()) << 4] = (byte) ((BiomeGenBase) biome).biomeID;
+        this.biomes[(x - this.start.getX()) + (z - this.start.getY()) * this.size.getX()] = (byte) ((BiomeGenBase) biome).biomeID;
+    }
+
+    /**
+     * Copies the biome ids of an area into this buffer, row by row along the
+     * x axis.
+     *
+     * @param biomeIds The biome ids of the area
+     * @param x The x coordinate of the start of the area
+     * @param z The z coordinate of the start of the area
+     * @param xSize The size of the area along the x axis
+     * @param zSize The size of the area along the z axis
+     */
+    public void setBiomeIds(byte[] biomeIds, int x, int z, int xSize, int zSize) {
+        checkOpen();
+        checkRegion(biomeIds.length, x, z, xSize, zSize);
+        int offset = (x - this.start.getX()) + (z - this.start.getY()) * this.size.getX();
+        for (int row = 0; row < zSize; row++) {
+            System.arraycopy(biomeIds, row * xSize, this.biomes, offset + row * this.size.getX(), xSize);
+        }
+    }
+
+    /**
+     * Copies the biomes of an area into this buffer, row by row along the x
+     * axis. Null biomes are stored as ocean.
+     *
+     * @param biomes The biomes of the area
+     * @param x The x coordinate of the start of the area
+     * @param z The z coordinate of the start of the area
+     * @param xSize The size of the area along the x axis
+     * @param zSize The size of the area along the z axis
+     */
+    public void setBiomes(BiomeGenBase[] biomes, int x, int z, int xSize, int zSize) {
+        checkOpen();
+        checkRegion(biomes.length, x, z, xSize, zSize);
+        int offset = (x - this.start.getX()) + (z - this.start.getY()) * this.size.getX();
+        for (int row = 0; row < zSize; row++) {
+            int from = row * xSize;
+            int to = offset + row * this.size.getX();
+            for (int i = 0; i < xSize; i++) {
+                BiomeGenBase biome = biomes[from + i];
+                this.biomes[to + i] = biome == null ? 0 : (byte) biome.biomeID;
+            }
+        }
+    }
+
+    /**
+     * Copies the biome ids of an area of this buffer into an array, row by
+     * row along the x axis.
+     *
+     * @param biomeIds The array to copy into, or null to create a new one
+     * @param x The x coordinate of the start of the area
+     * @param z The z coordinate of the start of the area
+     * @param xSize The size of the area along the x axis
+     * @param zSize The size of the area along the z axis
+     * @return The array containing the biome ids
+     */
+    public byte[] getBiomeIds(@Nullable byte[] biomeIds, int x, int z, int xSize, int zSize) {
+        checkOpen();
+        if (biomeIds == null || biomeIds.length < xSize * zSize) {
+            biomeIds = new byte[xSize * zSize];
+        }
+        checkRegion(biomeIds.length, x, z, xSize, zSize);
+        int offset = (x - this.start.getX()) + (z - this.start.getY()) * this.size.getX();
+        for (int row = 0; row < zSize; row++) {
+            System.arraycopy(this.biomes, offset + row * this.size.getX(), biomeIds, row * xSize, xSize);
+        }
+        return biomeIds;
     }
 
     @Override
@@ -129,8 +197,8 @@ public BiomeType getBiome(Vector2i position) {
     public BiomeType getBiome(int x, int z) {
         checkOpen();
 
-        byte biomeId = this.biomes[(x - this.start.getX()) | (z - this.start.getY()) << 4];
-        BiomeType biomeType = (BiomeType) this.biomeById[biomeId & 0xff];
+        byte biomeId = this.biomes[(x - this.start.getX()) + (z - this.start.getY()) * this.size.getX()];
+        BiomeType biomeType = (BiomeType) BiomeGenBase.getBiomeGenArray()[biomeId & 0xff];
         return biomeType == null ? BiomeTypes.OCEAN : biomeType;
     }
 }
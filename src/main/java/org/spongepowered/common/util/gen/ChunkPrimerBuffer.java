@@ -57,7 +57,7 @@ public void fill(BlockState block) {
     @Override
     public BlockState getBlock(int x, int y, int z) {
         checkRange(x, y, z);
-        return (BlockState) this.chunkPrimer.getBlockState(x, y, z);
+        return (BlockState) this.chunkPrimer.getBlockState(x & 0xf, y, z & 0xf);
     }
 
     @Override
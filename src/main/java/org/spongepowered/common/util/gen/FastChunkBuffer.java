@@ -31,6 +31,7 @@
 import org.spongepowered.api.block.BlockState;
 import org.spongepowered.api.block.BlockTypes;
 import org.spongepowered.api.util.gen.ImmutableBlockBuffer;
+import org.spongepowered.common.interfaces.IMixinExtendedBlockStorage;
 
 import java.util.Arrays;
 
@@ -40,6 +41,11 @@
  * <p>Light values are not updated, nor is tile entity data. (Re-)initialize the
  * chunk after you are done.</p>
  *
+ * <p>Immutable clones share the block data of the chunk sections, which are
+ * copied on the next modification of the section. Clones must be created on
+ * the main thread, or whichever thread modifies the chunk, but can be read
+ * from any thread.</p>
+ *
  */
 public final class FastChunkBuffer extends AbstractChunkBuffer {
 
@@ -98,15 +104,22 @@ public void fill(BlockState block) {
             if (section == null) {
                 this.sectionArray[ySectionId] = section = createChunkSection(ySectionId);
             }
-            char[] data = section.getData();
+            char[] data = ((IMixinExtendedBlockStorage) section).getWritableData();
             Arrays.fill(data, blockStateId);
+            section.removeInvalidBlocks();
         }
     }
 
     @Override
     public ImmutableBlockBuffer getImmutableClone() {
-        // TODO implement
-        throw new UnsupportedOperationException("Not yet supported");
+        char[][] sections = new char[this.sectionArray.length][];
+        for (int ySectionId = 0; ySectionId < sections.length; ySectionId++) {
+            ExtendedBlockStorage section = this.sectionArray[ySectionId];
+            if (section != null) {
+                sections[ySectionId] = ((IMixinExtendedBlockStorage) section).getSnapshotData();
+            }
+        }
+        return new ImmutableChunkBuffer(sections, getBlockMin());
     }
 
 }
@@ -0,0 +1,126 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.util.gen;
+
+import com.flowpowered.math.vector.Vector3i;
+import net.minecraft.block.Block;
+import org.spongepowered.api.block.BlockState;
+import org.spongepowered.api.block.BlockType;
+import org.spongepowered.api.block.BlockTypes;
+import org.spongepowered.api.util.gen.ImmutableBlockBuffer;
+import org.spongepowered.common.util.VecHelper;
+import org.spongepowered.common.world.storage.SpongeChunkLayout;
+
+/**
+ * Immutable snapshot of the blocks of a single chunk, created by
+ * {@link FastChunkBuffer#getImmutableClone()}.
+ *
+ * <p>The block data arrays of the chunk sections are shared with the chunk
+ * instead of being copied. A chunk section copies its array before it is
+ * modified the next time, so the snapshot is never changed and may be read
+ * from any thread.</p>
+ */
+public final class ImmutableChunkBuffer implements ImmutableBlockBuffer {
+
+    private final char[][] sections;
+    private final Vector3i minBlock;
+    private final Vector3i maxBlock;
+
+    /**
+     * Creates a new snapshot.
+     *
+     * @param sections The block data of the chunk sections, null for empty
+     *        sections. The arrays must not be modified afterwards.
+     * @param minBlock The lowest block position of the chunk
+     */
+    ImmutableChunkBuffer(char[][] sections, Vector3i minBlock) {
+        this.sections = sections;
+        this.minBlock = minBlock;
+        this.maxBlock = minBlock.add(SpongeChunkLayout.CHUNK_SIZE).sub(Vector3i.ONE);
+    }
+
+    @Override
+    public Vector3i getBlockMin() {
+        return this.minBlock;
+    }
+
+    @Override
+    public Vector3i getBlockMax() {
+        return this.maxBlock;
+    }
+
+    @Override
+    public Vector3i getBlockSize() {
+        return SpongeChunkLayout.CHUNK_SIZE;
+    }
+
+    @Override
+    public boolean containsBlock(Vector3i position) {
+        return containsBlock(position.getX(), position.getY(), position.getZ());
+    }
+
+    @Override
+    public boolean containsBlock(int x, int y, int z) {
+        return VecHelper.inBounds(x, y, z, this.minBlock, this.maxBlock);
+    }
+
+    @Override
+    public BlockState getBlock(Vector3i position) {
+        return getBlock(position.getX(), position.getY(), position.getZ());
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public BlockState getBlock(int x, int y, int z) {
+        if (!containsBlock(x, y, z)) {
+            throw new IndexOutOfBoundsException("Outside chunk: " + new Vector3i(x, y, z) + " is outside the blocks "
+                    + this.minBlock + " to " + this.maxBlock);
+        }
+
+        char[] section = this.sections[y >> 4];
+        if (section == null) {
+            return BlockTypes.AIR.getDefaultState();
+        }
+        // Same as ExtendedBlockStorage#get
+        BlockState block = (BlockState) Block.BLOCK_STATE_IDS.getByValue(section[(y & 0xf) << 8 | (z & 0xf) << 4 | (x & 0xf)]);
+        return block == null ? BlockTypes.AIR.getDefaultState() : block;
+    }
+
+    @Override
+    public BlockType getBlockType(Vector3i position) {
+        return getBlock(position).getType();
+    }
+
+    @Override
+    public BlockType getBlockType(int x, int y, int z) {
+        return getBlock(x, y, z).getType();
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "(min = " + this.getBlockMin() + ", max = " + this.getBlockMax() + ")";
+    }
+
+}
@@ -33,6 +33,8 @@
 
 import java.util.Arrays;
 
+import javax.annotation.Nullable;
+
 /**
  * Mutable view of a {@link BiomeGenBase} array.
  *
@@ -69,7 +71,7 @@ public BiomeType getBiome(Vector2i position) {
     @Override
     public BiomeType getBiome(int x, int z) {
         checkRange(x, z);
-        return (BiomeType) this.biomes[(x - this.start.getX()) | (z - this.start.getY()) << 4];
+        return (BiomeType) this.biomes[(x - this.start.getX()) + (z - this.start.getY()) * this.size.getX()];
     }
 
     @Override
@@ -81,7 +83,48 @@ public void setBiome(Vector2i position, BiomeType biome) {
     public void setBiome(int x, int z, BiomeType biome) {
         Preconditions.checkNotNull(biome, "biome");
         checkRange(x, z);
-        this.biomes[(x - this.start.getX()) | (z - this.start.getY()) << 4] = (BiomeGenBase) biome;
+        this.biomes[(x - this.start.getX()) + (z - this.start.getY()) * this.size.getX()] = (BiomeGenBase) biome;
+    }
+
+    /**
+     * Copies the biomes of an area into this buffer, row by row along the x
+     * axis.
+     *
+     * @param biomes The biomes of the area
+     * @param x The x coordinate of the start of the area
+     * @param z The z coordinate of the start of the area
+     * @param xSize The size of the area along the x axis
+     * @param zSize The size of the area along the z axis
+     */
+    public void setBiomes(BiomeGenBase[] biomes, int x, int z, int xSize, int zSize) {
+        checkRegion(biomes.length, x, z, xSize, zSize);
+        int offset = (x - this.start.getX()) + (z - this.start.getY()) * this.size.getX();
+        for (int row = 0; row < zSize; row++) {
+            System.arraycopy(biomes, row * xSize, this.biomes, offset + row * this.size.getX(), xSize);
+        }
+    }
+
+    /**
+     * Copies the biomes of an area of this buffer into an array, row by row
+     * along the x axis.
+     *
+     * @param biomes The array to copy into, or null to create a new one
+     * @param x The x coordinate of the start of the area
+     * @param z The z coordinate of the start of the area
+     * @param xSize The size of the area along the x axis
+     * @param zSize The size of the area along the z axis
+     * @return The array containing the biomes
+     */
+    public BiomeGenBase[] getBiomes(@Nullable BiomeGenBase[] biomes, int x, int z, int xSize, int zSize) {
+        if (biomes == null || biomes.length < xSize * zSize) {
+            biomes = new BiomeGenBase[xSize * zSize];
+        }
+        checkRegion(biomes.length, x, z, xSize, zSize);
+        int offset = (x - this.start.getX()) + (z - this.start.getY()) * this.size.getX();
+        for (int row = 0; row < zSize; row++) {
+            System.arraycopy(this.biomes, offset + row * this.size.getX(), biomes, row * xSize, xSize);
+        }
+        return biomes;
     }
 
     @Override
@@ -0,0 +1,127 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.world.gen;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.flowpowered.math.vector.Vector2i;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.spongepowered.api.world.gen.BiomeGenerator;
+import org.spongepowered.common.util.gen.ByteArrayMutableBiomeBuffer;
+
+/**
+ * A bounded cache of the biomes generated by a {@link BiomeGenerator}.
+ *
+ * <p>The biomes are generated in square tiles of {@link #TILE_SIZE} blocks,
+ * which are stored as packed biome id arrays and evicted in least recently
+ * used order. Requests for arbitrary areas are answered by copying rows out
+ * of the cached tiles.</p>
+ *
+ * <p>This class is thread-safe. Biome generators are not required to be
+ * thread-safe though, so tiles are generated one at a time.</p>
+ */
+final class BiomeTileCache {
+
+    static final int TILE_SHIFT = 6;
+    static final int TILE_SIZE = 1 << TILE_SHIFT;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+    private static final Vector2i TILE_AREA = new Vector2i(TILE_SIZE, TILE_SIZE);
+
+    private final BiomeGenerator biomeGenerator;
+    private final LoadingCache<Long, byte[]> tiles;
+
+    BiomeTileCache(BiomeGenerator biomeGenerator, int maximumTiles) {
+        this.biomeGenerator = checkNotNull(biomeGenerator, "biomeGenerator");
+        this.tiles = CacheBuilder.newBuilder()
+                .maximumSize(maximumTiles)
+                .build(new CacheLoader<Long, byte[]>() {
+
+                    @Override
+                    public byte[] load(Long key) throws Exception {
+                        return generateTile((int) (key >> 32), (int) (long) key);
+                    }
+                });
+    }
+
+    private byte[] generateTile(int tileX, int tileZ) {
+        ByteArrayMutableBiomeBuffer buffer = new ByteArrayMutableBiomeBuffer(new Vector2i(tileX << TILE_SHIFT, tileZ << TILE_SHIFT), TILE_AREA);
+        synchronized (this.biomeGenerator) {
+            this.biomeGenerator.generateBiomes(buffer);
+        }
+        return buffer.detach();
+    }
+
+    private byte[] getTile(int tileX, int tileZ) {
+        return this.tiles.getUnchecked(((long) tileX << 32) | (tileZ & 0xffffffffL));
+    }
+
+    /**
+     * Gets the biome id at the specified block position.
+     *
+     * @param x The x coordinate
+     * @param z The z coordinate
+     * @return The biome id
+     */
+    int getBiomeId(int x, int z) {
+        byte[] tile = getTile(x >> TILE_SHIFT, z >> TILE_SHIFT);
+        return tile[(x & TILE_MASK) | (z & TILE_MASK) << TILE_SHIFT] & 0xff;
+    }
+
+    /**
+     * Copies the biome ids of the specified area into an array, row by row
+     * along the x axis.
+     *
+     * @param biomes The array to copy into, or null to create a new one
+     * @param x The x coordinate of the start of the area
+     * @param z The z coordinate of the start of the area
+     * @param xSize The size of the area along the x axis
+     * @param zSize The size of the area along the z axis
+     * @return The array containing the biome ids
+     */
+    byte[] getBiomeIds(byte[] biomes, int x, int z, int xSize, int zSize) {
+        if (biomes == null || biomes.length < xSize * zSize) {
+            biomes = new byte[xSize * zSize];
+        }
+
+        int xEnd = x + xSize;
+        int zEnd = z + zSize;
+        for (int tileZ = z >> TILE_SHIFT; tileZ <= (zEnd - 1) >> TILE_SHIFT; tileZ++) {
+            int zMin = Math.max(z, tileZ << TILE_SHIFT);
+            int zMax = Math.min(zEnd, (tileZ + 1) << TILE_SHIFT);
+            for (int tileX = x >> TILE_SHIFT; tileX <= (xEnd - 1) >> TILE_SHIFT; tileX++) {
+                int xMin = Math.max(x, tileX << TILE_SHIFT);
+                int length = Math.min(xEnd, (tileX + 1) << TILE_SHIFT) - xMin;
+                byte[] tile = getTile(tileX, tileZ);
+                for (int row = zMin; row < zMax; row++) {
+                    System.arraycopy(tile, (xMin & TILE_MASK) | (row & TILE_MASK) << TILE_SHIFT, biomes, (row - z) * xSize + xMin - x, length);
+                }
+            }
+        }
+        return biomes;
+    }
+
+}
@@ -0,0 +1,474 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.world.gen;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.flowpowered.math.vector.Vector2i;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.minecraft.block.material.Material;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.ChunkCoordIntPair;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.biome.BiomeGenBase;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkPrimer;
+import net.minecraft.world.chunk.storage.AnvilChunkLoader;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import net.minecraft.world.gen.ChunkProviderServer;
+import org.spongepowered.api.util.gen.BiomeBuffer;
+import org.spongepowered.api.world.gen.GeneratorPopulator;
+import org.spongepowered.common.Sponge;
+import org.spongepowered.common.interfaces.IMixinWorld;
+import org.spongepowered.common.service.scheduler.SyncScheduler;
+import org.spongepowered.common.util.gen.ChunkPrimerBuffer;
+import org.spongepowered.common.util.gen.ObjectArrayMutableBiomeBuffer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nullable;
+
+/**
+ * Generates chunks of a world in stages, running the
+ * {@link GeneratorPopulator}s off the main thread where possible.
+ *
+ * <p>The biomes and the base terrain are generated by the chunk provider of
+ * the world on the main thread, as the vanilla generators are not
+ * thread-safe. The generator populators are then run over a detached
+ * {@link ChunkPrimerBuffer}: {@link ThreadSafeGeneratorPopulator}s on a
+ * shared worker pool, so they run concurrently across chunks, and all other
+ * generator populators on the main thread. Finished chunks are committed to
+ * the world on the main thread.</p>
+ *
+ * <p>The main thread stages are run as tasks of the synchronous scheduler,
+ * so they count against its tick budget and are deferred to the next tick
+ * like any other task once the budget is used up. The pipeline is used to
+ * pregenerate areas of a world in the background, which must not take time
+ * away from the ticks of the server; {@link #pregenerate} only keeps a few
+ * chunks pending at a time for the same reason.</p>
+ *
+ * <p>Chunks generated the regular way, when the server requests a chunk
+ * which does not exist yet, are not affected by this pipeline.</p>
+ */
+public final class ChunkGenerationPipeline {
+
+    private static final int WORKER_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    // Enough chunks to keep all workers busy while others wait for the main thread
+    private static final int MAX_PREGENERATION_PENDING = WORKER_COUNT * 2;
+
+    private static final ExecutorService workers = Executors.newFixedThreadPool(WORKER_COUNT,
+            new ThreadFactoryBuilder().setNameFormat("Sponge Chunk Generator #%d").setDaemon(true).build());
+
+    private static final Executor mainThread = new Executor() {
+
+        @Override
+        public void execute(Runnable command) {
+            SyncScheduler.getInstance().runTask(Sponge.getPlugin(), command);
+        }
+    };
+
+    private final WorldServer world;
+    // Only accessed from the main thread
+    private final Map<Long, SettableFuture<Chunk>> pending = new HashMap<Long, SettableFuture<Chunk>>();
+    private boolean capturing;
+    @Nullable private ChunkPrimer capturedPrimer;
+    @Nullable private Pregeneration pregeneration;
+
+    public ChunkGenerationPipeline(WorldServer world) {
+        this.world = checkNotNull(world, "world");
+    }
+
+    /**
+     * Gets the number of chunks which are currently being generated.
+     *
+     * @return The number of pending chunks
+     */
+    public int getPendingCount() {
+        return this.pending.size();
+    }
+
+    /**
+     * Generates the specified chunk and loads it into the world, unless it
+     * is already loaded or has been saved before. Must be called from the
+     * main thread.
+     *
+     * @param chunkX The x coordinate of the chunk
+     * @param chunkZ The z coordinate of the chunk
+     * @return The chunk, once it has been loaded into the world
+     */
+    public ListenableFuture<Chunk> generateChunk(int chunkX, int chunkZ) {
+        checkState(MinecraftServer.getServer().isCallingFromMinecraftThread(), "Chunks must be generated from the main thread");
+        ChunkProviderServer provider = this.world.theChunkProviderServer;
+        if (provider.chunkExists(chunkX, chunkZ) || isSaved(provider, chunkX, chunkZ)) {
+            return Futures.immediateFuture(provider.loadChunk(chunkX, chunkZ));
+        }
+        long key = ChunkCoordIntPair.chunkXZ2Int(chunkX, chunkZ);
+        SettableFuture<Chunk> future = this.pending.get(key);
+        if (future != null) {
+            return future;
+        }
+
+        // Biomes and base terrain, the generator populators are deferred
+        // by capturing the primer of the chunk
+        Chunk chunk;
+        ChunkPrimer primer;
+        this.capturing = true;
+        try {
+            chunk = provider.serverChunkGenerator.provideChunk(chunkX, chunkZ);
+        } finally {
+            this.capturing = false;
+            primer = this.capturedPrimer;
+            this.capturedPrimer = null;
+        }
+
+        List<GeneratorPopulator> populators = ((IMixinWorld) this.world).getGeneratorPopulators();
+        if (primer == null || populators.isEmpty()) {
+            return Futures.immediateFuture(commit(chunk, null));
+        }
+
+        BiomeGenBase[] biomeArray = this.world.getWorldChunkManager().getBiomeGenAt(null, chunkX * 16, chunkZ * 16, 16, 16, true);
+        BiomeBuffer biomes = new ObjectArrayMutableBiomeBuffer(biomeArray, new Vector2i(chunkX * 16, chunkZ * 16), new Vector2i(16, 16));
+        future = SettableFuture.create();
+        this.pending.put(key, future);
+        new Generation(key, chunk, primer, biomes, populators, future).dispatch(true);
+        return future;
+    }
+
+    /**
+     * Generates all chunks in the square of the specified radius around the
+     * specified chunk, starting at the center. Chunks which were not loaded
+     * before and are not watched by any player are unloaded again once they
+     * are generated. Must be called from the main thread.
+     *
+     * @param centerX The x coordinate of the center chunk
+     * @param centerZ The z coordinate of the center chunk
+     * @param radius The radius in chunks
+     * @return The pregeneration
+     * @throws IllegalStateException If the world is already being
+     *     pregenerated
+     */
+    public Pregeneration pregenerate(int centerX, int centerZ, int radius) {
+        checkState(MinecraftServer.getServer().isCallingFromMinecraftThread(), "Chunks must be generated from the main thread");
+        checkArgument(radius >= 0, "radius");
+        checkState(this.pregeneration == null, "The world is already being pregenerated");
+        Pregeneration pregeneration = new Pregeneration(centerX, centerZ, radius);
+        this.pregeneration = pregeneration;
+        pregeneration.fill();
+        return pregeneration;
+    }
+
+    /**
+     * Gets the pregeneration in progress.
+     *
+     * @return The pregeneration, or null if the world is not being
+     *     pregenerated
+     */
+    @Nullable
+    public Pregeneration getPregeneration() {
+        return this.pregeneration;
+    }
+
+    /**
+     * Called by newly generated chunks before their generator populators
+     * are run.
+     *
+     * @param primer The primer the chunk was created from
+     * @return True if the generator populators are deferred to this
+     *     pipeline and must not be run by the chunk
+     */
+    public boolean capture(ChunkPrimer primer) {
+        if (!this.capturing || this.capturedPrimer != null) {
+            return false;
+        }
+        this.capturedPrimer = primer;
+        return true;
+    }
+
+    private static boolean isSaved(ChunkProviderServer provider, int chunkX, int chunkZ) {
+        return provider.chunkLoader instanceof AnvilChunkLoader
+                && ((AnvilChunkLoader) provider.chunkLoader).chunkExists(provider.worldObj, chunkX, chunkZ);
+    }
+
+    private Chunk commit(Chunk chunk, @Nullable ChunkPrimer primer) {
+        ChunkProviderServer provider = this.world.theChunkProviderServer;
+        int chunkX = chunk.xPosition;
+        int chunkZ = chunk.zPosition;
+        if (provider.chunkExists(chunkX, chunkZ) || isSaved(provider, chunkX, chunkZ)) {
+            // The server needed the chunk in the meantime and generated it itself
+            return provider.loadChunk(chunkX, chunkZ);
+        }
+
+        if (primer != null) {
+            copyBlocks(chunk, primer);
+        }
+        chunk.generateSkylightMap();
+        // Same as ChunkProviderServer#loadChunk
+        provider.id2ChunkMap.add(ChunkCoordIntPair.chunkXZ2Int(chunkX, chunkZ), chunk);
+        provider.loadedChunks.add(chunk);
+        chunk.onChunkLoad();
+        chunk.populateChunk(provider, provider, chunkX, chunkZ);
+        return chunk;
+    }
+
+    /**
+     * Replaces the blocks of the chunk with the blocks of the primer, like
+     * the constructor of the chunk does.
+     */
+    private void copyBlocks(Chunk chunk, ChunkPrimer primer) {
+        boolean storeSkyLight = !this.world.provider.getHasNoSky();
+        ExtendedBlockStorage[] sections = chunk.getBlockStorageArray();
+        Arrays.fill(sections, null);
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                for (int y = 0; y < 256; y++) {
+                    IBlockState state = primer.getBlockState(x << 12 | z << 8 | y);
+                    if (state.getBlock().getMaterial() != Material.air) {
+                        int ySectionId = y >> 4;
+                        if (sections[ySectionId] == null) {
+                            sections[ySectionId] = new ExtendedBlockStorage(ySectionId << 4, storeSkyLight);
+                        }
+                        sections[ySectionId].set(x, y & 0xf, z, state);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isThreadSafe(GeneratorPopulator populator) {
+        return populator instanceof ThreadSafeGeneratorPopulator;
+    }
+
+    /**
+     * The generator populator stage of a single chunk. Consecutive
+     * populators which can run on the same thread are run in one go.
+     */
+    private final class Generation implements Runnable {
+
+        private final long key;
+        private final Chunk chunk;
+        private final ChunkPrimer primer;
+        private final ChunkPrimerBuffer blocks;
+        private final BiomeBuffer biomes;
+        private final List<GeneratorPopulator> populators;
+        private final SettableFuture<Chunk> future;
+        private int index;
+
+        Generation(long key, Chunk chunk, ChunkPrimer primer, BiomeBuffer biomes, List<GeneratorPopulator> populators,
+                SettableFuture<Chunk> future) {
+            this.key = key;
+            this.chunk = chunk;
+            this.primer = primer;
+            this.blocks = new ChunkPrimerBuffer(primer, chunk.xPosition, chunk.zPosition);
+            this.biomes = biomes;
+            this.populators = populators;
+            this.future = future;
+        }
+
+        void dispatch(boolean onMainThread) {
+            if (this.index >= this.populators.size()) {
+                if (onMainThread) {
+                    complete();
+                } else {
+                    mainThread.execute(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            complete();
+                        }
+                    });
+                }
+            } else if (isThreadSafe(this.populators.get(this.index))) {
+                workers.execute(this);
+            } else if (onMainThread) {
+                run();
+            } else {
+                mainThread.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            boolean threadSafe = isThreadSafe(this.populators.get(this.index));
+            try {
+                do {
+                    this.populators.get(this.index++).populate((org.spongepowered.api.world.World) ChunkGenerationPipeline.this.world,
+                            this.blocks, this.biomes);
+                } while (this.index < this.populators.size() && isThreadSafe(this.populators.get(this.index)) == threadSafe);
+            } catch (final Throwable t) {
+                Sponge.getLogger().error("Failed to run the generator populators for chunk ({}, {})", this.chunk.xPosition, this.chunk.zPosition, t);
+                mainThread.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        ChunkGenerationPipeline.this.pending.remove(Generation.this.key);
+                        Generation.this.future.setException(t);
+                    }
+                });
+                return;
+            }
+            dispatch(!threadSafe);
+        }
+
+        void complete() {
+            ChunkGenerationPipeline.this.pending.remove(this.key);
+            try {
+                this.future.set(commit(this.chunk, this.primer));
+            } catch (RuntimeException e) {
+                Sponge.getLogger().error("Failed to load generated chunk ({}, {})", this.chunk.xPosition, this.chunk.zPosition, e);
+                this.future.setException(e);
+            }
+        }
+    }
+
+    /**
+     * The pregeneration of a square area of chunks, which walks the rings
+     * around the center chunk from the inside out.
+     */
+    public final class Pregeneration {
+
+        private final int centerX;
+        private final int centerZ;
+        private final int radius;
+        private final SettableFuture<Integer> future = SettableFuture.create();
+        private int ring;
+        private int index;
+        private int pendingCount;
+        private int processed;
+        private boolean cancelled;
+
+        Pregeneration(int centerX, int centerZ, int radius) {
+            this.centerX = centerX;
+            this.centerZ = centerZ;
+            this.radius = radius;
+        }
+
+        public int getProcessed() {
+            return this.processed;
+        }
+
+        public int getTotal() {
+            return (2 * this.radius + 1) * (2 * this.radius + 1);
+        }
+
+        /**
+         * Gets a future completing with the number of processed chunks once
+         * the pregeneration has finished or was cancelled.
+         *
+         * @return The future
+         */
+        public ListenableFuture<Integer> getFuture() {
+            return this.future;
+        }
+
+        /**
+         * Stops generating further chunks. The chunks which are already
+         * being generated are still completed.
+         */
+        public void cancel() {
+            this.cancelled = true;
+            finishIfDone();
+        }
+
+        void fill() {
+            while (!this.cancelled && this.ring <= this.radius && this.pendingCount < MAX_PREGENERATION_PENDING) {
+                int chunkX;
+                int chunkZ;
+                if (this.ring == 0) {
+                    chunkX = this.centerX;
+                    chunkZ = this.centerZ;
+                } else {
+                    int side = this.index / (2 * this.ring);
+                    int offset = this.index % (2 * this.ring);
+                    chunkX = this.centerX + (side == 0 ? offset - this.ring : side == 1 ? this.ring : side == 2 ? this.ring - offset : -this.ring);
+                    chunkZ = this.centerZ + (side == 0 ? -this.ring : side == 1 ? offset - this.ring : side == 2 ? this.ring : this.ring - offset);
+                }
+                if (++this.index >= Math.max(1, 8 * this.ring)) {
+                    this.ring++;
+                    this.index = 0;
+                }
+
+                final boolean wasLoaded = ChunkGenerationPipeline.this.world.theChunkProviderServer.chunkExists(chunkX, chunkZ);
+                ListenableFuture<Chunk> future;
+                try {
+                    future = generateChunk(chunkX, chunkZ);
+                } catch (RuntimeException e) {
+                    Sponge.getLogger().error("Failed to generate chunk ({}, {})", chunkX, chunkZ, e);
+                    future = Futures.immediateFailedFuture(e);
+                }
+                final ListenableFuture<Chunk> chunk = future;
+                this.pendingCount++;
+                if (chunk.isDone()) {
+                    // Chunks are only completed on the main thread, so this
+                    // can't race with the listener below
+                    onGenerated(chunk, wasLoaded);
+                } else {
+                    chunk.addListener(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            onGenerated(chunk, wasLoaded);
+                            fill();
+                        }
+                    }, MoreExecutors.sameThreadExecutor());
+                }
+            }
+            finishIfDone();
+        }
+
+        private void onGenerated(ListenableFuture<Chunk> future, boolean wasLoaded) {
+            this.pendingCount--;
+            this.processed++;
+            try {
+                Chunk chunk = Futures.getUnchecked(future);
+                if (!wasLoaded && !ChunkGenerationPipeline.this.world.getPlayerManager().hasPlayerInstance(chunk.xPosition, chunk.zPosition)) {
+                    ChunkGenerationPipeline.this.world.theChunkProviderServer.dropChunk(chunk.xPosition, chunk.zPosition);
+                }
+            } catch (RuntimeException e) {
+                // Already logged when the chunk failed, continue with the next chunks
+            }
+        }
+
+        private void finishIfDone() {
+            if (this.pendingCount == 0 && (this.cancelled || this.ring > this.radius) && !this.future.isDone()) {
+                ChunkGenerationPipeline.this.pregeneration = null;
+                this.future.set(this.processed);
+            }
+        }
+    }
+
+}
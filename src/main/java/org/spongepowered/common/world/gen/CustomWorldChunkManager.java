@@ -24,18 +24,13 @@
  */
 package org.spongepowered.common.world.gen;
 
-import com.flowpowered.math.vector.Vector2i;
 import com.google.common.base.Preconditions;
 import net.minecraft.util.BlockPos;
 import net.minecraft.world.biome.BiomeGenBase;
 import net.minecraft.world.biome.WorldChunkManager;
 import net.minecraft.world.gen.layer.IntCache;
-import org.spongepowered.api.util.gen.MutableBiomeBuffer;
 import org.spongepowered.api.world.gen.BiomeGenerator;
-import org.spongepowered.common.util.gen.ByteArrayMutableBiomeBuffer;
-import org.spongepowered.common.util.gen.ObjectArrayMutableBiomeBuffer;
 
-import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
@@ -49,10 +44,14 @@
  */
 public final class CustomWorldChunkManager extends WorldChunkManager {
 
-    private static final Vector2i CACHED_AREA_SIZE = new Vector2i(40, 40);
+    /**
+     * The number of cached biome tiles, 1024 tiles of 64x64 blocks take up
+     * 4 MB.
+     */
+    private static final int CACHED_TILES = 1024;
 
-    private final ByteArrayMutableBiomeBuffer areaForGeneration = new ByteArrayMutableBiomeBuffer(Vector2i.ZERO, CACHED_AREA_SIZE);
     final BiomeGenerator biomeGenerator;
+    private final BiomeTileCache biomeCache;
 
     /**
      * Gets a world chunk manager based on the given biome generator.
@@ -71,6 +70,7 @@ public static WorldChunkManager of(BiomeGenerator biomeGenerator) {
 
     private CustomWorldChunkManager(BiomeGenerator biomeGenerator) {
         this.biomeGenerator = Preconditions.checkNotNull(biomeGenerator);
+        this.biomeCache = new BiomeTileCache(biomeGenerator, CACHED_TILES);
 
         if (this.biomeGenerator instanceof SpongeBiomeGenerator) {
             throw new AssertionError(getClass() + " can only wrap custom biome generators, "
@@ -102,47 +102,29 @@ public BiomeGenBase[] getBiomesForGeneration(BiomeGenBase[] biomeArrayZoomedOut,
             biomeArrayZoomedOut = new BiomeGenBase[xSize * zSize];
         }
 
-        // Transform to normal scale
-        int xStartBlock = xStart * 4;
-        int zStartBlock = zStart * 4;
-        int xSizeBlock = xSize * 4;
-        int zSizeBlock = zSize * 4;
-
         // Get biomes
-        ByteArrayMutableBiomeBuffer buffer = getBiomeBuffer(xStartBlock, zStartBlock, xSizeBlock, zSizeBlock);
-        this.biomeGenerator.generateBiomes(buffer);
+        int xSizeBlock = xSize * 4;
+        byte[] biomesForBlocks = this.biomeCache.getBiomeIds(null, xStart * 4, zStart * 4, xSizeBlock, zSize * 4);
 
         // Downscale
-        byte[] biomesForBlocks = buffer.detach();
         BiomeGenBase[] biomeById = BiomeGenBase.getBiomeGenArray();
-        for (int i = 0; i < biomeArrayZoomedOut.length; i++) {
-            BiomeGenBase biome = biomeById[biomesForBlocks[i * 4] & 0xff];
-            biomeArrayZoomedOut[i] = (biome == null ? BiomeGenBase.ocean : biome);
+        for (int i = 0; i < xSize; i++) {
+            for (int j = 0; j < zSize; j++) {
+                BiomeGenBase biome = biomeById[biomesForBlocks[j * 4 * xSizeBlock + i * 4] & 0xff];
+                biomeArrayZoomedOut[i + j * xSize] = (biome == null ? BiomeGenBase.ocean : biome);
+            }
         }
 
         return biomeArrayZoomedOut;
     }
 
-    private ByteArrayMutableBiomeBuffer getBiomeBuffer(int xStart, int zStart, int xSize, int zSize) {
-        if (xSize == CACHED_AREA_SIZE.getX()
-                && zSize == CACHED_AREA_SIZE.getY()
-                && this.areaForGeneration.isDetached()) {
-            this.areaForGeneration.reuse(new Vector2i(xStart, zStart));
-            return this.areaForGeneration;
-        } else {
-            return new ByteArrayMutableBiomeBuffer(new Vector2i(xStart, zStart), new Vector2i(xSize, zSize));
-        }
-    }
-
     @Override
     public float[] getRainfall(float[] rainfallArray, int x, int z, int xSize, int zSize) {
         if (rainfallArray == null || rainfallArray.length < xSize * zSize) {
             rainfallArray = new float[xSize * zSize];
         }
 
-        ByteArrayMutableBiomeBuffer buffer = getBiomeBuffer(x, z, xSize, zSize);
-        this.biomeGenerator.generateBiomes(buffer);
-        byte[] biomes = buffer.detach();
+        byte[] biomes = this.biomeCache.getBiomeIds(null, x, z, xSize, zSize);
         BiomeGenBase[] biomeById = BiomeGenBase.getBiomeGenArray();
 
         for (int i = 0; i < xSize * zSize; i++) {
@@ -169,19 +151,18 @@ public BlockPos findBiomePosition(int xCenter, int zCenter, int range, @Suppress
         int xSizeSegments = xMaxSegment - xStartSegment + 1;
         int zSizeSegments = zMaxSegment - zStartSegment + 1;
 
-        ByteArrayMutableBiomeBuffer buffer = getBiomeBuffer(xStartSegment << 2, zStartSegment << 2, xSizeSegments << 2, zSizeSegments << 2);
-        this.biomeGenerator.generateBiomes(buffer);
-        byte[] biomes = buffer.detach();
+        int xSizeBlocks = (xSizeSegments - 1 << 2) + 1;
+        byte[] biomes = this.biomeCache.getBiomeIds(null, xStartSegment << 2, zStartSegment << 2, xSizeBlocks, (zSizeSegments - 1 << 2) + 1);
 
         BlockPos blockpos = null;
         int foundPositions = 0;
 
         for (int i = 0; i < xSizeSegments * zSizeSegments; ++i) {
-            BiomeGenBase foundBiome = BiomeGenBase.getBiome(biomes[i << 2] & 0xff);
+            int x = xStartSegment + i % xSizeSegments << 2;
+            int z = zStartSegment + i / xSizeSegments << 2;
+            BiomeGenBase foundBiome = BiomeGenBase.getBiome(biomes[(i / xSizeSegments << 2) * xSizeBlocks + (i % xSizeSegments << 2)] & 0xff);
 
             if (searchingFor.contains(foundBiome) && (blockpos == null || random.nextInt(foundPositions + 1) == 0)) {
-                int x = xStartSegment + i % xSizeSegments << 2;
-                int z = zStartSegment + i / xSizeSegments << 2;
                 blockpos = new BlockPos(x, 0, z);
                 foundPositions++;
             }
@@ -200,12 +181,11 @@ public boolean areBiomesViable(int xCenter, int zCenter, int range, @SuppressWar
         int xSizeSegments = xMaxSegment - xStartSegment + 1;
         int zSizeSegments = zMaxSegment - zStartSegment + 1;
 
-        ByteArrayMutableBiomeBuffer buffer = getBiomeBuffer(xStartSegment << 2, zStartSegment << 2, xSizeSegments << 2, zSizeSegments << 2);
-        this.biomeGenerator.generateBiomes(buffer);
-        byte[] biomes = buffer.detach();
+        int xSizeBlocks = (xSizeSegments - 1 << 2) + 1;
+        byte[] biomes = this.biomeCache.getBiomeIds(null, xStartSegment << 2, zStartSegment << 2, xSizeBlocks, (zSizeSegments - 1 << 2) + 1);
 
         for (int i = 0; i < xSizeSegments * zSizeSegments; ++i) {
-            BiomeGenBase biomegenbase = BiomeGenBase.getBiome(biomes[i << 2] & 0xff);
+            BiomeGenBase biomegenbase = BiomeGenBase.getBiome(biomes[(i / xSizeSegments << 2) * xSizeBlocks + (i % xSizeSegments << 2)] & 0xff);
 
             if (!searchingForBiomes.contains(biomegenbase)) {
                 return false;
@@ -219,16 +199,14 @@ public boolean areBiomesViable(int xCenter, int zCenter, int range, @SuppressWar
     public BiomeGenBase[] loadBlockGeneratorData(BiomeGenBase[] biomeArray, int startX, int startZ, int sizeX, int sizeZ) {
         if (biomeArray == null || biomeArray.length < sizeX * sizeZ) {
             biomeArray = new BiomeGenBase[sizeX * sizeZ];
-        } else {
-            // Biome generators don't have to set every position. If we set
-            // all positions to ocean first, every position not set will be
-            // ocean, and not some random biome from the last time this array
-            // was used
-            Arrays.fill(biomeArray, BiomeGenBase.ocean);
         }
 
-        MutableBiomeBuffer biomeArea = new ObjectArrayMutableBiomeBuffer(biomeArray, new Vector2i(startX, startZ), new Vector2i(sizeX, sizeZ));
-        this.biomeGenerator.generateBiomes(biomeArea);
+        byte[] biomes = this.biomeCache.getBiomeIds(null, startX, startZ, sizeX, sizeZ);
+        BiomeGenBase[] biomeById = BiomeGenBase.getBiomeGenArray();
+        for (int i = 0; i < sizeX * sizeZ; i++) {
+            BiomeGenBase biome = biomeById[biomes[i] & 0xff];
+            biomeArray[i] = (biome == null ? BiomeGenBase.ocean : biome);
+        }
 
         return biomeArray;
     }
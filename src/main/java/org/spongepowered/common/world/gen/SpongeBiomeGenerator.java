@@ -31,6 +31,8 @@
 import org.spongepowered.api.util.gen.MutableBiomeBuffer;
 import org.spongepowered.api.world.biome.BiomeType;
 import org.spongepowered.api.world.gen.BiomeGenerator;
+import org.spongepowered.common.util.gen.ByteArrayMutableBiomeBuffer;
+import org.spongepowered.common.util.gen.ObjectArrayMutableBiomeBuffer;
 
 /**
  * Simple wrapper for {@link WorldChunkManager} that implements
@@ -65,9 +67,15 @@ public void generateBiomes(MutableBiomeBuffer buffer) {
 
         BiomeGenBase[] biomes = this.worldChunkManager.getBiomeGenAt(null, xStart, zStart, xSize, zSize, true);
 
-        for (int i = 0; i < xSize; i++) {
+        if (buffer instanceof ObjectArrayMutableBiomeBuffer) {
+            ((ObjectArrayMutableBiomeBuffer) buffer).setBiomes(biomes, xStart, zStart, xSize, zSize);
+        } else if (buffer instanceof ByteArrayMutableBiomeBuffer) {
+            ((ByteArrayMutableBiomeBuffer) buffer).setBiomes(biomes, xStart, zStart, xSize, zSize);
+        } else {
             for (int j = 0; j < zSize; j++) {
-                buffer.setBiome(xStart + i, zStart + j, (BiomeType) biomes[i | j << 4]);
+                for (int i = 0; i < xSize; i++) {
+                    buffer.setBiome(xStart + i, zStart + j, (BiomeType) biomes[i + j * xSize]);
+                }
             }
         }
     }
@@ -0,0 +1,67 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common;
+
+import com.google.common.base.Throwables;
+import org.mockito.Mockito;
+import org.slf4j.LoggerFactory;
+import org.spongepowered.api.plugin.PluginContainer;
+
+import java.lang.reflect.Field;
+
+/**
+ * Installs a {@link Sponge} instance for tests of code that logs through
+ * {@link Sponge#getLogger()} or schedules tasks for {@link Sponge#getPlugin()},
+ * without bootstrapping the game.
+ */
+public final class TestSponge {
+
+    private TestSponge() {
+    }
+
+    public static synchronized void init() {
+        try {
+            Field instance = Sponge.class.getDeclaredField("instance");
+            instance.setAccessible(true);
+            if (instance.get(null) != null) {
+                return;
+            }
+
+            Sponge sponge = Mockito.mock(Sponge.class);
+            set(sponge, "logger", LoggerFactory.getLogger("Sponge"));
+            set(sponge, "plugin", Mockito.mock(PluginContainer.class));
+            instance.set(null, sponge);
+        } catch (Exception e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    private static void set(Sponge sponge, String name, Object value) throws Exception {
+        Field field = Sponge.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(sponge, value);
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+public class SpongeConfigTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<SpongeConfig<?>> reloaded = Lists.newArrayList();
+    private final SpongeConfig.ReloadListener listener = new SpongeConfig.ReloadListener() {
+
+        @Override
+        public void onReload(SpongeConfig<?> config) {
+            SpongeConfigTest.this.reloaded.add(config);
+        }
+    };
+
+    private File file;
+    private SpongeConfig<SpongeConfig.GlobalConfig> config;
+
+    @Before
+    public void init() throws IOException {
+        SpongeConfig.addReloadListener(this.listener);
+        this.file = new File(this.folder.newFolder("sponge"), "global.conf");
+        this.config = new SpongeConfig<SpongeConfig.GlobalConfig>(SpongeConfig.Type.GLOBAL, this.file, "sponge", false);
+    }
+
+    @After
+    public void removeListener() {
+        SpongeConfig.removeReloadListener(this.listener);
+    }
+
+    private void disableActivationRange(long modified) throws IOException {
+        Files.write("sponge {\n    modules {\n        entity-activation-range=false\n    }\n}\n", this.file, Charsets.UTF_8);
+        assertTrue(this.file.setLastModified(modified));
+    }
+
+    private boolean isActivationRangeEnabled() {
+        return this.config.getConfig().getModules().usePluginEntityActivation();
+    }
+
+    @Test
+    public void testInitialLoad() {
+        assertEquals("GLOBAL", this.config.getConfigName());
+        assertTrue(isActivationRangeEnabled());
+        assertTrue(this.reloaded.isEmpty());
+    }
+
+    @Test
+    public void testReload() throws IOException {
+        SpongeConfig.GlobalConfig previous = this.config.getConfig();
+        disableActivationRange(this.file.lastModified() + 10000);
+
+        this.config.reload();
+        assertFalse(isActivationRangeEnabled());
+        assertNotSame(previous, this.config.getConfig());
+        assertTrue(previous.getModules().usePluginEntityActivation());
+        assertEquals(1, this.reloaded.size());
+        assertSame(this.config, this.reloaded.get(0));
+    }
+
+    @Test
+    public void testFailingListenerDoesNotStopReload() throws IOException {
+        SpongeConfig.ReloadListener failing = new SpongeConfig.ReloadListener() {
+
+            @Override
+            public void onReload(SpongeConfig<?> config) {
+                throw new IllegalStateException("Listener failure");
+            }
+        };
+        SpongeConfig.removeReloadListener(this.listener);
+        SpongeConfig.addReloadListener(failing);
+        SpongeConfig.addReloadListener(this.listener);
+        try {
+            disableActivationRange(this.file.lastModified() + 10000);
+            this.config.reload();
+            assertFalse(isActivationRangeEnabled());
+            assertEquals(1, this.reloaded.size());
+        } finally {
+            SpongeConfig.removeReloadListener(failing);
+        }
+    }
+
+    @Test
+    public void testReloadIfModifiedWaitsForFileToSettle() throws IOException {
+        long modified = this.file.lastModified();
+        this.config.reloadIfModified();
+        assertTrue(this.reloaded.isEmpty());
+
+        disableActivationRange(modified + 10000);
+        this.config.reloadIfModified();
+        assertTrue(this.reloaded.isEmpty());
+        assertTrue(isActivationRangeEnabled());
+
+        // Still being written
+        assertTrue(this.file.setLastModified(modified + 20000));
+        this.config.reloadIfModified();
+        assertTrue(this.reloaded.isEmpty());
+
+        this.config.reloadIfModified();
+        assertEquals(1, this.reloaded.size());
+        assertFalse(isActivationRangeEnabled());
+
+        this.config.reloadIfModified();
+        this.config.reloadIfModified();
+        assertEquals(1, this.reloaded.size());
+    }
+
+    @Test
+    public void testSaveDoesNotTriggerReload() {
+        this.config.getConfig().getModules().setPluginEntityActivation(false);
+        this.config.save();
+
+        this.config.reloadIfModified();
+        this.config.reloadIfModified();
+        assertTrue(this.reloaded.isEmpty());
+
+        this.config.reload();
+        assertFalse(isActivationRangeEnabled());
+    }
+
+}
@@ -0,0 +1,303 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.entity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.BlockPos;
+import net.minecraft.world.World;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.spongepowered.api.world.Location;
+import org.spongepowered.common.interfaces.IMixinEntity;
+
+import java.util.Collections;
+import java.util.List;
+
+public class EntityActivationRangeTest {
+
+    private final List<EntityPlayer> players = Lists.newArrayList();
+    private final List<Entity> entities = Lists.newArrayList();
+    private EntityActivationRange activationRange;
+
+    @Before
+    public void init() {
+        this.activationRange = new EntityActivationRange(Mockito.mock(World.class));
+        this.activationRange.configure(true, 16, 32, 32, 32, 32);
+    }
+
+    private EntityPlayer player(double x, double z) {
+        EntityPlayer player = Mockito.mock(EntityPlayer.class);
+        player.posX = x;
+        player.posZ = z;
+        this.players.add(player);
+        return player;
+    }
+
+    private FakeEntity entity(byte activationType, double x, double z) {
+        FakeEntity entity = new FakeEntity(activationType, x, z);
+        this.entities.add(entity);
+        return entity;
+    }
+
+    private void tick(int tick) {
+        this.activationRange.activateEntities(this.players, this.entities, tick);
+    }
+
+    @Test
+    public void testPlayerInRange() {
+        player(0, 0);
+        FakeEntity near = entity(EntityActivationRange.ACTIVATION_TYPE_MISC, 10, 10);
+        FakeEntity otherChunk = entity(EntityActivationRange.ACTIVATION_TYPE_MISC, -12, 3);
+        FakeEntity far = entity(EntityActivationRange.ACTIVATION_TYPE_MISC, 40, 0);
+        FakeEntity diagonal = entity(EntityActivationRange.ACTIVATION_TYPE_MISC, 12, -20);
+
+        tick(100);
+        assertEquals(100, near.getActivatedTick());
+        assertEquals(100, otherChunk.getActivatedTick());
+        assertEquals(0, far.getActivatedTick());
+        assertEquals(0, diagonal.getActivatedTick());
+
+        assertTrue(this.activationRange.checkIfActive(near, 100));
+        assertTrue(this.activationRange.checkIfActive(otherChunk, 100));
+        assertFalse(this.activationRange.checkIfActive(far, 100));
+        assertFalse(this.activationRange.checkIfActive(diagonal, 100));
+    }
+
+    @Test
+    public void testRangePerActivationType() {
+        player(0, 0);
+        FakeEntity misc = entity(EntityActivationRange.ACTIVATION_TYPE_MISC, 30, 0);
+        FakeEntity monster = entity(EntityActivationRange.ACTIVATION_TYPE_MONSTER, 30, 0);
+        FakeEntity farMonster = entity(EntityActivationRange.ACTIVATION_TYPE_MONSTER, 0, -33);
+
+        tick(100);
+        assertFalse(this.activationRange.checkIfActive(misc, 100));
+        assertTrue(this.activationRange.checkIfActive(monster, 100));
+        assertFalse(this.activationRange.checkIfActive(farMonster, 100));
+
+        // A range of 0 disables the activation range for the type
+        this.activationRange.configure(true, 0, 32, 32, 32, 32);
+        assertTrue(this.activationRange.checkIfActive(misc, 101));
+    }
+
+    @Test
+    public void testPlayersAreIndexedEachTick() {
+        EntityPlayer player = player(0, 0);
+        player(1000, 1000);
+        player(1002, 1000);
+        FakeEntity entity = entity(EntityActivationRange.ACTIVATION_TYPE_MISC, 5, 5);
+        FakeEntity other = entity(EntityActivationRange.ACTIVATION_TYPE_MISC, 1010, 990);
+
+        tick(100);
+        assertEquals(100, entity.getActivatedTick());
+        assertEquals(100, other.getActivatedTick());
+
+        player.posX = 500;
+        tick(101);
+        assertEquals(100, entity.getActivatedTick());
+        assertEquals(101, other.getActivatedTick());
+
+        this.players.clear();
+        tick(102);
+        assertEquals(100, entity.getActivatedTick());
+        assertEquals(101, other.getActivatedTick());
+    }
+
+    @Test
+    public void testAlwaysActive() {
+        FakeEntity entity = entity(EntityActivationRange.ACTIVATION_TYPE_MISC, 0, 0);
+        FakeEntity defaultActive = entity(EntityActivationRange.ACTIVATION_TYPE_MISC, 0, 0);
+        defaultActive.defaultActivationState = true;
+
+        tick(100);
+        assertFalse(this.activationRange.checkIfActive(entity, 100));
+        assertTrue(this.activationRange.checkIfActive(defaultActive, 100));
+
+        entity.riddenByEntity = defaultActive;
+        assertTrue(this.activationRange.checkIfActive(entity, 100));
+        entity.riddenByEntity = null;
+
+        this.activationRange.configure(false, 16, 32, 32, 32, 32);
+        assertTrue(this.activationRange.checkIfActive(entity));
+    }
+
+    @Test
+    public void testFullTickOnceASecond() {
+        FakeEntity entity = entity(EntityActivationRange.ACTIVATION_TYPE_MISC, 0, 0);
+        entity.setActivatedTick(100);
+
+        assertTrue(this.activationRange.checkIfActive(entity, 100));
+        assertTrue(this.activationRange.checkIfActive(entity, 101));
+        for (int tick = 102; tick <= 120; tick++) {
+            assertFalse(this.activationRange.checkIfActive(entity, tick));
+        }
+        assertTrue(this.activationRange.checkIfActive(entity, 121));
+        assertEquals(100, entity.getActivatedTick());
+    }
+
+    @Test
+    public void testImmunityKeepsEntityAwake() {
+        FakeEntity entity = entity(EntityActivationRange.ACTIVATION_TYPE_MISC, 0, 0);
+        entity.setActivatedTick(100);
+        entity.onGround = false;
+
+        assertTrue(this.activationRange.checkIfActive(entity, 101));
+        assertEquals(121, entity.getActivatedTick());
+        for (int tick = 102; tick <= 121; tick++) {
+            assertTrue(this.activationRange.checkIfActive(entity, tick));
+        }
+
+        entity.onGround = true;
+        assertTrue(this.activationRange.checkIfActive(entity, 122));
+        assertFalse(this.activationRange.checkIfActive(entity, 123));
+    }
+
+    @Test
+    public void testWokenChunk() {
+        FakeEntity entity = entity(EntityActivationRange.ACTIVATION_TYPE_MISC, 40, 0);
+        FakeEntity other = entity(EntityActivationRange.ACTIVATION_TYPE_MISC, 0, 40);
+        this.activationRange.wakeUpChunk(new BlockPos(35, 64, 10), 100);
+
+        tick(101);
+        assertEquals(101, entity.getActivatedTick());
+        assertEquals(0, other.getActivatedTick());
+
+        // The chunk stays awake for a second and is forgotten afterwards
+        tick(120);
+        assertEquals(120, entity.getActivatedTick());
+        tick(140);
+        assertEquals(120, entity.getActivatedTick());
+
+        this.activationRange.configure(false, 16, 32, 32, 32, 32);
+        this.activationRange.wakeUpChunk(new BlockPos(35, 64, 10), 150);
+        this.activationRange.configure(true, 16, 32, 32, 32, 32);
+        tick(151);
+        assertEquals(120, entity.getActivatedTick());
+    }
+
+    @Test
+    public void testNoPlayers() {
+        FakeEntity entity = entity(EntityActivationRange.ACTIVATION_TYPE_CREATURE, 0, 0);
+        this.activationRange.activateEntities(Collections.emptyList(), this.entities, 100);
+        assertFalse(this.activationRange.checkIfActive(entity, 100));
+    }
+
+    private static final class FakeEntity extends Entity implements IMixinEntity {
+
+        private final byte activationType;
+        boolean defaultActivationState;
+        private long activatedTick;
+
+        FakeEntity(byte activationType, double x, double z) {
+            super(null);
+            this.activationType = activationType;
+            this.posX = x;
+            this.posZ = z;
+            this.onGround = true;
+        }
+
+        @Override
+        protected void entityInit() {
+        }
+
+        @Override
+        protected void readEntityFromNBT(NBTTagCompound compound) {
+        }
+
+        @Override
+        protected void writeEntityToNBT(NBTTagCompound compound) {
+        }
+
+        @Override
+        public boolean isTeleporting() {
+            return false;
+        }
+
+        @Override
+        public void setIsTeleporting(boolean teleporting) {
+        }
+
+        @Override
+        public Entity getTeleportVehicle() {
+            return null;
+        }
+
+        @Override
+        public void setTeleportVehicle(Entity entity) {
+        }
+
+        @Override
+        public byte getActivationType() {
+            return this.activationType;
+        }
+
+        @Override
+        public long getActivatedTick() {
+            return this.activatedTick;
+        }
+
+        @Override
+        public boolean getDefaultActivationState() {
+            return this.defaultActivationState;
+        }
+
+        @Override
+        public void setActivatedTick(long tick) {
+            this.activatedTick = tick;
+        }
+
+        @Override
+        public void inactiveTick() {
+        }
+
+        @Override
+        public NBTTagCompound getSpongeData() {
+            return null;
+        }
+
+        @Override
+        public boolean teleportEntity(Entity entity, Location location, int currentDim, int targetDim, boolean forced) {
+            return false;
+        }
+
+        @Override
+        public void readFromNbt(NBTTagCompound compound) {
+        }
+
+        @Override
+        public void writeToNbt(NBTTagCompound compound) {
+        }
+
+    }
+
+}
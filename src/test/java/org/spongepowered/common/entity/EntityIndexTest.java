@@ -0,0 +1,217 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.entity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Sets;
+import net.minecraft.entity.Entity;
+import net.minecraft.nbt.NBTTagCompound;
+import org.junit.Test;
+
+import java.util.UUID;
+
+public class EntityIndexTest {
+
+    private final EntityIndex index = new EntityIndex(true);
+
+    @Test
+    public void testGetByUniqueId() {
+        FakeEntity entity = new FakeEntity(UUID.randomUUID());
+        this.index.add(entity);
+        assertSame(entity, this.index.get(entity.getUniqueID()));
+
+        this.index.remove(entity);
+        assertNull(this.index.get(entity.getUniqueID()));
+        assertTrue(this.index.getExact(FakeEntity.class).isEmpty());
+    }
+
+    @Test
+    public void testRemoveUsesRecordedUniqueId() {
+        UUID original = UUID.randomUUID();
+        UUID loaded = UUID.randomUUID();
+        FakeEntity entity = new FakeEntity(original);
+        this.index.add(entity);
+
+        // Like an entity reading its unique id from NBT after it was added
+        entity.setUniqueId(loaded);
+        this.index.remove(entity);
+        assertNull(this.index.get(original));
+        assertNull(this.index.get(loaded));
+    }
+
+    @Test
+    public void testReAddWithChangedUniqueId() {
+        UUID original = UUID.randomUUID();
+        UUID loaded = UUID.randomUUID();
+        FakeEntity entity = new FakeEntity(original);
+        this.index.add(entity);
+
+        entity.setUniqueId(loaded);
+        this.index.add(entity);
+        assertNull(this.index.get(original));
+        assertSame(entity, this.index.get(loaded));
+        assertEquals(1, this.index.getExact(FakeEntity.class).size());
+
+        this.index.remove(entity);
+        assertNull(this.index.get(loaded));
+    }
+
+    @Test
+    public void testDuplicateUniqueIds() {
+        UUID uniqueId = UUID.randomUUID();
+        FakeEntity first = new FakeEntity(uniqueId);
+        FakeEntity second = new FakeEntity(uniqueId);
+        this.index.add(first);
+        this.index.add(second);
+        assertSame(second, this.index.get(uniqueId));
+
+        // Removing the shadowed entity must not unindex the other one
+        this.index.remove(first);
+        assertSame(second, this.index.get(uniqueId));
+        assertEquals(Sets.<Entity>newHashSet(second), Sets.newHashSet(this.index.getExact(FakeEntity.class)));
+
+        this.index.remove(second);
+        assertNull(this.index.get(uniqueId));
+    }
+
+    @Test
+    public void testGetInstancesAcrossSubclasses() {
+        FakeEntity entity = new FakeEntity(UUID.randomUUID());
+        SubEntity sub = new SubEntity(UUID.randomUUID());
+        MarkedEntity marked = new MarkedEntity(UUID.randomUUID());
+        OtherEntity other = new OtherEntity(UUID.randomUUID());
+        this.index.add(entity);
+        this.index.add(sub);
+        this.index.add(marked);
+        this.index.add(other);
+
+        assertEquals(Sets.<Entity>newHashSet(entity), Sets.newHashSet(this.index.getExact(FakeEntity.class)));
+        assertEquals(Sets.newHashSet(entity, sub, marked), Sets.newHashSet(this.index.getInstances(FakeEntity.class)));
+        assertEquals(Sets.newHashSet(sub, marked), Sets.newHashSet(this.index.getInstances(SubEntity.class)));
+        assertEquals(Sets.<Marker>newHashSet(marked, other), Sets.newHashSet(this.index.getInstances(Marker.class)));
+        assertEquals(4, this.index.getInstances(Entity.class).size());
+        assertTrue(this.index.getInstances(String.class).isEmpty());
+
+        assertEquals(Sets.newHashSet(sub), Sets.newHashSet(this.index.getInstances(FakeEntity.class, new Predicate<FakeEntity>() {
+
+            @Override
+            public boolean apply(FakeEntity input) {
+                return input.getClass() == SubEntity.class;
+            }
+        })));
+
+        this.index.remove(sub);
+        assertEquals(Sets.newHashSet(entity, marked), Sets.newHashSet(this.index.getInstances(FakeEntity.class)));
+    }
+
+    @Test
+    public void testWithoutUniqueIds() {
+        EntityIndex index = new EntityIndex(false);
+        FakeEntity entity = new FakeEntity(UUID.randomUUID());
+        index.add(entity);
+        assertEquals(1, index.getInstances(FakeEntity.class).size());
+
+        try {
+            index.get(entity.getUniqueID());
+            fail("Looked up an entity by unique id without the index");
+        } catch (IllegalStateException expected) {
+        }
+
+        index.remove(entity);
+        assertTrue(index.getInstances(FakeEntity.class).isEmpty());
+    }
+
+    private interface Marker {
+    }
+
+    private static class FakeEntity extends Entity {
+
+        FakeEntity(UUID uniqueId) {
+            super(null);
+            setUniqueId(uniqueId);
+        }
+
+        void setUniqueId(UUID uniqueId) {
+            this.entityUniqueID = uniqueId;
+        }
+
+        @Override
+        protected void entityInit() {
+        }
+
+        @Override
+        protected void readEntityFromNBT(NBTTagCompound compound) {
+        }
+
+        @Override
+        protected void writeEntityToNBT(NBTTagCompound compound) {
+        }
+
+    }
+
+    private static class SubEntity extends FakeEntity {
+
+        SubEntity(UUID uniqueId) {
+            super(uniqueId);
+        }
+
+    }
+
+    private static final class MarkedEntity extends SubEntity implements Marker {
+
+        MarkedEntity(UUID uniqueId) {
+            super(uniqueId);
+        }
+
+    }
+
+    private static final class OtherEntity extends Entity implements Marker {
+
+        OtherEntity(UUID uniqueId) {
+            super(null);
+            this.entityUniqueID = uniqueId;
+        }
+
+        @Override
+        protected void entityInit() {
+        }
+
+        @Override
+        protected void readEntityFromNBT(NBTTagCompound compound) {
+        }
+
+        @Override
+        protected void writeEntityToNBT(NBTTagCompound compound) {
+        }
+
+    }
+
+}
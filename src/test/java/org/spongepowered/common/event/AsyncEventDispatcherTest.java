@@ -0,0 +1,124 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.spongepowered.api.event.Event;
+import org.spongepowered.api.event.EventHandler;
+import org.spongepowered.api.event.Order;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.common.TestSponge;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncEventDispatcherTest {
+
+    private final AsyncEventDispatcher dispatcher = new AsyncEventDispatcher(2);
+    private final PluginContainer plugin = Mockito.mock(PluginContainer.class);
+
+    @Before
+    public void initSponge() {
+        TestSponge.init();
+    }
+
+    private List<RegisteredHandler<?>> handler(EventHandler<Event> handler) {
+        return Collections.<RegisteredHandler<?>>singletonList(
+                new RegisteredHandler<Event>(this.plugin, Event.class, Order.POST, handler, false));
+    }
+
+    @Test
+    public void testFullLaneKeepsAllCallsInOrder() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Event> received = Collections.synchronizedList(Lists.<Event>newArrayList());
+        final List<RegisteredHandler<?>> handlers = handler(new EventHandler<Event>() {
+
+            @Override
+            public void handle(Event event) throws Exception {
+                release.await();
+                received.add(event);
+            }
+        });
+
+        final List<Event> events = Lists.newArrayList();
+        for (int i = 0; i < AsyncEventDispatcher.MAX_PENDING_HANDLERS + 10; i++) {
+            events.add(new Event() {});
+        }
+
+        Thread poster = new Thread() {
+
+            @Override
+            public void run() {
+                for (Event event : events) {
+                    AsyncEventDispatcherTest.this.dispatcher.dispatch(event, false, handlers);
+                }
+            }
+        };
+        poster.start();
+
+        // The poster has to wait for the lane once it is full
+        poster.join(500);
+        assertTrue(poster.isAlive());
+
+        release.countDown();
+        poster.join(10000);
+        assertFalse(poster.isAlive());
+
+        this.dispatcher.shutdown(10, TimeUnit.SECONDS);
+        assertEquals(events, received);
+    }
+
+    @Test
+    public void testDispatchAfterShutdown() throws Exception {
+        final List<Event> received = Collections.synchronizedList(Lists.<Event>newArrayList());
+        List<RegisteredHandler<?>> handlers = handler(new EventHandler<Event>() {
+
+            @Override
+            public void handle(Event event) throws Exception {
+                received.add(event);
+            }
+        });
+
+        Event first = new Event() {};
+        Event second = new Event() {};
+        this.dispatcher.dispatch(first, false, handlers).get(10, TimeUnit.SECONDS);
+        this.dispatcher.shutdown(10, TimeUnit.SECONDS);
+
+        ListenableFuture<Boolean> future = this.dispatcher.dispatch(second, true, handlers);
+        assertTrue(future.get(10, TimeUnit.SECONDS));
+        assertEquals(Lists.newArrayList(first, second), received);
+    }
+
+}
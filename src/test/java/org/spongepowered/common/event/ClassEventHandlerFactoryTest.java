@@ -0,0 +1,227 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.spongepowered.api.event.Cancellable;
+import org.spongepowered.api.event.Event;
+import org.spongepowered.api.event.EventHandler;
+import org.spongepowered.api.event.Order;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.common.TestSponge;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+public class ClassEventHandlerFactoryTest {
+
+    private final ClassEventHandlerFactory factory = new ClassEventHandlerFactory("org.spongepowered.common.event.test");
+    private final PluginContainer plugin = Mockito.mock(PluginContainer.class);
+    private final List<String> calls = Lists.newArrayList();
+
+    @Before
+    public void initSponge() {
+        TestSponge.init();
+    }
+
+    private RegisteredHandler<TestEvent> handler(Object listener, String name, boolean ignoreCancelled) throws Exception {
+        Method method = listener.getClass().getMethod(name, TestEvent.class);
+        return new RegisteredHandler<TestEvent>(this.plugin, TestEvent.class, Order.DEFAULT, this.factory.create(listener, method),
+                ignoreCancelled, method);
+    }
+
+    private EventInvoker invoker(Class<? extends Event> eventClass, RegisteredHandler<?>... handlers) throws Exception {
+        return this.factory.create(eventClass, Lists.newArrayList(handlers));
+    }
+
+    @Test
+    public void testInvokesHandlersInOrder() throws Exception {
+        Listener listener = new Listener(this.calls);
+        EventInvoker invoker = invoker(TestEvent.class, handler(listener, "first", false), handler(listener, "second", false));
+        assertFalse(invoker instanceof InvokeEventHandlerFactory.SequentialEventInvoker);
+
+        invoker.invoke(new TestEvent());
+        assertEquals(Lists.newArrayList("first", "second"), this.calls);
+    }
+
+    @Test
+    public void testIgnoreCancelled() throws Exception {
+        Listener listener = new Listener(this.calls);
+        EventInvoker invoker = invoker(TestEvent.class, handler(listener, "cancel", false), handler(listener, "first", true),
+                handler(listener, "second", false));
+
+        TestEvent event = new TestEvent();
+        invoker.invoke(event);
+        assertTrue(event.isCancelled());
+        assertEquals(Lists.newArrayList("cancel", "second"), this.calls);
+    }
+
+    @Test
+    public void testIgnoreCancelledWithoutCancellableEvent() throws Exception {
+        Listener listener = new Listener(this.calls);
+        Method method = Listener.class.getMethod("plain", Event.class);
+        RegisteredHandler<Event> handler = new RegisteredHandler<Event>(this.plugin, Event.class, Order.DEFAULT,
+                this.factory.create(listener, method), true, method);
+
+        invoker(Event.class, handler).invoke(new TestEvent());
+        assertEquals(Lists.newArrayList("plain"), this.calls);
+    }
+
+    @Test
+    public void testThrowingHandlerIsIsolated() throws Exception {
+        Listener listener = new Listener(this.calls);
+        EventInvoker invoker = invoker(TestEvent.class, handler(listener, "fail", false), handler(listener, "first", false));
+
+        invoker.invoke(new TestEvent());
+        assertEquals(Lists.newArrayList("fail", "first"), this.calls);
+    }
+
+    @Test
+    public void testInaccessibleHandlerIsCalledThroughEventHandler() throws Exception {
+        Listener listener = new Listener(this.calls);
+        HiddenListener hidden = new HiddenListener(this.calls);
+        RegisteredHandler<TestEvent> hiddenHandler = new RegisteredHandler<TestEvent>(this.plugin, TestEvent.class, Order.DEFAULT,
+                hidden, true, HiddenListener.class.getMethod("hidden", TestEvent.class));
+
+        EventInvoker invoker = invoker(TestEvent.class, handler(listener, "first", false), hiddenHandler, handler(listener, "cancel", false),
+                hiddenHandler);
+        assertFalse(invoker instanceof InvokeEventHandlerFactory.SequentialEventInvoker);
+
+        invoker.invoke(new TestEvent());
+        assertEquals(Lists.newArrayList("first", "hidden", "cancel"), this.calls);
+    }
+
+    @Test
+    public void testInvokerClassIsShared() throws Exception {
+        Listener listener = new Listener(this.calls);
+        EventInvoker first = invoker(TestEvent.class, handler(listener, "first", false), handler(listener, "second", true));
+        EventInvoker second = invoker(TestEvent.class, handler(new Listener(this.calls), "first", false), handler(listener, "second", true));
+        EventInvoker other = invoker(TestEvent.class, handler(listener, "first", false), handler(listener, "second", false));
+
+        assertSame(first.getClass(), second.getClass());
+        assertFalse(first.getClass() == other.getClass());
+    }
+
+    @Test
+    public void testRegistryFallsBackToSequentialInvoker() throws Exception {
+        EventInvoker.Factory failing = new EventInvoker.Factory() {
+
+            @Override
+            public EventInvoker create(Class<? extends Event> eventClass, List<RegisteredHandler<?>> handlers) throws Exception {
+                throw new IllegalStateException("Failed to generate invoker");
+            }
+        };
+
+        Listener listener = new Listener(this.calls);
+        List<RegisteredHandler<?>> handlers = Lists.newArrayList();
+        handlers.add(handler(listener, "fail", false));
+        handlers.add(handler(listener, "first", false));
+        EventInvoker invoker = new HandlerRegistry(failing).with(handlers).getCache(TestEvent.class).getInvoker();
+        assertTrue(invoker instanceof InvokeEventHandlerFactory.SequentialEventInvoker);
+
+        invoker.invoke(new TestEvent());
+        assertEquals(Lists.newArrayList("fail", "first"), this.calls);
+    }
+
+    public static class TestEvent implements Event, Cancellable {
+
+        private boolean cancelled;
+
+        @Override
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+
+        @Override
+        public void setCancelled(boolean cancel) {
+            this.cancelled = cancel;
+        }
+
+    }
+
+    public static class Listener {
+
+        private final List<String> calls;
+
+        Listener(List<String> calls) {
+            this.calls = calls;
+        }
+
+        public void first(TestEvent event) {
+            this.calls.add("first");
+        }
+
+        public void second(TestEvent event) {
+            this.calls.add("second");
+        }
+
+        public void cancel(TestEvent event) {
+            this.calls.add("cancel");
+            event.setCancelled(true);
+        }
+
+        public void fail(TestEvent event) {
+            this.calls.add("fail");
+            throw new IllegalStateException("Handler failure");
+        }
+
+        public void plain(Event event) {
+            this.calls.add("plain");
+        }
+
+    }
+
+    /**
+     * A listener the generated invokers can't call directly because its
+     * class is not public.
+     */
+    private static class HiddenListener implements EventHandler<TestEvent> {
+
+        private final List<String> calls;
+
+        HiddenListener(List<String> calls) {
+            this.calls = calls;
+        }
+
+        public void hidden(TestEvent event) {
+            this.calls.add("hidden");
+        }
+
+        @Override
+        public void handle(TestEvent event) throws Exception {
+            hidden(event);
+        }
+
+    }
+
+}
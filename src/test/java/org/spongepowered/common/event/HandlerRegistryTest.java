@@ -0,0 +1,134 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.spongepowered.api.event.Event;
+import org.spongepowered.api.event.EventHandler;
+import org.spongepowered.api.event.Order;
+import org.spongepowered.api.plugin.PluginContainer;
+
+import java.util.List;
+
+public class HandlerRegistryTest {
+
+    private final PluginContainer plugin = Mockito.mock(PluginContainer.class);
+    private final CountingFactory factory = new CountingFactory();
+
+    private <T extends Event> RegisteredHandler<T> handler(Class<T> eventClass) {
+        return new RegisteredHandler<T>(this.plugin, eventClass, Order.DEFAULT, new EventHandler<T>() {
+
+            @Override
+            public void handle(T event) throws Exception {
+            }
+        }, false);
+    }
+
+    private HandlerRegistry registry(RegisteredHandler<?> handler) {
+        return new HandlerRegistry(this.factory).with(Lists.<RegisteredHandler<?>>newArrayList(handler));
+    }
+
+    @Test
+    public void testHasHandlersForSameType() {
+        assertTrue(registry(handler(ChildEvent.class)).hasHandlers(ChildEvent.class));
+    }
+
+    @Test
+    public void testHasHandlersForSupertypeHandler() {
+        assertTrue(registry(handler(BaseEvent.class)).hasHandlers(ChildEvent.class));
+    }
+
+    @Test
+    public void testHasHandlersForSubtypeHandler() {
+        HandlerRegistry registry = registry(handler(ChildEvent.class));
+        assertTrue(registry.hasHandlers(BaseEvent.class));
+        assertFalse(registry.hasHandlers(OtherEvent.class));
+    }
+
+    @Test
+    public void testHasHandlersWithoutHandlers() {
+        HandlerRegistry registry = new HandlerRegistry(this.factory);
+        assertFalse(registry.hasHandlers(BaseEvent.class));
+        assertFalse(registry.hasHandlers(ChildEvent.class));
+    }
+
+    @Test
+    public void testHasHandlersDoesNotBake() {
+        HandlerRegistry registry = registry(handler(ChildEvent.class));
+        registry.hasHandlers(BaseEvent.class);
+        registry.hasHandlers(ChildEvent.class);
+        registry.hasHandlers(OtherEvent.class);
+        assertEquals(0, this.factory.created);
+
+        registry.getCache(ChildEvent.class);
+        assertEquals(1, this.factory.created);
+    }
+
+    @Test
+    public void testHasHandlersAfterUnregister() {
+        RegisteredHandler<ChildEvent> handler = handler(ChildEvent.class);
+        HandlerRegistry registry = registry(handler);
+        assertTrue(registry.hasHandlers(BaseEvent.class));
+
+        registry = registry.without(new Predicate<RegisteredHandler<?>>() {
+
+            @Override
+            public boolean apply(RegisteredHandler<?> input) {
+                return true;
+            }
+        });
+        assertFalse(registry.hasHandlers(BaseEvent.class));
+    }
+
+    public interface BaseEvent extends Event {
+    }
+
+    public interface ChildEvent extends BaseEvent {
+    }
+
+    public interface OtherEvent extends Event {
+    }
+
+    private static final class CountingFactory implements EventInvoker.Factory {
+
+        private final EventInvoker.Factory delegate = new InvokeEventHandlerFactory();
+        int created;
+
+        @Override
+        public EventInvoker create(Class<? extends Event> eventClass, List<RegisteredHandler<?>> handlers) throws Exception {
+            this.created++;
+            return this.delegate.create(eventClass, handlers);
+        }
+
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.mixin.core.world.chunk.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+
+/**
+ * Tests the copy-on-write of the block data of chunk sections without
+ * applying the mixin, by calling its injected methods the same way the
+ * mixed in {@code ExtendedBlockStorage} would.
+ */
+public class MixinExtendedBlockStorageTest {
+
+    private static final int SECTION_VOLUME = 16 * 16 * 16;
+
+    private MixinExtendedBlockStorage storage;
+    private Field dataField;
+
+    @Before
+    public void createStorage() throws Exception {
+        this.storage = new MixinExtendedBlockStorage() {};
+        this.dataField = MixinExtendedBlockStorage.class.getDeclaredField("data");
+        this.dataField.setAccessible(true);
+        char[] data = new char[SECTION_VOLUME];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (char) i;
+        }
+        this.dataField.set(this.storage, data);
+    }
+
+    private char[] getData() throws IllegalAccessException {
+        return (char[]) this.dataField.get(this.storage);
+    }
+
+    /**
+     * Runs the injected head of {@code set} and then stores the block like
+     * the vanilla method does.
+     */
+    private void setBlock(int index, char blockStateId) throws IllegalAccessException {
+        this.storage.onSet(null);
+        getData()[index] = blockStateId;
+    }
+
+    @Test
+    public void testSnapshotUnchangedAfterSetBlock() throws Exception {
+        char[] snapshot = this.storage.getSnapshotData();
+        char[] expected = snapshot.clone();
+
+        setBlock(0, (char) 1000);
+        setBlock(SECTION_VOLUME - 1, (char) 2000);
+
+        assertArrayEquals(expected, snapshot);
+        assertNotSame(snapshot, getData());
+        assertEquals(1000, getData()[0]);
+        assertEquals(2000, getData()[SECTION_VOLUME - 1]);
+        assertEquals(1, getData()[1]);
+    }
+
+    @Test
+    public void testSnapshotUnchangedAfterFill() throws Exception {
+        char[] snapshot = this.storage.getSnapshotData();
+        char[] expected = snapshot.clone();
+
+        // Same as FastChunkBuffer#fill
+        Arrays.fill(this.storage.getWritableData(), (char) 42);
+
+        assertArrayEquals(expected, snapshot);
+        char[] filled = new char[SECTION_VOLUME];
+        Arrays.fill(filled, (char) 42);
+        assertArrayEquals(filled, getData());
+    }
+
+    @Test
+    public void testDataCopiedOncePerSnapshot() throws Exception {
+        char[] data = getData();
+        setBlock(0, (char) 1000);
+        assertSame(data, getData());
+
+        char[] snapshot = this.storage.getSnapshotData();
+        setBlock(1, (char) 1001);
+        char[] copy = getData();
+        assertNotSame(snapshot, copy);
+        setBlock(2, (char) 1002);
+        assertSame(copy, getData());
+
+        char[] secondSnapshot = this.storage.getSnapshotData();
+        assertSame(copy, secondSnapshot);
+        setBlock(3, (char) 1003);
+        assertEquals(3, secondSnapshot[3]);
+        assertEquals(1002, secondSnapshot[2]);
+        assertEquals(2, snapshot[2]);
+    }
+
+    @Test
+    public void testSetDataIsNotShared() throws Exception {
+        char[] snapshot = this.storage.getSnapshotData();
+        char[] replacement = new char[SECTION_VOLUME];
+        // The injected head of setData, then the vanilla assignment
+        this.storage.onSetData(replacement, null);
+        this.dataField.set(this.storage, replacement);
+
+        assertSame(replacement, this.storage.getWritableData());
+        assertEquals(1, snapshot[1]);
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.service.permission.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.spongepowered.api.util.Tristate;
+
+public class PermissionTrieTest {
+
+    @Test
+    public void testPrefixResolution() {
+        PermissionTrie trie = new PermissionTrie();
+        trie.set("sponge.command", Tristate.TRUE);
+        trie.set("sponge.command.reload", Tristate.FALSE);
+
+        assertEquals(Tristate.UNDEFINED, trie.get("sponge"));
+        assertEquals(Tristate.TRUE, trie.get("sponge.command"));
+        assertEquals(Tristate.TRUE, trie.get("sponge.command.version"));
+        assertEquals(Tristate.TRUE, trie.get("sponge.command.version.other"));
+        assertEquals(Tristate.FALSE, trie.get("sponge.command.reload"));
+        assertEquals(Tristate.FALSE, trie.get("sponge.command.reload.all"));
+        assertEquals(Tristate.UNDEFINED, trie.get("sponge.commands"));
+        assertEquals(Tristate.UNDEFINED, trie.get("other.command"));
+    }
+
+    @Test
+    public void testWildcardResolution() {
+        PermissionTrie trie = new PermissionTrie();
+        trie.set("sponge.*", Tristate.TRUE);
+        trie.set("sponge.command.*", Tristate.FALSE);
+        trie.set("sponge.command.help", Tristate.TRUE);
+
+        assertEquals(Tristate.UNDEFINED, trie.get("sponge"));
+        assertEquals(Tristate.TRUE, trie.get("sponge.chat"));
+        assertEquals(Tristate.TRUE, trie.get("sponge.chat.color"));
+        assertEquals(Tristate.TRUE, trie.get("sponge.command"));
+        assertEquals(Tristate.FALSE, trie.get("sponge.command.reload"));
+        assertEquals(Tristate.TRUE, trie.get("sponge.command.help"));
+        assertEquals(Tristate.TRUE, trie.get("sponge.command.help.page"));
+    }
+
+    @Test
+    public void testRootWildcard() {
+        PermissionTrie trie = new PermissionTrie();
+        trie.set("*", Tristate.TRUE);
+        trie.set("sponge.command", Tristate.FALSE);
+
+        assertEquals(Tristate.TRUE, trie.get("other"));
+        assertEquals(Tristate.TRUE, trie.get("sponge"));
+        assertEquals(Tristate.FALSE, trie.get("sponge.command.reload"));
+    }
+
+    @Test
+    public void testCaseInsensitive() {
+        PermissionTrie trie = new PermissionTrie();
+        trie.set("Sponge.Command", Tristate.TRUE);
+
+        assertEquals(Tristate.TRUE, trie.get("sponge.command"));
+        assertEquals(Tristate.TRUE, trie.get("SPONGE.COMMAND.RELOAD"));
+        assertEquals(Tristate.TRUE, trie.getExact("sponge.COMMAND"));
+    }
+
+    @Test
+    public void testSetAndUnset() {
+        PermissionTrie trie = new PermissionTrie();
+        assertTrue(trie.isEmpty());
+
+        trie.set("a.b.c", Tristate.TRUE);
+        trie.set("a.d", Tristate.FALSE);
+        assertEquals(Tristate.TRUE, trie.getExact("a.b.c"));
+        assertEquals(Tristate.UNDEFINED, trie.getExact("a.b"));
+        assertEquals(ImmutableMap.of("a.b.c", true, "a.d", false), trie.getAll(""));
+        assertEquals(ImmutableMap.of("a.b.c", true), trie.getAll("a.b"));
+
+        trie.set("a.b.c", Tristate.FALSE);
+        assertEquals(Tristate.FALSE, trie.get("a.b.c"));
+
+        trie.set("a.b.c", Tristate.UNDEFINED);
+        assertEquals(Tristate.UNDEFINED, trie.get("a.b.c"));
+        assertEquals(ImmutableMap.of("a.d", false), trie.getAll(""));
+        assertEquals(ImmutableMap.<String, Boolean>of(), trie.getAll("a.b"));
+
+        trie.set("a.d", Tristate.UNDEFINED);
+        assertTrue(trie.isEmpty());
+    }
+
+    @Test
+    public void testClear() {
+        PermissionTrie trie = new PermissionTrie();
+        trie.set("a.b", Tristate.TRUE);
+        trie.clear();
+        assertTrue(trie.isEmpty());
+        assertEquals(Tristate.UNDEFINED, trie.get("a.b"));
+    }
+
+}
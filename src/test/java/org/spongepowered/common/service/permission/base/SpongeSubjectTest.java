@@ -0,0 +1,266 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.service.permission.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.spongepowered.api.service.permission.SubjectData.GLOBAL_CONTEXT;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.spongepowered.api.service.permission.MemorySubjectData;
+import org.spongepowered.api.service.permission.Subject;
+import org.spongepowered.api.service.permission.SubjectCollection;
+import org.spongepowered.api.service.permission.context.Context;
+import org.spongepowered.api.util.Tristate;
+import org.spongepowered.api.util.command.CommandSource;
+import org.spongepowered.common.service.permission.SpongePermissionService;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SpongeSubjectTest {
+
+    private static final Context WORLD = new Context(Context.WORLD_KEY, "world");
+    private static final Context DIMENSION = new Context(Context.DIMENSION_KEY, "overworld");
+
+    private final AtomicInteger dataVersion = new AtomicInteger();
+    private final AtomicInteger contextVersion = new AtomicInteger();
+    private final AtomicInteger calculations = new AtomicInteger();
+    private SpongePermissionService service;
+
+    @Before
+    public void initService() {
+        this.service = Mockito.mock(SpongePermissionService.class);
+        Mockito.when(this.service.getDataVersion()).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                return SpongeSubjectTest.this.dataVersion.get();
+            }
+        });
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                SpongeSubjectTest.this.dataVersion.incrementAndGet();
+                return null;
+            }
+        }).when(this.service).invalidateCaches();
+        Mockito.when(this.service.getContextVersion()).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                return SpongeSubjectTest.this.contextVersion.get();
+            }
+        });
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                SpongeSubjectTest.this.contextVersion.incrementAndGet();
+                return null;
+            }
+        }).when(this.service).invalidateActiveContexts();
+        Mockito.when(this.service.calculateContexts(Matchers.any(Subject.class))).thenAnswer(new Answer<Set<Context>>() {
+            @Override
+            public Set<Context> answer(InvocationOnMock invocation) throws Throwable {
+                SpongeSubjectTest.this.calculations.incrementAndGet();
+                return ImmutableSet.of(WORLD);
+            }
+        });
+    }
+
+    @Test
+    public void testSetPermissionInvalidatesCache() {
+        TestSubject subject = new TestSubject(this.service, new GlobalMemorySubjectData(this.service));
+        assertEquals(Tristate.UNDEFINED, subject.getPermissionValue(GLOBAL_CONTEXT, "sponge.command"));
+
+        subject.getSubjectData().setPermission(GLOBAL_CONTEXT, "sponge.command", Tristate.TRUE);
+        assertEquals(Tristate.TRUE, subject.getPermissionValue(GLOBAL_CONTEXT, "sponge.command"));
+
+        subject.getSubjectData().setPermission(GLOBAL_CONTEXT, "sponge.command", Tristate.FALSE);
+        assertEquals(Tristate.FALSE, subject.getPermissionValue(GLOBAL_CONTEXT, "sponge.command"));
+    }
+
+    @Test
+    public void testSetParentInvalidatesCache() {
+        TestSubject parent = new TestSubject(this.service, new GlobalMemorySubjectData(this.service));
+        parent.getSubjectData().setPermission(GLOBAL_CONTEXT, "sponge.command", Tristate.TRUE);
+        SingleParentMemorySubjectData data = new SingleParentMemorySubjectData(this.service);
+        TestSubject child = new TestSubject(this.service, data);
+        assertEquals(Tristate.UNDEFINED, child.getPermissionValue(GLOBAL_CONTEXT, "sponge.command"));
+
+        data.setParent(parent);
+        assertEquals(Tristate.TRUE, child.getPermissionValue(GLOBAL_CONTEXT, "sponge.command"));
+
+        // Changes of the parent's data invalidate the values the child inherited
+        parent.getSubjectData().setPermission(GLOBAL_CONTEXT, "sponge.command", Tristate.FALSE);
+        assertEquals(Tristate.FALSE, child.getPermissionValue(GLOBAL_CONTEXT, "sponge.command"));
+
+        data.setParent(null);
+        assertEquals(Tristate.UNDEFINED, child.getPermissionValue(GLOBAL_CONTEXT, "sponge.command"));
+    }
+
+    @Test
+    public void testOpListChangeInvalidatesCache() {
+        TestSubject subject = new TestSubject(this.service, new GlobalMemorySubjectData(this.service));
+        assertEquals(Tristate.UNDEFINED, subject.getPermissionValue(GLOBAL_CONTEXT, "sponge.command"));
+
+        // The op level is not part of the permission data, the value stays
+        // cached until the ops list reports its change
+        subject.opLevel = 4;
+        assertEquals(Tristate.UNDEFINED, subject.getPermissionValue(GLOBAL_CONTEXT, "sponge.command"));
+
+        // What MixinUserList does when an entry of the ops list changes
+        this.service.invalidateCaches();
+        assertEquals(Tristate.TRUE, subject.getPermissionValue(GLOBAL_CONTEXT, "sponge.command"));
+    }
+
+    @Test
+    public void testActiveContextsAreKeptUntilInvalidated() {
+        TestSubject subject = new TestSubject(this.service, new GlobalMemorySubjectData(this.service));
+        Set<Context> contexts = subject.getActiveContexts();
+        assertEquals(ImmutableSet.of(WORLD), contexts);
+        assertSame(contexts, subject.getActiveContexts());
+        subject.getSubjectData().setPermission(GLOBAL_CONTEXT, "sponge.command", Tristate.TRUE);
+        assertSame(contexts, subject.getActiveContexts());
+        assertEquals(1, this.calculations.get());
+
+        // What the player list and world change hooks do
+        this.service.invalidateActiveContexts();
+        subject.getActiveContexts();
+        assertEquals(2, this.calculations.get());
+    }
+
+    @Test
+    public void testMostSpecificContextsFirst() {
+        GlobalMemorySubjectData data = new GlobalMemorySubjectData(this.service);
+        TestSubject subject = new TestSubject(this.service, data);
+        Set<Context> worldContexts = ImmutableSet.of(WORLD);
+        Set<Context> allContexts = ImmutableSet.of(WORLD, DIMENSION);
+        data.setPermission(worldContexts, "sponge.command", Tristate.TRUE);
+        assertEquals(ImmutableList.of(worldContexts), data.getApplicableContexts(allContexts));
+        assertEquals(Tristate.TRUE, subject.getPermissionValue(allContexts, "sponge.command"));
+
+        // A new context set replaces the applicable sets computed before
+        data.setPermission(allContexts, "sponge.command", Tristate.FALSE);
+        assertEquals(ImmutableList.of(allContexts, worldContexts), data.getApplicableContexts(allContexts));
+        assertEquals(Tristate.FALSE, subject.getPermissionValue(allContexts, "sponge.command"));
+        assertEquals(Tristate.TRUE, subject.getPermissionValue(worldContexts, "sponge.command"));
+
+        data.clearPermissions(allContexts);
+        assertEquals(ImmutableList.of(worldContexts), data.getApplicableContexts(allContexts));
+        assertEquals(Tristate.TRUE, subject.getPermissionValue(allContexts, "sponge.command"));
+    }
+
+    @Test
+    public void testClearPermissionsOnlyChangesVersionIfRemoved() {
+        GlobalMemorySubjectData data = new GlobalMemorySubjectData(this.service);
+        assertFalse(data.clearPermissions());
+        assertFalse(data.clearPermissions(GLOBAL_CONTEXT));
+        assertEquals(0, this.dataVersion.get());
+
+        data.setPermission(GLOBAL_CONTEXT, "sponge.command", Tristate.TRUE);
+        int version = this.dataVersion.get();
+        assertTrue(data.clearPermissions());
+        assertEquals(version + 1, this.dataVersion.get());
+        assertEquals(Tristate.UNDEFINED, data.getPermissionValue(GLOBAL_CONTEXT, "sponge.command"));
+    }
+
+    @Test
+    public void testUnsetContextsAreIndependent() {
+        GlobalMemorySubjectData first = new GlobalMemorySubjectData(this.service);
+        GlobalMemorySubjectData second = new GlobalMemorySubjectData(this.service);
+        assertEquals(Tristate.UNDEFINED, first.getPermissionValue(GLOBAL_CONTEXT, "sponge.command"));
+        assertTrue(first.getPermissions(GLOBAL_CONTEXT).isEmpty());
+
+        first.setPermission(GLOBAL_CONTEXT, "sponge.command", Tristate.TRUE);
+        assertEquals(Tristate.TRUE, first.getPermissionValue(GLOBAL_CONTEXT, "sponge.command"));
+        assertEquals(Tristate.UNDEFINED, second.getPermissionValue(GLOBAL_CONTEXT, "sponge.command"));
+        assertTrue(second.getPermissions(GLOBAL_CONTEXT).isEmpty());
+    }
+
+    @Test
+    public void testManyPermissions() {
+        TestSubject subject = new TestSubject(this.service, new GlobalMemorySubjectData(this.service));
+        subject.getSubjectData().setPermission(GLOBAL_CONTEXT, "sponge", Tristate.TRUE);
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(Tristate.TRUE, subject.getPermissionValue(GLOBAL_CONTEXT, "sponge.generated." + i));
+        }
+        assertEquals(Tristate.UNDEFINED, subject.getPermissionValue(GLOBAL_CONTEXT, "other"));
+    }
+
+    /**
+     * A subject which is granted every permission once its op level reaches
+     * 2, like the users of the ops list.
+     */
+    private static final class TestSubject extends SpongeSubject {
+
+        private final MemorySubjectData data;
+        int opLevel;
+
+        TestSubject(SpongePermissionService service, MemorySubjectData data) {
+            super(service);
+            this.data = data;
+        }
+
+        @Override
+        public String getIdentifier() {
+            return "test";
+        }
+
+        @Override
+        public Optional<CommandSource> getCommandSource() {
+            return Optional.absent();
+        }
+
+        @Override
+        public SubjectCollection getContainingCollection() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MemorySubjectData getSubjectData() {
+            return this.data;
+        }
+
+        @Override
+        protected Tristate computePermissionValue(Set<Context> contexts, String permission) {
+            Tristate ret = super.computePermissionValue(contexts, permission);
+            if (ret == Tristate.UNDEFINED && this.opLevel >= 2) {
+                ret = Tristate.TRUE;
+            }
+            return ret;
+        }
+
+    }
+
+}
@@ -24,9 +24,12 @@
  */
 package org.spongepowered.common.service.persistence.data;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import com.google.common.base.Optional;
+import net.minecraft.nbt.CompressedStreamTools;
 import net.minecraft.nbt.NBTTagCompound;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -36,8 +39,16 @@
 import org.spongepowered.api.data.MemoryDataContainer;
 import org.spongepowered.api.service.persistence.DataBuilder;
 import org.spongepowered.api.service.persistence.SerializationService;
+import org.spongepowered.common.service.persistence.NbtStreamTranslator;
 import org.spongepowered.common.service.persistence.NbtTranslator;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
 public class NBTTranslationTest {
 
     @Test
@@ -54,4 +65,74 @@ public void testContainerToNBT() {
         assertTrue(container.equals(translatedContainer));
     }
 
+    @Test
+    public void testPrimitiveArrays() {
+        DataContainer container = new MemoryDataContainer();
+        container.set(new DataQuery("bytes"), new byte[] {1, 2, 3});
+        container.set(new DataQuery("ints"), new int[] {4, 5, 6});
+        container.set(new DataQuery("longs"), new long[] {7L, 8L});
+        NBTTagCompound compound = NbtTranslator.getInstance().translateData(container);
+        assertArrayEquals(new byte[] {1, 2, 3}, compound.getByteArray("bytes"));
+        assertArrayEquals(new int[] {4, 5, 6}, compound.getIntArray("ints"));
+
+        DataView translatedContainer = NbtTranslator.getInstance().translateFrom(compound);
+        assertEquals(Arrays.asList(7L, 8L), translatedContainer.get(new DataQuery("longs")).get());
+    }
+
+    @Test
+    public void testArraysAreCopied() {
+        byte[] bytes = {1, 2, 3};
+        int[] ints = {4, 5, 6};
+        DataContainer container = new MemoryDataContainer();
+        container.set(new DataQuery("bytes"), bytes);
+        container.set(new DataQuery("ints"), ints);
+        NBTTagCompound compound = NbtTranslator.getInstance().translateData(container);
+        bytes[0] = 9;
+        ints[0] = 9;
+        assertArrayEquals(new byte[] {1, 2, 3}, compound.getByteArray("bytes"));
+        assertArrayEquals(new int[] {4, 5, 6}, compound.getIntArray("ints"));
+
+        DataView translatedContainer = NbtTranslator.getInstance().translateFrom(compound);
+        ((byte[]) translatedContainer.get(new DataQuery("bytes")).get())[1] = 9;
+        ((int[]) translatedContainer.get(new DataQuery("ints")).get())[1] = 9;
+        assertArrayEquals(new byte[] {1, 2, 3}, compound.getByteArray("bytes"));
+        assertArrayEquals(new int[] {4, 5, 6}, compound.getIntArray("ints"));
+    }
+
+    @Test
+    public void testLazyContainer() {
+        DataContainer container = new MemoryDataContainer();
+        container.set(new DataQuery("foo"), "bar");
+        container.set(new DataQuery("myFake"), new FakeSerializable("bar", 7, 10.0D, "nested"));
+        NBTTagCompound compound = NbtTranslator.getInstance().translateData(container);
+
+        DataContainer lazy = NbtTranslator.getInstance().translateFromLazily(compound);
+        assertEquals(Optional.<Object>of("bar"), lazy.get(new DataQuery("foo")));
+        assertTrue(lazy.equals(NbtTranslator.getInstance().translateFrom(compound)));
+
+        DataContainer written = NbtTranslator.getInstance().translateFromLazily(compound);
+        written.set(new DataQuery("foo"), "baz");
+        assertEquals(Optional.<Object>of("baz"), written.get(new DataQuery("foo")));
+        assertTrue(written.getView(new DataQuery("myFake")).isPresent());
+        assertTrue(NbtTranslator.getInstance().translateFromLazily(compound).equals(
+                NbtTranslator.getInstance().translateFromLazily(compound)));
+    }
+
+    @Test
+    public void testContainerToStream() throws IOException {
+        DataContainer container = new MemoryDataContainer();
+        container.set(new DataQuery("foo"), "bar");
+        container.set(new DataQuery("bytes"), new Byte[] {1, 2, 3});
+        container.set(new DataQuery("longs"), new long[] {7L, 8L});
+        container.set(new DataQuery("myFake"), new FakeSerializable("bar", 7, 10.0D, "nested"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        NbtStreamTranslator.write(container, new DataOutputStream(bytes));
+
+        DataView translatedContainer = NbtStreamTranslator.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertTrue(NbtTranslator.getInstance().translateData(container).equals(
+                NbtTranslator.getInstance().translateData(translatedContainer)));
+        NBTTagCompound compound = CompressedStreamTools.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertTrue(NbtTranslator.getInstance().translateData(container).equals(compound));
+    }
+
 }
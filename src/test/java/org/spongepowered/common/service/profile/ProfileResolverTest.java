@@ -0,0 +1,238 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.service.profile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.mojang.authlib.GameProfile;
+import com.mojang.authlib.minecraft.MinecraftSessionService;
+import com.mojang.authlib.yggdrasil.ProfileNotFoundException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.spongepowered.common.TestSponge;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ProfileResolverTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<List<UUID>> batches = Lists.newArrayList();
+    private final AtomicLong time = new AtomicLong();
+    private final Ticker ticker = new Ticker() {
+
+        @Override
+        public long read() {
+            return ProfileResolverTest.this.time.get();
+        }
+    };
+
+    @Before
+    public void initSponge() {
+        TestSponge.init();
+    }
+
+    /**
+     * A lookup which only knows profiles with an odd unique id.
+     */
+    private ProfileResolver.BatchLookup createLookup() {
+        return new ProfileResolver.BatchLookup() {
+
+            @Override
+            public Map<UUID, GameProfile> lookup(List<UUID> uniqueIds) {
+                ProfileResolverTest.this.batches.add(uniqueIds);
+                ImmutableMap.Builder<UUID, GameProfile> profiles = ImmutableMap.builder();
+                for (UUID uniqueId : uniqueIds) {
+                    if (uniqueId.getLeastSignificantBits() % 2 == 1) {
+                        profiles.put(uniqueId, new GameProfile(uniqueId, "Player" + uniqueId.getLeastSignificantBits()));
+                    }
+                }
+                return profiles.build();
+            }
+        };
+    }
+
+    private static MinecraftSessionService createSessionService() {
+        MinecraftSessionService sessionService = Mockito.mock(MinecraftSessionService.class);
+        Mockito.when(sessionService.fillProfileProperties(Matchers.any(GameProfile.class), Matchers.anyBoolean()))
+                .thenAnswer(new Answer<GameProfile>() {
+
+                    @Override
+                    public GameProfile answer(InvocationOnMock invocation) throws Throwable {
+                        UUID uniqueId = ((GameProfile) invocation.getArguments()[0]).getId();
+                        return new GameProfile(uniqueId, "Player" + uniqueId.getLeastSignificantBits());
+                    }
+                });
+        return sessionService;
+    }
+
+    @Test
+    public void testGetAll() throws Exception {
+        ProfileResolver resolver = new ProfileResolver(createSessionService(), null, MoreExecutors.sameThreadExecutor());
+        UUID first = new UUID(0, 1);
+        UUID second = new UUID(0, 2);
+        assertFalse(resolver.getIfPresent(first).isPresent());
+
+        Map<UUID, GameProfile> profiles = resolver.getAll(ImmutableList.of(first, second, first)).get();
+        assertEquals(2, profiles.size());
+        assertEquals("Player1", profiles.get(first).getName());
+        assertTrue(resolver.getIfPresent(second).isPresent());
+    }
+
+    @Test
+    public void testStore() throws Exception {
+        File store = new File(this.folder.getRoot(), "profiles.txt");
+        MinecraftSessionService sessionService = createSessionService();
+        UUID uniqueId = new UUID(0, 3);
+        new ProfileResolver(sessionService, store, MoreExecutors.sameThreadExecutor()).get(uniqueId).get();
+
+        ProfileResolver resolver = new ProfileResolver(sessionService, store, MoreExecutors.sameThreadExecutor());
+        assertEquals("Player3", resolver.getIfPresent(uniqueId).get().getName());
+        Mockito.verify(sessionService, Mockito.times(1)).fillProfileProperties(Matchers.any(GameProfile.class), Matchers.anyBoolean());
+    }
+
+    @Test
+    public void testGetAllReturnsPartialResults() throws Exception {
+        ProfileResolver resolver = new ProfileResolver(createLookup(), null, MoreExecutors.sameThreadExecutor(), this.ticker);
+        UUID found = new UUID(0, 1);
+        UUID missing = new UUID(0, 2);
+
+        Map<UUID, GameProfile> profiles = resolver.getAll(ImmutableList.of(found, missing)).get();
+        assertEquals(1, profiles.size());
+        assertEquals("Player1", profiles.get(found).getName());
+        assertFalse(profiles.containsKey(missing));
+    }
+
+    @Test
+    public void testLookupsAreBatched() throws Exception {
+        final List<Runnable> tasks = Lists.newArrayList();
+        Executor executor = new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+        ProfileResolver resolver = new ProfileResolver(createLookup(), null, executor, this.ticker);
+        ListenableFuture<GameProfile> first = resolver.get(new UUID(0, 1));
+        ListenableFuture<GameProfile> second = resolver.get(new UUID(0, 3));
+        assertEquals(1, tasks.size());
+
+        tasks.get(0).run();
+        assertEquals(1, this.batches.size());
+        assertEquals(2, this.batches.get(0).size());
+        assertEquals("Player1", first.get().getName());
+        assertEquals("Player3", second.get().getName());
+    }
+
+    @Test
+    public void testMissingProfilesAreCached() throws Exception {
+        ProfileResolver resolver = new ProfileResolver(createLookup(), null, MoreExecutors.sameThreadExecutor(), this.ticker);
+        UUID missing = new UUID(0, 2);
+        assertNotFound(resolver.get(missing));
+        assertNotFound(resolver.get(missing));
+        assertEquals(1, this.batches.size());
+
+        this.time.addAndGet(TimeUnit.MINUTES.toNanos(ProfileResolver.NEGATIVE_CACHE_MINUTES) + 1);
+        assertNotFound(resolver.get(missing));
+        assertEquals(2, this.batches.size());
+    }
+
+    private static void assertNotFound(ListenableFuture<GameProfile> future) throws InterruptedException {
+        try {
+            future.get();
+            fail("Found a profile which doesn't exist");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ProfileNotFoundException);
+        }
+    }
+
+    @Test
+    public void testStoreIsLoadedByExecutor() throws Exception {
+        File store = new File(this.folder.getRoot(), "profiles.txt");
+        UUID uniqueId = new UUID(0, 5);
+        new ProfileResolver(createLookup(), store, MoreExecutors.sameThreadExecutor(), this.ticker).get(uniqueId).get();
+        assertEquals(1, this.batches.size());
+
+        final List<Runnable> tasks = Lists.newArrayList();
+        ProfileResolver resolver = new ProfileResolver(createLookup(), store, new Executor() {
+
+            @Override
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        }, this.ticker);
+        assertFalse(resolver.getIfPresent(uniqueId).isPresent());
+        ListenableFuture<GameProfile> future = resolver.get(uniqueId);
+
+        // Requests made before the store was loaded are answered from it
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        assertEquals("Player5", future.get().getName());
+        assertEquals(1, this.batches.size());
+    }
+
+    @Test
+    public void testListenerIsNotifiedOfResolvedProfiles() throws Exception {
+        ProfileResolver resolver = new ProfileResolver(createLookup(), null, MoreExecutors.sameThreadExecutor(), this.ticker);
+        final List<List<GameProfile>> notified = Lists.newArrayList();
+        resolver.addListener(new ProfileResolver.Listener() {
+
+            @Override
+            public void onResolved(List<GameProfile> profiles) {
+                notified.add(profiles);
+            }
+        });
+        resolver.getAll(ImmutableList.of(new UUID(0, 7), new UUID(0, 8))).get();
+        assertEquals(1, notified.size());
+        assertEquals(1, notified.get(0).size());
+        assertEquals("Player7", notified.get(0).get(0).getName());
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.service.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.common.TestSponge;
+
+import java.util.List;
+
+public class SyncSchedulerTest {
+
+    private final SyncScheduler scheduler = new SyncScheduler();
+    private final List<String> runs = Lists.newArrayList();
+
+    @Before
+    public void initSponge() {
+        TestSponge.init();
+    }
+
+    private static PluginContainer plugin(String id) {
+        PluginContainer plugin = Mockito.mock(PluginContainer.class);
+        Mockito.when(plugin.getId()).thenReturn(id);
+        return plugin;
+    }
+
+    private void addTask(PluginContainer plugin, final String name, final long sleepMillis) {
+        ScheduledTask task = new ScheduledTask(0L, 0L, ScheduledTask.TaskSynchroncity.SYNCHRONOUS)
+                .setPluginContainer(plugin)
+                .setRunnableBody(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        SyncSchedulerTest.this.runs.add(name);
+                        try {
+                            Thread.sleep(sleepMillis);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+        this.scheduler.addTask(task);
+    }
+
+    @Test
+    public void testWithoutBudget() {
+        this.scheduler.setTickBudget(0);
+        PluginContainer plugin = plugin("a");
+        addTask(plugin, "a1", 2);
+        addTask(plugin, "a2", 2);
+
+        this.scheduler.tick();
+        assertEquals(2, this.runs.size());
+        assertEquals(0, this.scheduler.getDeferredTaskCount());
+        assertTrue(this.scheduler.getDeferrals().isEmpty());
+        assertTrue(this.scheduler.getOverruns().isEmpty());
+    }
+
+    @Test
+    public void testDeferralsCountedOnce() {
+        this.scheduler.setTickBudget(1);
+        PluginContainer plugin = plugin("a");
+        addTask(plugin, "a1", 5);
+        addTask(plugin, "a2", 5);
+        addTask(plugin, "a3", 5);
+
+        this.scheduler.tick();
+        assertEquals(1, this.runs.size());
+        assertEquals(2, this.scheduler.getDeferredTaskCount());
+        assertEquals(Long.valueOf(2), this.scheduler.getDeferrals().get("a"));
+        assertEquals(Long.valueOf(1), this.scheduler.getOverruns().get("a"));
+
+        // The task still waiting after the second tick was already counted
+        this.scheduler.tick();
+        assertEquals(2, this.runs.size());
+        assertEquals(1, this.scheduler.getDeferredTaskCount());
+        assertEquals(Long.valueOf(2), this.scheduler.getDeferrals().get("a"));
+
+        this.scheduler.tick();
+        assertEquals(3, this.runs.size());
+        assertEquals(0, this.scheduler.getDeferredTaskCount());
+        assertEquals(Long.valueOf(2), this.scheduler.getDeferrals().get("a"));
+    }
+
+    @Test
+    public void testDeferredPluginsAlternate() {
+        this.scheduler.setTickBudget(1);
+        PluginContainer a = plugin("a");
+        PluginContainer b = plugin("b");
+        addTask(a, "a1", 5);
+        addTask(a, "a2", 5);
+        addTask(b, "b1", 5);
+
+        this.scheduler.tick();
+        this.scheduler.tick();
+        // Each plugin runs a task in turn, so b1 runs before the second task of a
+        assertEquals(2, this.runs.size());
+        assertTrue(this.runs.contains("b1"));
+
+        this.scheduler.tick();
+        assertEquals(3, this.runs.size());
+    }
+
+    @Test
+    public void testBudgetChangeTakesEffect() {
+        this.scheduler.setTickBudget(1);
+        PluginContainer plugin = plugin("a");
+        addTask(plugin, "a1", 5);
+        addTask(plugin, "a2", 5);
+
+        this.scheduler.tick();
+        assertEquals(1, this.runs.size());
+
+        this.scheduler.setTickBudget(0);
+        addTask(plugin, "a3", 5);
+        this.scheduler.tick();
+        assertEquals(3, this.runs.size());
+        assertEquals(0, this.scheduler.getDeferredTaskCount());
+    }
+
+}
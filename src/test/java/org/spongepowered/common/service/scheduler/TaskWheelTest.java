@@ -0,0 +1,194 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.service.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+
+public class TaskWheelTest {
+
+    private static ScheduledTask task() {
+        return new ScheduledTask(0L, 0L, ScheduledTask.TaskSynchroncity.SYNCHRONOUS);
+    }
+
+    @Test
+    public void testDueTasks() {
+        TaskWheel wheel = new TaskWheel(8, 0L);
+        ScheduledTask first = task();
+        ScheduledTask second = task();
+        wheel.add(first, 3L);
+        wheel.add(second, 5L);
+        assertEquals(2, wheel.size());
+        assertEquals(3L, wheel.getNextTime());
+
+        List<ScheduledTask> due = Lists.newArrayList();
+        wheel.advance(2L, due);
+        assertTrue(due.isEmpty());
+
+        wheel.advance(4L, due);
+        assertEquals(Lists.newArrayList(first), due);
+        assertEquals(1, wheel.size());
+        assertEquals(5L, wheel.getNextTime());
+
+        due.clear();
+        wheel.advance(5L, due);
+        assertEquals(Lists.newArrayList(second), due);
+        assertTrue(wheel.isEmpty());
+        assertEquals(Long.MAX_VALUE, wheel.getNextTime());
+    }
+
+    @Test
+    public void testMultipleRevolutions() {
+        TaskWheel wheel = new TaskWheel(8, 0L);
+        ScheduledTask task = task();
+        wheel.add(task, 20L);
+
+        List<ScheduledTask> due = Lists.newArrayList();
+        for (long time = 1; time < 20; time++) {
+            wheel.advance(time, due);
+            assertTrue(due.isEmpty());
+        }
+
+        wheel.advance(20L, due);
+        assertEquals(Lists.newArrayList(task), due);
+    }
+
+    @Test
+    public void testSkippedTime() {
+        TaskWheel wheel = new TaskWheel(8, 0L);
+        ScheduledTask task = task();
+        wheel.add(task, 3L);
+
+        List<ScheduledTask> due = Lists.newArrayList();
+        wheel.advance(100L, due);
+        assertEquals(Lists.newArrayList(task), due);
+        assertEquals(100L, wheel.getTime());
+    }
+
+    @Test
+    public void testPastDeadline() {
+        TaskWheel wheel = new TaskWheel(8, 10L);
+        ScheduledTask task = task();
+        wheel.add(task, 5L);
+        assertEquals(11L, wheel.getNextTime());
+
+        List<ScheduledTask> due = Lists.newArrayList();
+        wheel.advance(11L, due);
+        assertEquals(Lists.newArrayList(task), due);
+    }
+
+    @Test
+    public void testCanceledTaskRemoved() {
+        TaskWheel wheel = new TaskWheel(8, 0L);
+        ScheduledTask task = task();
+        wheel.add(task, 30L);
+        task.cancel();
+
+        List<ScheduledTask> due = Lists.newArrayList();
+        wheel.advance(6L, due);
+        assertEquals(Lists.newArrayList(task), due);
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    public void testNextTimeOfDistantTask() {
+        TaskWheel wheel = new TaskWheel(8, 0L);
+        ScheduledTask task = task();
+        wheel.add(task, 100L);
+        assertEquals(100L, wheel.getNextTime());
+
+        ScheduledTask earlier = task();
+        wheel.add(earlier, 30L);
+        assertEquals(30L, wheel.getNextTime());
+
+        List<ScheduledTask> due = Lists.newArrayList();
+        wheel.advance(30L, due);
+        assertEquals(Lists.newArrayList(earlier), due);
+        assertEquals(100L, wheel.getNextTime());
+    }
+
+    @Test
+    public void testNextTimeAcrossBitmapWords() {
+        TaskWheel wheel = new TaskWheel(1024, 1000L);
+        ScheduledTask first = task();
+        ScheduledTask second = task();
+        wheel.add(first, 1700L);
+        wheel.add(second, 1900L);
+        assertEquals(1700L, wheel.getNextTime());
+
+        List<ScheduledTask> due = Lists.newArrayList();
+        wheel.advance(1699L, due);
+        assertTrue(due.isEmpty());
+        assertEquals(1700L, wheel.getNextTime());
+
+        wheel.advance(1800L, due);
+        assertEquals(Lists.newArrayList(first), due);
+        assertEquals(1900L, wheel.getNextTime());
+    }
+
+    @Test
+    public void testNextTimeWrapsAround() {
+        TaskWheel wheel = new TaskWheel(128, 100L);
+        ScheduledTask task = task();
+        // The bucket of this deadline comes before the bucket of the current time
+        wheel.add(task, 130L);
+        assertEquals(130L, wheel.getNextTime());
+
+        List<ScheduledTask> due = Lists.newArrayList();
+        wheel.advance(130L, due);
+        assertEquals(Lists.newArrayList(task), due);
+    }
+
+    @Test
+    public void testRemove() {
+        TaskWheel wheel = new TaskWheel(8, 0L);
+        ScheduledTask first = task();
+        ScheduledTask second = task();
+        wheel.add(first, 3L);
+        wheel.add(second, 11L);
+        assertTrue(wheel.contains(first));
+
+        wheel.remove(first);
+        assertFalse(wheel.contains(first));
+        assertEquals(1, wheel.size());
+        assertEquals(11L, wheel.getNextTime());
+
+        // Removing a task twice does nothing
+        wheel.remove(first);
+        assertEquals(1, wheel.size());
+
+        List<ScheduledTask> due = Lists.newArrayList();
+        wheel.advance(11L, due);
+        assertEquals(Lists.newArrayList(second), due);
+        assertTrue(wheel.isEmpty());
+    }
+
+}
@@ -0,0 +1,198 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.service.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.spongepowered.common.TestSponge;
+import org.spongepowered.common.configuration.SpongeConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+public class AsyncSqlExecutorTest {
+
+    private static final String SQL = "UPDATE players SET coins = ? WHERE name = ?";
+
+    private DataSource dataSource;
+    private Connection connection;
+    private PreparedStatement statement;
+
+    @Before
+    public void createDataSource() throws SQLException {
+        this.dataSource = Mockito.mock(DataSource.class);
+        this.connection = Mockito.mock(Connection.class);
+        this.statement = Mockito.mock(PreparedStatement.class);
+        Mockito.when(this.dataSource.getConnection()).thenReturn(this.connection);
+        Mockito.when(this.connection.getAutoCommit()).thenReturn(true);
+        Mockito.when(this.connection.prepareStatement(SQL)).thenReturn(this.statement);
+    }
+
+    private AsyncSqlExecutor createExecutor(int batchSize, int batchLatency) {
+        SpongeConfig.SqlCategory config = new SpongeConfig.SqlCategory();
+        config.setAsyncBatchSize(batchSize);
+        config.setAsyncBatchLatency(batchLatency);
+        return new AsyncSqlExecutor("test", this.dataSource, 1, config);
+    }
+
+    private static void stop(AsyncSqlExecutor executor) throws InterruptedException {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFullBatch() throws Exception {
+        Mockito.when(this.statement.executeBatch()).thenReturn(new int[] {1, 0, 1});
+        // The latency is long enough that only the batch size can flush
+        AsyncSqlExecutor executor = createExecutor(3, 60000);
+
+        ListenableFuture<Integer> first = executor.update(SQL, 10, "a");
+        ListenableFuture<Integer> second = executor.update(SQL, 20, "b");
+        ListenableFuture<Integer> third = executor.update(SQL, 30, "c");
+        assertEquals(Integer.valueOf(1), first.get(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(0), second.get(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(1), third.get(5, TimeUnit.SECONDS));
+        stop(executor);
+
+        Mockito.verify(this.connection, Mockito.times(1)).prepareStatement(SQL);
+        Mockito.verify(this.statement, Mockito.times(3)).addBatch();
+        Mockito.verify(this.statement, Mockito.times(1)).executeBatch();
+        Mockito.verify(this.statement).setObject(1, 20);
+        Mockito.verify(this.statement).setObject(2, "b");
+        Mockito.verify(this.connection).commit();
+        Mockito.verify(this.connection).setAutoCommit(true);
+        Mockito.verify(this.connection).close();
+        assertEquals(1, executor.getFlushedBatches());
+        assertEquals(3.0, executor.getAverageBatchSize(), 0.0);
+        assertEquals(3, executor.getQueryCount());
+        assertEquals(0, executor.getQueueDepth());
+    }
+
+    @Test
+    public void testLatencyFlush() throws Exception {
+        Mockito.when(this.statement.executeBatch()).thenReturn(new int[] {1, 1});
+        AsyncSqlExecutor executor = createExecutor(100, 100);
+
+        ListenableFuture<Integer> first = executor.update(SQL, 10, "a");
+        ListenableFuture<Integer> second = executor.update(SQL, 20, "b");
+        assertEquals(Integer.valueOf(1), first.get(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(1), second.get(5, TimeUnit.SECONDS));
+        stop(executor);
+
+        Mockito.verify(this.statement, Mockito.times(2)).addBatch();
+    }
+
+    @Test
+    public void testShutdownFlushesPendingUpdates() throws Exception {
+        Mockito.when(this.statement.executeBatch()).thenReturn(new int[] {1, 1});
+        AsyncSqlExecutor executor = createExecutor(100, 60000);
+
+        ListenableFuture<Integer> first = executor.update(SQL, 10, "a");
+        ListenableFuture<Integer> second = executor.update(SQL, 20, "b");
+        assertEquals(2, executor.getQueueDepth());
+        stop(executor);
+
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertEquals(Integer.valueOf(1), first.get());
+        Mockito.verify(this.statement, Mockito.times(1)).executeBatch();
+    }
+
+    @Test
+    public void testFailedBatch() throws Exception {
+        SQLException exception = new SQLException("Duplicate entry");
+        Mockito.when(this.statement.executeBatch()).thenThrow(exception);
+        AsyncSqlExecutor executor = createExecutor(2, 60000);
+
+        ListenableFuture<Integer> first = executor.update(SQL, 10, "a");
+        ListenableFuture<Integer> second = executor.update(SQL, 20, "b");
+        for (ListenableFuture<Integer> future : ImmutableList.of(first, second)) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("The update should have failed");
+            } catch (ExecutionException e) {
+                assertEquals(exception, e.getCause());
+            }
+        }
+        stop(executor);
+
+        Mockito.verify(this.connection).rollback();
+        Mockito.verify(this.connection, Mockito.never()).commit();
+        Mockito.verify(this.connection).close();
+    }
+
+    @Test
+    public void testFailedRollbackKeepsBatchFailure() throws Exception {
+        TestSponge.init();
+        SQLException exception = new SQLException("Duplicate entry");
+        Mockito.when(this.statement.executeBatch()).thenThrow(exception);
+        Mockito.doThrow(new SQLException("Connection lost")).when(this.connection).rollback();
+        AsyncSqlExecutor executor = createExecutor(1, 60000);
+
+        try {
+            executor.update(SQL, 10, "a").get(5, TimeUnit.SECONDS);
+            fail("The update should have failed");
+        } catch (ExecutionException e) {
+            assertEquals(exception, e.getCause());
+        }
+        stop(executor);
+
+        Mockito.verify(this.connection).setAutoCommit(true);
+        Mockito.verify(this.connection).close();
+    }
+
+    @Test
+    public void testSubmit() throws Exception {
+        AsyncSqlExecutor executor = createExecutor(100, 60000);
+
+        ListenableFuture<Boolean> future = executor.submit(new AsyncSqlExecutor.SqlTask<Boolean>() {
+
+            @Override
+            public Boolean run(Connection connection) throws SQLException {
+                return connection.getAutoCommit();
+            }
+        });
+        assertTrue(future.get(5, TimeUnit.SECONDS));
+        stop(executor);
+
+        Mockito.verify(this.connection).close();
+        Mockito.verify(this.dataSource, Mockito.times(1)).getConnection();
+        Mockito.verify(this.connection, Mockito.never()).prepareStatement(Matchers.anyString());
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.service.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.zaxxer.hikari.HikariConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.spongepowered.common.configuration.SpongeConfig;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class PooledDataSourceTest {
+
+    private final List<PooledDataSource> dataSources = Lists.newArrayList();
+    private SqlServiceImpl service;
+
+    @Before
+    public void createService() {
+        // Pools of in-memory H2 databases, without the settings of the global config
+        this.service = Mockito.mock(SqlServiceImpl.class);
+        Mockito.when(this.service.createConfig(Matchers.any(SqlServiceImpl.ConnectionInfo.class))).thenAnswer(new Answer<HikariConfig>() {
+
+            @Override
+            public HikariConfig answer(InvocationOnMock invocation) throws Throwable {
+                SqlServiceImpl.ConnectionInfo info = (SqlServiceImpl.ConnectionInfo) invocation.getArguments()[0];
+                HikariConfig config = new HikariConfig();
+                config.setDriverClassName(info.getDriverClassName());
+                config.setJdbcUrl(info.getAuthlessUrl());
+                config.setMaximumPoolSize(2);
+                config.setMinimumIdle(0);
+                return config;
+            }
+        });
+    }
+
+    @After
+    public void closeDataSources() {
+        for (PooledDataSource dataSource : this.dataSources) {
+            dataSource.close();
+        }
+    }
+
+    private PooledDataSource createDataSource(String name) throws SQLException {
+        PooledDataSource dataSource = new PooledDataSource(this.service, SqlServiceImpl.ConnectionInfo.fromUrl("jdbc:h2:mem:" + name));
+        this.dataSources.add(dataSource);
+        return dataSource;
+    }
+
+    private static void use(PooledDataSource dataSource) throws SQLException {
+        dataSource.getConnection().close();
+    }
+
+    @Test
+    public void testConnectionTracking() throws Exception {
+        PooledDataSource dataSource = createDataSource("tracking");
+        assertFalse(dataSource.isOpen());
+
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+        assertTrue(dataSource.isOpen());
+        assertEquals(1, dataSource.getOpenCount());
+        assertEquals(2, dataSource.getActiveConnections());
+        assertEquals(2, dataSource.getBorrowedConnections());
+
+        first.close();
+        // Closing a connection twice only returns it once
+        first.close();
+        assertEquals(1, dataSource.getActiveConnections());
+        second.close();
+        assertEquals(0, dataSource.getActiveConnections());
+        assertEquals(2, dataSource.getBorrowedConnections());
+    }
+
+    @Test
+    public void testIdlePoolIsClosed() throws Exception {
+        PooledDataSource dataSource = createDataSource("idle");
+        Connection connection = dataSource.getConnection();
+        Thread.sleep(50);
+        // Pools with borrowed connections are never idle
+        assertFalse(dataSource.closeIfIdle(10, TimeUnit.MILLISECONDS));
+
+        connection.close();
+        assertFalse(dataSource.closeIfIdle(1, TimeUnit.HOURS));
+        Thread.sleep(50);
+        assertTrue(dataSource.closeIfIdle(10, TimeUnit.MILLISECONDS));
+        assertFalse(dataSource.isOpen());
+
+        // The next connection opens the pool again
+        use(dataSource);
+        assertTrue(dataSource.isOpen());
+        assertEquals(2, dataSource.getOpenCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedPoolsAreClosed() throws Exception {
+        PooledDataSource first = createDataSource("first");
+        PooledDataSource second = createDataSource("second");
+        PooledDataSource third = createDataSource("third");
+        Connection borrowed = first.getConnection();
+        Thread.sleep(20);
+        use(second);
+        Thread.sleep(20);
+        use(third);
+        Thread.sleep(20);
+        borrowed.close();
+        Thread.sleep(20);
+        use(third);
+
+        SpongeConfig.SqlCategory config = new SpongeConfig.SqlCategory();
+        config.setPoolIdleTimeout(3600);
+        config.setMaxOpenPools(2);
+        SqlServiceImpl.evictIdlePools(ImmutableList.of(first, second, third), config);
+        assertTrue(first.isOpen());
+        assertFalse(second.isOpen());
+        assertTrue(third.isOpen());
+    }
+
+    @Test
+    public void testClosedDataSource() throws Exception {
+        PooledDataSource dataSource = createDataSource("closed");
+        use(dataSource);
+        dataSource.close();
+        assertFalse(dataSource.isOpen());
+        try {
+            dataSource.getConnection();
+            fail("Borrowed a connection from a closed data source");
+        } catch (SQLException e) {
+            // Expected
+        }
+        assertEquals(0, dataSource.getActiveConnections());
+        assertEquals(1, dataSource.getOpenCount());
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * This file is part of Sponge, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.spongepowered.common.world.gen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.flowpowered.math.vector.Vector2i;
+import org.junit.Test;
+import org.spongepowered.api.util.gen.MutableBiomeBuffer;
+import org.spongepowered.api.world.gen.BiomeGenerator;
+import org.spongepowered.common.util.gen.ByteArrayMutableBiomeBuffer;
+
+public class BiomeTileCacheTest {
+
+    private static final int TILE_SIZE = BiomeTileCache.TILE_SIZE;
+
+    /**
+     * Generates a biome id which differs between neighbouring blocks and
+     * between tiles.
+     */
+    private static int biomeId(int x, int z) {
+        return (x * 7 + z * 13) & 0xff;
+    }
+
+    private static final class TestBiomeGenerator implements BiomeGenerator {
+
+        int generatedTiles;
+
+        @Override
+        public void generateBiomes(MutableBiomeBuffer buffer) {
+            this.generatedTiles++;
+            Vector2i min = buffer.getBiomeMin();
+            Vector2i size = buffer.getBiomeSize();
+            byte[] biomeIds = new byte[size.getX() * size.getY()];
+            for (int z = 0; z < size.getY(); z++) {
+                for (int x = 0; x < size.getX(); x++) {
+                    biomeIds[z * size.getX() + x] = (byte) biomeId(min.getX() + x, min.getY() + z);
+                }
+            }
+            ((ByteArrayMutableBiomeBuffer) buffer).setBiomeIds(biomeIds, min.getX(), min.getY(), size.getX(), size.getY());
+        }
+
+    }
+
+    private static void assertArea(BiomeTileCache cache, int x, int z, int xSize, int zSize) {
+        byte[] biomeIds = cache.getBiomeIds(null, x, z, xSize, zSize);
+        assertEquals(xSize * zSize, biomeIds.length);
+        for (int row = 0; row < zSize; row++) {
+            for (int column = 0; column < xSize; column++) {
+                assertEquals("Biome at (" + (x + column) + ", " + (z + row) + ")",
+                        biomeId(x + column, z + row), biomeIds[row * xSize + column] & 0xff);
+            }
+        }
+    }
+
+    @Test
+    public void testSingleBlocks() {
+        BiomeTileCache cache = new BiomeTileCache(new TestBiomeGenerator(), 16);
+        assertEquals(biomeId(0, 0), cache.getBiomeId(0, 0));
+        assertEquals(biomeId(TILE_SIZE - 1, TILE_SIZE), cache.getBiomeId(TILE_SIZE - 1, TILE_SIZE));
+        assertEquals(biomeId(-1, -1), cache.getBiomeId(-1, -1));
+        assertEquals(biomeId(-TILE_SIZE, -TILE_SIZE - 1), cache.getBiomeId(-TILE_SIZE, -TILE_SIZE - 1));
+        assertEquals(biomeId(1000, -1000), cache.getBiomeId(1000, -1000));
+    }
+
+    @Test
+    public void testAreaWithinTile() {
+        BiomeTileCache cache = new BiomeTileCache(new TestBiomeGenerator(), 16);
+        assertArea(cache, 0, 0, TILE_SIZE, TILE_SIZE);
+        assertArea(cache, 5, 7, 16, 16);
+    }
+
+    @Test
+    public void testAreaAcrossTileBoundaries() {
+        BiomeTileCache cache = new BiomeTileCache(new TestBiomeGenerator(), 16);
+        assertArea(cache, TILE_SIZE - 3, TILE_SIZE - 2, 7, 5);
+        assertArea(cache, TILE_SIZE - 1, 0, 2, 1);
+        assertArea(cache, 0, TILE_SIZE - 1, 1, 2);
+        assertArea(cache, 10, 20, 3 * TILE_SIZE, 2 * TILE_SIZE + 1);
+    }
+
+    @Test
+    public void testNegativeCoordinates() {
+        BiomeTileCache cache = new BiomeTileCache(new TestBiomeGenerator(), 16);
+        assertArea(cache, -TILE_SIZE, -TILE_SIZE, TILE_SIZE, TILE_SIZE);
+        assertArea(cache, -3, -2, 6, 4);
+        assertArea(cache, -TILE_SIZE - 6, -5, TILE_SIZE + 12, 10);
+        assertArea(cache, -2 * TILE_SIZE - 1, -2 * TILE_SIZE - 1, 1, 1);
+    }
+
+    @Test
+    public void testReusedArray() {
+        BiomeTileCache cache = new BiomeTileCache(new TestBiomeGenerator(), 16);
+        byte[] biomeIds = new byte[100];
+        assertSame(biomeIds, cache.getBiomeIds(biomeIds, -5, -5, 10, 10));
+        assertEquals(biomeId(-5, -5), biomeIds[0] & 0xff);
+        assertEquals(biomeId(4, 4), biomeIds[99] & 0xff);
+    }
+
+    @Test
+    public void testTilesAreCached() {
+        TestBiomeGenerator generator = new TestBiomeGenerator();
+        BiomeTileCache cache = new BiomeTileCache(generator, 16);
+        cache.getBiomeIds(null, -1, -1, 2, 2);
+        assertEquals(4, generator.generatedTiles);
+        cache.getBiomeIds(null, -TILE_SIZE, -TILE_SIZE, 2 * TILE_SIZE, 2 * TILE_SIZE);
+        cache.getBiomeId(TILE_SIZE - 1, -TILE_SIZE);
+        assertEquals(4, generator.generatedTiles);
+    }
+
+}